@@ -1,24 +1,37 @@
 import contact.ContactController;
 import contact.ContactManager;
+import contact.ContactManagerCodec;
 import convention.ConferenceController;
 import convention.EventController;
 import convention.RoomController;
 import convention.ScheduleController;
 import convention.conference.ConferenceManager;
+import convention.conference.ConferenceManagerCodec;
+import convention.conference.ConferenceSegmentStore;
+import gateway.BinarySerializer;
 import gateway.CSVReader;
+import gateway.CheckpointedStore;
+import gateway.Checkpointer;
 import gateway.DocumentPrinter;
 import gateway.IDocumentPrinter;
+import gateway.Journal;
 import gateway.Serializer;
+import gateway.exceptions.JournalException;
 import gui.MainFrame;
 import messaging.ConversationController;
 import messaging.ConversationManager;
+import messaging.ConversationManagerCodec;
 import user.UserController;
 import user.UserManager;
+import user.UserManagerCodec;
 import util.ControllerBundle;
 
+import javax.swing.*;
 import java.io.IOException;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -30,6 +43,73 @@ import java.util.logging.Logger;
 public class ConventionSystem {
     private Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
+    // Journaling can be turned off with -Dconvention.journal=false
+    private final boolean journalEnabled = Boolean.parseBoolean(System.getProperty("convention.journal", "true"));
+
+    // Seconds between checkpoints (0 to only save on shutdown), and the number of changed entities that triggers an
+    // early checkpoint
+    private final long checkpointInterval = Long.getLong("convention.checkpoint.interval", 60);
+    private final int checkpointMaxDirty = Integer.getInteger("convention.checkpoint.maxDirty", 500);
+
+    // Read-only instances (e.g. kiosks) map this file instead of loading the stores. Set with
+    // -Dconvention.snapshot=<file name> to rewrite it with every checkpoint that changes a conference.
+    private final String snapshotFileName = System.getProperty("convention.snapshot");
+
+    /**
+     * Loads a manager from its binary file. Older versions stored the managers with java serialization, so if there
+     * is no binary file yet, the legacy file is read instead.
+     *
+     * @param serializer     binary serializer of the manager
+     * @param legacyFileName name of the legacy serialized file
+     * @param fallback       object to return if neither file can be read
+     * @param <T>            type of the manager
+     * @return the loaded manager, or fallback if applicable
+     */
+    private <T> T load(BinarySerializer<T> serializer, String legacyFileName, T fallback) {
+        if (serializer.exists()) {
+            return serializer.load(fallback);
+        }
+
+        return new Serializer<T>(legacyFileName).load(fallback);
+    }
+
+    /**
+     * Loads the conference manager from its segments. Older versions stored all the conferences in one file, which
+     * gets split into segments on the next save.
+     *
+     * @param conferenceSegmentStore segment store to load from
+     * @return the loaded conference manager
+     */
+    private ConferenceManager loadConferenceManager(ConferenceSegmentStore conferenceSegmentStore) {
+        if (conferenceSegmentStore.exists()) {
+            return conferenceSegmentStore.load(new ConferenceManager());
+        }
+
+        BinarySerializer<ConferenceManager> conferenceManagerSerializer = new BinarySerializer<>("conferenceManager.bin", new ConferenceManagerCodec());
+
+        return conferenceSegmentStore.load(load(conferenceManagerSerializer, "conferenceManager.ser", new ConferenceManager()));
+    }
+
+    /**
+     * Loads a store on an executor and prints how long it took
+     *
+     * @param storeName name of the store, used in the report
+     * @param loader    loads the store (falling back to an empty store if it can't be read)
+     * @param executor  executor to load on
+     * @param <T>       type of the store
+     * @return future of the loaded store
+     */
+    private <T> CompletableFuture<T> loadAsync(String storeName, Supplier<T> loader, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T store = loader.get();
+
+            System.out.printf("Read %s in %d ms\n", storeName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            return store;
+        }, executor);
+    }
+
     /**
      * Runs the Convention System
      */
@@ -42,20 +122,74 @@ public class ConventionSystem {
         LOGGER.setUseParentHandlers(false);
 
         // Create serializers
-        Serializer<UserManager> userManagerSerializer = new Serializer<>("userManager.ser");
-        Serializer<ContactManager> contactManagerSerializer = new Serializer<>("contactManager.ser");
-        Serializer<ConversationManager> conversationManagerSerializer = new Serializer<>("conversationManager.ser");
-        Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>("conferenceManager.ser");
+        BinarySerializer<UserManager> userManagerSerializer = new BinarySerializer<>("userManager.bin", new UserManagerCodec());
+        BinarySerializer<ContactManager> contactManagerSerializer = new BinarySerializer<>("contactManager.bin", new ContactManagerCodec());
+        BinarySerializer<ConversationManager> conversationManagerSerializer = new BinarySerializer<>("conversationManager.bin", new ConversationManagerCodec());
+
+        // Conferences are stored one segment per conference and only read when they're first accessed
+        ConferenceSegmentStore conferenceSegmentStore = new ConferenceSegmentStore("conferences");
 
         // Create managers
         // These store the entities and other important stuff
         System.out.println("Reading from disk...");
-        UserManager userManager = userManagerSerializer.load(new UserManager());
-        ContactManager contactManager = contactManagerSerializer.load(new ContactManager());
-        ConversationManager conversationManager = conversationManagerSerializer.load(new ConversationManager());
-        ConferenceManager conferenceManager = conferenceManagerSerializer.load(new ConferenceManager());
+        // The stores are independent, so they're read in parallel
+        long loadStart = System.nanoTime();
+        ExecutorService loadPool = Executors.newFixedThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors()));
 
-        // Create god mode accounts
+        CompletableFuture<UserManager> userManagerFuture = loadAsync("users", () -> load(userManagerSerializer, "userManager.ser", new UserManager()), loadPool);
+        CompletableFuture<ContactManager> contactManagerFuture = loadAsync("contacts", () -> load(contactManagerSerializer, "contactManager.ser", new ContactManager()), loadPool);
+        CompletableFuture<ConversationManager> conversationManagerFuture = loadAsync("conversations", () -> load(conversationManagerSerializer, "conversationManager.ser", new ConversationManager()), loadPool);
+        CompletableFuture<ConferenceManager> conferenceManagerFuture = loadAsync("conferences", () -> loadConferenceManager(conferenceSegmentStore), loadPool);
+
+        UserManager userManager = userManagerFuture.join();
+        ContactManager contactManager = contactManagerFuture.join();
+        ConversationManager conversationManager = conversationManagerFuture.join();
+        ConferenceManager conferenceManager = conferenceManagerFuture.join();
+
+        loadPool.shutdown();
+        System.out.printf("Read all stores in %d ms\n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart));
+
+        // Changed stores are written out periodically by the checkpointer, captured on the Swing thread
+        CheckpointedStore<UserManager> userCheckpoint = new CheckpointedStore<>(userManagerSerializer, userManager);
+        CheckpointedStore<ContactManager> contactCheckpoint = new CheckpointedStore<>(contactManagerSerializer, contactManager);
+        CheckpointedStore<ConversationManager> conversationCheckpoint = new CheckpointedStore<>(conversationManagerSerializer, conversationManager);
+
+        Checkpointer checkpointer = new Checkpointer(SwingUtilities::invokeLater, TimeUnit.SECONDS.toMillis(checkpointInterval), checkpointMaxDirty);
+        checkpointer.register("user", userCheckpoint);
+        checkpointer.register("contact", contactCheckpoint);
+        checkpointer.register("conversation", conversationCheckpoint);
+        checkpointer.register("conference", conferenceSegmentStore);
+
+        if (snapshotFileName != null) {
+            conferenceSegmentStore.setSnapshotFile(snapshotFileName);
+        }
+
+        // Replay changes made since the last snapshot, then journal every change from here on
+        // Entities are captured on the Swing thread, since that's where the managers are mutated
+        Journal journal = new Journal("journal.log", SwingUtilities::invokeLater);
+
+        if (journalEnabled) {
+            journal.register("user", userManager);
+            journal.register("contact", contactManager);
+            journal.register("conversation", conversationManager);
+            journal.register("conference", conferenceManager);
+
+            int replayed = journal.replay();
+            if (replayed > 0) {
+                System.out.printf("Replayed %d journal records\n", replayed);
+            }
+
+            // Replayed entities aren't in the snapshots yet. Journal segments are deleted once a checkpoint includes them.
+            userCheckpoint.markDirty(journal.getReplayedUUIDs("user"));
+            contactCheckpoint.markDirty(journal.getReplayedUUIDs("contact"));
+            conversationCheckpoint.markDirty(journal.getReplayedUUIDs("conversation"));
+            conferenceSegmentStore.markDirty(journal.getReplayedUUIDs("conference"));
+            checkpointer.addListener(journal);
+        }
+
+        // Create god mode accounts. This runs after the replay, so god users that are only in the journal aren't added
+        // twice, and before the journal and the checkpointer start, since they capture the managers on the Swing thread
+        // while this thread mutates them. The new users are captured once they start.
         try {
             Set<UUID> newGodUUIDs = userManager.loadGodUsers(new CSVReader("godUsers.csv").read());
 
@@ -68,6 +202,18 @@ public class ConventionSystem {
             System.out.println("Unable to load god mode users" + e);
         }
 
+        if (journalEnabled) {
+            try {
+                journal.start();
+            } catch (IOException e) {
+                System.out.println("Unable to open journal" + e);
+            }
+        }
+
+        if (checkpointInterval > 0) {
+            checkpointer.start();
+        }
+
         // Create the document writer
         IDocumentPrinter documentPrinter = new DocumentPrinter();
 
@@ -79,8 +225,8 @@ public class ConventionSystem {
         ConversationController conversationController = new ConversationController(contactManager, conversationManager, userManager);
 
         // Convention controllers
-        RoomController roomController = new RoomController(conferenceManager, userManager);
         EventController eventController = new EventController(conferenceManager, conversationManager, userManager);
+        RoomController roomController = new RoomController(eventController, conferenceManager, userManager);
         ScheduleController scheduleController = new ScheduleController(documentPrinter, userManager, conferenceManager, eventController);
         ConferenceController conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
 
@@ -91,10 +237,19 @@ public class ConventionSystem {
         Runnable shutdown = () -> {
             // Serialize everything for the next run
             System.out.println("Writing to disk...");
-            userManagerSerializer.save(userManager);
-            contactManagerSerializer.save(contactManager);
-            conversationManagerSerializer.save(conversationManager);
-            conferenceManagerSerializer.save(conferenceManager);
+
+            try {
+                journal.sync();
+            } catch (JournalException e) {
+                // The checkpoint below still writes every change to the snapshots
+                System.out.println("Unable to write journal" + e);
+            }
+
+            // Writes everything that changed since the last checkpoint, including the conference snapshot
+            checkpointer.close();
+
+            // The final checkpoint discarded every journal segment it includes
+            journal.close();
         };
 
         MainFrame uiSystem = new MainFrame(controllerBundle, shutdown);
@@ -0,0 +1,52 @@
+package contact;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Snapshot of the contacts, received requests and sent requests of a single user. Used to persist the contact maps one
+ * user at a time.
+ */
+class ContactEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<UUID> contacts;
+    private final Set<UUID> requests;
+    private final Set<UUID> sentRequests;
+
+    /**
+     * Constructs ContactEntry
+     *
+     * @param contacts     contacts of the user (may be null)
+     * @param requests     requests received by the user (may be null)
+     * @param sentRequests requests sent by the user (may be null)
+     */
+    ContactEntry(Set<UUID> contacts, Set<UUID> requests, Set<UUID> sentRequests) {
+        this.contacts = contacts == null ? null : new HashSet<>(contacts);
+        this.requests = requests == null ? null : new HashSet<>(requests);
+        this.sentRequests = sentRequests == null ? null : new HashSet<>(sentRequests);
+    }
+
+    /**
+     * @return contacts of the user, or null if the user has none on record
+     */
+    Set<UUID> getContacts() {
+        return contacts;
+    }
+
+    /**
+     * @return requests received by the user, or null if the user has none on record
+     */
+    Set<UUID> getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return requests sent by the user, or null if the user has none on record
+     */
+    Set<UUID> getSentRequests() {
+        return sentRequests;
+    }
+}
@@ -1,12 +1,16 @@
 package contact;
 
+import gateway.AbstractEntityStore;
+
 import java.io.Serializable;
 import java.util.*;
 
 /**
  * Stores and performs actions on contacts
  */
-public class ContactManager implements Serializable {
+public class ContactManager extends AbstractEntityStore {
+    private static final long serialVersionUID = -8272238091565320375L;
+
     private Map<UUID, Set<UUID>> contactsMap;
 
     private Map<UUID, Set<UUID>> requestsMap;
@@ -73,6 +77,8 @@ public class ContactManager implements Serializable {
         } else {
             contactsMap.putIfAbsent(userUUID, contacts);
         }
+
+        notifyChange(userUUID);
     }
 
     /**
@@ -87,6 +93,8 @@ public class ContactManager implements Serializable {
         } else {
             requestsMap.putIfAbsent(userUUID, requests);
         }
+
+        notifyChange(userUUID);
     }
 
     /**
@@ -101,5 +109,62 @@ public class ContactManager implements Serializable {
         } else {
             sentRequestsMap.putIfAbsent(userUUID, sentRequests);
         }
+
+        notifyChange(userUUID);
+    }
+
+    /**
+     * Gets the set of users that have any contact data on record
+     *
+     * @return set of user UUIDs
+     */
+    Set<UUID> getUserUUIDs() {
+        Set<UUID> userUUIDs = new HashSet<>(contactsMap.keySet());
+        userUUIDs.addAll(requestsMap.keySet());
+        userUUIDs.addAll(sentRequestsMap.keySet());
+
+        return userUUIDs;
+    }
+
+    /**
+     * Gets a copy of the contacts and requests of a user for persistence
+     *
+     * @param userUUID UUID of the user
+     * @return the contact entry of the user, or null if the user has no contact data
+     */
+    @Override
+    public Serializable exportEntity(UUID userUUID) {
+        if (!contactsMap.containsKey(userUUID) && !requestsMap.containsKey(userUUID) && !sentRequestsMap.containsKey(userUUID)) {
+            return null;
+        }
+
+        return new ContactEntry(contactsMap.get(userUUID), requestsMap.get(userUUID), sentRequestsMap.get(userUUID));
+    }
+
+    /**
+     * Replaces the contacts and requests of a user with a persisted copy
+     *
+     * @param userUUID UUID of the user
+     * @param entity   contact entry of the user, or null to erase the user's contact data
+     */
+    @Override
+    public void importEntity(UUID userUUID, Serializable entity) {
+        contactsMap.remove(userUUID);
+        requestsMap.remove(userUUID);
+        sentRequestsMap.remove(userUUID);
+
+        if (entity != null) {
+            ContactEntry contactEntry = (ContactEntry) entity;
+
+            if (contactEntry.getContacts() != null) {
+                contactsMap.put(userUUID, contactEntry.getContacts());
+            }
+            if (contactEntry.getRequests() != null) {
+                requestsMap.put(userUUID, contactEntry.getRequests());
+            }
+            if (contactEntry.getSentRequests() != null) {
+                sentRequestsMap.put(userUUID, contactEntry.getSentRequests());
+            }
+        }
     }
 }
@@ -0,0 +1,53 @@
+package contact;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.IEntityCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes a ContactManager in the binary storage format
+ * <p>
+ * Layout: [int user count][entries...], where each entry is [UUID user][contacts][requests][sent requests]
+ */
+public class ContactManagerCodec implements IEntityCodec<ContactManager> {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public Set<UUID> getEntityUUIDs(ContactManager contactManager) {
+        return contactManager.getUserUUIDs();
+    }
+
+    @Override
+    public void writeEntity(UUID userUUID, Serializable entity, BinaryWriter out) throws IOException {
+        ContactEntry contactEntry = (ContactEntry) entity;
+
+        out.writeUUID(userUUID);
+        out.writeUUIDSet(contactEntry.getContacts());
+        out.writeUUIDSet(contactEntry.getRequests());
+        out.writeUUIDSet(contactEntry.getSentRequests());
+    }
+
+    @Override
+    public ContactManager read(BinaryReader in) throws IOException {
+        ContactManager contactManager = new ContactManager();
+        int userCount = in.readInt();
+
+        for (int i = 0; i < userCount; i++) {
+            UUID userUUID = in.readUUID();
+            ContactEntry contactEntry = new ContactEntry(in.readUUIDSet(), in.readUUIDSet(), in.readUUIDSet());
+
+            contactManager.importEntity(userUUID, contactEntry);
+        }
+
+        return contactManager;
+    }
+}
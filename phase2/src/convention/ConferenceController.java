@@ -7,6 +7,7 @@ import convention.permission.PermissionManager;
 import messaging.ConversationManager;
 import user.UserManager;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
@@ -63,15 +64,12 @@ public class ConferenceController {
      * @return set of conference UUIDs
      */
     public Set<UUID> getUserConferences(UUID userUUID) {
-        Set<UUID> myConferences = new HashSet<>();
-
-        for (UUID conferenceUUID : conferenceManager.getConferences()) {
-            if (conferenceManager.isAffiliated(conferenceUUID, userUUID, userManager)) {
-                myConferences.add(conferenceUUID);
-            }
+        // God users are organizers of every conference
+        if (isGod(userUUID)) {
+            return conferenceManager.getConferences();
         }
 
-        return myConferences;
+        return conferenceManager.getMemberConferences(userUUID);
     }
 
     /**
@@ -82,17 +80,20 @@ public class ConferenceController {
      * @return set of conference UUIDs
      */
     public Set<UUID> getNotUserConferences(UUID userUUID) {
-        Set<UUID> myNotConferences = new HashSet<>();
-
-        for (UUID conferenceUUID : conferenceManager.getConferences()) {
-            if (!conferenceManager.isAffiliated(conferenceUUID, userUUID, userManager)) {
-                myNotConferences.add(conferenceUUID);
-            }
+        if (isGod(userUUID)) {
+            return new HashSet<>();
         }
 
+        Set<UUID> myNotConferences = conferenceManager.getConferences();
+        myNotConferences.removeAll(conferenceManager.getMemberConferences(userUUID));
+
         return myNotConferences;
     }
 
+    private boolean isGod(UUID userUUID) {
+        return userManager.isUser(userUUID) && userManager.getUserIsGod(userUUID);
+    }
+
     /**
      * Tests if a conference exists.
      * <p>
@@ -231,17 +232,16 @@ public class ConferenceController {
         }
 
         if (conferenceManager.isSpeaker(conferenceUUID, targetUserUUID)) {
-            // We'll handle revoking speaker access in updateSpeakers, since having speaker permissions is linked to
-            // whether or not a user is a speaker of an events.
+            // Speaker permissions are linked to whether or not a user is a speaker of an events, so they are revoked
+            // when the user is removed from their last events.
             for (UUID eventUUID : eventController.getSpeakerEvents(conferenceUUID, targetUserUUID)) {
                 eventManager.removeEventSpeaker(eventUUID, targetUserUUID);
             }
-
-            // Refresh the list of speakers for this conference
-            eventController.updateSpeakers(conferenceUUID);
         }
 
         if (conferenceManager.isAttendee(conferenceUUID, targetUserUUID)) {
+            eventController.leaveAllWaitlists(conferenceUUID, targetUserUUID);
+
             for (UUID eventUUID : eventController.getAttendeeEvents(conferenceUUID, targetUserUUID)) {
                 eventController.doUnregisterForEvent(conferenceUUID, targetUserUUID, eventUUID);
             }
@@ -249,8 +249,8 @@ public class ConferenceController {
             conferenceManager.removeAttendee(conferenceUUID, targetUserUUID);
         }
 
-        // Update the event conversation members in case it was missed for some reason
-        updateConferenceEventsConversationMembers(conferenceUUID);
+        // The user no longer has a role in any events, so take them out of the event conversations
+        removeFromEventConversations(conferenceUUID, targetUserUUID);
 
         LOGGER.log(Level.INFO, String.format("User left conference\n Conference UUID: %s\n Target: %s\n Executor: %s", conferenceUUID, targetUserUUID, executorUUID));
     }
@@ -294,7 +294,13 @@ public class ConferenceController {
         permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
         conferenceManager.addOrganizer(conferenceUUID, targetUserUUID);
 
-        updateConferenceEventsConversationMembers(conferenceUUID);
+        // Organizers are in every event conversation
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        Set<UUID> organizerUUIDs = Collections.singleton(targetUserUUID);
+
+        for (UUID eventUUID : eventManager.getEvents()) {
+            eventController.addEventConversationMembers(conferenceUUID, eventUUID, organizerUUIDs);
+        }
     }
 
     /**
@@ -311,15 +317,21 @@ public class ConferenceController {
         permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
         conferenceManager.removeOrganizer(conferenceUUID, targetUserUUID);
 
-        updateConferenceEventsConversationMembers(conferenceUUID);
+        removeFromEventConversations(conferenceUUID, targetUserUUID);
     }
 
-    private void updateConferenceEventsConversationMembers(UUID conferenceUUID) {
+    /**
+     * Removes a user from the conversations of the events of a conference they no longer have a role in
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param targetUserUUID UUID of the user to operate on
+     */
+    private void removeFromEventConversations(UUID conferenceUUID, UUID targetUserUUID) {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        Set<UUID> userUUIDs = Collections.singleton(targetUserUUID);
 
-        // Update the conversation list for each event
         for (UUID eventUUID : eventManager.getEvents()) {
-            eventController.updateEventConversationMembers(conferenceUUID, eventUUID);
+            eventController.removeEventConversationMembers(conferenceUUID, eventUUID, userUUIDs);
         }
     }
 
@@ -5,7 +5,6 @@ import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
 import convention.event.EventManager;
 import convention.exception.CalendarDoubleBookingException;
-import convention.exception.FullEventException;
 import convention.exception.InvalidEventTimeException;
 import convention.exception.SpeakerDoubleBookingException;
 import convention.permission.PermissionManager;
@@ -14,12 +13,20 @@ import messaging.ConversationManager;
 import user.UserManager;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 /**
  * Operations on Events
+ * <p>
+ * Not thread-safe. Like the other controllers, it must only be called on the thread that mutates the managers (the
+ * Swing event thread), which is also the thread the journal and checkpoints capture the managers on. Conferences,
+ * conversations and their change notifications are not synchronized, so the capacity check of a registration is only
+ * atomic because nothing else runs on that thread in between.
  */
 public class EventController {
 
@@ -59,17 +66,7 @@ public class EventController {
     public Set<UUID> getAttendeeEvents(UUID conferenceUUID, UUID executorUUID) {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
 
-        Set<UUID> registeredEventsUUIDs = new HashSet<>();
-
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-
-        for (UUID eventUUID : eventManager.getEvents()) {
-            if (eventManager.getEventAttendees(eventUUID).contains(executorUUID)) {
-                registeredEventsUUIDs.add(eventUUID);
-            }
-        }
-
-        return registeredEventsUUIDs;
+        return conferenceManager.getEventManager(conferenceUUID).getAttendeeEvents(executorUUID);
     }
 
     /**
@@ -83,16 +80,7 @@ public class EventController {
     public Set<UUID> getSpeakerEvents(UUID conferenceUUID, UUID executorUUID) {
         permissionManager.testIsSpeaker(conferenceUUID, executorUUID);
 
-        Set<UUID> registeredEventsUUIDs = new HashSet<>();
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-
-        for (UUID eventUUID : eventManager.getEvents()) {
-            if (eventManager.getEventSpeakers(eventUUID).contains(executorUUID)) {
-                registeredEventsUUIDs.add(eventUUID);
-            }
-        }
-
-        return registeredEventsUUIDs;
+        return conferenceManager.getEventManager(conferenceUUID).getSpeakerEvents(executorUUID);
     }
 
     /**
@@ -104,16 +92,7 @@ public class EventController {
      * @return list of events on that day
      */
     public Set<UUID> getDayEvents(UUID conferenceUUID, LocalDate day) {
-        Set<UUID> eventsUUIDsOnDay = new HashSet<>();
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-
-        for (UUID eventUUID : eventManager.getEvents()) {
-            if (eventManager.getEvent(eventUUID).getTimeRange().isInDay(day)) {
-                eventsUUIDsOnDay.add(eventUUID);
-            }
-        }
-
-        return eventsUUIDsOnDay;
+        return conferenceManager.getEventManager(conferenceUUID).getDayEvents(day);
     }
 
     /**
@@ -131,16 +110,11 @@ public class EventController {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
         RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
-        int currentEventAttendeeCount = eventManager.getEventAttendees(eventUUID).size();
         UUID roomUUID = eventManager.getEventRoom(eventUUID);
 
-        // Verify the events can take additional attendees
-        if (currentEventAttendeeCount + 1 > roomManager.getRoomCapacity(roomUUID)) {
-            throw new FullEventException();
-        }
-
-        eventManager.registerAttendee(eventUUID, targetUserUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        // Throws FullEventException if the events can't take additional attendees
+        eventManager.registerAttendee(eventUUID, targetUserUUID, roomManager.getRoomCapacity(roomUUID));
+        addEventConversationMembers(conferenceUUID, eventUUID, Collections.singleton(targetUserUUID));
     }
 
     /**
@@ -153,68 +127,161 @@ public class EventController {
      */
     void doUnregisterForEvent(UUID conferenceUUID, UUID targetUserUUID, UUID eventUUID) {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        UUID roomUUID = eventManager.getEventRoom(eventUUID);
 
-        eventManager.unregisterAttendee(eventUUID, targetUserUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        // The freed seat goes to the front of the waitlist. The conversation is updated once for the whole change.
+        List<UUID> promotedUUIDs = eventManager.unregisterAttendee(eventUUID, targetUserUUID, roomManager.getRoomCapacity(roomUUID));
+        removeEventConversationMembers(conferenceUUID, eventUUID, Collections.singleton(targetUserUUID));
+        addEventConversationMembers(conferenceUUID, eventUUID, promotedUUIDs);
     }
 
     /**
-     * Unregister for an events. A user must be an attendee of the parent conference to unregister.
+     * Join the waitlist of a full events. Users are registered in the order they joined as seats free up. If the events
+     * has a free seat and nobody is waiting, the user is registered right away.
      * <p>
      * Required Permission: ATTENDEE (self) or ORGANIZER
      *
      * @param conferenceUUID UUID of the conference to operate on
      * @param executorUUID   UUID of the user executing the command
      * @param targetUserUUID UUID of the user to operate on
-     * @param eventUUID      UUID of the events to register to
+     * @param eventUUID      UUID of the events to wait for
+     * @return position of the user on the waitlist starting from 1, or 0 if the user is registered for the events
      */
-    public void unregisterForEvent(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+    public int joinWaitlist(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
         permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
-        doUnregisterForEvent(conferenceUUID, targetUserUUID, eventUUID);
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        UUID roomUUID = eventManager.getEventRoom(eventUUID);
+
+        // Throws FullWaitlistException if the waitlist can't take additional users
+        int position = eventManager.joinWaitlist(eventUUID, targetUserUUID, roomManager.getRoomCapacity(roomUUID));
+
+        if (position == 0) {
+            addEventConversationMembers(conferenceUUID, eventUUID, Collections.singleton(targetUserUUID));
+        }
+
+        return position;
     }
 
     /**
-     * Helper function to keep the list of speakers at a conference in sync
+     * Leave the waitlist of an events
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
      *
      * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to stop waiting for
      */
-    void updateSpeakers(UUID conferenceUUID) {
-        Set<UUID> speakerUUIDs = new HashSet<>();
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+    public void leaveWaitlist(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        conferenceManager.getEventManager(conferenceUUID).leaveWaitlist(eventUUID, targetUserUUID);
+    }
 
-        for (UUID eventUUID : eventManager.getEvents()) {
-            Set<UUID> eventSpeakerUUIDs = eventManager.getEventSpeakers(eventUUID);
+    /**
+     * Removes a user from every waitlist of a conference (i.e. when they leave the conference)
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param targetUserUUID UUID of the user to operate on
+     */
+    void leaveAllWaitlists(UUID conferenceUUID, UUID targetUserUUID) {
+        conferenceManager.getEventManager(conferenceUUID).leaveAllWaitlists(targetUserUUID);
+    }
 
-            speakerUUIDs.addAll(eventSpeakerUUIDs);
-        }
+    /**
+     * Get the position of a user on the waitlist of an events
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to operate on
+     * @return position starting from 1, or 0 if the user is not on the waitlist
+     */
+    public int getWaitlistPosition(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
 
-        conferenceManager.setSpeakers(conferenceUUID, speakerUUIDs);
+        return conferenceManager.getEventManager(conferenceUUID).getWaitlistPosition(eventUUID, targetUserUUID);
     }
 
     /**
-     * Tests whether a speaker is scheduled to talk at a given time range.
+     * Get the number of users waiting for a seat at an events
+     * <p>
+     * Required Permission: ATTENDEE
      *
      * @param conferenceUUID UUID of the conference to operate on
-     * @param speakerUUID    UUID of the speaker to test
-     * @param timeRange      TimeRange to test for overlap
-     * @return true iff the speaker is not available at the given time range
+     * @param executorUUID   UUID of the user executing the command
+     * @param eventUUID      UUID of the events to operate on
+     * @return length of the waitlist
      */
-    private boolean speakerTimeRangeOccupied(UUID conferenceUUID, UUID speakerUUID, TimeRange timeRange) {
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-        for (UUID eventUUID : eventManager.getEvents()) {
-            Set<UUID> speakerUUIDs = eventManager.getEventSpeakers(eventUUID);
+    public int getWaitlistSize(UUID conferenceUUID, UUID executorUUID, UUID eventUUID) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+
+        return conferenceManager.getEventManager(conferenceUUID).getWaitlistSize(eventUUID);
+    }
 
-            // If the speaker is linked to this events, we want to test if there's a conflict
-            if (speakerUUIDs.contains(speakerUUID)) {
-                TimeRange eventTimeRange = eventManager.getEventTimeRange(eventUUID);
+    /**
+     * Get the users waiting for a seat at an events
+     * <p>
+     * Required Permission: ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param eventUUID      UUID of the events to operate on
+     * @return UUIDs of the waiting users, in the order they will be registered
+     */
+    public List<UUID> getEventWaitlist(UUID conferenceUUID, UUID executorUUID, UUID eventUUID) {
+        permissionManager.testIsOrganizer(conferenceUUID, executorUUID);
 
-                if (eventTimeRange.hasOverlap(timeRange)) {
-                    return true;
-                }
-            }
+        return conferenceManager.getEventManager(conferenceUUID).getEventWaitlist(eventUUID);
+    }
+
+    /**
+     * Registers waiting users for the events held in a room until they are full (i.e. after the room got bigger)
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param roomUUID       UUID of the room
+     */
+    void promoteRoomWaitlists(UUID conferenceUUID, UUID roomUUID) {
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        for (UUID eventUUID : roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges().keySet()) {
+            promoteWaitlist(conferenceUUID, eventUUID);
         }
+    }
+
+    /**
+     * Registers waiting users for an events until it is full, and updates its conversation once for all of them
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param eventUUID      UUID of the events to operate on
+     */
+    private void promoteWaitlist(UUID conferenceUUID, UUID eventUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        UUID roomUUID = eventManager.getEventRoom(eventUUID);
 
-        return false;
+        addEventConversationMembers(conferenceUUID, eventUUID, eventManager.promoteWaitlist(eventUUID, roomManager.getRoomCapacity(roomUUID)));
+    }
+
+    /**
+     * Unregister for an events. A user must be an attendee of the parent conference to unregister.
+     * <p>
+     * Required Permission: ATTENDEE (self) or ORGANIZER
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param targetUserUUID UUID of the user to operate on
+     * @param eventUUID      UUID of the events to register to
+     */
+    public void unregisterForEvent(UUID conferenceUUID, UUID executorUUID, UUID targetUserUUID, UUID eventUUID) {
+        permissionManager.testIsAttendeeSelfOrAdmin(conferenceUUID, executorUUID, targetUserUUID);
+        doUnregisterForEvent(conferenceUUID, targetUserUUID, eventUUID);
     }
 
     /**
@@ -226,8 +293,10 @@ public class EventController {
      * @throws SpeakerDoubleBookingException iff there is at least one speaker which has a double booking
      */
     private void testSpeakersTimeRangeOccupied(UUID conferenceUUID, Set<UUID> speakerUUIDs, TimeRange timeRange) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
         for (UUID speakerUUID : speakerUUIDs) {
-            if (speakerTimeRangeOccupied(conferenceUUID, speakerUUID, timeRange)) {
+            if (eventManager.speakerTimeRangeOccupied(speakerUUID, timeRange)) {
                 throw new SpeakerDoubleBookingException(speakerUUID, timeRange);
             }
         }
@@ -278,7 +347,6 @@ public class EventController {
             UUID eventUUID = eventManager.createEvent(eventName, timeRange, roomUUID, speakerUUIDs);
 
             roomCalendarManager.addTimeBlock(eventUUID, timeRange);
-            updateSpeakers(conferenceUUID);
 
             return eventUUID;
         }
@@ -309,8 +377,7 @@ public class EventController {
         }, eventTimeRange);
 
         eventManager.addEventSpeaker(eventUUID, speakerUUID);
-        updateSpeakers(conferenceUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        addEventConversationMembers(conferenceUUID, eventUUID, Collections.singleton(speakerUUID));
     }
 
     /**
@@ -330,8 +397,7 @@ public class EventController {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
         eventManager.removeEventSpeaker(eventUUID, speakerUUID);
-        updateSpeakers(conferenceUUID);
-        updateEventConversationMembers(conferenceUUID, eventUUID);
+        removeEventConversationMembers(conferenceUUID, eventUUID, Collections.singleton(speakerUUID));
     }
 
     /**
@@ -362,7 +428,6 @@ public class EventController {
         }
 
         eventManager.deleteEvent(eventUUID);
-        updateSpeakers(conferenceUUID);
     }
 
     /**
@@ -417,6 +482,9 @@ public class EventController {
 
             // Update the events with the new room UUID
             eventManager.setEventRoom(eventUUID, newRoomUUID);
+
+            // The new room may have seats for people on the waitlist
+            promoteWaitlist(conferenceUUID, eventUUID);
         }
     }
 
@@ -508,7 +576,7 @@ public class EventController {
         permissionManager.testIsAttendee(conferenceUUID, executorUUID);
 
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
-        return eventManager.getEventAttendees(eventUUID).contains(executorUUID);
+        return eventManager.isEventAttendee(eventUUID, executorUUID);
     }
 
     /**
@@ -598,43 +666,63 @@ public class EventController {
 
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
-        return eventManager.getEventAttendees(eventUUID).size();
+        return eventManager.getEventAttendeeCount(eventUUID);
     }
 
     /**
-     * Triggers an update of the members of an event conversation
+     * Adds users to the conversation of an events, if it has one. Callers pass the users whose role in the events just
+     * changed, so the cost doesn't depend on the size of the events or of the system.
      *
      * @param conferenceUUID UUID of the conference to operate on
      * @param eventUUID      UUID of the events to operate on
+     * @param userUUIDs      UUIDs of the users that joined the events
      */
-    void updateEventConversationMembers(UUID conferenceUUID, UUID eventUUID) {
-        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+    void addEventConversationMembers(UUID conferenceUUID, UUID eventUUID, Collection<UUID> userUUIDs) {
+        UUID conversationUUID = conferenceManager.getEventManager(conferenceUUID).getEventConversationUUID(eventUUID);
 
+        if (conversationUUID != null && !userUUIDs.isEmpty()) {
+            conversationManager.addUsers(userUUIDs, conversationUUID);
+        }
+    }
+
+    /**
+     * Removes users from the conversation of an events, if it has one, unless they still belong in it through another
+     * role (i.e. an attendee that is also an organizer of the conference)
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param eventUUID      UUID of the events to operate on
+     * @param userUUIDs      UUIDs of the users that left the events
+     */
+    void removeEventConversationMembers(UUID conferenceUUID, UUID eventUUID, Collection<UUID> userUUIDs) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
         UUID conversationUUID = eventManager.getEventConversationUUID(eventUUID);
 
-        if (conversationUUID != null) {
-            // This is the current list of users
-            Set<UUID> existingMembers = conversationManager.getUsers(conversationUUID);
+        if (conversationUUID == null) {
+            return;
+        }
 
-            // This is what we want
-            Set<UUID> targetUserList = compileEventConversationMembers(conferenceUUID, eventUUID);
+        Set<UUID> leavingUUIDs = new HashSet<>();
 
-            // Remove users no longer on the list
-            for (UUID userUUID : existingMembers) {
-                if (!targetUserList.contains(userUUID)) {
-                    conversationManager.removeUser(userUUID, conversationUUID);
-                }
+        for (UUID userUUID : userUUIDs) {
+            if (!isEventConversationMember(conferenceUUID, eventManager, eventUUID, userUUID)) {
+                leavingUUIDs.add(userUUID);
             }
+        }
 
-            // Add new users to the list
-            for (UUID userUUID : targetUserList) {
-                if (!existingMembers.contains(userUUID)) {
-                    conversationManager.addUser(userUUID, conversationUUID);
-                }
-            }
+        if (!leavingUUIDs.isEmpty()) {
+            conversationManager.removeUsers(leavingUUIDs, conversationUUID);
         }
     }
 
+    /**
+     * Tests if a user belongs in the conversation of an events, which holds its attendees, its speakers and the
+     * organizers of the conference
+     */
+    private boolean isEventConversationMember(UUID conferenceUUID, EventManager eventManager, UUID eventUUID, UUID userUUID) {
+        return eventManager.isEventAttendee(eventUUID, userUUID) || eventManager.isEventSpeaker(eventUUID, userUUID) ||
+                conferenceManager.isListedOrganizer(conferenceUUID, userUUID);
+    }
+
     private Set<UUID> compileEventConversationMembers(UUID conferenceUUID, UUID eventUUID) {
         EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
 
@@ -8,25 +8,27 @@ import convention.permission.PermissionManager;
 import convention.room.RoomManager;
 import user.UserManager;
 
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.*;
 
 /**
  * Operations on Rooms
  */
 public class RoomController {
 
+    private EventController eventController;
     private ConferenceManager conferenceManager;
     private PermissionManager permissionManager;
 
     /**
      * Constructs RoomController
      *
+     * @param eventController   instance of event controller
      * @param conferenceManager instance of conference manager
      * @param userManager       instance of user manager
      */
-    public RoomController(ConferenceManager conferenceManager, UserManager userManager) {
+    public RoomController(EventController eventController, ConferenceManager conferenceManager, UserManager userManager) {
+        this.eventController = eventController;
         this.conferenceManager = conferenceManager;
         this.permissionManager = new PermissionManager(conferenceManager, userManager);
     }
@@ -98,6 +100,9 @@ public class RoomController {
         RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
 
         roomManager.setRoomCapacity(roomUUID, roomCapacity);
+
+        // Give any new seats to the waitlists of the events in this room
+        eventController.promoteRoomWaitlists(conferenceUUID, roomUUID);
     }
 
     /**
@@ -178,4 +183,58 @@ public class RoomController {
 
         return roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges();
     }
+
+    /**
+     * Finds free slots of a given length in a room, for suggesting event times. At most one slot is returned for
+     * each gap between the room's bookings, and only slots during the conference are returned.
+     * <p>
+     * Required Permission: ATTENDEE
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param roomUUID       UUID of the room to operate on
+     * @param duration       length of the slots
+     * @param window         time range to search
+     * @return free time ranges in start order
+     */
+    public List<TimeRange> findFreeSlots(UUID conferenceUUID, UUID executorUUID, UUID roomUUID, Duration duration, TimeRange window) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        TimeRange conferenceTimeRange = conferenceManager.getTimeRange(conferenceUUID);
+
+        long start = Math.max(window.getStartEpochSecond(), conferenceTimeRange.getStartEpochSecond());
+        long end = Math.min(window.getEndEpochSecond(), conferenceTimeRange.getEndEpochSecond());
+
+        if (start >= end) {
+            return new ArrayList<>();
+        }
+
+        return roomManager.getCalendarManager(roomUUID).findFreeSlots(duration, new TimeRange(start, end));
+    }
+
+    /**
+     * Finds the rooms with enough capacity that are free during a time range. Time ranges outside the conference
+     * have no free rooms.
+     * <p>
+     * Required Permission: ATTENDEE
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param executorUUID   UUID of the user executing the command
+     * @param timeRange      time range the rooms must be free for
+     * @param minCapacity    minimum capacity of the rooms
+     * @return UUIDs of the free rooms, smallest capacity first
+     */
+    public List<UUID> findRoomsFreeDuring(UUID conferenceUUID, UUID executorUUID, TimeRange timeRange, int minCapacity) {
+        permissionManager.testIsAttendee(conferenceUUID, executorUUID);
+
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+        TimeRange conferenceTimeRange = conferenceManager.getTimeRange(conferenceUUID);
+
+        if (timeRange.getStartEpochSecond() < conferenceTimeRange.getStartEpochSecond() || timeRange.getEndEpochSecond() > conferenceTimeRange.getEndEpochSecond()) {
+            return new ArrayList<>();
+        }
+
+        return roomManager.findRoomsFreeDuring(timeRange, minCapacity);
+    }
 }
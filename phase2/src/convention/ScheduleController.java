@@ -149,14 +149,9 @@ public class ScheduleController {
      */
     private List<Pair<UUID, UUID>> getDateEventPairs(LocalDate date) {
         List<Pair<UUID, UUID>> listOfPairs = new ArrayList<>();
-        Set<UUID> conferenceUUIDSet = new HashSet<>();
 
         // Compiles list of relevant conferences
-        for (UUID conferenceUUID : conferenceManager.getConferences()) {
-            if (conferenceManager.getTimeRange(conferenceUUID).isInDay(date)) {
-                conferenceUUIDSet.add(conferenceUUID);
-            }
-        }
+        Set<UUID> conferenceUUIDSet = conferenceManager.getConferencesWithEventsOn(date);
 
         // Compiles list of relevant events
         for (UUID conferenceUUID : conferenceUUIDSet) {
@@ -1,5 +1,7 @@
 package convention.calendar;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -7,14 +9,15 @@ import java.util.*;
  * Calendar object - stores mappings from events UUID to timeRange and prevents conflicts
  */
 public class Calendar implements Serializable {
-    // Look at the LocalDateTime library
-    // You can probably just store pairs of LocalDateTime (for start and end), in a set (Maybe make another class for the pair?)
-    // To check if a time slot is going to conflict, compare the new pair with the previous pairs
-    // We'll probably also want to be able to store the events UUID in the pair
-    //
-    // Edit: The TimeRange class will actually handle the pair of times for you
+    private static final long serialVersionUID = -5368907910893175018L;
+
     private final Map<UUID, TimeRange> uuidToTimeRange = new HashMap<>();
 
+    // Bookings ordered by start time. Bookings never overlap (CalendarManager rejects conflicts), so ordering them by
+    // start also orders them by end, and the only booking that can overlap a time range is the last one that starts
+    // before the range ends. It isn't persisted, readObject rebuilds it from the bookings.
+    private transient TreeMap<Long, UUID> startToUUID = new TreeMap<>();
+
     /**
      * Gets the full mapping from UUID to Time range
      *
@@ -25,24 +28,51 @@ public class Calendar implements Serializable {
     }
 
     /**
-     * @return get a Set of TimeRanges booked on this calendar
+     * Tests if a time range overlaps any booking, in O(log n)
+     *
+     * @param t the TimeRange that is being compared to existing TimeRange objects on this calendar
+     * @return true iff t conflicts with an existing TimeRange object
      */
-    private Set<TimeRange> getUUIDtoTimeRanges() {
-        return new HashSet<>(uuidToTimeRange.values());
+    boolean hasConflict(TimeRange t) {
+        Map.Entry<Long, UUID> latestStart = startToUUID.floorEntry(t.getEndEpochSecond());
+
+        return latestStart != null && uuidToTimeRange.get(latestStart.getValue()).hasOverlap(t);
     }
 
     /**
-     * @param t the TimeRange that is being compared to existing TimeRange objects on this calendar
-     * @return true iff t conflicts with an existing TimeRange object
+     * Gets the free gaps between bookings inside a window, in order. Since bookings conflict with ranges that touch
+     * them, a gap starts a second after the booking before it ends and ends a second before the booking after it.
+     *
+     * @param window      time range to search
+     * @param minDuration minimum length of a gap in seconds, must be positive
+     * @return free time ranges inside the window that are at least minDuration long
      */
-    boolean hasConflict(TimeRange t) {
-        Set<TimeRange> timeRangeSet = this.getUUIDtoTimeRanges();
-        for (TimeRange tr : timeRangeSet) {
-            if (t.hasOverlap(tr)) {
-                return true;
-            }
+    List<TimeRange> getFreeGaps(TimeRange window, long minDuration) {
+        List<TimeRange> gaps = new ArrayList<>();
+        long gapStart = window.getStartEpochSecond();
+
+        // A booking that starts before the window may still cover its start
+        Map.Entry<Long, UUID> before = startToUUID.lowerEntry(gapStart);
+        if (before != null) {
+            gapStart = Math.max(gapStart, uuidToTimeRange.get(before.getValue()).getEndEpochSecond() + 1);
+        }
+
+        for (UUID eventUUID : startToUUID.subMap(window.getStartEpochSecond(), true, window.getEndEpochSecond(), true).values()) {
+            TimeRange booking = uuidToTimeRange.get(eventUUID);
+
+            addGap(gaps, gapStart, booking.getStartEpochSecond() - 1, minDuration);
+            gapStart = Math.max(gapStart, booking.getEndEpochSecond() + 1);
+        }
+
+        addGap(gaps, gapStart, window.getEndEpochSecond(), minDuration);
+
+        return gaps;
+    }
+
+    private void addGap(List<TimeRange> gaps, long start, long end, long minDuration) {
+        if (end - start >= minDuration) {
+            gaps.add(new TimeRange(start, end));
         }
-        return false;
     }
 
     /**
@@ -52,7 +82,10 @@ public class Calendar implements Serializable {
      * @param timeRange Time range of the events
      */
     void addTimeBlock(UUID eventUUID, TimeRange timeRange) {
+        removeTimeBlock(eventUUID);
+
         this.uuidToTimeRange.put(eventUUID, timeRange);
+        this.startToUUID.put(timeRange.getStartEpochSecond(), eventUUID);
     }
 
     /**
@@ -61,7 +94,11 @@ public class Calendar implements Serializable {
      * @param eventUUID UUID of the event
      */
     void removeTimeBlock(UUID eventUUID) {
-        this.uuidToTimeRange.remove(eventUUID);
+        TimeRange timeRange = this.uuidToTimeRange.remove(eventUUID);
+
+        if (timeRange != null) {
+            this.startToUUID.remove(timeRange.getStartEpochSecond(), eventUUID);
+        }
     }
 
     /**
@@ -72,4 +109,17 @@ public class Calendar implements Serializable {
     TimeRange getBooking(UUID eventUUID) {
         return this.uuidToTimeRange.get(eventUUID);
     }
+
+    /**
+     * Rebuilds the start time index after loading this calendar with Java serialization
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        startToUUID = new TreeMap<>();
+
+        for (Map.Entry<UUID, TimeRange> booking : uuidToTimeRange.entrySet()) {
+            startToUUID.put(booking.getValue().getStartEpochSecond(), booking.getKey());
+        }
+    }
 }
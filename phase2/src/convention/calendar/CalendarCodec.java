@@ -0,0 +1,49 @@
+package convention.calendar;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.ICodec;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes a Calendar in the binary storage format
+ * <p>
+ * Layout: [int booking count][bookings...], where each booking is [UUID event][time range]
+ */
+public class CalendarCodec implements ICodec<Calendar> {
+    private final TimeRangeCodec timeRangeCodec = new TimeRangeCodec();
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void write(Calendar calendar, BinaryWriter out) throws IOException {
+        Map<UUID, TimeRange> bookings = calendar.getUUIDToTimeRange();
+
+        out.writeInt(bookings.size());
+
+        for (Map.Entry<UUID, TimeRange> booking : bookings.entrySet()) {
+            out.writeUUID(booking.getKey());
+            timeRangeCodec.write(booking.getValue(), out);
+        }
+    }
+
+    @Override
+    public Calendar read(BinaryReader in) throws IOException {
+        Calendar calendar = new Calendar();
+        int bookingCount = in.readInt();
+
+        // Bookings were validated when they were made, so they are restored without conflict checks
+        for (int i = 0; i < bookingCount; i++) {
+            UUID eventUUID = in.readUUID();
+            calendar.addTimeBlock(eventUUID, timeRangeCodec.read(in));
+        }
+
+        return calendar;
+    }
+}
@@ -1,8 +1,12 @@
 package convention.calendar;
 
 import convention.exception.CalendarDoubleBookingException;
+import convention.exception.InvalidTimeRangeException;
 import convention.exception.NullBookingException;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -10,8 +14,11 @@ import java.util.UUID;
  * Manages the Calendar entity
  */
 public class CalendarManager {
+    // Suggested slots start on the minute, since that is the resolution times are entered in
+    private static final long SLOT_ALIGNMENT = 60;
 
     private Calendar calendar;
+    private Runnable changeCallback;
 
     /**
      * Creates calendar manager for a calendar
@@ -19,7 +26,19 @@ public class CalendarManager {
      * @param calendar calendar object to operate on
      */
     public CalendarManager(Calendar calendar) {
+        this(calendar, () -> {
+        });
+    }
+
+    /**
+     * Creates calendar manager for a calendar that reports changes to its bookings
+     *
+     * @param calendar       calendar object to operate on
+     * @param changeCallback runs every time a booking is added or removed
+     */
+    public CalendarManager(Calendar calendar, Runnable changeCallback) {
         this.calendar = calendar;
+        this.changeCallback = changeCallback;
     }
 
     /**
@@ -39,6 +58,33 @@ public class CalendarManager {
         return calendar.hasConflict(t);
     }
 
+    /**
+     * Finds the earliest free slot of a given length in each gap between bookings inside a window
+     *
+     * @param duration length of the slots
+     * @param window   time range the slots must fall in
+     * @return free slots in start order, at most one per gap
+     */
+    public List<TimeRange> findFreeSlots(Duration duration, TimeRange window) {
+        long seconds = duration.getSeconds();
+
+        if (seconds <= 0) {
+            throw new InvalidTimeRangeException();
+        }
+
+        List<TimeRange> slots = new ArrayList<>();
+
+        for (TimeRange gap : calendar.getFreeGaps(window, seconds)) {
+            long start = Math.floorDiv(gap.getStartEpochSecond() + SLOT_ALIGNMENT - 1, SLOT_ALIGNMENT) * SLOT_ALIGNMENT;
+
+            if (start + seconds <= gap.getEndEpochSecond()) {
+                slots.add(new TimeRange(start, start + seconds));
+            }
+        }
+
+        return slots;
+    }
+
     /**
      * adds the UUID and TimeRange of a events object to Calendar
      *
@@ -50,6 +96,7 @@ public class CalendarManager {
             throw new CalendarDoubleBookingException();
         } else {
             calendar.addTimeBlock(eventUUID, timeRange);
+            changeCallback.run();
         }
     }
 
@@ -64,5 +111,6 @@ public class CalendarManager {
         }
 
         calendar.removeTimeBlock(eventUUID);
+        changeCallback.run();
     }
 }
@@ -2,27 +2,74 @@ package convention.calendar;
 
 import convention.exception.InvalidTimeRangeException;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 /**
  * Object with a start end time date pair. Ensures the start time is always before the end time.
+ * <p>
+ * Times are stored as UTC epoch seconds (the resolution of the storage formats), so overlap and day tests are plain
+ * long comparisons. The LocalDateTime getters are materialized on first use.
  */
 public class TimeRange implements Serializable {
-    private LocalDateTime start;
-    private LocalDateTime end;
+    private static final long serialVersionUID = 3578034211148513955L;
+
+    private static final long SECONDS_PER_DAY = 86400;
+
+    // Java serialization keeps the layout from before times were stored as epoch seconds, so files written by earlier
+    // versions can still be read
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("start", LocalDateTime.class),
+            new ObjectStreamField("end", LocalDateTime.class)
+    };
+
+    private final long start;
+    private final long end;
+
+    // Epoch days of the start and end, for day tests
+    private final long startDay;
+    private final long endDay;
+
+    private transient LocalDateTime startDateTime;
+    private transient LocalDateTime endDateTime;
 
     /**
-     * Constructor for Time range
+     * Constructor for Time range. Sub-second precision is dropped.
      *
      * @param start start time date
      * @param end   end time date
      */
     public TimeRange(LocalDateTime start, LocalDateTime end) {
-        if (start.isBefore(end)) {
-            this.start = start;
-            this.end = end;
+        this(start.toEpochSecond(ZoneOffset.UTC), end.toEpochSecond(ZoneOffset.UTC));
+
+        if (start.getNano() == 0) {
+            this.startDateTime = start;
+        }
+
+        if (end.getNano() == 0) {
+            this.endDateTime = end;
+        }
+    }
+
+    /**
+     * Constructor for Time range
+     *
+     * @param startEpochSecond start time in UTC epoch seconds
+     * @param endEpochSecond   end time in UTC epoch seconds
+     */
+    public TimeRange(long startEpochSecond, long endEpochSecond) {
+        if (startEpochSecond < endEpochSecond) {
+            this.start = startEpochSecond;
+            this.end = endEpochSecond;
+            this.startDay = Math.floorDiv(startEpochSecond, SECONDS_PER_DAY);
+            this.endDay = Math.floorDiv(endEpochSecond, SECONDS_PER_DAY);
         } else {
             throw new InvalidTimeRangeException();
         }
@@ -34,7 +81,11 @@ public class TimeRange implements Serializable {
      * @return
      */
     public LocalDateTime getStart() {
-        return start;
+        if (startDateTime == null) {
+            startDateTime = LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC);
+        }
+
+        return startDateTime;
     }
 
     /**
@@ -43,20 +94,57 @@ public class TimeRange implements Serializable {
      * @return
      */
     public LocalDateTime getEnd() {
+        if (endDateTime == null) {
+            endDateTime = LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC);
+        }
+
+        return endDateTime;
+    }
+
+    /**
+     * Get start time in UTC epoch seconds
+     *
+     * @return
+     */
+    public long getStartEpochSecond() {
+        return start;
+    }
+
+    /**
+     * Get end time in UTC epoch seconds
+     *
+     * @return
+     */
+    public long getEndEpochSecond() {
         return end;
     }
 
     /**
-     * Tests if this time range overlaps with the other time range
+     * Get the day the time range starts on
+     *
+     * @return start day, as returned by LocalDate.toEpochDay
+     */
+    public long getStartEpochDay() {
+        return startDay;
+    }
+
+    /**
+     * Get the day the time range ends on
+     *
+     * @return end day, as returned by LocalDate.toEpochDay
+     */
+    public long getEndEpochDay() {
+        return endDay;
+    }
+
+    /**
+     * Tests if this time range overlaps with the other time range. Ranges that only touch at an endpoint overlap.
      *
      * @param otherTimeRange other time range to test
      * @return true iff there is an overlap between this time range and the other
      */
     public boolean hasOverlap(TimeRange otherTimeRange) {
-        boolean otherIsBefore = otherTimeRange.getStart().isBefore(getStart()) && otherTimeRange.getEnd().isBefore(getStart());
-        boolean otherIsAfter = otherTimeRange.getStart().isAfter(getEnd()) && otherTimeRange.getEnd().isAfter(getEnd());
-
-        return !otherIsBefore && !otherIsAfter;
+        return otherTimeRange.end >= start && otherTimeRange.start <= end;
     }
 
     /**
@@ -64,9 +152,17 @@ public class TimeRange implements Serializable {
      * @return true iff the TimeRange overlaps with that day
      */
     public boolean isInDay(LocalDate date) {
-        return this.getEnd().toLocalDate().equals(date)
-                || this.getStart().toLocalDate().equals(date)
-                || (this.getStart().toLocalDate().isBefore(date) & this.getEnd().toLocalDate().isAfter(date));
+        return isInDay(date.toEpochDay());
+    }
+
+    /**
+     * Day test for callers that test many time ranges against the same day, so the day is only converted once
+     *
+     * @param epochDay a day, as returned by LocalDate.toEpochDay
+     * @return true iff the TimeRange overlaps with that day
+     */
+    public boolean isInDay(long epochDay) {
+        return startDay <= epochDay && endDay >= epochDay;
     }
 
 
@@ -79,13 +175,17 @@ public class TimeRange implements Serializable {
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof TimeRange) {
-            return ((TimeRange) obj).getEnd().equals(getEnd()) &&
-                    ((TimeRange) obj).getStart().equals(getStart());
+            return ((TimeRange) obj).start == start && ((TimeRange) obj).end == end;
         }
 
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(start) * 31 + Long.hashCode(end);
+    }
+
     /**
      * Gets the string representation of this time range
      *
@@ -95,4 +195,34 @@ public class TimeRange implements Serializable {
     public String toString() {
         return String.format("[%s → %s]", getStart(), getEnd());
     }
+
+    /**
+     * Writes the start and end as LocalDateTimes, in the legacy layout
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("start", getStart());
+        fields.put("end", getEnd());
+        out.writeFields();
+    }
+
+    /**
+     * Reads the start and end written by writeObject, readResolve then builds the time range from them
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        startDateTime = (LocalDateTime) fields.get("start", null);
+        endDateTime = (LocalDateTime) fields.get("end", null);
+
+        if (startDateTime == null || endDateTime == null) {
+            throw new InvalidObjectException("Time range without a start or end");
+        }
+    }
+
+    /**
+     * Replaces the deserialized time range, whose final fields are unset, with one built from its start and end
+     */
+    private Object readResolve() {
+        return new TimeRange(startDateTime, endDateTime);
+    }
 }
@@ -0,0 +1,31 @@
+package convention.calendar;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.ICodec;
+
+import java.io.IOException;
+
+/**
+ * Encodes a TimeRange in the binary storage format
+ * <p>
+ * Layout: [long start epoch seconds][long end epoch seconds]
+ */
+public class TimeRangeCodec implements ICodec<TimeRange> {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void write(TimeRange timeRange, BinaryWriter out) throws IOException {
+        out.writeLong(timeRange.getStartEpochSecond());
+        out.writeLong(timeRange.getEndEpochSecond());
+    }
+
+    @Override
+    public TimeRange read(BinaryReader in) throws IOException {
+        return new TimeRange(in.readLong(), in.readLong());
+    }
+}
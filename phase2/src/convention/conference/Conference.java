@@ -1,7 +1,10 @@
 package convention.conference;
 
 import convention.calendar.TimeRange;
+import convention.event.AttendeeEventIndex;
 import convention.event.Event;
+import convention.event.EventDayIndex;
+import convention.event.SpeakerIntervalIndex;
 import convention.room.Room;
 
 import java.io.Serializable;
@@ -12,6 +15,8 @@ import java.util.*;
  * the roles of users.
  */
 class Conference implements Serializable {
+    private static final long serialVersionUID = -251882308033553694L;
+
     private Set<UUID> organizerUUIDs = new HashSet<>();
     private Set<UUID> speakerUUIDs = new HashSet<>();
     private Set<UUID> attendeeUUIDs = new HashSet<>();
@@ -24,6 +29,11 @@ class Conference implements Serializable {
 
     private TimeRange timeRange;
 
+    // Built from the events on first use, so they don't need to be persisted
+    private transient EventDayIndex eventDayIndex;
+    private transient SpeakerIntervalIndex speakerIntervalIndex;
+    private transient AttendeeEventIndex attendeeEventIndex;
+
     /**
      * Conference constructor.
      *
@@ -32,10 +42,21 @@ class Conference implements Serializable {
      * @param organizerUUID  UUID of the initial organizer
      */
     Conference(String conferenceName, TimeRange timeRange, UUID organizerUUID) {
+        this(UUID.randomUUID(), conferenceName, timeRange);
+        this.organizerUUIDs.add(organizerUUID);
+    }
+
+    /**
+     * Conference constructor with an existing UUID and no users (i.e. when loading a conference from disk)
+     *
+     * @param uuid           UUID of the conference
+     * @param conferenceName name of the convention
+     * @param timeRange      TimeRange of the convention
+     */
+    Conference(UUID uuid, String conferenceName, TimeRange timeRange) {
         this.conferenceName = conferenceName;
-        this.uuid = UUID.randomUUID();
+        this.uuid = uuid;
         this.timeRange = timeRange;
-        this.organizerUUIDs.add(organizerUUID);
     }
 
     /**
@@ -47,6 +68,45 @@ class Conference implements Serializable {
         return events;
     }
 
+    /**
+     * Gets the day index of the events of this convention
+     *
+     * @return the day index
+     */
+    public EventDayIndex getEventDayIndex() {
+        if (eventDayIndex == null) {
+            eventDayIndex = new EventDayIndex(events);
+        }
+
+        return eventDayIndex;
+    }
+
+    /**
+     * Gets the speaker index of the events of this convention
+     *
+     * @return the speaker index
+     */
+    public SpeakerIntervalIndex getSpeakerIntervalIndex() {
+        if (speakerIntervalIndex == null) {
+            speakerIntervalIndex = new SpeakerIntervalIndex(events);
+        }
+
+        return speakerIntervalIndex;
+    }
+
+    /**
+     * Gets the attendee index of the events of this convention
+     *
+     * @return the attendee index
+     */
+    public AttendeeEventIndex getAttendeeEventIndex() {
+        if (attendeeEventIndex == null) {
+            attendeeEventIndex = new AttendeeEventIndex(events);
+        }
+
+        return attendeeEventIndex;
+    }
+
     /**
      * Gets rooms associated with this convention
      *
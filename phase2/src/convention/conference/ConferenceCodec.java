@@ -0,0 +1,122 @@
+package convention.conference;
+
+import convention.calendar.CalendarCodec;
+import convention.calendar.TimeRange;
+import convention.calendar.TimeRangeCodec;
+import convention.event.Event;
+import convention.room.Room;
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.ICodec;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Encodes a single Conference, including its rooms and events, in the binary storage format
+ * <p>
+ * Layout: [UUID][name][time range][organizers][speakers][attendees][int room count][rooms...][int event count][events...]
+ * <p>
+ * Rooms are [UUID][location][int capacity][calendar] and events are
+ * [UUID][title][time range][UUID room][UUID conversation][speakers][attendees][int waitlist size][waitlist UUIDs...]
+ * <p>
+ * Version 1 had no waitlists, and is read as events with empty waitlists.
+ */
+class ConferenceCodec implements ICodec<Conference> {
+    private final TimeRangeCodec timeRangeCodec = new TimeRangeCodec();
+    private final CalendarCodec calendarCodec = new CalendarCodec();
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public void write(Conference conference, BinaryWriter out) throws IOException {
+        out.writeUUID(conference.getUUID());
+        out.writeString(conference.getConferenceName());
+        timeRangeCodec.write(conference.getTimeRange(), out);
+        out.writeUUIDSet(conference.getOrganizerUUIDs());
+        out.writeUUIDSet(conference.getSpeakerUUIDs());
+        out.writeUUIDSet(conference.getAttendeeUUIDs());
+
+        out.writeInt(conference.getRooms().size());
+
+        for (Room room : conference.getRooms().values()) {
+            out.writeUUID(room.getUUID());
+            out.writeString(room.getRoomLocation());
+            out.writeInt(room.getCapacity());
+            calendarCodec.write(room.getCalendar(), out);
+        }
+
+        out.writeInt(conference.getEvents().size());
+
+        for (Event event : conference.getEvents().values()) {
+            out.writeUUID(event.getUUID());
+            out.writeString(event.getTitle());
+            timeRangeCodec.write(event.getTimeRange(), out);
+            out.writeUUID(event.getRoomUUID());
+            out.writeUUID(event.getConversationUUID());
+            out.writeUUIDSet(event.getSpeakers());
+            out.writeUUIDSet(event.getAttendeeUUIDs());
+
+            // Written in order, since the waitlist is a queue
+            out.writeInt(event.getWaitlistUUIDs().size());
+
+            for (UUID waitingUUID : event.getWaitlistUUIDs()) {
+                out.writeUUID(waitingUUID);
+            }
+        }
+    }
+
+    @Override
+    public Conference read(BinaryReader in) throws IOException {
+        return read(in, getVersion());
+    }
+
+    @Override
+    public Conference read(BinaryReader in, int version) throws IOException {
+        if (version < 1 || version > getVersion()) {
+            return null;
+        }
+
+        Conference conference = new Conference(in.readUUID(), in.readString(), timeRangeCodec.read(in));
+
+        conference.getOrganizerUUIDs().addAll(in.readUUIDSet());
+        conference.getSpeakerUUIDs().addAll(in.readUUIDSet());
+        conference.getAttendeeUUIDs().addAll(in.readUUIDSet());
+
+        int roomCount = in.readInt();
+
+        for (int i = 0; i < roomCount; i++) {
+            Room room = new Room(in.readUUID(), in.readString(), in.readInt(), calendarCodec.read(in));
+            conference.getRooms().put(room.getUUID(), room);
+        }
+
+        int eventCount = in.readInt();
+
+        for (int i = 0; i < eventCount; i++) {
+            UUID eventUUID = in.readUUID();
+            String title = in.readString();
+            TimeRange timeRange = timeRangeCodec.read(in);
+            UUID roomUUID = in.readUUID();
+            UUID conversationUUID = in.readUUID();
+
+            Event event = new Event(eventUUID, title, timeRange, roomUUID, in.readUUIDSet());
+            event.setConversationUUID(conversationUUID);
+            event.getAttendeeUUIDs().addAll(in.readUUIDSet());
+
+            if (version >= 2) {
+                int waitlistSize = in.readInt();
+
+                for (int j = 0; j < waitlistSize; j++) {
+                    event.addToWaitlist(in.readUUID());
+                }
+            }
+
+            conference.getEvents().put(event.getUUID(), event);
+        }
+
+        return conference;
+    }
+}
@@ -0,0 +1,75 @@
+package convention.conference;
+
+import java.util.*;
+
+/**
+ * What the entry file of a conference records about it: the roles of its users and the days it has events on. Lets
+ * membership and date queries be answered without reading the segment of the conference.
+ */
+class ConferenceIndexEntry {
+    static final ConferenceIndexEntry EMPTY = new ConferenceIndexEntry(new HashMap<>(), new HashSet<>());
+
+    private final Map<UUID, Integer> roles;
+    private final Set<Long> days;
+
+    /**
+     * @param roles role flags of each user, from ConferenceMembershipIndex
+     * @param days  days with events, as returned by LocalDate.toEpochDay
+     */
+    ConferenceIndexEntry(Map<UUID, Integer> roles, Set<Long> days) {
+        this.roles = Collections.unmodifiableMap(new HashMap<>(roles));
+        this.days = Collections.unmodifiableSet(new HashSet<>(days));
+    }
+
+    /**
+     * Builds the index entry of a conference
+     *
+     * @param conference the conference
+     * @return its index entry
+     */
+    static ConferenceIndexEntry of(Conference conference) {
+        Map<UUID, Integer> roles = new HashMap<>();
+
+        for (UUID attendeeUUID : conference.getAttendeeUUIDs()) {
+            roles.merge(attendeeUUID, ConferenceMembershipIndex.ATTENDEE, (a, b) -> a | b);
+        }
+
+        for (UUID speakerUUID : conference.getSpeakerUUIDs()) {
+            roles.merge(speakerUUID, ConferenceMembershipIndex.SPEAKER, (a, b) -> a | b);
+        }
+
+        for (UUID organizerUUID : conference.getOrganizerUUIDs()) {
+            roles.merge(organizerUUID, ConferenceMembershipIndex.ORGANIZER, (a, b) -> a | b);
+        }
+
+        return new ConferenceIndexEntry(roles, conference.getEventDayIndex().getDays());
+    }
+
+    /**
+     * @return role flags of each user
+     */
+    Map<UUID, Integer> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @return days with events
+     */
+    Set<Long> getDays() {
+        return days;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof ConferenceIndexEntry) {
+            return ((ConferenceIndexEntry) obj).roles.equals(roles) && ((ConferenceIndexEntry) obj).days.equals(days);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return roles.hashCode() * 31 + days.hashCode();
+    }
+}
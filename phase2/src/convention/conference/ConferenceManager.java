@@ -2,25 +2,104 @@ package convention.conference;
 
 import convention.calendar.CalendarManager;
 import convention.calendar.TimeRange;
-import convention.event.Event;
+import convention.event.EventDayIndex;
+import convention.event.EventDelta;
 import convention.event.EventManager;
+import convention.event.IDayIndexListener;
+import convention.event.ISpeakerIndexListener;
+import convention.event.SpeakerIntervalIndex;
 import convention.exception.InvalidNameException;
 import convention.exception.LoneOrganizerException;
 import convention.exception.NullConferenceException;
 import convention.exception.NullUserException;
 import convention.room.Room;
 import convention.room.RoomManager;
+import gateway.AbstractEntityStore;
 import user.UserManager;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.*;
 
 /**
- * Manages conferences
+ * Manages conferences. Not thread-safe: must only be used on the thread that mutates the managers.
  */
-public class ConferenceManager implements Serializable {
+public class ConferenceManager extends AbstractEntityStore {
+    private static final long serialVersionUID = 4718881216905206343L;
+
+    // Role flags returned by getRoles
+    public static final int ATTENDEE_ROLE = ConferenceMembershipIndex.ATTENDEE;
+    public static final int SPEAKER_ROLE = ConferenceMembershipIndex.SPEAKER;
+    public static final int ORGANIZER_ROLE = ConferenceMembershipIndex.ORGANIZER;
+
     private final Map<UUID, Conference> conferences = new HashMap<>();
 
+    // Conferences that are listed in the segment index but haven't been read from their segment yet, and the index
+    // entries of those that have been read from their entry file
+    private transient Set<UUID> unloadedConferenceUUIDs = new HashSet<>();
+    private transient Map<UUID, ConferenceIndexEntry> unloadedIndexEntries = new HashMap<>();
+    private transient ConferenceSegmentStore segmentStore;
+
+    // Days to the conferences with events on them. Built on the first date query, from the index entries of unloaded
+    // conferences and the day indexes of loaded ones, and kept up to date by the day indexes after that. Conferences
+    // without an entry file are loaded to build it.
+    private transient Map<Long, Set<UUID>> dayToConferenceUUIDs;
+
+    // Users to the conferences they have a role in. Built on the first membership query, like the day index.
+    private transient ConferenceMembershipIndex membershipIndex;
+
+    /**
+     * Attaches the segment store that unloaded conferences are read from
+     *
+     * @param segmentStore            segment store to read from
+     * @param unloadedConferenceUUIDs UUIDs of the conferences in the store that haven't been loaded
+     * @param indexEntries            index entries of unloaded conferences that are already known, the others are
+     *                                read from their entry file when they are needed
+     */
+    void setSegmentStore(ConferenceSegmentStore segmentStore, Set<UUID> unloadedConferenceUUIDs, Map<UUID, ConferenceIndexEntry> indexEntries) {
+        this.segmentStore = segmentStore;
+        this.unloadedConferenceUUIDs.addAll(unloadedConferenceUUIDs);
+        this.unloadedIndexEntries.putAll(indexEntries);
+    }
+
+    /**
+     * Gets the index entry of a conference. Unloaded conferences without an entry file are loaded.
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return the index entry of the conference
+     */
+    ConferenceIndexEntry getIndexEntry(UUID conferenceUUID) {
+        ConferenceIndexEntry entry = getUnloadedIndexEntry(conferenceUUID);
+
+        return entry != null ? entry : ConferenceIndexEntry.of(getConference(conferenceUUID));
+    }
+
+    /**
+     * Gets the index entry of an unloaded conference, reading it from its entry file the first time
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return the index entry, or null if the conference is loaded or doesn't have a readable entry file
+     */
+    private ConferenceIndexEntry getUnloadedIndexEntry(UUID conferenceUUID) {
+        if (!unloadedConferenceUUIDs.contains(conferenceUUID)) {
+            return null;
+        }
+
+        return unloadedIndexEntries.computeIfAbsent(conferenceUUID, segmentStore::loadIndexEntry);
+    }
+
+    /**
+     * Tests if a conference has been read into memory
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return true iff the conference exists and has been loaded
+     */
+    boolean isLoaded(UUID conferenceUUID) {
+        return conferences.containsKey(conferenceUUID);
+    }
+
     /**
      * Conference names must be non-empty; this method tests for that condition
      *
@@ -57,15 +136,105 @@ public class ConferenceManager implements Serializable {
      * @return the events manager object
      */
     public EventManager getEventManager(UUID conferenceUUID) {
-        Map<UUID, Event> events = getConference(conferenceUUID).getEvents();
+        Conference conference = getConference(conferenceUUID);
+
+        return new EventManager(conference.getEvents(), conference.getEventDayIndex(), conference.getSpeakerIntervalIndex(),
+                conference.getAttendeeEventIndex(), () -> notifyChange(conferenceUUID), delta -> notifyDelta(conferenceUUID, delta));
+    }
+
+    /**
+     * Gets the conferences that have at least one event on a day
+     *
+     * @param day the day
+     * @return set of conference UUIDs
+     */
+    public Set<UUID> getConferencesWithEventsOn(LocalDate day) {
+        if (dayToConferenceUUIDs == null) {
+            dayToConferenceUUIDs = new HashMap<>();
+
+            for (UUID conferenceUUID : getConferences()) {
+                ConferenceIndexEntry entry = getUnloadedIndexEntry(conferenceUUID);
+
+                if (entry != null) {
+                    addConferenceDays(conferenceUUID, entry.getDays());
+                    continue;
+                }
+
+                try {
+                    indexConferenceDays(conferenceUUID, getConference(conferenceUUID));
+                } catch (NullConferenceException e) {
+                    // Unreadable segment, it has no events to list
+                }
+            }
+        }
+
+        Set<UUID> conferenceUUIDs = dayToConferenceUUIDs.get(day.toEpochDay());
+
+        return conferenceUUIDs == null ? new HashSet<>() : new HashSet<>(conferenceUUIDs);
+    }
+
+    /**
+     * Lists a conference under the days it has events on, and keeps it up to date as its events change
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     */
+    private void indexConferenceDays(UUID conferenceUUID, Conference conference) {
+        EventDayIndex dayIndex = conference.getEventDayIndex();
+        addConferenceDays(conferenceUUID, dayIndex.getDays());
+
+        dayIndex.setListener(new IDayIndexListener() {
+            @Override
+            public void dayAdded(long epochDay) {
+                dayToConferenceUUIDs.computeIfAbsent(epochDay, k -> new HashSet<>()).add(conferenceUUID);
+            }
+
+            @Override
+            public void dayRemoved(long epochDay) {
+                removeConferenceDay(epochDay, conferenceUUID);
+            }
+        });
+    }
+
+    /**
+     * Removes a conference from the days it is listed under
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     */
+    private void unindexConferenceDays(UUID conferenceUUID, Conference conference) {
+        EventDayIndex dayIndex = conference.getEventDayIndex();
+        dayIndex.setListener(null);
+
+        for (long day : dayIndex.getDays()) {
+            removeConferenceDay(day, conferenceUUID);
+        }
+    }
 
-        return new EventManager(events);
+    private void addConferenceDays(UUID conferenceUUID, Set<Long> days) {
+        for (long day : days) {
+            dayToConferenceUUIDs.computeIfAbsent(day, k -> new HashSet<>()).add(conferenceUUID);
+        }
+    }
+
+    private void removeConferenceDay(long day, UUID conferenceUUID) {
+        Set<UUID> conferenceUUIDs = dayToConferenceUUIDs.get(day);
+
+        if (conferenceUUIDs != null && conferenceUUIDs.remove(conferenceUUID) && conferenceUUIDs.isEmpty()) {
+            dayToConferenceUUIDs.remove(day);
+        }
     }
 
+    /**
+     * Generates a RoomManager object to control rooms for a conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return the room manager object
+     */
     public RoomManager getRoomManager(UUID conferenceUUID) {
         Map<UUID, Room> rooms = getConference(conferenceUUID).getRooms();
 
-        return new RoomManager(rooms);
+        return new RoomManager(rooms, () -> notifyChange(conferenceUUID));
     }
 
     /**
@@ -83,6 +252,10 @@ public class ConferenceManager implements Serializable {
 
         Conference newConference = new Conference(conferenceName, timeRange, organizerUUID);
         conferences.put(newConference.getUUID(), newConference);
+        trackSpeakers(newConference.getUUID(), newConference);
+        addToIndexes(newConference.getUUID(), newConference);
+
+        notifyChange(newConference.getUUID());
 
         return newConference.getUUID();
     }
@@ -96,7 +269,7 @@ public class ConferenceManager implements Serializable {
      * @return true iff a conference with the corresponding UUID exists in the system
      */
     public boolean conferenceExists(UUID conferenceUUID) {
-        return conferences.containsKey(conferenceUUID);
+        return conferences.containsKey(conferenceUUID) || unloadedConferenceUUIDs.contains(conferenceUUID);
     }
 
     /**
@@ -111,22 +284,199 @@ public class ConferenceManager implements Serializable {
             throw new NullConferenceException(conferenceUUID);
         }
 
-        conferences.remove(conferenceUUID);
+        removeConference(conferenceUUID);
+        notifyChange(conferenceUUID);
     }
 
     /**
      * Gets a conference from its UUID. This method also checks if the UUID corresponds to a valid convention and raises
      * a NullConferenceException if not.
+     * <p>
+     * Conferences that haven't been loaded yet are read from their segment on first access.
      *
      * @param conferenceUUID UUID of the conference to operate on
      * @return Conference object
      */
     private Conference getConference(UUID conferenceUUID) {
-        if (!conferenceExists(conferenceUUID)) {
-            throw new NullConferenceException(conferenceUUID);
+        Conference conference = conferences.get(conferenceUUID);
+
+        if (conference == null) {
+            if (!unloadedConferenceUUIDs.contains(conferenceUUID)) {
+                throw new NullConferenceException(conferenceUUID);
+            }
+
+            conference = segmentStore.loadSegment(conferenceUUID);
+
+            // Leave the conference in the index if its segment can't be read, so it isn't dropped on the next save
+            if (conference == null) {
+                throw new NullConferenceException(conferenceUUID);
+            }
+
+            unloadedConferenceUUIDs.remove(conferenceUUID);
+            conferences.put(conferenceUUID, conference);
+
+            // The indexes only have what the index entry recorded, so they switch to tracking the conference itself
+            ConferenceIndexEntry entry = unloadedIndexEntries.remove(conferenceUUID);
+
+            if (entry != null) {
+                removeFromIndexes(conferenceUUID, entry);
+                addToIndexes(conferenceUUID, conference);
+            }
+
+            trackSpeakers(conferenceUUID, conference);
         }
 
-        return conferences.get(conferenceUUID);
+        return conference;
+    }
+
+    /**
+     * Removes a conference, loaded or not, from the manager and the indexes without notifying listeners
+     *
+     * @param conferenceUUID UUID of the conference
+     */
+    private void removeConference(UUID conferenceUUID) {
+        Conference conference = conferences.remove(conferenceUUID);
+        ConferenceIndexEntry entry = unloadedIndexEntries.remove(conferenceUUID);
+        unloadedConferenceUUIDs.remove(conferenceUUID);
+
+        if (conference != null) {
+            conference.getSpeakerIntervalIndex().setListener(null);
+            removeFromIndexes(conferenceUUID, conference);
+        } else if (entry != null) {
+            removeFromIndexes(conferenceUUID, entry);
+        }
+    }
+
+    /**
+     * Adds a loaded conference to the day and membership indexes that have been built
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     */
+    private void addToIndexes(UUID conferenceUUID, Conference conference) {
+        if (dayToConferenceUUIDs != null) {
+            indexConferenceDays(conferenceUUID, conference);
+        }
+
+        if (membershipIndex != null) {
+            membershipIndex.addConference(conferenceUUID, conference);
+        }
+    }
+
+    /**
+     * Removes a loaded conference from the day and membership indexes that have been built
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     */
+    private void removeFromIndexes(UUID conferenceUUID, Conference conference) {
+        if (dayToConferenceUUIDs != null) {
+            unindexConferenceDays(conferenceUUID, conference);
+        }
+
+        if (membershipIndex != null) {
+            membershipIndex.removeConference(conferenceUUID, conference);
+        }
+    }
+
+    /**
+     * Removes what the index entry of an unloaded conference added to the day and membership indexes
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param entry          index entry of the conference
+     */
+    private void removeFromIndexes(UUID conferenceUUID, ConferenceIndexEntry entry) {
+        if (dayToConferenceUUIDs != null) {
+            for (long day : entry.getDays()) {
+                removeConferenceDay(day, conferenceUUID);
+            }
+        }
+
+        if (membershipIndex != null) {
+            membershipIndex.removeConference(conferenceUUID, entry.getRoles());
+        }
+    }
+
+    /**
+     * Keeps the speakers of a conference in sync with its events. A user is a speaker of a conference as long as they
+     * speak at one of its events. The speaker index counts the events of each speaker and says when a count goes from
+     * or to zero, so speaker edits don't need to rescan the events.
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference, which was just loaded or created
+     */
+    private void trackSpeakers(UUID conferenceUUID, Conference conference) {
+        SpeakerIntervalIndex speakerIndex = conference.getSpeakerIntervalIndex();
+
+        // Saved speakers are only a cache of the event speakers, so rebuild them in case they are out of date
+        rebuildSpeakers(conferenceUUID, conference);
+
+        speakerIndex.setListener(new ISpeakerIndexListener() {
+            @Override
+            public void speakerAdded(UUID speakerUUID) {
+                conference.addSpeaker(speakerUUID);
+
+                if (membershipIndex != null) {
+                    membershipIndex.addRole(speakerUUID, conferenceUUID, ConferenceMembershipIndex.SPEAKER);
+                }
+            }
+
+            @Override
+            public void speakerRemoved(UUID speakerUUID) {
+                conference.removeSpeaker(speakerUUID);
+
+                if (membershipIndex != null) {
+                    membershipIndex.removeRole(speakerUUID, conferenceUUID, ConferenceMembershipIndex.SPEAKER);
+                }
+            }
+        });
+    }
+
+    /**
+     * Recomputes the speakers of a conference from the speakers of its events
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     * @return true iff the speakers were out of date
+     */
+    private boolean rebuildSpeakers(UUID conferenceUUID, Conference conference) {
+        Set<UUID> speakerUUIDs = conference.getSpeakerIntervalIndex().getSpeakers();
+
+        if (speakerUUIDs.equals(conference.getSpeakerUUIDs())) {
+            return false;
+        }
+
+        if (membershipIndex != null) {
+            for (UUID userUUID : conference.getSpeakerUUIDs()) {
+                membershipIndex.removeRole(userUUID, conferenceUUID, ConferenceMembershipIndex.SPEAKER);
+            }
+
+            for (UUID userUUID : speakerUUIDs) {
+                membershipIndex.addRole(userUUID, conferenceUUID, ConferenceMembershipIndex.SPEAKER);
+            }
+        }
+
+        conference.setSpeakerUUIDs(speakerUUIDs);
+
+        return true;
+    }
+
+    /**
+     * Verifies that the speakers of a conference match the speakers of its events, and fixes them if they don't.
+     * Speakers are kept up to date as events change, so this is only needed for data that was saved out of sync.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return true iff the speakers were out of date
+     */
+    public boolean rebuildSpeakers(UUID conferenceUUID) {
+        Conference conference = getConference(conferenceUUID);
+
+        if (rebuildSpeakers(conferenceUUID, conference)) {
+            notifyChange(conferenceUUID);
+            return true;
+        }
+
+        return false;
     }
 
     /**
@@ -135,7 +485,10 @@ public class ConferenceManager implements Serializable {
      * @return Set of convention UUIDs
      */
     public Set<UUID> getConferences() {
-        return new HashSet<>(conferences.keySet());
+        Set<UUID> conferenceUUIDs = new HashSet<>(conferences.keySet());
+        conferenceUUIDs.addAll(unloadedConferenceUUIDs);
+
+        return conferenceUUIDs;
     }
 
     /**
@@ -166,6 +519,7 @@ public class ConferenceManager implements Serializable {
      */
     public void setTimeRange(UUID conferenceUUID, TimeRange timeRange) {
         getConference(conferenceUUID).setTimeRange(timeRange);
+        notifyChange(conferenceUUID);
     }
 
     /**
@@ -180,6 +534,82 @@ public class ConferenceManager implements Serializable {
         }
 
         getConference(conferenceUUID).setConferenceName(newName);
+        notifyChange(conferenceUUID);
+    }
+
+    /**
+     * Gets the membership index, building it from the index entries and loaded conferences if this is the first
+     * getMemberConferences query
+     *
+     * @return the membership index
+     */
+    private ConferenceMembershipIndex getMembershipIndex() {
+        if (membershipIndex == null) {
+            ConferenceMembershipIndex index = new ConferenceMembershipIndex();
+
+            for (UUID conferenceUUID : getConferences()) {
+                ConferenceIndexEntry entry = getUnloadedIndexEntry(conferenceUUID);
+
+                if (entry != null) {
+                    index.addConference(conferenceUUID, entry.getRoles());
+                    continue;
+                }
+
+                try {
+                    index.addConference(conferenceUUID, getConference(conferenceUUID));
+                } catch (NullConferenceException e) {
+                    // Unreadable segment, it has no members to list
+                }
+            }
+
+            membershipIndex = index;
+        }
+
+        return membershipIndex;
+    }
+
+    /**
+     * Gets the conferences a user is an attendee, speaker or organizer of. God mode is not taken into account.
+     *
+     * @param userUUID UUID of the user
+     * @return set of conference UUIDs
+     */
+    public Set<UUID> getMemberConferences(UUID userUUID) {
+        return getMembershipIndex().getConferences(userUUID);
+    }
+
+    /**
+     * Gets the roles of a user in a conference as flags (ATTENDEE_ROLE, SPEAKER_ROLE and ORGANIZER_ROLE), so a single
+     * lookup answers every role test. Roles of an unloaded conference come from its index entry, so it doesn't need to
+     * be loaded. God mode is not taken into account.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user
+     * @return role flags, 0 if the user has no role
+     */
+    public int getRoles(UUID conferenceUUID, UUID userUUID) {
+        ConferenceIndexEntry entry = getUnloadedIndexEntry(conferenceUUID);
+
+        if (entry != null) {
+            return entry.getRoles().getOrDefault(userUUID, 0);
+        }
+
+        Conference conference = getConference(conferenceUUID);
+        int roles = 0;
+
+        if (conference.isAttendee(userUUID)) {
+            roles |= ATTENDEE_ROLE;
+        }
+
+        if (conference.isSpeaker(userUUID)) {
+            roles |= SPEAKER_ROLE;
+        }
+
+        if (conference.isOrganizer(userUUID)) {
+            roles |= ORGANIZER_ROLE;
+        }
+
+        return roles;
     }
 
     /**
@@ -219,6 +649,17 @@ public class ConferenceManager implements Serializable {
         return getConference(conferenceUUID).isOrganizer(userUUID) || (userManager.isUser(userUUID) && userManager.getUserIsGod(userUUID));
     }
 
+    /**
+     * Tests if a UUID is in the organizer set of this convention. Unlike isOrganizer, god mode doesn't count.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user was made an organizer of this convention
+     */
+    public boolean isListedOrganizer(UUID conferenceUUID, UUID userUUID) {
+        return getConference(conferenceUUID).isOrganizer(userUUID);
+    }
+
     /**
      * Tests if a UUID belongs to a speaker user for this convention. (Or has a higher rank)
      *
@@ -251,7 +692,8 @@ public class ConferenceManager implements Serializable {
      * @param userUUID       UUID of the user to add
      */
     public void addOrganizer(UUID conferenceUUID, UUID userUUID) {
-        getConference(conferenceUUID).addOrganizer(userUUID);
+        grantRole(conferenceUUID, getConference(conferenceUUID), ConferenceMembershipIndex.ORGANIZER, userUUID);
+        notifyDelta(conferenceUUID, new ConferenceRoleDelta(ConferenceMembershipIndex.ORGANIZER, true, Collections.singleton(userUUID)));
     }
 
     /**
@@ -271,7 +713,8 @@ public class ConferenceManager implements Serializable {
         } else if (conference.getOrganizerUUIDs().size() == 1) {
             throw new LoneOrganizerException();
         } else {
-            conference.removeOrganizer(userUUID);
+            revokeRole(conferenceUUID, conference, ConferenceMembershipIndex.ORGANIZER, userUUID);
+            notifyDelta(conferenceUUID, new ConferenceRoleDelta(ConferenceMembershipIndex.ORGANIZER, false, Collections.singleton(userUUID)));
         }
     }
 
@@ -296,7 +739,25 @@ public class ConferenceManager implements Serializable {
      * @param userUUID       UUID of the user to add
      */
     public void addAttendee(UUID conferenceUUID, UUID userUUID) {
-        getConference(conferenceUUID).addAttendee(userUUID);
+        addAttendees(conferenceUUID, Collections.singleton(userUUID));
+    }
+
+    /**
+     * Adds a batch of attendees to a convention, notifying listeners once for the whole batch.
+     * <p>
+     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUIDs      UUIDs of the users to add
+     */
+    public void addAttendees(UUID conferenceUUID, Collection<UUID> userUUIDs) {
+        Conference conference = getConference(conferenceUUID);
+
+        for (UUID userUUID : userUUIDs) {
+            grantRole(conferenceUUID, conference, ConferenceMembershipIndex.ATTENDEE, userUUID);
+        }
+
+        notifyDelta(conferenceUUID, new ConferenceRoleDelta(ConferenceMembershipIndex.ATTENDEE, true, userUUIDs));
     }
 
     /**
@@ -313,9 +774,50 @@ public class ConferenceManager implements Serializable {
 
         if (!conference.getAttendeeUUIDs().contains(userUUID)) {
             throw new NullUserException(userUUID);
+        } else {
+            revokeRole(conferenceUUID, conference, ConferenceMembershipIndex.ATTENDEE, userUUID);
+            notifyDelta(conferenceUUID, new ConferenceRoleDelta(ConferenceMembershipIndex.ATTENDEE, false, Collections.singleton(userUUID)));
+        }
+    }
+
+    /**
+     * Gives a user the attendee or organizer role in a conference, keeping the membership index up to date
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     * @param role           ConferenceMembershipIndex.ATTENDEE or ConferenceMembershipIndex.ORGANIZER
+     * @param userUUID       UUID of the user
+     */
+    private void grantRole(UUID conferenceUUID, Conference conference, int role, UUID userUUID) {
+        if (role == ConferenceMembershipIndex.ORGANIZER) {
+            conference.addOrganizer(userUUID);
+        } else {
+            conference.addAttendee(userUUID);
+        }
+
+        if (membershipIndex != null) {
+            membershipIndex.addRole(userUUID, conferenceUUID, role);
+        }
+    }
+
+    /**
+     * Takes the attendee or organizer role in a conference away from a user, keeping the membership index up to date
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     * @param role           ConferenceMembershipIndex.ATTENDEE or ConferenceMembershipIndex.ORGANIZER
+     * @param userUUID       UUID of the user
+     */
+    private void revokeRole(UUID conferenceUUID, Conference conference, int role, UUID userUUID) {
+        if (role == ConferenceMembershipIndex.ORGANIZER) {
+            conference.removeOrganizer(userUUID);
         } else {
             conference.removeAttendee(userUUID);
         }
+
+        if (membershipIndex != null) {
+            membershipIndex.removeRole(userUUID, conferenceUUID, role);
+        }
     }
 
     /**
@@ -331,44 +833,80 @@ public class ConferenceManager implements Serializable {
     }
 
     /**
-     * Gets a set of speaker UUIDs for a particular convention.
-     * <p>
-     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     * Gets a copy of a conference (including its events and rooms) for persistence
      *
-     * @param conferenceUUID UUID of the conference to operate on
+     * @param conferenceUUID UUID of the conference
+     * @return the Conference object, or null if it doesn't exist
      */
-    public void setSpeakers(UUID conferenceUUID, Set<UUID> speakers) {
-        getConference(conferenceUUID).setSpeakerUUIDs(speakers);
+    @Override
+    public Serializable exportEntity(UUID conferenceUUID) {
+        return conferenceExists(conferenceUUID) ? getConference(conferenceUUID) : null;
     }
 
     /**
-     * Adds an speaker to a convention.
-     * <p>
-     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     * Replaces a conference with a persisted copy
      *
-     * @param conferenceUUID UUID of the conference to operate on
-     * @param userUUID       UUID of the user to add
+     * @param conferenceUUID UUID of the conference
+     * @param entity         Conference object, or null to remove the conference
      */
-    public void addSpeaker(UUID conferenceUUID, UUID userUUID) {
-        getConference(conferenceUUID).addSpeaker(userUUID);
+    @Override
+    public void importEntity(UUID conferenceUUID, Serializable entity) {
+        removeConference(conferenceUUID);
+
+        if (entity != null) {
+            Conference conference = (Conference) entity;
+            conferences.put(conferenceUUID, conference);
+            trackSpeakers(conferenceUUID, conference);
+            addToIndexes(conferenceUUID, conference);
+        }
     }
 
     /**
-     * Removes an speaker from a convention.
-     * <p>
-     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
-     * Throws NullUserException if the signedInUserUUID does not correspond to a valid user.
+     * Replays a delta passed to notifyDelta: a role change in a conference, or an attendee, waitlist or speaker change
+     * of one of its events. Both leave a conference that already has the change as it is. Deltas of conferences that
+     * no longer exist or whose segment can't be read are ignored.
      *
-     * @param conferenceUUID UUID of the conference to operate on
-     * @param userUUID       UUID of the user to remove
+     * @param conferenceUUID UUID of the conference
+     * @param delta          a ConferenceRoleDelta or an EventDelta
      */
-    public void removeSpeaker(UUID conferenceUUID, UUID userUUID) {
-        Conference conference = getConference(conferenceUUID);
+    @Override
+    public void applyDelta(UUID conferenceUUID, Serializable delta) {
+        Conference conference;
+
+        try {
+            conference = getConference(conferenceUUID);
+        } catch (NullConferenceException e) {
+            return;
+        }
 
-        if (!conference.getSpeakerUUIDs().contains(userUUID)) {
-            throw new NullUserException(userUUID);
-        } else {
-            conference.removeSpeaker(userUUID);
+        if (delta instanceof EventDelta) {
+            getEventManager(conferenceUUID).applyDelta((EventDelta) delta);
+            return;
+        }
+
+        ConferenceRoleDelta roleDelta = (ConferenceRoleDelta) delta;
+
+        for (UUID userUUID : roleDelta.getUserUUIDs()) {
+            if (roleDelta.isGranted()) {
+                grantRole(conferenceUUID, conference, roleDelta.getRole(), userUUID);
+            } else {
+                revokeRole(conferenceUUID, conference, roleDelta.getRole(), userUUID);
+            }
+        }
+    }
+
+    /**
+     * Sets up the transient state after loading this manager with Java serialization. Every conference is in the
+     * serialized manager, so none are unloaded.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        unloadedConferenceUUIDs = new HashSet<>();
+        unloadedIndexEntries = new HashMap<>();
+
+        for (Map.Entry<UUID, Conference> conference : conferences.entrySet()) {
+            trackSpeakers(conference.getKey(), conference.getValue());
         }
     }
 }
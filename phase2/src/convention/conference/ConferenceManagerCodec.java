@@ -0,0 +1,57 @@
+package convention.conference;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.ICodec;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes a ConferenceManager in the binary storage format
+ * <p>
+ * Layout: [int conference count][conferences...], where each conference is encoded by ConferenceCodec. The version
+ * of this codec follows the version of ConferenceCodec.
+ */
+public class ConferenceManagerCodec implements ICodec<ConferenceManager> {
+    private final ConferenceCodec conferenceCodec = new ConferenceCodec();
+
+    @Override
+    public int getVersion() {
+        return conferenceCodec.getVersion();
+    }
+
+    @Override
+    public void write(ConferenceManager conferenceManager, BinaryWriter out) throws IOException {
+        Set<UUID> conferenceUUIDs = conferenceManager.getConferences();
+
+        out.writeInt(conferenceUUIDs.size());
+
+        for (UUID conferenceUUID : conferenceUUIDs) {
+            conferenceCodec.write((Conference) conferenceManager.exportEntity(conferenceUUID), out);
+        }
+    }
+
+    @Override
+    public ConferenceManager read(BinaryReader in) throws IOException {
+        return read(in, getVersion());
+    }
+
+    @Override
+    public ConferenceManager read(BinaryReader in, int version) throws IOException {
+        if (version < 1 || version > getVersion()) {
+            return null;
+        }
+
+        ConferenceManager conferenceManager = new ConferenceManager();
+        int conferenceCount = in.readInt();
+
+        for (int i = 0; i < conferenceCount; i++) {
+            Conference conference = conferenceCodec.read(in, version);
+            conferenceManager.importEntity(conference.getUUID(), conference);
+        }
+
+        return conferenceManager;
+    }
+}
@@ -0,0 +1,135 @@
+package convention.conference;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the conferences each user has a role in, which answers getMemberConferences without going through every
+ * conference. It is built from the role sets of the conferences and the index entries of unloaded ones, and role tests
+ * on a single conference don't use it. Roles are stored as bit flags, so a user with several roles in a conference
+ * has a single entry for it, which is only dropped when the last of those roles is removed.
+ * <p>
+ * Thread safe. Reads don't lock; writes are synchronized so both maps change together.
+ */
+class ConferenceMembershipIndex {
+    static final int ATTENDEE = 1;
+    static final int SPEAKER = 1 << 1;
+    static final int ORGANIZER = 1 << 2;
+
+    private final Map<UUID, Map<UUID, Integer>> conferenceToUserRoles = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> userToConferences = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the roles of every user of a conference
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference
+     */
+    synchronized void addConference(UUID conferenceUUID, Conference conference) {
+        addRole(conference.getAttendeeUUIDs(), conferenceUUID, ATTENDEE);
+        addRole(conference.getSpeakerUUIDs(), conferenceUUID, SPEAKER);
+        addRole(conference.getOrganizerUUIDs(), conferenceUUID, ORGANIZER);
+    }
+
+    /**
+     * Removes the roles of every user of a conference
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param conference     the conference, with the users it had when it was added
+     */
+    synchronized void removeConference(UUID conferenceUUID, Conference conference) {
+        removeRole(conference.getAttendeeUUIDs(), conferenceUUID, ATTENDEE);
+        removeRole(conference.getSpeakerUUIDs(), conferenceUUID, SPEAKER);
+        removeRole(conference.getOrganizerUUIDs(), conferenceUUID, ORGANIZER);
+    }
+
+    /**
+     * Adds the roles recorded in the index entry of a conference
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param roles          role flags of each user of the conference
+     */
+    synchronized void addConference(UUID conferenceUUID, Map<UUID, Integer> roles) {
+        for (Map.Entry<UUID, Integer> entry : roles.entrySet()) {
+            addRole(entry.getKey(), conferenceUUID, entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the roles recorded in the index entry of a conference
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param roles          role flags of each user of the conference
+     */
+    synchronized void removeConference(UUID conferenceUUID, Map<UUID, Integer> roles) {
+        for (Map.Entry<UUID, Integer> entry : roles.entrySet()) {
+            removeRole(entry.getKey(), conferenceUUID, entry.getValue());
+        }
+    }
+
+    /**
+     * Gives a user a role in a conference
+     *
+     * @param userUUID       UUID of the user
+     * @param conferenceUUID UUID of the conference
+     * @param role           role flag
+     */
+    synchronized void addRole(UUID userUUID, UUID conferenceUUID, int role) {
+        conferenceToUserRoles.computeIfAbsent(conferenceUUID, k -> new ConcurrentHashMap<>()).merge(userUUID, role, (a, b) -> a | b);
+        userToConferences.computeIfAbsent(userUUID, k -> ConcurrentHashMap.newKeySet()).add(conferenceUUID);
+    }
+
+    /**
+     * Takes a role in a conference away from a user
+     *
+     * @param userUUID       UUID of the user
+     * @param conferenceUUID UUID of the conference
+     * @param role           role flag
+     */
+    synchronized void removeRole(UUID userUUID, UUID conferenceUUID, int role) {
+        Map<UUID, Integer> userRoles = conferenceToUserRoles.get(conferenceUUID);
+
+        if (userRoles == null || userRoles.computeIfPresent(userUUID, (k, roles) -> (roles & ~role) == 0 ? null : roles & ~role) != null) {
+            return;
+        }
+
+        // The user has no roles left in the conference
+        if (userRoles.isEmpty()) {
+            conferenceToUserRoles.remove(conferenceUUID);
+        }
+
+        Set<UUID> conferenceUUIDs = userToConferences.get(userUUID);
+
+        if (conferenceUUIDs != null) {
+            conferenceUUIDs.remove(conferenceUUID);
+
+            if (conferenceUUIDs.isEmpty()) {
+                userToConferences.remove(userUUID);
+            }
+        }
+    }
+
+    private void addRole(Set<UUID> userUUIDs, UUID conferenceUUID, int role) {
+        for (UUID userUUID : userUUIDs) {
+            addRole(userUUID, conferenceUUID, role);
+        }
+    }
+
+    private void removeRole(Set<UUID> userUUIDs, UUID conferenceUUID, int role) {
+        for (UUID userUUID : userUUIDs) {
+            removeRole(userUUID, conferenceUUID, role);
+        }
+    }
+
+    /**
+     * Gets the conferences a user has a role in
+     *
+     * @param userUUID UUID of the user
+     * @return set of conference UUIDs
+     */
+    Set<UUID> getConferences(UUID userUUID) {
+        Set<UUID> conferenceUUIDs = userToConferences.get(userUUID);
+
+        return conferenceUUIDs == null ? new HashSet<>() : new HashSet<>(conferenceUUIDs);
+    }
+}
@@ -0,0 +1,44 @@
+package convention.conference;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Delta that gives users the attendee or organizer role in a conference, or takes it away, so joining a conference
+ * doesn't journal the whole conference. Speakers follow the events, so their changes are EventDeltas.
+ */
+class ConferenceRoleDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int role;
+    private final boolean granted;
+    private final List<UUID> userUUIDs;
+
+    /**
+     * Constructor for ConferenceRoleDelta
+     *
+     * @param role      ConferenceMembershipIndex.ATTENDEE or ConferenceMembershipIndex.ORGANIZER
+     * @param granted   true if the users got the role, false if they lost it
+     * @param userUUIDs UUIDs of the users
+     */
+    ConferenceRoleDelta(int role, boolean granted, Collection<UUID> userUUIDs) {
+        this.role = role;
+        this.granted = granted;
+        this.userUUIDs = new ArrayList<>(userUUIDs);
+    }
+
+    int getRole() {
+        return role;
+    }
+
+    boolean isGranted() {
+        return granted;
+    }
+
+    List<UUID> getUserUUIDs() {
+        return userUUIDs;
+    }
+}
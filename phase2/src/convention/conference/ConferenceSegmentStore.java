@@ -0,0 +1,590 @@
+package convention.conference;
+
+import convention.exception.NullConferenceException;
+import convention.snapshot.MappedSnapshotWriter;
+import gateway.BinaryReader;
+import gateway.BinarySerializer;
+import gateway.BinaryWriter;
+import gateway.ICheckpointable;
+import gateway.ICodec;
+import gateway.ISnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists a ConferenceManager as one segment file per conference, an index that lists the conferences, and an entry
+ * file next to each segment with the roles of the users of the conference and the days it has events on.
+ * <p>
+ * Loading only reads the index; each conference is read from its segment the first time it is accessed, and membership
+ * and date queries are answered from the entry files, which are read when a query first needs them. Conferences are
+ * marked dirty whenever they change, and saving only rewrites the segments and entries of dirty conferences (and
+ * deletes the files of conferences that no longer exist). The index is only rewritten when conferences are created or
+ * deleted.
+ * <p>
+ * If a snapshot file is set, every checkpoint that writes a conference also rewrites a memory-mapped snapshot of all the
+ * conferences for read-only instances. It is built on the writer from the captured segments, copying the conferences
+ * that didn't change from the previous snapshot, so the conferences don't have to be loaded to write it.
+ */
+public class ConferenceSegmentStore implements ICheckpointable {
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final File directory;
+    private final BinarySerializer<SegmentIndex> indexSerializer;
+    private final ConferenceCodec conferenceCodec = new ConferenceCodec();
+    private final IndexEntryCodec indexEntryCodec = new IndexEntryCodec();
+
+    private final Set<UUID> dirtyConferenceUUIDs = new HashSet<>();
+
+    // Conferences that need an entry file but haven't changed, i.e. after upgrading from an index without entry files
+    private final Set<UUID> missingEntryUUIDs = new HashSet<>();
+    private boolean indexDirty = false;
+
+    // Conferences listed by the index as of the last capture. Only used on the capture thread.
+    private final Set<UUID> indexedConferenceUUIDs = new HashSet<>();
+
+    // Memory-mapped snapshot of the conferences, or null if there is none, and whether it has to be written even if no
+    // conference changed
+    private String snapshotFileName;
+    private boolean snapshotDirty = false;
+
+    // Whether this store has written the snapshot, so conferences that didn't change can be copied from it. Only used
+    // by the writer, under its own lock, since snapshots of different checkpoints are written one after the other but
+    // not always by the same thread.
+    private final Object snapshotLock = new Object();
+    private boolean snapshotWritten = false;
+
+    private ConferenceManager conferenceManager;
+
+    /**
+     * Creates a segment store in a directory
+     *
+     * @param directoryName name of the directory that holds the index, the segments and their entries
+     */
+    public ConferenceSegmentStore(String directoryName) {
+        this.directory = new File(directoryName);
+        this.indexSerializer = new BinarySerializer<>(new File(directory, "index.bin").getPath(), new IndexCodec());
+    }
+
+    /**
+     * Tests if the store has been written before
+     *
+     * @return true iff the index file exists
+     */
+    public boolean exists() {
+        return indexSerializer.exists();
+    }
+
+    /**
+     * Loads the conference index. If there is no index yet, the fallback is used instead and all of its conferences
+     * are written on the next save (i.e. when migrating from a single conference file).
+     *
+     * @param fallback conference manager to use if the index doesn't exist
+     * @return conference manager backed by this store
+     */
+    public ConferenceManager load(ConferenceManager fallback) {
+        if (exists()) {
+            SegmentIndex index = indexSerializer.load(null);
+
+            if (index == null) {
+                LOGGER.log(Level.SEVERE, "Unable to read conference index, rebuilding it from the segment files");
+                index = new SegmentIndex(scanSegments(), new HashMap<>(), false);
+                indexDirty = true;
+            }
+
+            // Conferences from an older index may not have an entry file yet, so it is written on the next capture
+            if (!index.hasEntryFiles) {
+                for (UUID conferenceUUID : index.conferenceUUIDs) {
+                    if (!getIndexEntryFile(conferenceUUID).exists()) {
+                        missingEntryUUIDs.add(conferenceUUID);
+                    }
+                }
+
+                indexDirty = true;
+            }
+
+            indexedConferenceUUIDs.addAll(index.conferenceUUIDs);
+
+            conferenceManager = new ConferenceManager();
+            conferenceManager.setSegmentStore(this, index.conferenceUUIDs, index.indexEntries);
+        } else {
+            conferenceManager = fallback;
+            markDirty(conferenceManager.getConferences());
+        }
+
+        conferenceManager.addChangeListener(this::markDirty);
+
+        return conferenceManager;
+    }
+
+    /**
+     * Keeps a memory-mapped snapshot of the conferences up to date (see MappedSnapshotWriter), so read-only instances
+     * can map it instead of loading the store. It is written by the next capture, then by every capture that writes a
+     * conference. Must be called before the first capture.
+     *
+     * @param fileName name of the snapshot file
+     */
+    public synchronized void setSnapshotFile(String fileName) {
+        snapshotFileName = fileName;
+        snapshotDirty = true;
+    }
+
+    /**
+     * Marks a conference as changed so its segment is rewritten on the next save
+     *
+     * @param conferenceUUID UUID of the conference
+     */
+    public synchronized void markDirty(UUID conferenceUUID) {
+        dirtyConferenceUUIDs.add(conferenceUUID);
+    }
+
+    /**
+     * Marks a set of conferences as changed
+     *
+     * @param conferenceUUIDs UUIDs of the conferences
+     */
+    public synchronized void markDirty(Set<UUID> conferenceUUIDs) {
+        dirtyConferenceUUIDs.addAll(conferenceUUIDs);
+    }
+
+    private synchronized void markIndexDirty() {
+        indexDirty = true;
+    }
+
+    private synchronized void markEntryMissing(UUID conferenceUUID) {
+        missingEntryUUIDs.add(conferenceUUID);
+    }
+
+    private synchronized void markSnapshotDirty() {
+        snapshotDirty = true;
+    }
+
+    @Override
+    public synchronized int getDirtyCount() {
+        return dirtyConferenceUUIDs.size() + missingEntryUUIDs.size() + (snapshotDirty ? 1 : 0);
+    }
+
+    /**
+     * Encodes the segments and entries of all dirty conferences in memory, and the index if conferences were created
+     * or deleted. The snapshot, if there is one, is written from the encoded segments.
+     *
+     * @return snapshot that writes them, or null if nothing changed
+     */
+    @Override
+    public ISnapshot capture() {
+        Set<UUID> capturedUUIDs;
+        Set<UUID> missingUUIDs;
+        boolean writeIndex;
+        boolean writeSnapshot;
+
+        synchronized (this) {
+            if (dirtyConferenceUUIDs.isEmpty() && missingEntryUUIDs.isEmpty() && !indexDirty && !snapshotDirty) {
+                return null;
+            }
+
+            capturedUUIDs = new HashSet<>(dirtyConferenceUUIDs);
+            missingUUIDs = new HashSet<>(missingEntryUUIDs);
+            writeIndex = indexDirty;
+            writeSnapshot = snapshotFileName != null && (snapshotDirty || !capturedUUIDs.isEmpty());
+            dirtyConferenceUUIDs.clear();
+            missingEntryUUIDs.clear();
+            indexDirty = false;
+            snapshotDirty = false;
+        }
+
+        Map<UUID, byte[]> segments = new HashMap<>();
+        Map<UUID, byte[]> indexEntries = new HashMap<>();
+        Set<UUID> deletedConferenceUUIDs = new HashSet<>();
+
+        for (UUID conferenceUUID : capturedUUIDs) {
+            if (!conferenceManager.conferenceExists(conferenceUUID)) {
+                deletedConferenceUUIDs.add(conferenceUUID);
+                continue;
+            }
+
+            try {
+                Conference conference = (Conference) conferenceManager.exportEntity(conferenceUUID);
+                segments.put(conferenceUUID, getSegmentSerializer(conferenceUUID).encode(conference));
+                indexEntries.put(conferenceUUID, getIndexEntrySerializer(conferenceUUID).encode(ConferenceIndexEntry.of(conference)));
+            } catch (NullConferenceException e) {
+                // Unreadable segment, which is kept as it is
+            }
+        }
+
+        for (UUID conferenceUUID : missingUUIDs) {
+            if (indexEntries.containsKey(conferenceUUID) || !conferenceManager.conferenceExists(conferenceUUID)) {
+                continue;
+            }
+
+            try {
+                indexEntries.put(conferenceUUID, getIndexEntrySerializer(conferenceUUID).encode(conferenceManager.getIndexEntry(conferenceUUID)));
+            } catch (NullConferenceException e) {
+                // Unreadable segment, so there is nothing to write. Its queries keep falling back to the segment.
+            }
+        }
+
+        // The index only lists the conferences, so it only changes when one is created or deleted
+        SegmentIndex index = null;
+
+        if (writeIndex || !deletedConferenceUUIDs.isEmpty() || !indexedConferenceUUIDs.containsAll(segments.keySet())) {
+            indexedConferenceUUIDs.clear();
+            indexedConferenceUUIDs.addAll(conferenceManager.getConferences());
+            index = new SegmentIndex(new HashSet<>(indexedConferenceUUIDs), new HashMap<>(), true);
+        }
+
+        SegmentIndex capturedIndex = index;
+        Set<UUID> snapshotConferenceUUIDs = writeSnapshot ? conferenceManager.getConferences() : null;
+
+        return () -> write(segments, indexEntries, capturedIndex, deletedConferenceUUIDs, snapshotConferenceUUIDs);
+    }
+
+    /**
+     * Writes the segments and entries of all dirty conferences, then the index. Segments are written before the index,
+     * so the index never lists a conference whose segment hasn't been written yet.
+     *
+     * @return number of bytes written, or -1 if any write failed
+     */
+    public long save() {
+        ISnapshot snapshot = capture();
+
+        return snapshot == null ? 0 : snapshot.write();
+    }
+
+    /**
+     * Writes captured segments, entries and the index, then deletes the files of deleted conferences and writes the
+     * snapshot. Anything that fails to be written is marked dirty again.
+     *
+     * @param segments                encoded segments, by conference UUID
+     * @param indexEntries            encoded index entries, by conference UUID
+     * @param index                   index listing every conference, or null if it hasn't changed
+     * @param deletedConferenceUUIDs  UUIDs of conferences whose files should be deleted
+     * @param snapshotConferenceUUIDs UUIDs of the conferences in the snapshot, or null if it isn't written
+     * @return number of bytes written, or -1 if any write failed
+     */
+    private long write(Map<UUID, byte[]> segments, Map<UUID, byte[]> indexEntries, SegmentIndex index, Set<UUID> deletedConferenceUUIDs, Set<UUID> snapshotConferenceUUIDs) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            LOGGER.log(Level.SEVERE, "Unable to create conference directory " + directory);
+            markDirty(segments.keySet());
+            markDirty(deletedConferenceUUIDs);
+            indexEntries.keySet().forEach(this::markEntryMissing);
+            markIndexDirty();
+
+            if (snapshotConferenceUUIDs != null) {
+                markSnapshotDirty();
+            }
+
+            return -1;
+        }
+
+        long bytesWritten = 0;
+        boolean failed = false;
+
+        for (Map.Entry<UUID, byte[]> entry : segments.entrySet()) {
+            long segmentBytes = entry.getValue() == null ? -1 : getSegmentSerializer(entry.getKey()).save(entry.getValue());
+
+            if (segmentBytes < 0) {
+                markDirty(entry.getKey());
+                failed = true;
+            } else {
+                bytesWritten += segmentBytes;
+            }
+        }
+
+        for (Map.Entry<UUID, byte[]> entry : indexEntries.entrySet()) {
+            long entryBytes = entry.getValue() == null ? -1 : getIndexEntrySerializer(entry.getKey()).save(entry.getValue());
+
+            if (entryBytes < 0) {
+                markEntryMissing(entry.getKey());
+                failed = true;
+            } else {
+                bytesWritten += entryBytes;
+            }
+        }
+
+        if (index != null) {
+            byte[] encodedIndex = indexSerializer.encode(index);
+            long indexBytes = encodedIndex == null ? -1 : indexSerializer.save(encodedIndex);
+
+            if (indexBytes < 0) {
+                // The old index may still list the deleted conferences, so keep their files around
+                markDirty(deletedConferenceUUIDs);
+                markIndexDirty();
+
+                if (snapshotConferenceUUIDs != null) {
+                    markSnapshotDirty();
+                }
+
+                return -1;
+            }
+
+            bytesWritten += indexBytes;
+        }
+
+        for (UUID conferenceUUID : deletedConferenceUUIDs) {
+            for (File file : new File[]{getSegmentFile(conferenceUUID), getIndexEntryFile(conferenceUUID)}) {
+                if (file.exists() && !file.delete()) {
+                    LOGGER.log(Level.WARNING, "Unable to delete " + file);
+                }
+            }
+        }
+
+        if (snapshotConferenceUUIDs != null) {
+            long snapshotBytes = writeSnapshot(snapshotConferenceUUIDs, segments);
+
+            if (snapshotBytes < 0) {
+                markSnapshotDirty();
+                failed = true;
+            } else {
+                bytesWritten += snapshotBytes;
+            }
+        }
+
+        return failed ? -1 : bytesWritten;
+    }
+
+    /**
+     * Writes the snapshot from the captured segments, copying the other conferences from the previous snapshot. Until
+     * this store has written the snapshot, the other conferences are read from their segment files instead, since the
+     * snapshot left by the last run may be older than the segments. Conferences are decoded one at a time into a
+     * separate manager, so none of them are loaded into the conference manager.
+     *
+     * @param conferenceUUIDs UUIDs of the conferences in the snapshot
+     * @param segments        encoded segments, by conference UUID
+     * @return number of bytes written, or -1 if the write failed
+     */
+    private long writeSnapshot(Set<UUID> conferenceUUIDs, Map<UUID, byte[]> segments) {
+        synchronized (snapshotLock) {
+            Set<UUID> changedUUIDs = snapshotWritten ? segments.keySet() : conferenceUUIDs;
+
+            try {
+                long bytesWritten = new MappedSnapshotWriter().write(conferenceUUIDs, changedUUIDs, conferenceUUID -> loadSnapshotConference(conferenceUUID, segments.get(conferenceUUID)), snapshotFileName);
+                snapshotWritten = true;
+
+                return bytesWritten;
+            } catch (IOException | RuntimeException e) {
+                // The previous snapshot is missing the changes of this capture, so it can't be copied from any more
+                LOGGER.log(Level.SEVERE, "Unable to write conference snapshot " + snapshotFileName, e);
+                snapshotWritten = false;
+
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Decodes a conference for the snapshot into a manager of its own
+     *
+     * @param conferenceUUID UUID of the conference
+     * @param segment        captured segment of the conference, or null to read its segment file
+     * @return manager holding only the conference, or null if it couldn't be read
+     */
+    private ConferenceManager loadSnapshotConference(UUID conferenceUUID, byte[] segment) {
+        Conference conference;
+
+        try {
+            conference = segment == null ? loadSegment(conferenceUUID) : getSegmentSerializer(conferenceUUID).decode(segment);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to decode segment for conference " + conferenceUUID, e);
+            return null;
+        }
+
+        if (conference == null) {
+            return null;
+        }
+
+        ConferenceManager snapshotManager = new ConferenceManager();
+        snapshotManager.importEntity(conferenceUUID, conference);
+
+        return snapshotManager;
+    }
+
+    /**
+     * Reads a conference from its segment
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return the conference, or null if the segment couldn't be read
+     */
+    Conference loadSegment(UUID conferenceUUID) {
+        Conference conference = getSegmentSerializer(conferenceUUID).load(null);
+
+        if (conference == null) {
+            LOGGER.log(Level.SEVERE, "Unable to read segment for conference " + conferenceUUID);
+        }
+
+        return conference;
+    }
+
+    /**
+     * Reads the index entry of a conference from its entry file
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return the index entry, or null if the conference has no entry file or it couldn't be read
+     */
+    ConferenceIndexEntry loadIndexEntry(UUID conferenceUUID) {
+        BinarySerializer<ConferenceIndexEntry> serializer = getIndexEntrySerializer(conferenceUUID);
+
+        return serializer.exists() ? serializer.load(null) : null;
+    }
+
+    /**
+     * Finds the UUIDs of all the segments in the directory
+     *
+     * @return set of conference UUIDs that have a segment
+     */
+    private Set<UUID> scanSegments() {
+        Set<UUID> conferenceUUIDs = new HashSet<>();
+        File[] files = directory.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+
+                if (!name.endsWith(".bin") || name.equals("index.bin")) {
+                    continue;
+                }
+
+                try {
+                    conferenceUUIDs.add(UUID.fromString(name.substring(0, name.length() - ".bin".length())));
+                } catch (IllegalArgumentException e) {
+                    // Not a segment
+                }
+            }
+        }
+
+        return conferenceUUIDs;
+    }
+
+    private File getSegmentFile(UUID conferenceUUID) {
+        return new File(directory, conferenceUUID + ".bin");
+    }
+
+    private File getIndexEntryFile(UUID conferenceUUID) {
+        return new File(directory, conferenceUUID + ".idx");
+    }
+
+    private BinarySerializer<Conference> getSegmentSerializer(UUID conferenceUUID) {
+        return new BinarySerializer<>(getSegmentFile(conferenceUUID).getPath(), conferenceCodec);
+    }
+
+    private BinarySerializer<ConferenceIndexEntry> getIndexEntrySerializer(UUID conferenceUUID) {
+        return new BinarySerializer<>(getIndexEntryFile(conferenceUUID).getPath(), indexEntryCodec);
+    }
+
+    /**
+     * Contents of the index file
+     */
+    private static class SegmentIndex {
+        private final Set<UUID> conferenceUUIDs;
+
+        // Index entries held by version 2 indexes, which are written to entry files on the next capture
+        private final Map<UUID, ConferenceIndexEntry> indexEntries;
+
+        // False for indexes written before the entry files existed
+        private final boolean hasEntryFiles;
+
+        private SegmentIndex(Set<UUID> conferenceUUIDs, Map<UUID, ConferenceIndexEntry> indexEntries, boolean hasEntryFiles) {
+            this.conferenceUUIDs = conferenceUUIDs;
+            this.indexEntries = indexEntries;
+            this.hasEntryFiles = hasEntryFiles;
+        }
+    }
+
+    /**
+     * Encodes the index as [int count][UUIDs...]. Version 1 indexes have the same layout but no entry files. Version 2
+     * indexes held the entries themselves: [int count] then, for each conference, [UUID][int role count]
+     * [(UUID, int roles)...][int day count][long days...].
+     */
+    private static class IndexCodec implements ICodec<SegmentIndex> {
+        @Override
+        public int getVersion() {
+            return 3;
+        }
+
+        @Override
+        public void write(SegmentIndex index, BinaryWriter out) throws IOException {
+            out.writeUUIDSet(index.conferenceUUIDs);
+        }
+
+        @Override
+        public SegmentIndex read(BinaryReader in) throws IOException {
+            return new SegmentIndex(in.readUUIDSet(), new HashMap<>(), true);
+        }
+
+        @Override
+        public SegmentIndex read(BinaryReader in, int version) throws IOException {
+            if (version == 1) {
+                return new SegmentIndex(in.readUUIDSet(), new HashMap<>(), false);
+            }
+
+            if (version == 2) {
+                int count = in.readInt();
+                Map<UUID, ConferenceIndexEntry> indexEntries = new HashMap<>();
+
+                for (int i = 0; i < count; i++) {
+                    UUID conferenceUUID = in.readUUID();
+                    indexEntries.put(conferenceUUID, IndexEntryCodec.readEntry(in));
+                }
+
+                return new SegmentIndex(new HashSet<>(indexEntries.keySet()), indexEntries, false);
+            }
+
+            return version == getVersion() ? read(in) : null;
+        }
+    }
+
+    /**
+     * Encodes an index entry as [int role count][(UUID, int roles)...][int day count][long days...]
+     */
+    private static class IndexEntryCodec implements ICodec<ConferenceIndexEntry> {
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(ConferenceIndexEntry entry, BinaryWriter out) throws IOException {
+            out.writeInt(entry.getRoles().size());
+
+            for (Map.Entry<UUID, Integer> role : entry.getRoles().entrySet()) {
+                out.writeUUID(role.getKey());
+                out.writeInt(role.getValue());
+            }
+
+            out.writeInt(entry.getDays().size());
+
+            for (long day : entry.getDays()) {
+                out.writeLong(day);
+            }
+        }
+
+        @Override
+        public ConferenceIndexEntry read(BinaryReader in) throws IOException {
+            return readEntry(in);
+        }
+
+        private static ConferenceIndexEntry readEntry(BinaryReader in) throws IOException {
+            int roleCount = in.readInt();
+            Map<UUID, Integer> roles = new HashMap<>();
+
+            for (int i = 0; i < roleCount; i++) {
+                roles.put(in.readUUID(), in.readInt());
+            }
+
+            int dayCount = in.readInt();
+            Set<Long> days = new HashSet<>();
+
+            for (int i = 0; i < dayCount; i++) {
+                days.add(in.readLong());
+            }
+
+            return new ConferenceIndexEntry(roles, days);
+        }
+    }
+}
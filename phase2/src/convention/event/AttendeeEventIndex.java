@@ -0,0 +1,72 @@
+package convention.event;
+
+import java.util.*;
+
+/**
+ * Index from user to the events of a conference they are registered for. Registrations for different events of a
+ * conference can run concurrently, so access to the index is synchronized.
+ */
+public class AttendeeEventIndex {
+    private final Map<UUID, Set<UUID>> attendeeToEventUUIDs = new HashMap<>();
+
+    /**
+     * Builds the index for a set of events
+     *
+     * @param events map of UUIDs to events
+     */
+    public AttendeeEventIndex(Map<UUID, Event> events) {
+        for (Event event : events.values()) {
+            for (UUID attendeeUUID : event.getAttendeeUUIDs()) {
+                addAttendee(event.getUUID(), attendeeUUID);
+            }
+        }
+    }
+
+    /**
+     * Records that a user is registered for an event
+     *
+     * @param eventUUID    UUID of the event
+     * @param attendeeUUID UUID of the user
+     */
+    synchronized void addAttendee(UUID eventUUID, UUID attendeeUUID) {
+        attendeeToEventUUIDs.computeIfAbsent(attendeeUUID, k -> new HashSet<>()).add(eventUUID);
+    }
+
+    /**
+     * Records that a user is no longer registered for an event
+     *
+     * @param eventUUID    UUID of the event
+     * @param attendeeUUID UUID of the user
+     */
+    synchronized void removeAttendee(UUID eventUUID, UUID attendeeUUID) {
+        Set<UUID> eventUUIDs = attendeeToEventUUIDs.get(attendeeUUID);
+
+        if (eventUUIDs != null && eventUUIDs.remove(eventUUID) && eventUUIDs.isEmpty()) {
+            attendeeToEventUUIDs.remove(attendeeUUID);
+        }
+    }
+
+    /**
+     * Removes an event from the registrations of all of its attendees
+     *
+     * @param eventUUID     UUID of the event
+     * @param attendeeUUIDs UUIDs of the users registered for the event
+     */
+    synchronized void removeEvent(UUID eventUUID, Set<UUID> attendeeUUIDs) {
+        for (UUID attendeeUUID : attendeeUUIDs) {
+            removeAttendee(eventUUID, attendeeUUID);
+        }
+    }
+
+    /**
+     * Gets the events a user is registered for
+     *
+     * @param attendeeUUID UUID of the user
+     * @return set of event UUIDs
+     */
+    public synchronized Set<UUID> getEvents(UUID attendeeUUID) {
+        Set<UUID> eventUUIDs = attendeeToEventUUIDs.get(attendeeUUID);
+
+        return eventUUIDs == null ? new HashSet<>() : new HashSet<>(eventUUIDs);
+    }
+}
@@ -2,8 +2,12 @@ package convention.event;
 
 import convention.calendar.TimeRange;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.UUID;
 
@@ -11,11 +15,16 @@ import java.util.UUID;
  * Event object. Stores details about the room, attendees, speakers, etc.
  */
 public class Event implements Serializable {
+    private static final long serialVersionUID = -8575362791327626710L;
+
     private UUID uuid;
     private String title;
     private Set<UUID> speakerUUIDs;
     private Set<UUID> attendeeUUIDs = new HashSet<>();
 
+    // Users waiting for a seat, in the order they joined
+    private LinkedHashSet<UUID> waitlistUUIDs = new LinkedHashSet<>();
+
     private TimeRange timeRange;
 
     private UUID conversationUUID;
@@ -30,8 +39,21 @@ public class Event implements Serializable {
      * @param speakerUUIDs set of speakers for this events
      */
     public Event(String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
+        this(UUID.randomUUID(), title, timeRange, roomUUID, speakerUUIDs);
+    }
+
+    /**
+     * Event constructor with an existing UUID (i.e. when loading an event from disk)
+     *
+     * @param uuid         UUID of the event
+     * @param title        name of the event
+     * @param timeRange    TimeRange of the event
+     * @param roomUUID     UUID of the room in which event is held
+     * @param speakerUUIDs set of speakers for this event
+     */
+    public Event(UUID uuid, String title, TimeRange timeRange, UUID roomUUID, Set<UUID> speakerUUIDs) {
         this.title = title;
-        this.uuid = UUID.randomUUID();
+        this.uuid = uuid;
         this.speakerUUIDs = speakerUUIDs;
         this.timeRange = timeRange;
         this.roomUUID = roomUUID;
@@ -138,6 +160,52 @@ public class Event implements Serializable {
         return attendeeUUIDs.contains(attendeeUUID);
     }
 
+    /**
+     * Gets the users waiting for a seat at this events
+     *
+     * @return the UUIDs of the waiting users, in the order they joined the waitlist
+     */
+    public Set<UUID> getWaitlistUUIDs() {
+        return waitlistUUIDs;
+    }
+
+    /**
+     * Adds a user to the end of the waitlist of this events
+     *
+     * @param attendeeUUID user joining the waitlist
+     */
+    public void addToWaitlist(UUID attendeeUUID) {
+        waitlistUUIDs.add(attendeeUUID);
+    }
+
+    /**
+     * Removes a user from the waitlist of this events
+     *
+     * @param attendeeUUID user leaving the waitlist
+     * @return true iff the user was on the waitlist
+     */
+    public boolean removeFromWaitlist(UUID attendeeUUID) {
+        return waitlistUUIDs.remove(attendeeUUID);
+    }
+
+    /**
+     * Removes the user at the front of the waitlist of this events
+     *
+     * @return UUID of the user that has waited the longest, or null if the waitlist is empty
+     */
+    public UUID pollWaitlist() {
+        Iterator<UUID> iterator = waitlistUUIDs.iterator();
+
+        if (!iterator.hasNext()) {
+            return null;
+        }
+
+        UUID attendeeUUID = iterator.next();
+        iterator.remove();
+
+        return attendeeUUID;
+    }
+
     /**
      * Gets the TimeRange of this events
      *
@@ -191,4 +259,15 @@ public class Event implements Serializable {
     public void setConversationUUID(UUID conversationUUID) {
         this.conversationUUID = conversationUUID;
     }
-}
\ No newline at end of file
+
+    /**
+     * Fills in the waitlist of events serialized before events had waitlists
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        if (waitlistUUIDs == null) {
+            waitlistUUIDs = new LinkedHashSet<>();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package convention.event;
+
+import convention.calendar.TimeRange;
+
+import java.util.*;
+
+/**
+ * Index from day to the events of a conference that take place on it. Events that span several days are listed
+ * under every day they span.
+ */
+public class EventDayIndex {
+    private final Map<Long, Set<UUID>> dayToEventUUIDs = new HashMap<>();
+    private IDayIndexListener listener;
+
+    /**
+     * Builds the index for a set of events
+     *
+     * @param events map of UUIDs to events
+     */
+    public EventDayIndex(Map<UUID, Event> events) {
+        for (Event event : events.values()) {
+            addEvent(event.getUUID(), event.getTimeRange());
+        }
+    }
+
+    /**
+     * Sets the listener that is told when days gain their first event or lose their last one
+     *
+     * @param listener listener to notify, or null to stop notifying
+     */
+    public void setListener(IDayIndexListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Lists an event under every day of its time range
+     *
+     * @param eventUUID UUID of the event
+     * @param timeRange time range of the event
+     */
+    void addEvent(UUID eventUUID, TimeRange timeRange) {
+        for (long day = timeRange.getStartEpochDay(); day <= timeRange.getEndEpochDay(); day++) {
+            Set<UUID> eventUUIDs = dayToEventUUIDs.get(day);
+
+            if (eventUUIDs == null) {
+                eventUUIDs = new HashSet<>();
+                dayToEventUUIDs.put(day, eventUUIDs);
+
+                if (listener != null) {
+                    listener.dayAdded(day);
+                }
+            }
+
+            eventUUIDs.add(eventUUID);
+        }
+    }
+
+    /**
+     * Removes an event from every day of its time range
+     *
+     * @param eventUUID UUID of the event
+     * @param timeRange time range the event was listed under
+     */
+    void removeEvent(UUID eventUUID, TimeRange timeRange) {
+        for (long day = timeRange.getStartEpochDay(); day <= timeRange.getEndEpochDay(); day++) {
+            Set<UUID> eventUUIDs = dayToEventUUIDs.get(day);
+
+            if (eventUUIDs != null && eventUUIDs.remove(eventUUID) && eventUUIDs.isEmpty()) {
+                dayToEventUUIDs.remove(day);
+
+                if (listener != null) {
+                    listener.dayRemoved(day);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the events that take place on a day
+     *
+     * @param epochDay the day, as returned by LocalDate.toEpochDay
+     * @return set of event UUIDs
+     */
+    public Set<UUID> getEvents(long epochDay) {
+        Set<UUID> eventUUIDs = dayToEventUUIDs.get(epochDay);
+
+        return eventUUIDs == null ? new HashSet<>() : new HashSet<>(eventUUIDs);
+    }
+
+    /**
+     * Gets the days that have at least one event
+     *
+     * @return set of epoch days
+     */
+    public Set<Long> getDays() {
+        return new HashSet<>(dayToEventUUIDs.keySet());
+    }
+}
@@ -0,0 +1,45 @@
+package convention.event;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Delta that changes the attendees, waitlist or speakers of one event, so registrations don't journal the whole
+ * conference. EventManager.applyDelta replays it.
+ */
+public class EventDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    enum Type {
+        REGISTER, UNREGISTER, JOIN_WAITLIST, LEAVE_WAITLIST, ADD_SPEAKER, REMOVE_SPEAKER
+    }
+
+    private final Type type;
+    private final UUID eventUUID;
+    private final UUID userUUID;
+
+    /**
+     * Constructor for EventDelta
+     *
+     * @param type      what happened to the user
+     * @param eventUUID UUID of the event
+     * @param userUUID  UUID of the user
+     */
+    EventDelta(Type type, UUID eventUUID, UUID userUUID) {
+        this.type = type;
+        this.eventUUID = eventUUID;
+        this.userUUID = userUUID;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    UUID getEventUUID() {
+        return eventUUID;
+    }
+
+    UUID getUserUUID() {
+        return userUUID;
+    }
+}
@@ -1,20 +1,36 @@
 package convention.event;
 
 import convention.calendar.TimeRange;
+import convention.exception.FullEventException;
+import convention.exception.FullWaitlistException;
 import convention.exception.InvalidNameException;
 import convention.exception.NullEventException;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Manager for Event entities
  */
 public class EventManager implements Serializable {
+    private static final long serialVersionUID = 473771819724941404L;
+
+    // Longest a waitlist can get, so a popular event can't queue up an unbounded number of users
+    public static final int MAX_WAITLIST_SIZE = 500;
+
     private Map<UUID, Event> events;
+    private EventDayIndex dayIndex;
+    private SpeakerIntervalIndex speakerIndex;
+    private AttendeeEventIndex attendeeIndex;
+    private Runnable changeCallback;
+    private Consumer<EventDelta> deltaCallback;
 
     /**
      * Event Manager constructor
@@ -24,7 +40,41 @@ public class EventManager implements Serializable {
      * @param events map of UUIDs for all events in this conference
      */
     public EventManager(Map<UUID, Event> events) {
+        this(events, () -> {
+        });
+    }
+
+    /**
+     * Event Manager constructor
+     * <p>
+     * holds all events objects for this conference
+     *
+     * @param events         map of UUIDs for all events in this conference
+     * @param changeCallback runs every time an event in this conference is mutated
+     */
+    public EventManager(Map<UUID, Event> events, Runnable changeCallback) {
+        this(events, new EventDayIndex(events), new SpeakerIntervalIndex(events), new AttendeeEventIndex(events), changeCallback, delta -> changeCallback.run());
+    }
+
+    /**
+     * Event Manager constructor
+     * <p>
+     * holds all events objects for this conference
+     *
+     * @param events         map of UUIDs for all events in this conference
+     * @param dayIndex       day index of the events, kept up to date by this manager
+     * @param speakerIndex   speaker index of the events, kept up to date by this manager
+     * @param attendeeIndex  attendee index of the events, kept up to date by this manager
+     * @param changeCallback runs every time an event in this conference is mutated, unless the change is a delta
+     * @param deltaCallback  gets the attendee, waitlist and speaker changes of the events in this conference
+     */
+    public EventManager(Map<UUID, Event> events, EventDayIndex dayIndex, SpeakerIntervalIndex speakerIndex, AttendeeEventIndex attendeeIndex, Runnable changeCallback, Consumer<EventDelta> deltaCallback) {
         this.events = events;
+        this.dayIndex = dayIndex;
+        this.speakerIndex = speakerIndex;
+        this.attendeeIndex = attendeeIndex;
+        this.changeCallback = changeCallback;
+        this.deltaCallback = deltaCallback;
     }
 
     /**
@@ -85,6 +135,9 @@ public class EventManager implements Serializable {
 
         Event event = new Event(title, timeRange, roomUUID, speakerUUIDs);
         events.put(event.getUUID(), event);
+        dayIndex.addEvent(event.getUUID(), timeRange);
+        speakerIndex.addEvent(event.getUUID(), timeRange, event.getSpeakers());
+        changeCallback.run();
 
         return event.getUUID();
     }
@@ -99,7 +152,13 @@ public class EventManager implements Serializable {
             throw new NullEventException(eventUUID);
         }
 
-        events.remove(eventUUID);
+        Event event = events.remove(eventUUID);
+        dayIndex.removeEvent(eventUUID, event.getTimeRange());
+        speakerIndex.removeEvent(eventUUID, event.getTimeRange(), event.getSpeakers());
+
+        attendeeIndex.removeEvent(eventUUID, event.getAttendeeUUIDs());
+
+        changeCallback.run();
     }
 
     /**
@@ -112,6 +171,38 @@ public class EventManager implements Serializable {
         return new HashSet<>(getEvent(eventUUID).getSpeakers());
     }
 
+    /**
+     * Tests if a user speaks at an event, without copying its speakers
+     *
+     * @param eventUUID   UUID of the events
+     * @param speakerUUID UUID of the user
+     * @return true iff the user is a speaker of the events
+     */
+    public boolean isEventSpeaker(UUID eventUUID, UUID speakerUUID) {
+        return getEvent(eventUUID).isSpeaker(speakerUUID);
+    }
+
+    /**
+     * Tests if a speaker speaks at an event that overlaps a time range
+     *
+     * @param speakerUUID UUID of the speaker
+     * @param timeRange   time range to test
+     * @return true iff the speaker is not available during the time range
+     */
+    public boolean speakerTimeRangeOccupied(UUID speakerUUID, TimeRange timeRange) {
+        return speakerIndex.isOccupied(speakerUUID, timeRange);
+    }
+
+    /**
+     * Gets the events a speaker speaks at
+     *
+     * @param speakerUUID UUID of the speaker
+     * @return set of event UUIDs
+     */
+    public Set<UUID> getSpeakerEvents(UUID speakerUUID) {
+        return speakerIndex.getEvents(speakerUUID);
+    }
+
     /**
      * adds a speaker to an events
      *
@@ -119,8 +210,8 @@ public class EventManager implements Serializable {
      * @param speakerUUID UUID of speaker being added
      */
     public void addEventSpeaker(UUID eventUUID, UUID speakerUUID) {
-        if (!getEvent(eventUUID).isSpeaker(speakerUUID)) {
-            getEvent(eventUUID).addSpeaker(speakerUUID);
+        if (addSpeaker(getEvent(eventUUID), speakerUUID)) {
+            deltaCallback.accept(new EventDelta(EventDelta.Type.ADD_SPEAKER, eventUUID, speakerUUID));
         }
     }
 
@@ -131,9 +222,31 @@ public class EventManager implements Serializable {
      * @param speakerUUID UUID of speaker being removed
      */
     public void removeEventSpeaker(UUID eventUUID, UUID speakerUUID) {
-        if (getEvent(eventUUID).isSpeaker(speakerUUID)) {
-            getEvent(eventUUID).removeSpeaker(speakerUUID);
+        if (removeSpeaker(getEvent(eventUUID), speakerUUID)) {
+            deltaCallback.accept(new EventDelta(EventDelta.Type.REMOVE_SPEAKER, eventUUID, speakerUUID));
+        }
+    }
+
+    private boolean addSpeaker(Event event, UUID speakerUUID) {
+        if (event.isSpeaker(speakerUUID)) {
+            return false;
         }
+
+        event.addSpeaker(speakerUUID);
+        speakerIndex.addSpeaker(event.getUUID(), event.getTimeRange(), speakerUUID);
+
+        return true;
+    }
+
+    private boolean removeSpeaker(Event event, UUID speakerUUID) {
+        if (!event.isSpeaker(speakerUUID)) {
+            return false;
+        }
+
+        event.removeSpeaker(speakerUUID);
+        speakerIndex.removeSpeaker(event.getUUID(), event.getTimeRange(), speakerUUID);
+
+        return true;
     }
 
     /**
@@ -147,6 +260,7 @@ public class EventManager implements Serializable {
             throw new InvalidNameException();
         }
         getEvent(eventUUID).setTitle(eventTitle);
+        changeCallback.run();
     }
 
     /**
@@ -157,6 +271,7 @@ public class EventManager implements Serializable {
      */
     public void setEventRoom(UUID eventUUID, UUID roomUUID) {
         getEvent(eventUUID).setRoomUUID(roomUUID);
+        changeCallback.run();
     }
 
     /**
@@ -166,7 +281,24 @@ public class EventManager implements Serializable {
      * @param timeRange new TimeRange of this events
      */
     public void setEventTimeRange(UUID eventUUID, TimeRange timeRange) {
-        getEvent(eventUUID).setTimeRange(timeRange);
+        Event event = getEvent(eventUUID);
+
+        dayIndex.removeEvent(eventUUID, event.getTimeRange());
+        speakerIndex.removeEvent(eventUUID, event.getTimeRange(), event.getSpeakers());
+        event.setTimeRange(timeRange);
+        dayIndex.addEvent(eventUUID, timeRange);
+        speakerIndex.addEvent(eventUUID, timeRange, event.getSpeakers());
+        changeCallback.run();
+    }
+
+    /**
+     * Gets the events that take place on a day. Events spanning several days are included on each of them.
+     *
+     * @param day the day
+     * @return set of UUIDs of the events on that day
+     */
+    public Set<UUID> getDayEvents(LocalDate day) {
+        return dayIndex.getEvents(day.toEpochDay());
     }
 
     /**
@@ -218,6 +350,7 @@ public class EventManager implements Serializable {
      */
     public void setEventConversationUUID(UUID eventUUID, UUID conversationUUID) {
         getEvent(eventUUID).setConversationUUID(conversationUUID);
+        changeCallback.run();
     }
 
     /**
@@ -227,27 +360,309 @@ public class EventManager implements Serializable {
      * @return set of UUIDs of users registered for this events
      */
     public Set<UUID> getEventAttendees(UUID eventUUID) {
-        return new HashSet<>(getEvent(eventUUID).getAttendeeUUIDs());
+        Event event = getEvent(eventUUID);
+
+        return new HashSet<>(event.getAttendeeUUIDs());
+    }
+
+    /**
+     * Gets the number of users registered for an event, without copying its attendees
+     *
+     * @param eventUUID UUID of this events
+     * @return number of users registered for this events
+     */
+    public int getEventAttendeeCount(UUID eventUUID) {
+        Event event = getEvent(eventUUID);
+
+        return event.getAttendeeUUIDs().size();
+    }
+
+    /**
+     * Tests if a user is registered for an event, without copying its attendees
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user
+     * @return true iff the user is registered for the event
+     */
+    public boolean isEventAttendee(UUID eventUUID, UUID attendeeUUID) {
+        Event event = getEvent(eventUUID);
+
+        return event.isAttendee(attendeeUUID);
     }
 
     /**
-     * registers a new attendee for this events
+     * Gets the events a user is registered for
+     *
+     * @param attendeeUUID UUID of the user
+     * @return set of event UUIDs
+     */
+    public Set<UUID> getAttendeeEvents(UUID attendeeUUID) {
+        return attendeeIndex.getEvents(attendeeUUID);
+    }
+
+    /**
+     * registers a new attendee for this events, without a capacity limit
      *
      * @param eventUUID    UUID of this events
      * @param attendeeUUID UUID of the user being registered
      */
     public void registerAttendee(UUID eventUUID, UUID attendeeUUID) {
-        getEvent(eventUUID).addAttendee(attendeeUUID);
+        registerAttendee(eventUUID, attendeeUUID, Integer.MAX_VALUE);
+    }
+
+    /**
+     * registers a new attendee for this events if it has a free seat. Seats freed while users are waiting go to the
+     * waitlist, so the events counts as full as long as anyone is on it. Registering a user that is already registered
+     * does nothing.
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user being registered
+     * @param capacity     maximum number of attendees of this events
+     */
+    public void registerAttendee(UUID eventUUID, UUID attendeeUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+
+        if (event.isAttendee(attendeeUUID)) {
+            return;
+        }
+
+        if (event.getAttendeeUUIDs().size() >= capacity || !event.getWaitlistUUIDs().isEmpty()) {
+            throw new FullEventException();
+        }
+
+        addAttendee(event, attendeeUUID);
+        deltaCallback.accept(new EventDelta(EventDelta.Type.REGISTER, eventUUID, attendeeUUID));
     }
 
     /**
-     * removes an attendee from an events
+     * removes an attendee from an events and gives the freed seat to the waitlist, so no other registration can take
+     * the seat first
      *
      * @param eventUUID    UUID of this events
      * @param attendeeUUID UUID of user being removed
+     * @param capacity     maximum number of attendees of this events
+     * @return UUIDs of the users promoted from the waitlist, in waitlist order
      */
-    public void unregisterAttendee(UUID eventUUID, UUID attendeeUUID) {
-        getEvent(eventUUID).removeAttendee(attendeeUUID);
+    public List<UUID> unregisterAttendee(UUID eventUUID, UUID attendeeUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+        List<UUID> promotedUUIDs = new ArrayList<>();
+
+        removeAttendee(event, attendeeUUID);
+        promoteWaitlist(event, capacity, promotedUUIDs);
+
+        deltaCallback.accept(new EventDelta(EventDelta.Type.UNREGISTER, eventUUID, attendeeUUID));
+        notifyPromoted(eventUUID, promotedUUIDs);
+
+        return promotedUUIDs;
+    }
+
+    /**
+     * Adds a user to the end of the waitlist of an events. If the events has a free seat and nobody is waiting, the
+     * user is registered instead.
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user joining the waitlist
+     * @param capacity     maximum number of attendees of this events
+     * @return position of the user on the waitlist starting from 1, or 0 if the user is registered for the events
+     */
+    public int joinWaitlist(UUID eventUUID, UUID attendeeUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+
+        if (event.isAttendee(attendeeUUID)) {
+            return 0;
+        }
+
+        if (event.getWaitlistUUIDs().contains(attendeeUUID)) {
+            return getWaitlistPosition(event, attendeeUUID);
+        }
+
+        if (event.getWaitlistUUIDs().isEmpty() && event.getAttendeeUUIDs().size() < capacity) {
+            addAttendee(event, attendeeUUID);
+            deltaCallback.accept(new EventDelta(EventDelta.Type.REGISTER, eventUUID, attendeeUUID));
+            return 0;
+        }
+
+        if (event.getWaitlistUUIDs().size() >= MAX_WAITLIST_SIZE) {
+            throw new FullWaitlistException();
+        }
+
+        event.addToWaitlist(attendeeUUID);
+        deltaCallback.accept(new EventDelta(EventDelta.Type.JOIN_WAITLIST, eventUUID, attendeeUUID));
+
+        return event.getWaitlistUUIDs().size();
+    }
+
+    /**
+     * Removes a user from the waitlist of an events
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user leaving the waitlist
+     */
+    public void leaveWaitlist(UUID eventUUID, UUID attendeeUUID) {
+        if (getEvent(eventUUID).removeFromWaitlist(attendeeUUID)) {
+            deltaCallback.accept(new EventDelta(EventDelta.Type.LEAVE_WAITLIST, eventUUID, attendeeUUID));
+        }
+    }
+
+    /**
+     * Removes a user from the waitlists of all the events in this conference (i.e. when they leave the conference)
+     *
+     * @param attendeeUUID UUID of the user
+     */
+    public void leaveAllWaitlists(UUID attendeeUUID) {
+        for (Event event : events.values()) {
+            if (event.removeFromWaitlist(attendeeUUID)) {
+                deltaCallback.accept(new EventDelta(EventDelta.Type.LEAVE_WAITLIST, event.getUUID(), attendeeUUID));
+            }
+        }
+    }
+
+    /**
+     * Registers users from the front of the waitlist of an events until it is full (i.e. after its capacity went up)
+     *
+     * @param eventUUID UUID of this events
+     * @param capacity  maximum number of attendees of this events
+     * @return UUIDs of the promoted users, in waitlist order
+     */
+    public List<UUID> promoteWaitlist(UUID eventUUID, int capacity) {
+        Event event = getEvent(eventUUID);
+        List<UUID> promotedUUIDs = new ArrayList<>();
+
+        promoteWaitlist(event, capacity, promotedUUIDs);
+        notifyPromoted(eventUUID, promotedUUIDs);
+
+        return promotedUUIDs;
+    }
+
+    /**
+     * Moves users from the front of the waitlist to the attendees while there are free seats
+     *
+     * @param event         the events
+     * @param capacity      maximum number of attendees of the events
+     * @param promotedUUIDs list the promoted users are appended to
+     */
+    private void promoteWaitlist(Event event, int capacity, List<UUID> promotedUUIDs) {
+        while (event.getAttendeeUUIDs().size() < capacity) {
+            UUID attendeeUUID = event.pollWaitlist();
+
+            if (attendeeUUID == null) {
+                return;
+            }
+
+            addAttendee(event, attendeeUUID);
+            promotedUUIDs.add(attendeeUUID);
+        }
+    }
+
+    private void notifyPromoted(UUID eventUUID, List<UUID> promotedUUIDs) {
+        for (UUID attendeeUUID : promotedUUIDs) {
+            deltaCallback.accept(new EventDelta(EventDelta.Type.REGISTER, eventUUID, attendeeUUID));
+        }
+    }
+
+    private void addAttendee(Event event, UUID attendeeUUID) {
+        event.addAttendee(attendeeUUID);
+        attendeeIndex.addAttendee(event.getUUID(), attendeeUUID);
+    }
+
+    private void removeAttendee(Event event, UUID attendeeUUID) {
+        event.removeAttendee(attendeeUUID);
+        attendeeIndex.removeAttendee(event.getUUID(), attendeeUUID);
+    }
+
+    /**
+     * Applies a delta passed to the delta callback without running any callback. Used to replay persisted changes.
+     * Replaying a delta on events that already include the change leaves them as they are, and deltas of events that
+     * no longer exist are ignored.
+     *
+     * @param delta the change
+     */
+    public void applyDelta(EventDelta delta) {
+        Event event = events.get(delta.getEventUUID());
+        UUID userUUID = delta.getUserUUID();
+
+        if (event == null) {
+            return;
+        }
+
+        switch (delta.getType()) {
+            case REGISTER:
+                // Promoted users are registered from the waitlist
+                event.removeFromWaitlist(userUUID);
+
+                if (!event.isAttendee(userUUID)) {
+                    addAttendee(event, userUUID);
+                }
+                break;
+            case UNREGISTER:
+                removeAttendee(event, userUUID);
+                break;
+            case JOIN_WAITLIST:
+                if (!event.isAttendee(userUUID) && !event.getWaitlistUUIDs().contains(userUUID)) {
+                    event.addToWaitlist(userUUID);
+                }
+                break;
+            case LEAVE_WAITLIST:
+                event.removeFromWaitlist(userUUID);
+                break;
+            case ADD_SPEAKER:
+                addSpeaker(event, userUUID);
+                break;
+            case REMOVE_SPEAKER:
+                removeSpeaker(event, userUUID);
+                break;
+        }
+    }
+
+    /**
+     * Gets the users waiting for a seat at an events
+     *
+     * @param eventUUID UUID of this events
+     * @return UUIDs of the waiting users, in the order they will be promoted
+     */
+    public List<UUID> getEventWaitlist(UUID eventUUID) {
+        Event event = getEvent(eventUUID);
+
+        return new ArrayList<>(event.getWaitlistUUIDs());
+    }
+
+    /**
+     * Gets the number of users waiting for a seat at an events
+     *
+     * @param eventUUID UUID of this events
+     * @return length of the waitlist
+     */
+    public int getWaitlistSize(UUID eventUUID) {
+        Event event = getEvent(eventUUID);
+
+        return event.getWaitlistUUIDs().size();
+    }
+
+    /**
+     * Gets the position of a user on the waitlist of an events
+     *
+     * @param eventUUID    UUID of this events
+     * @param attendeeUUID UUID of the user
+     * @return position starting from 1, or 0 if the user is not on the waitlist
+     */
+    public int getWaitlistPosition(UUID eventUUID, UUID attendeeUUID) {
+        Event event = getEvent(eventUUID);
+
+        return getWaitlistPosition(event, attendeeUUID);
+    }
+
+    private int getWaitlistPosition(Event event, UUID attendeeUUID) {
+        int position = 1;
+
+        for (UUID waitingUUID : event.getWaitlistUUIDs()) {
+            if (waitingUUID.equals(attendeeUUID)) {
+                return position;
+            }
+
+            position++;
+        }
+
+        return 0;
     }
 
 }
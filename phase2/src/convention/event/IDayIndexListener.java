@@ -0,0 +1,20 @@
+package convention.event;
+
+/**
+ * Listens for days gaining their first event or losing their last event in an EventDayIndex
+ */
+public interface IDayIndexListener {
+    /**
+     * Called when a day gets its first event
+     *
+     * @param epochDay the day, as returned by LocalDate.toEpochDay
+     */
+    void dayAdded(long epochDay);
+
+    /**
+     * Called when the last event of a day is removed
+     *
+     * @param epochDay the day, as returned by LocalDate.toEpochDay
+     */
+    void dayRemoved(long epochDay);
+}
@@ -0,0 +1,22 @@
+package convention.event;
+
+import java.util.UUID;
+
+/**
+ * Listens for speakers getting their first event or losing their last event in a SpeakerIntervalIndex
+ */
+public interface ISpeakerIndexListener {
+    /**
+     * Called when a speaker is added to their first event
+     *
+     * @param speakerUUID UUID of the speaker
+     */
+    void speakerAdded(UUID speakerUUID);
+
+    /**
+     * Called when a speaker is removed from their last event
+     *
+     * @param speakerUUID UUID of the speaker
+     */
+    void speakerRemoved(UUID speakerUUID);
+}
@@ -0,0 +1,197 @@
+package convention.event;
+
+import convention.calendar.TimeRange;
+
+import java.util.*;
+
+/**
+ * Index from speaker to the time ranges of the events they speak at, ordered by start time, so that speaker
+ * double-booking checks don't need to scan every event of a conference. It also counts the events of each speaker, so
+ * it can tell a listener when someone becomes or stops being a speaker.
+ */
+public class SpeakerIntervalIndex {
+    private final Map<UUID, SpeakerIntervals> speakerToIntervals = new HashMap<>();
+    private ISpeakerIndexListener listener;
+
+    /**
+     * Events of a speaker ordered by start time. Speakers can end up with overlapping events (the double-booking
+     * check is done by EventController, not here), so a lookup can't just look at the latest start like a room
+     * calendar does. Instead it scans back from the end of the range until no earlier event could be long enough to
+     * reach the start of the range.
+     */
+    private static class SpeakerIntervals {
+        private final TreeMap<Long, Map<UUID, TimeRange>> startToEvents = new TreeMap<>();
+
+        // Length of the longest event this speaker has had. It is not lowered when events are removed, which only
+        // makes lookups scan a bit further back.
+        private long maxDuration;
+        private int size;
+    }
+
+    /**
+     * Builds the index for a set of events
+     *
+     * @param events map of UUIDs to events
+     */
+    public SpeakerIntervalIndex(Map<UUID, Event> events) {
+        for (Event event : events.values()) {
+            for (UUID speakerUUID : event.getSpeakers()) {
+                addSpeaker(event.getUUID(), event.getTimeRange(), speakerUUID);
+            }
+        }
+    }
+
+    /**
+     * Sets the listener that is told when speakers get their first event or lose their last one
+     *
+     * @param listener listener to notify, or null to stop notifying
+     */
+    public void setListener(ISpeakerIndexListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Adds an event to the intervals of a speaker
+     *
+     * @param eventUUID   UUID of the event
+     * @param timeRange   time range of the event
+     * @param speakerUUID UUID of the speaker
+     */
+    void addSpeaker(UUID eventUUID, TimeRange timeRange, UUID speakerUUID) {
+        SpeakerIntervals intervals = speakerToIntervals.get(speakerUUID);
+
+        if (intervals == null) {
+            intervals = new SpeakerIntervals();
+            speakerToIntervals.put(speakerUUID, intervals);
+        }
+
+        if (intervals.startToEvents.computeIfAbsent(timeRange.getStartEpochSecond(), k -> new HashMap<>()).put(eventUUID, timeRange) == null) {
+            intervals.size++;
+
+            if (intervals.size == 1 && listener != null) {
+                listener.speakerAdded(speakerUUID);
+            }
+        }
+
+        intervals.maxDuration = Math.max(intervals.maxDuration, timeRange.getEndEpochSecond() - timeRange.getStartEpochSecond());
+    }
+
+    /**
+     * Removes an event from the intervals of a speaker
+     *
+     * @param eventUUID   UUID of the event
+     * @param timeRange   time range the event was indexed with
+     * @param speakerUUID UUID of the speaker
+     */
+    void removeSpeaker(UUID eventUUID, TimeRange timeRange, UUID speakerUUID) {
+        SpeakerIntervals intervals = speakerToIntervals.get(speakerUUID);
+
+        if (intervals == null) {
+            return;
+        }
+
+        Map<UUID, TimeRange> events = intervals.startToEvents.get(timeRange.getStartEpochSecond());
+
+        if (events != null && events.remove(eventUUID) != null) {
+            intervals.size--;
+
+            if (events.isEmpty()) {
+                intervals.startToEvents.remove(timeRange.getStartEpochSecond());
+            }
+
+            if (intervals.size == 0) {
+                speakerToIntervals.remove(speakerUUID);
+
+                if (listener != null) {
+                    listener.speakerRemoved(speakerUUID);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an event to the intervals of each of its speakers
+     *
+     * @param eventUUID    UUID of the event
+     * @param timeRange    time range of the event
+     * @param speakerUUIDs UUIDs of the speakers
+     */
+    void addEvent(UUID eventUUID, TimeRange timeRange, Set<UUID> speakerUUIDs) {
+        for (UUID speakerUUID : speakerUUIDs) {
+            addSpeaker(eventUUID, timeRange, speakerUUID);
+        }
+    }
+
+    /**
+     * Removes an event from the intervals of each of its speakers
+     *
+     * @param eventUUID    UUID of the event
+     * @param timeRange    time range the event was indexed with
+     * @param speakerUUIDs UUIDs of the speakers
+     */
+    void removeEvent(UUID eventUUID, TimeRange timeRange, Set<UUID> speakerUUIDs) {
+        for (UUID speakerUUID : speakerUUIDs) {
+            removeSpeaker(eventUUID, timeRange, speakerUUID);
+        }
+    }
+
+    /**
+     * Tests if a speaker speaks at an event that overlaps a time range
+     *
+     * @param speakerUUID UUID of the speaker
+     * @param timeRange   time range to test
+     * @return true iff one of the speaker's events overlaps the time range
+     */
+    public boolean isOccupied(UUID speakerUUID, TimeRange timeRange) {
+        SpeakerIntervals intervals = speakerToIntervals.get(speakerUUID);
+
+        if (intervals == null) {
+            return false;
+        }
+
+        // Events starting before this can't reach the start of the time range
+        long earliestStart = timeRange.getStartEpochSecond() - intervals.maxDuration;
+
+        for (Map<UUID, TimeRange> events : intervals.startToEvents.headMap(timeRange.getEndEpochSecond(), true).descendingMap().values()) {
+            for (TimeRange eventTimeRange : events.values()) {
+                if (eventTimeRange.getStartEpochSecond() < earliestStart) {
+                    return false;
+                }
+
+                if (eventTimeRange.hasOverlap(timeRange)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the users that speak at at least one event
+     *
+     * @return set of speaker UUIDs
+     */
+    public Set<UUID> getSpeakers() {
+        return new HashSet<>(speakerToIntervals.keySet());
+    }
+
+    /**
+     * Gets the events a speaker speaks at
+     *
+     * @param speakerUUID UUID of the speaker
+     * @return set of event UUIDs
+     */
+    public Set<UUID> getEvents(UUID speakerUUID) {
+        Set<UUID> eventUUIDs = new HashSet<>();
+        SpeakerIntervals intervals = speakerToIntervals.get(speakerUUID);
+
+        if (intervals != null) {
+            for (Map<UUID, TimeRange> events : intervals.startToEvents.values()) {
+                eventUUIDs.addAll(events.keySet());
+            }
+        }
+
+        return eventUUIDs;
+    }
+}
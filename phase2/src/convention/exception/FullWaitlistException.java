@@ -0,0 +1,10 @@
+package convention.exception;
+
+/**
+ * Thrown when the waitlist of an events is unable to accept more users
+ */
+public class FullWaitlistException extends RuntimeException {
+    public FullWaitlistException() {
+        super("Unable to join the waitlist - Waitlist is full.");
+    }
+}
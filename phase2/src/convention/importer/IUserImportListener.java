@@ -0,0 +1,22 @@
+package convention.importer;
+
+/**
+ * Interface for following the progress of a bulk user import
+ */
+public interface IUserImportListener {
+    /**
+     * Called after each batch of rows is imported
+     *
+     * @param rowsRead      number of rows read so far
+     * @param usersImported number of users registered so far
+     */
+    void progress(int rowsRead, int usersImported);
+
+    /**
+     * Called for each row that could not be imported
+     *
+     * @param rowNumber number of the row in the document, starting at 1
+     * @param message   why the row was rejected
+     */
+    void rowFailed(int rowNumber, String message);
+}
@@ -0,0 +1,155 @@
+package convention.importer;
+
+import convention.conference.ConferenceManager;
+import convention.exception.NullConferenceException;
+import gateway.IMatrixReader;
+import user.UserManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Imports users in bulk from a document, such as a registration export, optionally enrolling them into a conference.
+ * <p>
+ * Rows are read as a stream in batches, so the whole document is never held in memory. Each batch is validated in
+ * parallel, then registered and enrolled in one pass on the calling thread, since the managers are not thread safe.
+ * Columns are in this order: First Name, Last Name, Username, Password.
+ */
+public class UserImporter {
+    private static final int BATCH_SIZE = 1000;
+    private static final int COLUMN_COUNT = 4;
+
+    private final UserManager userManager;
+    private final ConferenceManager conferenceManager;
+
+    /**
+     * Constructs UserImporter
+     *
+     * @param userManager       instance of user manager
+     * @param conferenceManager instance of conference manager
+     */
+    public UserImporter(UserManager userManager, ConferenceManager conferenceManager) {
+        this.userManager = userManager;
+        this.conferenceManager = conferenceManager;
+    }
+
+    /**
+     * Imports every row of a document as a new non-god user. Rows that are invalid or whose username is taken are
+     * skipped and reported to the listener.
+     * <p>
+     * Throws NullConferenceException if the conferenceUUID does not correspond to a valid convention.
+     *
+     * @param reader         reader of the document
+     * @param conferenceUUID UUID of the conference to enroll the new users into as attendees, or null to not enroll them
+     * @param listener       listener told about progress and rejected rows, or null
+     * @return set of the UUIDs of the new users
+     * @throws IOException if the document can't be read
+     */
+    public Set<UUID> importUsers(IMatrixReader reader, UUID conferenceUUID, IUserImportListener listener) throws IOException {
+        // Fail before registering anyone if the conference doesn't exist
+        if (conferenceUUID != null && !conferenceManager.conferenceExists(conferenceUUID)) {
+            throw new NullConferenceException(conferenceUUID);
+        }
+
+        Set<UUID> newUserUUIDs = new HashSet<>();
+        int rowsRead = 0;
+
+        try (Stream<String[]> rows = reader.stream()) {
+            Iterator<String[]> iterator = rows.iterator();
+
+            while (iterator.hasNext()) {
+                List<String[]> batch = new ArrayList<>(BATCH_SIZE);
+
+                while (iterator.hasNext() && batch.size() < BATCH_SIZE) {
+                    batch.add(iterator.next());
+                }
+
+                importBatch(batch, rowsRead + 1, conferenceUUID, listener, newUserUUIDs);
+                rowsRead += batch.size();
+
+                if (listener != null) {
+                    listener.progress(rowsRead, newUserUUIDs.size());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return newUserUUIDs;
+    }
+
+    /**
+     * Validates, registers and enrolls a batch of rows
+     *
+     * @param batch          rows of the batch
+     * @param firstRowNumber number of the first row of the batch in the document
+     * @param conferenceUUID UUID of the conference to enroll into, or null
+     * @param listener       listener told about rejected rows, or null
+     * @param newUserUUIDs   set the UUIDs of the new users are added to
+     */
+    private void importBatch(List<String[]> batch, int firstRowNumber, UUID conferenceUUID, IUserImportListener listener, Set<UUID> newUserUUIDs) {
+        List<String> errors = batch.parallelStream().map(this::validate).collect(Collectors.toList());
+
+        List<Integer> validRows = IntStream.range(0, batch.size()).filter(i -> errors.get(i) == null).boxed().collect(Collectors.toList());
+        List<String[]> validEntries = new ArrayList<>(validRows.size());
+
+        for (int i : validRows) {
+            validEntries.add(batch.get(i));
+        }
+
+        List<UUID> registeredUUIDs = userManager.registerUsers(validEntries, false);
+        List<UUID> batchUserUUIDs = new ArrayList<>(registeredUUIDs.size());
+
+        for (int i = 0; i < registeredUUIDs.size(); i++) {
+            if (registeredUUIDs.get(i) == null) {
+                errors.set(validRows.get(i), String.format("Username %s is already taken.", validEntries.get(i)[2]));
+            } else {
+                batchUserUUIDs.add(registeredUUIDs.get(i));
+            }
+        }
+
+        if (conferenceUUID != null && !batchUserUUIDs.isEmpty()) {
+            conferenceManager.addAttendees(conferenceUUID, batchUserUUIDs);
+        }
+
+        newUserUUIDs.addAll(batchUserUUIDs);
+
+        if (listener != null) {
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i) != null) {
+                    listener.rowFailed(firstRowNumber + i, errors.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a row has every column needed to register a user
+     *
+     * @param row the row to check
+     * @return why the row is invalid, or null if it is valid
+     */
+    private String validate(String[] row) {
+        if (row.length < COLUMN_COUNT) {
+            return String.format("Expected %d columns but found %d.", COLUMN_COUNT, row.length);
+        }
+
+        String[] columnNames = {"First name", "Last name", "Username", "Password"};
+
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            if (row[i].trim().isEmpty()) {
+                return String.format("%s is empty.", columnNames[i]);
+            }
+        }
+
+        if (!row[2].equals(row[2].trim())) {
+            return "Username has leading or trailing spaces.";
+        }
+
+        return null;
+    }
+}
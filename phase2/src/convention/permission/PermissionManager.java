@@ -61,6 +61,19 @@ public class PermissionManager {
         return String.format("Access denied\n Executor: %s\n Target: %s\n Conference: %s\n Required Target Permission: %s", executorUUID, targetUserUUID, conferenceUUID, permissionLevel);
     }
 
+    /**
+     * Tests if a user has at least one of a set of roles in a conference, or has god mode
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @param roles          role flags from ConferenceManager, any of which is enough
+     * @return true iff the user has one of the roles or has god mode
+     */
+    private boolean hasRole(UUID conferenceUUID, UUID userUUID, int roles) {
+        // God mode is only looked up when the user doesn't have the role, since most checks are for members
+        return (conferenceManager.getRoles(conferenceUUID, userUUID) & roles) != 0 || (userManager.isUser(userUUID) && userManager.getUserIsGod(userUUID));
+    }
+
     /**
      * Validates that the current user can execute organizer actions for a conference. Raises a PermissionException otherwise.
      *
@@ -68,7 +81,7 @@ public class PermissionManager {
      * @param executorUUID   UUID of the user running the command
      */
     public void testIsOrganizer(UUID conferenceUUID, UUID executorUUID) {
-        if (!conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, ConferenceManager.ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, ORGANIZER);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -84,7 +97,7 @@ public class PermissionManager {
      */
     public void testIsSpeaker(UUID conferenceUUID, UUID executorUUID) {
         // Organizers can perform speaker actions too
-        if (!conferenceManager.isSpeaker(conferenceUUID, executorUUID) && !conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, ConferenceManager.SPEAKER_ROLE | ConferenceManager.ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, SPEAKER);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -100,7 +113,7 @@ public class PermissionManager {
      */
     public void testIsAttendee(UUID conferenceUUID, UUID executorUUID) {
         // Organizers can perform speaker actions too
-        if (!conferenceManager.isAttendee(conferenceUUID, executorUUID) && !conferenceManager.isSpeaker(conferenceUUID, executorUUID) && !conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        if (!hasRole(conferenceUUID, executorUUID, ConferenceManager.ATTENDEE_ROLE | ConferenceManager.SPEAKER_ROLE | ConferenceManager.ORGANIZER_ROLE)) {
             String errorMessage = generateExecutorAccessDeniedError(conferenceUUID, executorUUID, ATTENDEE);
 
             LOGGER.log(Level.SEVERE, errorMessage);
@@ -163,7 +176,7 @@ public class PermissionManager {
         if (executorUUID.equals(targetUserUUID)) {
             // If the executor is the target, then we can treat this as a normal attendee operation
             testIsAttendee(conferenceUUID, targetUserUUID);
-        } else if (conferenceManager.isOrganizer(conferenceUUID, executorUUID, userManager)) {
+        } else if (hasRole(conferenceUUID, executorUUID, ConferenceManager.ORGANIZER_ROLE)) {
             // If the executor is an organizer, still need to check that the target is actually an attendee
             testTargetIsAttendee(conferenceUUID, executorUUID, targetUserUUID);
         } else {
@@ -9,6 +9,8 @@ import java.util.UUID;
  * Room entity
  */
 public class Room implements Serializable {
+    private static final long serialVersionUID = -5299936349247156441L;
+
 
     //unique ID for the room
     private UUID roomUUID;
@@ -26,10 +28,22 @@ public class Room implements Serializable {
      * @param capacity     capacity of this room
      */
     public Room(String roomLocation, int capacity) {
-        this.roomUUID = UUID.randomUUID();
+        this(UUID.randomUUID(), roomLocation, capacity, new Calendar());
+    }
+
+    /**
+     * Room constructor with an existing UUID and calendar (i.e. when loading a room from disk)
+     *
+     * @param roomUUID     UUID of the room
+     * @param roomLocation Location of the room in predefined format
+     * @param capacity     capacity of this room
+     * @param calendar     calendar of bookings in this room
+     */
+    public Room(UUID roomUUID, String roomLocation, int capacity, Calendar calendar) {
+        this.roomUUID = roomUUID;
         this.capacity = capacity;
         this.roomLocation = roomLocation;
-        this.calendar = new Calendar();
+        this.calendar = calendar;
     }
 
     /**
@@ -1,22 +1,23 @@
 package convention.room;
 
 import convention.calendar.CalendarManager;
+import convention.calendar.TimeRange;
 import convention.exception.InvalidCapacityException;
 import convention.exception.InvalidNameException;
 import convention.exception.NullRoomException;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Manages room entities
  */
 public class RoomManager implements Serializable {
+    private static final long serialVersionUID = -4289853831145496098L;
+
 
     private Map<UUID, Room> rooms;
+    private Runnable changeCallback;
 
     /**
      * Room Locations must be non-empty; this method tests for that condition
@@ -39,7 +40,19 @@ public class RoomManager implements Serializable {
     }
 
     public RoomManager(Map<UUID, Room> rooms) {
+        this(rooms, () -> {
+        });
+    }
+
+    /**
+     * Constructs a RoomManager that reports changes to its rooms and their calendars
+     *
+     * @param rooms          map of UUIDs to rooms in this conference
+     * @param changeCallback runs every time a room or booking in this conference is mutated
+     */
+    public RoomManager(Map<UUID, Room> rooms, Runnable changeCallback) {
         this.rooms = rooms;
+        this.changeCallback = changeCallback;
     }
 
     /**
@@ -58,7 +71,7 @@ public class RoomManager implements Serializable {
      * @return the CalendarManager associated with this room
      */
     public CalendarManager getCalendarManager(UUID roomUUID) {
-        return new CalendarManager(getRoom(roomUUID).getCalendar());
+        return new CalendarManager(getRoom(roomUUID).getCalendar(), changeCallback);
     }
 
     /**
@@ -94,6 +107,7 @@ public class RoomManager implements Serializable {
         }
         Room room = new Room(roomLocation, roomCapacity);// make the room here and stuff
         rooms.put(room.getUUID(), room);
+        changeCallback.run();
 
         return room.getUUID();
     }
@@ -113,6 +127,7 @@ public class RoomManager implements Serializable {
         }
 
         getRoom(roomUUID).setRoomLocation(roomLocation);
+        changeCallback.run();
     }
 
     /**
@@ -130,6 +145,7 @@ public class RoomManager implements Serializable {
         }
 
         getRoom(roomUUID).setCapacity(capacity);
+        changeCallback.run();
     }
 
     /**
@@ -143,6 +159,7 @@ public class RoomManager implements Serializable {
         }
 
         rooms.remove(roomUUID);
+        changeCallback.run();
     }
 
     /**
@@ -165,4 +182,24 @@ public class RoomManager implements Serializable {
         return getRoom(roomUUID).getCapacity();
     }
 
+    /**
+     * Finds the rooms that can hold a number of people and have no booking during a time range
+     *
+     * @param timeRange   time range the rooms must be free for
+     * @param minCapacity minimum capacity of the rooms
+     * @return UUIDs of the free rooms, smallest capacity first
+     */
+    public List<UUID> findRoomsFreeDuring(TimeRange timeRange, int minCapacity) {
+        List<UUID> roomUUIDs = new ArrayList<>();
+
+        for (Map.Entry<UUID, Room> room : rooms.entrySet()) {
+            if (room.getValue().getCapacity() >= minCapacity && !getCalendarManager(room.getKey()).timeRangeOccupied(timeRange)) {
+                roomUUIDs.add(room.getKey());
+            }
+        }
+
+        roomUUIDs.sort(Comparator.comparingInt(this::getRoomCapacity));
+
+        return roomUUIDs;
+    }
 }
@@ -0,0 +1,219 @@
+package convention.snapshot;
+
+import convention.calendar.TimeRange;
+import convention.exception.NullConferenceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only view of the conferences in a memory-mapped snapshot written by MappedSnapshotWriter. Mirrors the query
+ * methods of ConferenceManager.
+ * <p>
+ * Nothing is read into memory when the snapshot is opened; every query reads straight from the mapped buffer, so
+ * several processes mapping the same snapshot share its pages in the page cache. A view keeps reading the snapshot it
+ * mapped after the file is replaced by a newer one, so open the file again to see the new snapshot.
+ */
+public class MappedConferenceManager {
+    private final ByteBuffer buffer;
+    private final int conferenceCount;
+
+    private MappedConferenceManager(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.conferenceCount = buffer.getInt(8);
+    }
+
+    /**
+     * Maps a snapshot file into memory
+     *
+     * @param fileName name of the snapshot file
+     * @return read-only view of the snapshot
+     * @throws IOException if the file can't be mapped or isn't a snapshot
+     */
+    public static MappedConferenceManager open(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.capacity() < MappedLayout.HEADER_SIZE || buffer.getInt(0) != MappedLayout.MAGIC || buffer.getInt(4) != MappedLayout.VERSION) {
+                throw new IOException(fileName + " is not a conference snapshot");
+            }
+
+            return new MappedConferenceManager(buffer);
+        }
+    }
+
+    /**
+     * Gets the position of a conference record, and raises a NullConferenceException if it doesn't exist
+     *
+     * @param conferenceUUID UUID of the conference
+     * @return position of the conference record
+     */
+    private int getConference(UUID conferenceUUID) {
+        int entryPosition = MappedLayout.find(buffer, MappedLayout.HEADER_SIZE, conferenceCount, MappedLayout.DIRECTORY_ENTRY_SIZE, conferenceUUID);
+
+        if (entryPosition < 0) {
+            throw new NullConferenceException(conferenceUUID);
+        }
+
+        return buffer.getInt(entryPosition + 16);
+    }
+
+    /**
+     * Gets the read-only event view of a conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return the event view
+     */
+    public MappedEventManager getEventManager(UUID conferenceUUID) {
+        int recordPosition = getConference(conferenceUUID);
+
+        return new MappedEventManager(buffer,
+                buffer.getInt(recordPosition + MappedLayout.CONFERENCE_EVENTS),
+                buffer.getInt(recordPosition + MappedLayout.CONFERENCE_EVENT_COUNT));
+    }
+
+    /**
+     * Gets the read-only room view of a conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return the room view
+     */
+    public MappedRoomManager getRoomManager(UUID conferenceUUID) {
+        int recordPosition = getConference(conferenceUUID);
+
+        return new MappedRoomManager(buffer,
+                buffer.getInt(recordPosition + MappedLayout.CONFERENCE_ROOMS),
+                buffer.getInt(recordPosition + MappedLayout.CONFERENCE_ROOM_COUNT));
+    }
+
+    /**
+     * Gets a map from Event UUID to their respective TimeRange
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return a map of events UUIDs to their corresponding TimeRange
+     */
+    public Map<UUID, TimeRange> getConferenceSchedule(UUID conferenceUUID) {
+        MappedRoomManager roomManager = getRoomManager(conferenceUUID);
+        Map<UUID, TimeRange> eventUUIDtoTimeRanges = new HashMap<>();
+
+        for (UUID roomUUID : roomManager.getRooms()) {
+            eventUUIDtoTimeRanges.putAll(roomManager.getUUIDtoTimeRanges(roomUUID));
+        }
+
+        return eventUUIDtoTimeRanges;
+    }
+
+    /**
+     * Tests if a conference exists in the snapshot
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return true iff a conference with the corresponding UUID exists in the snapshot
+     */
+    public boolean conferenceExists(UUID conferenceUUID) {
+        return MappedLayout.find(buffer, MappedLayout.HEADER_SIZE, conferenceCount, MappedLayout.DIRECTORY_ENTRY_SIZE, conferenceUUID) >= 0;
+    }
+
+    /**
+     * Gets a set of all the conference UUIDs in the snapshot
+     *
+     * @return Set of conference UUIDs
+     */
+    public Set<UUID> getConferences() {
+        Set<UUID> conferenceUUIDs = new HashSet<>();
+
+        for (int i = 0; i < conferenceCount; i++) {
+            conferenceUUIDs.add(MappedLayout.readUUID(buffer, MappedLayout.HEADER_SIZE + i * MappedLayout.DIRECTORY_ENTRY_SIZE));
+        }
+
+        return conferenceUUIDs;
+    }
+
+    /**
+     * Gets conference name
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return name of the conference
+     */
+    public String getConferenceName(UUID conferenceUUID) {
+        return MappedLayout.readString(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_NAME));
+    }
+
+    /**
+     * Gets conference time range
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return time range of the conference
+     */
+    public TimeRange getTimeRange(UUID conferenceUUID) {
+        return MappedLayout.readTimeRange(buffer, getConference(conferenceUUID) + MappedLayout.CONFERENCE_TIME_RANGE);
+    }
+
+    /**
+     * Tests if a UUID belongs to an attendee of this conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is an attendee
+     */
+    public boolean isAttendee(UUID conferenceUUID, UUID userUUID) {
+        return MappedLayout.containsUUID(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_ATTENDEES), userUUID);
+    }
+
+    /**
+     * Tests if a UUID belongs to a speaker of this conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is a speaker
+     */
+    public boolean isSpeaker(UUID conferenceUUID, UUID userUUID) {
+        return MappedLayout.containsUUID(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_SPEAKERS), userUUID);
+    }
+
+    /**
+     * Tests if a UUID belongs to an organizer of this conference. Unlike ConferenceManager, god users aren't
+     * considered, since the snapshot doesn't contain any users.
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @param userUUID       UUID of the user to test
+     * @return true iff the user is an organizer
+     */
+    public boolean isOrganizer(UUID conferenceUUID, UUID userUUID) {
+        return MappedLayout.containsUUID(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_ORGANIZERS), userUUID);
+    }
+
+    /**
+     * Gets a set of organizer UUIDs for a particular conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return set of UUIDs of organizer users
+     */
+    public Set<UUID> getOrganizers(UUID conferenceUUID) {
+        return MappedLayout.readUUIDs(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_ORGANIZERS));
+    }
+
+    /**
+     * Gets a set of speaker UUIDs for a particular conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return set of UUIDs of speaker users
+     */
+    public Set<UUID> getSpeakers(UUID conferenceUUID) {
+        return MappedLayout.readUUIDs(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_SPEAKERS));
+    }
+
+    /**
+     * Gets a set of attendee UUIDs for a particular conference
+     *
+     * @param conferenceUUID UUID of the conference to operate on
+     * @return set of UUIDs of attendee users
+     */
+    public Set<UUID> getAttendees(UUID conferenceUUID) {
+        return MappedLayout.readUUIDs(buffer, buffer.getInt(getConference(conferenceUUID) + MappedLayout.CONFERENCE_ATTENDEES));
+    }
+}
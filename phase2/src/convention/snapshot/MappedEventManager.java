@@ -0,0 +1,142 @@
+package convention.snapshot;
+
+import convention.calendar.TimeRange;
+import convention.exception.NullEventException;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-only view of the events of a conference in a memory-mapped snapshot. Mirrors the query methods of EventManager.
+ */
+public class MappedEventManager {
+    private final ByteBuffer buffer;
+    private final int eventsPosition;
+    private final int eventCount;
+
+    /**
+     * Creates a view over the event table of a conference
+     *
+     * @param buffer         mapped snapshot
+     * @param eventsPosition position of the event table
+     * @param eventCount     number of events in the table
+     */
+    MappedEventManager(ByteBuffer buffer, int eventsPosition, int eventCount) {
+        this.buffer = buffer;
+        this.eventsPosition = eventsPosition;
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Gets the position of an event entry, and raises a NullEventException if it doesn't exist
+     *
+     * @param eventUUID UUID of the event
+     * @return position of the event entry
+     */
+    private int getEvent(UUID eventUUID) {
+        int eventPosition = MappedLayout.find(buffer, eventsPosition, eventCount, MappedLayout.EVENT_SIZE, eventUUID);
+
+        if (eventPosition < 0) {
+            throw new NullEventException(eventUUID);
+        }
+
+        return eventPosition;
+    }
+
+    /**
+     * Gets the set of all events in this conference
+     *
+     * @return the set of all events in this conference
+     */
+    public Set<UUID> getEvents() {
+        Set<UUID> eventUUIDs = new HashSet<>();
+
+        for (int i = 0; i < eventCount; i++) {
+            eventUUIDs.add(MappedLayout.readUUID(buffer, eventsPosition + i * MappedLayout.EVENT_SIZE));
+        }
+
+        return eventUUIDs;
+    }
+
+    /**
+     * Checks whether an event is in this conference
+     *
+     * @param eventUUID UUID of the event
+     * @return true iff the event exists
+     */
+    public boolean eventExists(UUID eventUUID) {
+        return MappedLayout.find(buffer, eventsPosition, eventCount, MappedLayout.EVENT_SIZE, eventUUID) >= 0;
+    }
+
+    /**
+     * Gets the title of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return title of the event
+     */
+    public String getEventTitle(UUID eventUUID) {
+        return MappedLayout.readString(buffer, buffer.getInt(getEvent(eventUUID) + MappedLayout.EVENT_TITLE));
+    }
+
+    /**
+     * Gets the room of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return UUID of the room hosting the event
+     */
+    public UUID getEventRoom(UUID eventUUID) {
+        return MappedLayout.readUUID(buffer, getEvent(eventUUID) + MappedLayout.EVENT_ROOM);
+    }
+
+    /**
+     * Gets the time range of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return time range of the event
+     */
+    public TimeRange getEventTimeRange(UUID eventUUID) {
+        return MappedLayout.readTimeRange(buffer, getEvent(eventUUID) + MappedLayout.EVENT_TIME_RANGE);
+    }
+
+    /**
+     * Gets the conversation of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return UUID of the event conversation, or null if it has none
+     */
+    public UUID getEventConversationUUID(UUID eventUUID) {
+        return MappedLayout.readUUID(buffer, getEvent(eventUUID) + MappedLayout.EVENT_CONVERSATION);
+    }
+
+    /**
+     * Gets the speakers of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return set of UUIDs of speakers for this event
+     */
+    public Set<UUID> getEventSpeakers(UUID eventUUID) {
+        return MappedLayout.readUUIDs(buffer, buffer.getInt(getEvent(eventUUID) + MappedLayout.EVENT_SPEAKERS));
+    }
+
+    /**
+     * Gets the attendees of an event
+     *
+     * @param eventUUID UUID of the event
+     * @return set of UUIDs of attendees of this event
+     */
+    public Set<UUID> getEventAttendees(UUID eventUUID) {
+        return MappedLayout.readUUIDs(buffer, buffer.getInt(getEvent(eventUUID) + MappedLayout.EVENT_ATTENDEES));
+    }
+
+    /**
+     * Gets the number of attendees of an event without reading them
+     *
+     * @param eventUUID UUID of the event
+     * @return number of attendees
+     */
+    public int getEventAttendeeCount(UUID eventUUID) {
+        return buffer.getInt(buffer.getInt(getEvent(eventUUID) + MappedLayout.EVENT_ATTENDEES));
+    }
+}
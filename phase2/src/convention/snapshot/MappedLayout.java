@@ -0,0 +1,145 @@
+package convention.snapshot;
+
+import convention.calendar.TimeRange;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Layout of the memory-mapped conference snapshot. All offsets are absolute positions in the file, and every table is
+ * sorted by UUID so lookups are binary searches directly on the mapped buffer.
+ * <p>
+ * File: [int magic][int version][int conference count][directory][records and data...], where each directory entry is
+ * [UUID conference][int record position]. Each conference record is followed by its own data, in directory order, so
+ * a record ends where the next one starts. The directory may have unused entries after the last conference.
+ * <p>
+ * Conference record: [UUID][time range][name][organizers][speakers][attendees][int room count][rooms]
+ * [int event count][events], where everything but the counts, UUID and time range is a position
+ * <p>
+ * Room entry: [UUID][int capacity][location][bookings]
+ * <p>
+ * Event entry: [UUID][time range][UUID room][UUID conversation][title][speakers][attendees]
+ * <p>
+ * UUIDs are two longs (all zeros for null), time ranges are two longs of epoch seconds (UTC), strings are
+ * [int length][UTF-8 bytes], UUID sets are [int count][sorted UUIDs...] and bookings are
+ * [int count][(UUID event, time range)...]
+ */
+class MappedLayout {
+    static final int MAGIC = 0x4354504d; // "CTPM"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 12;
+    static final int DIRECTORY_ENTRY_SIZE = 20;
+
+    static final int CONFERENCE_TIME_RANGE = 16;
+    static final int CONFERENCE_NAME = 32;
+    static final int CONFERENCE_ORGANIZERS = 36;
+    static final int CONFERENCE_SPEAKERS = 40;
+    static final int CONFERENCE_ATTENDEES = 44;
+    static final int CONFERENCE_ROOM_COUNT = 48;
+    static final int CONFERENCE_ROOMS = 52;
+    static final int CONFERENCE_EVENT_COUNT = 56;
+    static final int CONFERENCE_EVENTS = 60;
+    static final int CONFERENCE_SIZE = 64;
+
+    static final int ROOM_CAPACITY = 16;
+    static final int ROOM_LOCATION = 20;
+    static final int ROOM_BOOKINGS = 24;
+    static final int ROOM_SIZE = 28;
+
+    static final int EVENT_TIME_RANGE = 16;
+    static final int EVENT_ROOM = 32;
+    static final int EVENT_CONVERSATION = 48;
+    static final int EVENT_TITLE = 64;
+    static final int EVENT_SPEAKERS = 68;
+    static final int EVENT_ATTENDEES = 72;
+    static final int EVENT_SIZE = 76;
+
+    static final int BOOKING_SIZE = 32;
+
+    /**
+     * Orders UUIDs the same way they are sorted in the snapshot
+     */
+    static int compare(UUID a, UUID b) {
+        int result = Long.compare(a.getMostSignificantBits(), b.getMostSignificantBits());
+
+        return result != 0 ? result : Long.compare(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Binary searches a table of entries that start with a UUID
+     *
+     * @param buffer        mapped snapshot
+     * @param tablePosition position of the first entry
+     * @param count         number of entries
+     * @param entrySize     size of each entry
+     * @param uuid          UUID to find
+     * @return position of the entry, or -1 if it isn't in the table
+     */
+    static int find(ByteBuffer buffer, int tablePosition, int count, int entrySize, UUID uuid) {
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = tablePosition + middle * entrySize;
+            int result = Long.compare(buffer.getLong(position), uuid.getMostSignificantBits());
+
+            if (result == 0) {
+                result = Long.compare(buffer.getLong(position + 8), uuid.getLeastSignificantBits());
+            }
+
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    static UUID readUUID(ByteBuffer buffer, int position) {
+        long mostSignificantBits = buffer.getLong(position);
+        long leastSignificantBits = buffer.getLong(position + 8);
+
+        return mostSignificantBits == 0 && leastSignificantBits == 0 ? null : new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    static TimeRange readTimeRange(ByteBuffer buffer, int position) {
+        return new TimeRange(buffer.getLong(position), buffer.getLong(position + 8));
+    }
+
+    static String readString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position + 4 + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Set<UUID> readUUIDs(ByteBuffer buffer, int position) {
+        int count = buffer.getInt(position);
+        Set<UUID> uuids = new HashSet<>();
+
+        for (int i = 0; i < count; i++) {
+            uuids.add(readUUID(buffer, position + 4 + i * 16));
+        }
+
+        return uuids;
+    }
+
+    /**
+     * Tests if a sorted UUID set contains a UUID without reading the whole set
+     */
+    static boolean containsUUID(ByteBuffer buffer, int position, UUID uuid) {
+        return find(buffer, position + 4, buffer.getInt(position), 16, uuid) >= 0;
+    }
+}
@@ -0,0 +1,131 @@
+package convention.snapshot;
+
+import convention.calendar.TimeRange;
+import convention.exception.NullRoomException;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-only view of the rooms of a conference in a memory-mapped snapshot. Mirrors the query methods of RoomManager,
+ * with the room calendars exposed directly instead of through a CalendarManager.
+ */
+public class MappedRoomManager {
+    private final ByteBuffer buffer;
+    private final int roomsPosition;
+    private final int roomCount;
+
+    /**
+     * Creates a view over the room table of a conference
+     *
+     * @param buffer        mapped snapshot
+     * @param roomsPosition position of the room table
+     * @param roomCount     number of rooms in the table
+     */
+    MappedRoomManager(ByteBuffer buffer, int roomsPosition, int roomCount) {
+        this.buffer = buffer;
+        this.roomsPosition = roomsPosition;
+        this.roomCount = roomCount;
+    }
+
+    /**
+     * Gets the position of a room entry, and raises a NullRoomException if it doesn't exist
+     *
+     * @param roomUUID UUID of the room
+     * @return position of the room entry
+     */
+    private int getRoom(UUID roomUUID) {
+        int roomPosition = MappedLayout.find(buffer, roomsPosition, roomCount, MappedLayout.ROOM_SIZE, roomUUID);
+
+        if (roomPosition < 0) {
+            throw new NullRoomException(roomUUID);
+        }
+
+        return roomPosition;
+    }
+
+    /**
+     * Gets the set of all rooms in this conference
+     *
+     * @return set of UUIDs
+     */
+    public Set<UUID> getRooms() {
+        Set<UUID> roomUUIDs = new HashSet<>();
+
+        for (int i = 0; i < roomCount; i++) {
+            roomUUIDs.add(MappedLayout.readUUID(buffer, roomsPosition + i * MappedLayout.ROOM_SIZE));
+        }
+
+        return roomUUIDs;
+    }
+
+    /**
+     * Checks if the Room with a given UUID exists
+     *
+     * @param roomUUID the UUID of a specific room
+     * @return true iff the room exists
+     */
+    public boolean roomExists(UUID roomUUID) {
+        return MappedLayout.find(buffer, roomsPosition, roomCount, MappedLayout.ROOM_SIZE, roomUUID) >= 0;
+    }
+
+    /**
+     * Gets the location of a room
+     *
+     * @param roomUUID the UUID of a specific room
+     * @return location of the room
+     */
+    public String getRoomLocation(UUID roomUUID) {
+        return MappedLayout.readString(buffer, buffer.getInt(getRoom(roomUUID) + MappedLayout.ROOM_LOCATION));
+    }
+
+    /**
+     * Gets the capacity of a room
+     *
+     * @param roomUUID the UUID of a specific room
+     * @return capacity of the room
+     */
+    public int getRoomCapacity(UUID roomUUID) {
+        return buffer.getInt(getRoom(roomUUID) + MappedLayout.ROOM_CAPACITY);
+    }
+
+    /**
+     * Gets the bookings of a room
+     *
+     * @param roomUUID the UUID of a specific room
+     * @return map from event UUID to the time range it is booked for
+     */
+    public Map<UUID, TimeRange> getUUIDtoTimeRanges(UUID roomUUID) {
+        int bookingsPosition = buffer.getInt(getRoom(roomUUID) + MappedLayout.ROOM_BOOKINGS);
+        int bookingCount = buffer.getInt(bookingsPosition);
+        Map<UUID, TimeRange> bookings = new HashMap<>();
+
+        for (int i = 0; i < bookingCount; i++) {
+            int bookingPosition = bookingsPosition + 4 + i * MappedLayout.BOOKING_SIZE;
+            bookings.put(MappedLayout.readUUID(buffer, bookingPosition), MappedLayout.readTimeRange(buffer, bookingPosition + 16));
+        }
+
+        return bookings;
+    }
+
+    /**
+     * Tests if a time range overlaps any booking of a room
+     *
+     * @param roomUUID  the UUID of a specific room
+     * @param timeRange time range to test
+     * @return true iff the time range overlaps a booking
+     */
+    public boolean timeRangeOccupied(UUID roomUUID, TimeRange timeRange) {
+        for (TimeRange booking : getUUIDtoTimeRanges(roomUUID).values()) {
+            if (booking.hasOverlap(timeRange)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
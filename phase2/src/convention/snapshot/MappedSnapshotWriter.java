@@ -0,0 +1,365 @@
+package convention.snapshot;
+
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Writes the conferences of a ConferenceManager to a flat, offset-indexed snapshot that can be memory-mapped by
+ * MappedConferenceManager. See MappedLayout for the layout of the file.
+ * <p>
+ * The file is always replaced by moving a new file over it, never written in place, so processes that have the old
+ * snapshot mapped keep reading it until they open the file again.
+ */
+public class MappedSnapshotWriter {
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Writes a snapshot of every conference to a file. The snapshot is written to a temporary file first and then
+     * moved over the old one, so readers never map a half-written snapshot.
+     *
+     * @param conferenceManager conference manager to write
+     * @param fileName          name of the snapshot file
+     * @return number of bytes written
+     * @throws IOException if the snapshot can't be written
+     */
+    public long write(ConferenceManager conferenceManager, String fileName) throws IOException {
+        Set<UUID> conferenceUUIDs = conferenceManager.getConferences();
+
+        return write(conferenceUUIDs, conferenceUUIDs, conferenceUUID -> conferenceManager, fileName);
+    }
+
+    /**
+     * Writes a snapshot of a set of conferences to a file, copying the records of unchanged conferences from the
+     * snapshot the file holds now instead of reading the conferences again. The snapshot is written to a temporary
+     * file first and then moved over the old one, so readers never map a half-written snapshot.
+     *
+     * @param conferenceUUIDs        UUIDs of the conferences in the snapshot
+     * @param changedConferenceUUIDs UUIDs of the conferences that can't be copied from the current snapshot
+     * @param loader                 gets a conference manager holding a changed conference, or null if the conference
+     *                               can't be read and is left out
+     * @param fileName               name of the snapshot file
+     * @return number of bytes written
+     * @throws IOException if the snapshot can't be written
+     */
+    public long write(Set<UUID> conferenceUUIDs, Set<UUID> changedConferenceUUIDs, Function<UUID, ConferenceManager> loader, String fileName) throws IOException {
+        buffer.clear();
+
+        ByteBuffer previous = mapPrevious(fileName);
+        int previousCount = previous == null ? 0 : previous.getInt(8);
+        List<UUID> sortedUUIDs = sorted(conferenceUUIDs);
+
+        ensureCapacity(MappedLayout.HEADER_SIZE + sortedUUIDs.size() * MappedLayout.DIRECTORY_ENTRY_SIZE);
+        buffer.putInt(MappedLayout.MAGIC);
+        buffer.putInt(MappedLayout.VERSION);
+        buffer.putInt(0);
+
+        int directoryPosition = buffer.position();
+        buffer.position(directoryPosition + sortedUUIDs.size() * MappedLayout.DIRECTORY_ENTRY_SIZE);
+
+        int conferenceCount = 0;
+
+        for (UUID conferenceUUID : sortedUUIDs) {
+            int previousEntry = previous == null || changedConferenceUUIDs.contains(conferenceUUID) ? -1 :
+                    MappedLayout.find(previous, MappedLayout.HEADER_SIZE, previousCount, MappedLayout.DIRECTORY_ENTRY_SIZE, conferenceUUID);
+            int recordPosition;
+
+            if (previousEntry >= 0) {
+                recordPosition = copyConference(previous, previousEntry, previousCount);
+            } else {
+                ConferenceManager conferenceManager = loader.apply(conferenceUUID);
+
+                if (conferenceManager == null) {
+                    continue;
+                }
+
+                recordPosition = writeConference(conferenceManager, conferenceUUID);
+            }
+
+            // Conferences that are left out leave unused directory entries at the end of the directory
+            int entryPosition = directoryPosition + conferenceCount * MappedLayout.DIRECTORY_ENTRY_SIZE;
+            putUUID(entryPosition, conferenceUUID);
+            putInt(entryPosition + 16, recordPosition);
+            conferenceCount++;
+        }
+
+        buffer.putInt(8, conferenceCount);
+        buffer.flip();
+
+        Path tempPath = Paths.get(fileName + ".tmp");
+        long bytesWritten = buffer.remaining();
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(tempPath, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return bytesWritten;
+    }
+
+    /**
+     * Maps the snapshot a file holds now
+     *
+     * @param fileName name of the snapshot file
+     * @return the mapped snapshot, or null if there is no file or it isn't a snapshot of this version
+     */
+    private ByteBuffer mapPrevious(String fileName) {
+        Path path = Paths.get(fileName);
+
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer previous = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (previous.capacity() >= MappedLayout.HEADER_SIZE && previous.getInt(0) == MappedLayout.MAGIC && previous.getInt(4) == MappedLayout.VERSION) {
+                return previous;
+            }
+        } catch (IOException e) {
+            // Every conference is written from the loader instead
+        }
+
+        return null;
+    }
+
+    /**
+     * Copies a conference record and its data from the previous snapshot, moving every position in it by the distance
+     * the record moved. Records are stored in directory order, so a record ends where the next one starts.
+     *
+     * @param previous      previous snapshot
+     * @param entryPosition position of the directory entry of the conference in the previous snapshot
+     * @param previousCount number of conferences in the previous snapshot
+     * @return position of the copied record
+     */
+    private int copyConference(ByteBuffer previous, int entryPosition, int previousCount) {
+        int previousRecord = previous.getInt(entryPosition + 16);
+        int nextEntry = entryPosition + MappedLayout.DIRECTORY_ENTRY_SIZE;
+        int previousEnd = nextEntry < MappedLayout.HEADER_SIZE + previousCount * MappedLayout.DIRECTORY_ENTRY_SIZE ? previous.getInt(nextEntry + 16) : previous.capacity();
+
+        ensureCapacity(previousEnd - previousRecord);
+
+        int recordPosition = buffer.position();
+        int distance = recordPosition - previousRecord;
+
+        ByteBuffer record = previous.duplicate();
+        record.limit(previousEnd).position(previousRecord);
+        buffer.put(record);
+
+        for (int offset : new int[]{MappedLayout.CONFERENCE_NAME, MappedLayout.CONFERENCE_ORGANIZERS, MappedLayout.CONFERENCE_SPEAKERS,
+                MappedLayout.CONFERENCE_ATTENDEES, MappedLayout.CONFERENCE_ROOMS, MappedLayout.CONFERENCE_EVENTS}) {
+            move(recordPosition + offset, distance);
+        }
+
+        int roomsPosition = buffer.getInt(recordPosition + MappedLayout.CONFERENCE_ROOMS);
+
+        for (int i = 0; i < buffer.getInt(recordPosition + MappedLayout.CONFERENCE_ROOM_COUNT); i++) {
+            int roomPosition = roomsPosition + i * MappedLayout.ROOM_SIZE;
+
+            move(roomPosition + MappedLayout.ROOM_LOCATION, distance);
+            move(roomPosition + MappedLayout.ROOM_BOOKINGS, distance);
+        }
+
+        int eventsPosition = buffer.getInt(recordPosition + MappedLayout.CONFERENCE_EVENTS);
+
+        for (int i = 0; i < buffer.getInt(recordPosition + MappedLayout.CONFERENCE_EVENT_COUNT); i++) {
+            int eventPosition = eventsPosition + i * MappedLayout.EVENT_SIZE;
+
+            move(eventPosition + MappedLayout.EVENT_TITLE, distance);
+            move(eventPosition + MappedLayout.EVENT_SPEAKERS, distance);
+            move(eventPosition + MappedLayout.EVENT_ATTENDEES, distance);
+        }
+
+        return recordPosition;
+    }
+
+    /**
+     * Moves the position stored at a position of the snapshot
+     */
+    private void move(int position, int distance) {
+        buffer.putInt(position, buffer.getInt(position) + distance);
+    }
+
+    /**
+     * Writes a conference record followed by its variable-length data
+     *
+     * @return position of the record
+     */
+    private int writeConference(ConferenceManager conferenceManager, UUID conferenceUUID) {
+        EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+        RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+        List<UUID> roomUUIDs = sorted(roomManager.getRooms());
+        List<UUID> eventUUIDs = sorted(eventManager.getEvents());
+
+        int recordPosition = reserve(MappedLayout.CONFERENCE_SIZE);
+        int roomsPosition = reserve(roomUUIDs.size() * MappedLayout.ROOM_SIZE);
+        int eventsPosition = reserve(eventUUIDs.size() * MappedLayout.EVENT_SIZE);
+
+        putUUID(recordPosition, conferenceUUID);
+        putTimeRange(recordPosition + MappedLayout.CONFERENCE_TIME_RANGE, conferenceManager.getTimeRange(conferenceUUID));
+        putInt(recordPosition + MappedLayout.CONFERENCE_NAME, writeString(conferenceManager.getConferenceName(conferenceUUID)));
+        putInt(recordPosition + MappedLayout.CONFERENCE_ORGANIZERS, writeUUIDs(conferenceManager.getOrganizers(conferenceUUID)));
+        putInt(recordPosition + MappedLayout.CONFERENCE_SPEAKERS, writeUUIDs(conferenceManager.getSpeakers(conferenceUUID)));
+        putInt(recordPosition + MappedLayout.CONFERENCE_ATTENDEES, writeUUIDs(conferenceManager.getAttendees(conferenceUUID)));
+        putInt(recordPosition + MappedLayout.CONFERENCE_ROOM_COUNT, roomUUIDs.size());
+        putInt(recordPosition + MappedLayout.CONFERENCE_ROOMS, roomsPosition);
+        putInt(recordPosition + MappedLayout.CONFERENCE_EVENT_COUNT, eventUUIDs.size());
+        putInt(recordPosition + MappedLayout.CONFERENCE_EVENTS, eventsPosition);
+
+        for (int i = 0; i < roomUUIDs.size(); i++) {
+            UUID roomUUID = roomUUIDs.get(i);
+            int roomPosition = roomsPosition + i * MappedLayout.ROOM_SIZE;
+
+            putUUID(roomPosition, roomUUID);
+            putInt(roomPosition + MappedLayout.ROOM_CAPACITY, roomManager.getRoomCapacity(roomUUID));
+            putInt(roomPosition + MappedLayout.ROOM_LOCATION, writeString(roomManager.getRoomLocation(roomUUID)));
+            putInt(roomPosition + MappedLayout.ROOM_BOOKINGS, writeBookings(roomManager.getCalendarManager(roomUUID).getUUIDtoTimeRanges()));
+        }
+
+        for (int i = 0; i < eventUUIDs.size(); i++) {
+            UUID eventUUID = eventUUIDs.get(i);
+            int eventPosition = eventsPosition + i * MappedLayout.EVENT_SIZE;
+
+            putUUID(eventPosition, eventUUID);
+            putTimeRange(eventPosition + MappedLayout.EVENT_TIME_RANGE, eventManager.getEventTimeRange(eventUUID));
+            putUUID(eventPosition + MappedLayout.EVENT_ROOM, eventManager.getEventRoom(eventUUID));
+            putUUID(eventPosition + MappedLayout.EVENT_CONVERSATION, eventManager.getEventConversationUUID(eventUUID));
+            putInt(eventPosition + MappedLayout.EVENT_TITLE, writeString(eventManager.getEventTitle(eventUUID)));
+            putInt(eventPosition + MappedLayout.EVENT_SPEAKERS, writeUUIDs(eventManager.getEventSpeakers(eventUUID)));
+            putInt(eventPosition + MappedLayout.EVENT_ATTENDEES, writeUUIDs(eventManager.getEventAttendees(eventUUID)));
+        }
+
+        return recordPosition;
+    }
+
+    /**
+     * Writes a string as [int length][UTF-8 bytes]
+     *
+     * @return position of the string
+     */
+    private int writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int position = reserve(4 + bytes.length);
+
+        buffer.putInt(position, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(position + 4 + i, bytes[i]);
+        }
+
+        return position;
+    }
+
+    /**
+     * Writes a set of UUIDs as [int count][UUIDs...], sorted so that they can be binary searched
+     *
+     * @return position of the set
+     */
+    private int writeUUIDs(Set<UUID> uuids) {
+        List<UUID> sortedUUIDs = sorted(uuids);
+        int position = reserve(4 + sortedUUIDs.size() * 16);
+
+        buffer.putInt(position, sortedUUIDs.size());
+        for (int i = 0; i < sortedUUIDs.size(); i++) {
+            putUUID(position + 4 + i * 16, sortedUUIDs.get(i));
+        }
+
+        return position;
+    }
+
+    /**
+     * Writes the bookings of a room as [int count][(UUID event, time range)...]
+     *
+     * @return position of the bookings
+     */
+    private int writeBookings(Map<UUID, TimeRange> bookings) {
+        int position = reserve(4 + bookings.size() * MappedLayout.BOOKING_SIZE);
+        int bookingPosition = position + 4;
+
+        buffer.putInt(position, bookings.size());
+        for (Map.Entry<UUID, TimeRange> booking : bookings.entrySet()) {
+            putUUID(bookingPosition, booking.getKey());
+            putTimeRange(bookingPosition + 16, booking.getValue());
+            bookingPosition += MappedLayout.BOOKING_SIZE;
+        }
+
+        return position;
+    }
+
+    /**
+     * Writes an int at a position. The buffer field is read after the value is computed, since computing the value
+     * may grow (i.e. replace) the buffer.
+     */
+    private void putInt(int position, int value) {
+        buffer.putInt(position, value);
+    }
+
+    /**
+     * Writes a UUID as two longs. Null UUIDs are written as all zeros.
+     */
+    private void putUUID(int position, UUID uuid) {
+        buffer.putLong(position, uuid == null ? 0 : uuid.getMostSignificantBits());
+        buffer.putLong(position + 8, uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    private void putTimeRange(int position, TimeRange timeRange) {
+        buffer.putLong(position, timeRange.getStartEpochSecond());
+        buffer.putLong(position + 8, timeRange.getEndEpochSecond());
+    }
+
+    /**
+     * Reserves space at the end of the snapshot
+     *
+     * @param size number of bytes to reserve
+     * @return position of the reserved space
+     */
+    private int reserve(int size) {
+        ensureCapacity(size);
+
+        int position = buffer.position();
+        buffer.position(position + size);
+
+        return position;
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+
+        long required = (long) buffer.position() + size;
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot is too large to be indexed with int offsets");
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, Math.max(required, buffer.capacity() * 2L)));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    private List<UUID> sorted(Set<UUID> uuids) {
+        List<UUID> sortedUUIDs = new ArrayList<>(uuids);
+        sortedUUIDs.sort(MappedLayout::compare);
+
+        return sortedUUIDs;
+    }
+}
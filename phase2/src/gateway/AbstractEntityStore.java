@@ -0,0 +1,86 @@
+package gateway;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Abstract class for managers whose entities can be persisted one at a time. Managers notify their listeners whenever
+ * an entity is mutated, and can export/import a single entity by UUID so that it can be written to (or replayed from)
+ * the journal without saving the entire manager.
+ */
+public abstract class AbstractEntityStore implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Listeners are runtime wiring, so they are not serialized with the manager
+    private transient List<IChangeListener> changeListeners;
+
+    /**
+     * Registers a listener that is notified every time an entity in this store changes
+     *
+     * @param listener listener to add
+     */
+    public void addChangeListener(IChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new ArrayList<>();
+        }
+
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Notifies all the listeners that an entity has changed
+     *
+     * @param uuid UUID of the entity that was created, mutated or deleted
+     */
+    protected void notifyChange(UUID uuid) {
+        if (changeListeners != null) {
+            for (IChangeListener listener : changeListeners) {
+                listener.onChange(uuid);
+            }
+        }
+    }
+
+    /**
+     * Notifies all the listeners that an entity has changed, with a delta describing the change. Stores use this for
+     * small changes to big entities, so the journal doesn't need to write the whole entity.
+     *
+     * @param uuid  UUID of the entity that was mutated
+     * @param delta the change, which applyDelta must be able to replay
+     */
+    protected void notifyDelta(UUID uuid, Serializable delta) {
+        if (changeListeners != null) {
+            for (IChangeListener listener : changeListeners) {
+                listener.onDelta(uuid, delta);
+            }
+        }
+    }
+
+    /**
+     * Gets a serializable copy of the current state of an entity
+     *
+     * @param uuid UUID of the entity
+     * @return the entity, or null if it no longer exists
+     */
+    public abstract Serializable exportEntity(UUID uuid);
+
+    /**
+     * Replaces the state of an entity without notifying listeners. Used to replay persisted changes.
+     *
+     * @param uuid   UUID of the entity
+     * @param entity the new state of the entity, or null if the entity should be deleted
+     */
+    public abstract void importEntity(UUID uuid, Serializable entity);
+
+    /**
+     * Applies a delta passed to notifyDelta without notifying listeners. Used to replay persisted changes. Replaying a
+     * delta on an entity that already includes the change must leave the entity as it is.
+     *
+     * @param uuid  UUID of the entity
+     * @param delta the change
+     */
+    public void applyDelta(UUID uuid, Serializable delta) {
+        throw new UnsupportedOperationException("Store doesn't have deltas");
+    }
+}
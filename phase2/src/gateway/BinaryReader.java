@@ -0,0 +1,139 @@
+package gateway;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Buffered reader for the binary storage format written by BinaryWriter
+ */
+public class BinaryReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Creates a reader that reads from a channel
+     *
+     * @param channel channel to read from
+     */
+    public BinaryReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Makes sure there are at least n bytes available in the buffer
+     *
+     * @param n number of bytes (must be at most the buffer size)
+     * @throws EOFException if the channel ends before n bytes are available
+     */
+    private void ensureAvailable(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+
+        buffer.compact();
+
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        buffer.flip();
+    }
+
+    public boolean readBoolean() throws IOException {
+        ensureAvailable(1);
+        return buffer.get() != 0;
+    }
+
+    public int readInt() throws IOException {
+        ensureAvailable(4);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        ensureAvailable(8);
+        return buffer.getLong();
+    }
+
+    /**
+     * Reads a string written by BinaryWriter.writeString
+     *
+     * @return the string, or null if a null string was written
+     */
+    public String readString() throws IOException {
+        int length = readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+
+        int offset = 0;
+        while (offset < length) {
+            ensureAvailable(1);
+
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a UUID written by BinaryWriter.writeUUID
+     *
+     * @return the UUID, or null if a null UUID was written
+     */
+    public UUID readUUID() throws IOException {
+        if (!readBoolean()) {
+            return null;
+        }
+
+        return new UUID(readLong(), readLong());
+    }
+
+    /**
+     * Reads a timestamp written by BinaryWriter.writeTimestamp
+     *
+     * @return the timestamp
+     */
+    public LocalDateTime readTimestamp() throws IOException {
+        return LocalDateTime.ofEpochSecond(readLong(), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Reads a set of UUIDs written by BinaryWriter.writeUUIDSet
+     *
+     * @return the set of UUIDs, or null if a null set was written
+     */
+    public Set<UUID> readUUIDSet() throws IOException {
+        int size = readInt();
+
+        if (size < 0) {
+            return null;
+        }
+
+        Set<UUID> uuids = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+
+        for (int i = 0; i < size; i++) {
+            ensureAvailable(16);
+            uuids.add(new UUID(buffer.getLong(), buffer.getLong()));
+        }
+
+        return uuids;
+    }
+}
@@ -0,0 +1,244 @@
+package gateway;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes an object to a file in the binary storage format using a codec. Loads the file into memory if possible, or
+ * initialize new object.
+ * <p>
+ * Files start with a magic number and the codec version, so files written by an incompatible codec are rejected
+ * instead of being misread. Codecs may still accept files written by their older versions.
+ *
+ * @param <T> type of object being serialized
+ */
+public class BinarySerializer<T> {
+    private static final int MAGIC = 0x43545042; // "CTPB"
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final String fileName;
+    private final ICodec<T> codec;
+
+    /**
+     * Writes the contents of a file to its channel
+     */
+    interface IChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Creates a serializer that writes an object to a file name
+     *
+     * @param fileName name of the file
+     * @param codec    codec used to encode the object
+     */
+    public BinarySerializer(String fileName, ICodec<T> codec) {
+        this.fileName = fileName;
+        this.codec = codec;
+    }
+
+    ICodec<T> getCodec() {
+        return codec;
+    }
+
+    Path getPath() {
+        return Paths.get(fileName);
+    }
+
+    /**
+     * Tests if the file has been written before
+     *
+     * @return true iff the file exists
+     */
+    public boolean exists() {
+        return new File(fileName).exists();
+    }
+
+    /**
+     * Loads an object from file. If there is no file, then return the fall back object (which should be a new
+     * instance). If the file can't be read, it is moved aside before returning the fall back object, so that saving
+     * the fall back object doesn't overwrite it.
+     *
+     * @param fallback object to return if unable to read from file
+     * @return object decoded from file, or fallback if applicable
+     */
+    public T load(T fallback) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return readObject(new BinaryReader(channel));
+        } catch (NoSuchFileException e) {
+            return fallback;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read " + fileName, e);
+        }
+
+        moveAside(fileName);
+
+        return fallback;
+    }
+
+    /**
+     * Renames a file that can't be read, so that it is kept for recovery instead of being overwritten
+     *
+     * @param fileName name of the file
+     */
+    static void moveAside(String fileName) {
+        Path asidePath = Paths.get(fileName + ".unreadable-" + System.currentTimeMillis());
+
+        try {
+            Files.move(Paths.get(fileName), asidePath);
+            LOGGER.log(Level.SEVERE, String.format("Moved %s to %s", fileName, asidePath));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to move aside " + fileName, e);
+        }
+    }
+
+    /**
+     * Write the object to file. The object is written to a temporary file first and then moved over the old file, so a
+     * crash during the write never leaves a half-written file behind.
+     *
+     * @param object object to write
+     * @return number of bytes written, or -1 if the write failed
+     */
+    public long save(T object) {
+        Path tempPath = Paths.get(fileName + ".tmp");
+
+        try {
+            long bytesWritten;
+
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                BinaryWriter out = new BinaryWriter(channel);
+                writeObject(object, out);
+
+                channel.force(true);
+                bytesWritten = out.getBytesWritten();
+            }
+
+            Files.move(tempPath, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return bytesWritten;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Encodes the object in memory, exactly as it would be written to file. Used to capture the state of an object
+     * quickly so the (much slower) file write can happen on another thread.
+     *
+     * @param object object to encode
+     * @return encoded bytes, or null if the object couldn't be encoded
+     */
+    public byte[] encode(T object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            writeObject(object, new BinaryWriter(Channels.newChannel(bytes)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes bytes returned by encode into a new object
+     *
+     * @param encoded encoded object
+     * @return decoded object
+     * @throws IOException if the bytes can't be decoded
+     */
+    public T decode(byte[] encoded) throws IOException {
+        return readObject(new BinaryReader(Channels.newChannel(new ByteArrayInputStream(encoded))));
+    }
+
+    /**
+     * Writes bytes returned by encode to file, in the same way as save
+     *
+     * @param encoded encoded object
+     * @return number of bytes written, or -1 if the write failed
+     */
+    public long save(byte[] encoded) {
+        return save(channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Writes the file with a channel writer, in the same way as save. The writer may read the old file while it writes,
+     * since it is only replaced once the writer is done.
+     *
+     * @param writer writes the whole file, starting with the header
+     * @return number of bytes written, or -1 if the write failed
+     */
+    long save(IChannelWriter writer) {
+        Path tempPath = Paths.get(fileName + ".tmp");
+
+        try {
+            long bytesWritten;
+
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.write(channel);
+
+                channel.force(true);
+                bytesWritten = channel.position();
+            }
+
+            Files.move(tempPath, Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return bytesWritten;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private T readObject(BinaryReader in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary store file");
+        }
+
+        int version = in.readInt();
+        T object = codec.read(in, version);
+
+        if (object == null) {
+            throw new IOException("Unsupported codec version " + version);
+        }
+
+        return object;
+    }
+
+    private void writeObject(T object, BinaryWriter out) throws IOException {
+        writeHeader(out);
+        codec.write(object, out);
+        out.flush();
+    }
+
+    /**
+     * Writes the magic number and codec version that start the file
+     *
+     * @param out writer positioned at the start of the file
+     */
+    void writeHeader(BinaryWriter out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(codec.getVersion());
+    }
+}
@@ -0,0 +1,158 @@
+package gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Buffered writer for the binary storage format. Primitives are written big-endian into a direct buffer which is
+ * drained into the channel whenever it fills up.
+ * <p>
+ * UUIDs are written as two longs and timestamps as epoch seconds (UTC), which is a lot smaller than the object
+ * serialization of UUID and LocalDateTime.
+ */
+public class BinaryWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long bytesWritten = 0;
+
+    /**
+     * Creates a writer that writes to a channel
+     *
+     * @param channel channel to write to
+     */
+    public BinaryWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Makes sure there are at least n bytes free in the buffer
+     *
+     * @param n number of bytes (must be at most the buffer size)
+     */
+    private void ensureCapacity(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush();
+        }
+    }
+
+    /**
+     * Drains the buffer into the channel
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Gets the number of bytes that have been drained into the channel so far
+     *
+     * @return number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Gets the number of bytes written so far, including those still in the buffer
+     *
+     * @return position of the next byte in the output
+     */
+    public long getPosition() {
+        return bytesWritten + buffer.position();
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        ensureCapacity(1);
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by the UTF-8 bytes. Null strings are written with a length of -1.
+     *
+     * @param value string to write
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureCapacity(1);
+
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes a UUID as a presence flag followed by its two halves
+     *
+     * @param uuid UUID to write (may be null)
+     */
+    public void writeUUID(UUID uuid) throws IOException {
+        writeBoolean(uuid != null);
+
+        if (uuid != null) {
+            writeLong(uuid.getMostSignificantBits());
+            writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Writes a timestamp as epoch seconds. Sub-second precision is dropped.
+     *
+     * @param timestamp timestamp to write
+     */
+    public void writeTimestamp(LocalDateTime timestamp) throws IOException {
+        writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Writes a set of UUIDs as its size followed by the UUIDs. Null sets are written with a size of -1.
+     *
+     * @param uuids set of UUIDs to write
+     */
+    public void writeUUIDSet(Set<UUID> uuids) throws IOException {
+        if (uuids == null) {
+            writeInt(-1);
+            return;
+        }
+
+        writeInt(uuids.size());
+
+        for (UUID uuid : uuids) {
+            ensureCapacity(16);
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package gateway;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class to read and parse CSV objects into a 2D array
+ * <p>
+ * Follows RFC 4180: fields can be quoted, quoted fields can contain commas, line breaks and doubled quotes, and
+ * records end with LF or CRLF. Blank lines are skipped.
  */
 public class CSVReader implements IMatrixReader {
     private String path;
@@ -29,15 +32,154 @@ public class CSVReader implements IMatrixReader {
      */
     @Override
     public List<String[]> read() throws IOException {
-        List<String[]> out = new ArrayList<>();
-        BufferedReader br = new BufferedReader(new FileReader(path));
+        try (Stream<String[]> rows = stream()) {
+            return rows.collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        String line;
+    /**
+     * Reads the CSV one row at a time
+     *
+     * @return ordered stream of rows, which must be closed
+     * @throws IOException if the file can't be opened
+     */
+    @Override
+    public Stream<String[]> stream() throws IOException {
+        BufferedReader in = new BufferedReader(new FileReader(path));
+        RecordIterator records = new RecordIterator(in);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
-        while ((line = br.readLine()) != null) {
-            out.add(line.split(","));
+    /**
+     * Iterates over the records of a CSV, parsing one record ahead
+     */
+    private static class RecordIterator implements Iterator<String[]> {
+        private final PushbackReader in;
+        private String[] nextRecord;
+        private boolean done;
+
+        private RecordIterator(Reader in) {
+            this.in = new PushbackReader(in);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRecord == null && !done) {
+                try {
+                    nextRecord = readRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                done = nextRecord == null;
+            }
+
+            return nextRecord != null;
         }
 
-        return out;
+        @Override
+        public String[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            String[] record = nextRecord;
+            nextRecord = null;
+            return record;
+        }
+
+        /**
+         * Reads the next non-blank record
+         *
+         * @return the fields of the record, or null at the end of the file
+         */
+        private String[] readRecord() throws IOException {
+            String[] record;
+
+            do {
+                record = readLine();
+            } while (record != null && record.length == 0);
+
+            return record;
+        }
+
+        /**
+         * Reads a record, which can span several lines if it has quoted line breaks
+         *
+         * @return the fields of the record, an empty array for a blank line, or null at the end of the file
+         */
+        private String[] readLine() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean recordStarted = false;
+
+            int c = in.read();
+
+            if (c == -1) {
+                return null;
+            }
+
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        // Unterminated quote, keep what was read
+                        break;
+                    } else if (c == '"') {
+                        c = in.read();
+
+                        if (c != '"') {
+                            // Closing quote, the character after it is handled as unquoted
+                            quoted = false;
+                            continue;
+                        }
+
+                        field.append('"');
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    // A lone CR also ends the record
+                    c = in.read();
+
+                    if (c != '\n' && c != -1) {
+                        in.unread(c);
+                    }
+
+                    break;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    recordStarted = true;
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                    recordStarted = true;
+                } else {
+                    field.append((char) c);
+                    recordStarted = true;
+                }
+
+                c = in.read();
+            }
+
+            if (!recordStarted) {
+                return new String[0];
+            }
+
+            fields.add(field.toString());
+            return fields.toArray(new String[0]);
+        }
     }
 }
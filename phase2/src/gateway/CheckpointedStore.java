@@ -0,0 +1,292 @@
+package gateway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checkpoints an entity store that is saved to a single file. The file is rewritten whenever any of the entities of the
+ * store has changed. If the file doesn't exist yet (e.g. the store was read from a legacy file), the store is written
+ * by the first checkpoint.
+ * <p>
+ * If the codec of the store is an IEntityCodec, a capture only encodes the entities that changed, and the writer
+ * builds the new file by copying the records of the other entities from the previous file. The writer only keeps the
+ * offset and length of each record in memory, so checkpointing doesn't keep a second copy of the store. The first
+ * capture still encodes every entity, since the records of the file the store was loaded from aren't known. Stores
+ * with other codecs are encoded whole on every capture.
+ *
+ * @param <T> type of the store
+ */
+public class CheckpointedStore<T extends AbstractEntityStore> implements ICheckpointable {
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final BinarySerializer<T> serializer;
+    private final T store;
+
+    // Codec that encodes single entities, or null if the store is encoded whole on capture
+    private final IEntityCodec<T> codec;
+
+    private final Set<UUID> dirtyUUIDs = new HashSet<>();
+    private boolean written;
+
+    // Whether the next capture can rely on the writer knowing the records of the file, or has to encode every entity
+    private boolean recordsKnown;
+
+    // Record of each entity in the file, in file order, or null if they aren't known. Only used by the writer, under
+    // its own lock, since snapshots of different checkpoints are written one after the other but not always by the
+    // same thread.
+    private final Object writeLock = new Object();
+    private Map<UUID, Record> records;
+
+    /**
+     * Where the encoded entity is, in the file or in the bytes of a capture
+     */
+    private static class Record {
+        private final long offset;
+        private final int length;
+
+        private Record(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Creates a checkpointed store and starts tracking its changes. Must be run on the thread that mutates the store.
+     *
+     * @param serializer serializer that writes the store
+     * @param store      store to checkpoint
+     */
+    @SuppressWarnings("unchecked")
+    public CheckpointedStore(BinarySerializer<T> serializer, T store) {
+        this.serializer = serializer;
+        this.store = store;
+        this.written = serializer.exists();
+        this.codec = serializer.getCodec() instanceof IEntityCodec ? (IEntityCodec<T>) serializer.getCodec() : null;
+
+        store.addChangeListener(this::markDirty);
+    }
+
+    /**
+     * Marks an entity as changed
+     *
+     * @param uuid UUID of the entity
+     */
+    public synchronized void markDirty(UUID uuid) {
+        dirtyUUIDs.add(uuid);
+    }
+
+    /**
+     * Marks a set of entities as changed
+     *
+     * @param uuids UUIDs of the entities
+     */
+    public synchronized void markDirty(Set<UUID> uuids) {
+        dirtyUUIDs.addAll(uuids);
+    }
+
+    /**
+     * Marks the captured entities as dirty again after a failed write, so that the store is retried
+     *
+     * @param capturedUUIDs UUIDs of the entities that were captured
+     * @param wholeStore    true if the capture encoded every entity, so the records of the file are still unknown
+     */
+    private synchronized void markFailed(Set<UUID> capturedUUIDs, boolean wholeStore) {
+        dirtyUUIDs.addAll(capturedUUIDs);
+        written = serializer.exists();
+
+        if (wholeStore) {
+            recordsKnown = false;
+        }
+    }
+
+    @Override
+    public synchronized int getDirtyCount() {
+        return written ? dirtyUUIDs.size() : dirtyUUIDs.size() + 1;
+    }
+
+    @Override
+    public ISnapshot capture() {
+        Set<UUID> capturedUUIDs;
+        boolean wholeStore;
+
+        synchronized (this) {
+            if (dirtyUUIDs.isEmpty() && written) {
+                return null;
+            }
+
+            capturedUUIDs = new HashSet<>(dirtyUUIDs);
+            wholeStore = codec == null || !recordsKnown;
+            dirtyUUIDs.clear();
+            written = true;
+            recordsKnown = true;
+        }
+
+        if (codec == null) {
+            byte[] encoded = serializer.encode(store);
+
+            if (encoded == null) {
+                markFailed(capturedUUIDs, true);
+                return () -> -1;
+            }
+
+            return () -> {
+                long bytesWritten = serializer.save(encoded);
+
+                if (bytesWritten < 0) {
+                    markFailed(capturedUUIDs, true);
+                }
+
+                return bytesWritten;
+            };
+        }
+
+        // Exported entities may be the live objects, so they are encoded before leaving the capture thread. Deleted
+        // entities have no record.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Map<UUID, Record> capturedRecords = new LinkedHashMap<>();
+
+        try {
+            BinaryWriter out = new BinaryWriter(Channels.newChannel(bytes));
+
+            for (UUID uuid : wholeStore ? codec.getEntityUUIDs(store) : capturedUUIDs) {
+                Serializable entity = store.exportEntity(uuid);
+
+                if (entity != null) {
+                    long offset = out.getPosition();
+                    codec.writeEntity(uuid, entity, out);
+                    capturedRecords.put(uuid, new Record(offset, (int) (out.getPosition() - offset)));
+                }
+            }
+
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to capture store", e);
+            markFailed(capturedUUIDs, wholeStore);
+            return () -> -1;
+        }
+
+        byte[] encoded = bytes.toByteArray();
+
+        return () -> write(capturedUUIDs, wholeStore, encoded, capturedRecords);
+    }
+
+    /**
+     * Writes the file from the captured records and the records of the previous file that weren't captured
+     *
+     * @param capturedUUIDs   UUIDs of the entities that were captured
+     * @param wholeStore      true if every entity was captured, so the previous file isn't read
+     * @param encoded         captured records
+     * @param capturedRecords record of each captured entity in encoded
+     * @return number of bytes written, or -1 if the write failed
+     */
+    private long write(Set<UUID> capturedUUIDs, boolean wholeStore, byte[] encoded, Map<UUID, Record> capturedRecords) {
+        synchronized (writeLock) {
+            if (!wholeStore && records == null) {
+                // The capture this one follows on from wasn't written, so the next capture encodes every entity
+                markFailed(capturedUUIDs, false);
+                return -1;
+            }
+
+            Map<UUID, Record> keptRecords = new LinkedHashMap<>();
+
+            if (!wholeStore) {
+                for (Map.Entry<UUID, Record> entry : records.entrySet()) {
+                    if (!capturedUUIDs.contains(entry.getKey())) {
+                        keptRecords.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            Map<UUID, Record> writtenRecords = new LinkedHashMap<>();
+
+            long bytesWritten = serializer.save(channel -> {
+                BinaryWriter out = new BinaryWriter(channel);
+                serializer.writeHeader(out);
+                out.writeInt(keptRecords.size() + capturedRecords.size());
+                out.flush();
+
+                if (!keptRecords.isEmpty()) {
+                    try (FileChannel previous = FileChannel.open(serializer.getPath(), StandardOpenOption.READ)) {
+                        copyRecords(previous, keptRecords, channel, writtenRecords);
+                    }
+                }
+
+                long capturedOffset = channel.position();
+                ByteBuffer buffer = ByteBuffer.wrap(encoded);
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                for (Map.Entry<UUID, Record> entry : capturedRecords.entrySet()) {
+                    Record record = entry.getValue();
+                    writtenRecords.put(entry.getKey(), new Record(capturedOffset + record.offset, record.length));
+                }
+            });
+
+            if (bytesWritten < 0) {
+                markFailed(capturedUUIDs, wholeStore);
+            } else {
+                records = writtenRecords;
+            }
+
+            return bytesWritten;
+        }
+    }
+
+    /**
+     * Copies records from the previous file to the end of the new one. Records that are next to each other in the
+     * previous file are copied together.
+     *
+     * @param previous       channel of the previous file
+     * @param keptRecords    records to copy, in the order of the previous file
+     * @param channel        channel of the new file
+     * @param writtenRecords map to add the record of each copied entity in the new file to
+     */
+    private static void copyRecords(FileChannel previous, Map<UUID, Record> keptRecords, FileChannel channel, Map<UUID, Record> writtenRecords) throws IOException {
+        long position = channel.position();
+        long runOffset = 0;
+        long runLength = 0;
+
+        for (Map.Entry<UUID, Record> entry : keptRecords.entrySet()) {
+            Record record = entry.getValue();
+
+            if (record.offset != runOffset + runLength) {
+                transfer(previous, runOffset, runLength, channel);
+                runOffset = record.offset;
+                runLength = 0;
+            }
+
+            writtenRecords.put(entry.getKey(), new Record(position, record.length));
+            position += record.length;
+            runLength += record.length;
+        }
+
+        transfer(previous, runOffset, runLength, channel);
+    }
+
+    private static void transfer(FileChannel from, long offset, long length, FileChannel to) throws IOException {
+        while (length > 0) {
+            long transferred = from.transferTo(offset, length, to);
+
+            if (transferred <= 0) {
+                throw new IOException("Previous file is shorter than its records");
+            }
+
+            offset += transferred;
+            length -= transferred;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically writes out the stores that have changed since the last checkpoint.
+ * <p>
+ * A checkpoint runs in two steps. The changed state of every store is first captured (encoded in memory) on the
+ * capture executor, which should be the thread that mutates the managers, so the snapshot is consistent across stores.
+ * The captured bytes are then written to disk on a background writer thread, so the capture thread is only held up
+ * for the encoding and never for the disk writes. Snapshots are written in the order they were captured, and the
+ * stores within a snapshot are written in parallel since they go to separate files.
+ * <p>
+ * A checkpoint is taken when the interval has passed since the last one, or earlier if the number of changed entities
+ * reaches the max dirty threshold.
+ * <p>
+ * Listeners are told when each checkpoint is captured and when it has been written, so the journal can drop the
+ * records the snapshots include. If a store fails to write, what it captured is only written by a later capture, so
+ * no checkpoint is reported as written until one captured after the failure has been written.
+ */
+public class Checkpointer {
+    private static final long POLL_MILLIS = 1000;
+
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final Executor captureExecutor;
+    private final long intervalMillis;
+    private final int maxDirty;
+
+    private final Map<String, ICheckpointable> stores = new LinkedHashMap<>();
+    private final List<ICheckpointListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> createThread(runnable, "checkpoint-scheduler"));
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> createThread(runnable, "checkpoint-writer"));
+    private final ExecutorService storeWriters = Executors.newFixedThreadPool(Math.min(4, Runtime.getRuntime().availableProcessors()), runnable -> createThread(runnable, "checkpoint-store-writer"));
+
+    private volatile boolean captureScheduled = false;
+    private volatile long lastCheckpointMillis = System.currentTimeMillis();
+
+    // Number of captures taken, and the number that had been taken when a store last failed to write
+    private final AtomicLong captureCount = new AtomicLong();
+    private volatile long failedCaptureCount = 0;
+
+    // Metrics
+    private volatile long checkpointCount = 0;
+    private volatile long lastCaptureMillis = 0;
+    private volatile long lastWriteMillis = 0;
+    private volatile long lastBytesWritten = 0;
+    private volatile long totalBytesWritten = 0;
+
+    /**
+     * Creates a checkpointer
+     *
+     * @param captureExecutor executor used to capture the stores (i.e. the thread that mutates the managers)
+     * @param intervalMillis  time between checkpoints in milliseconds
+     * @param maxDirty        number of changed entities that triggers a checkpoint before the interval is up
+     */
+    public Checkpointer(Executor captureExecutor, long intervalMillis, int maxDirty) {
+        this.captureExecutor = captureExecutor;
+        this.intervalMillis = intervalMillis;
+        this.maxDirty = maxDirty;
+    }
+
+    private static Thread createThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+    /**
+     * Registers a store to be checkpointed
+     *
+     * @param storeName name of the store, used in the logs
+     * @param store     store to checkpoint
+     */
+    public void register(String storeName, ICheckpointable store) {
+        stores.put(storeName, store);
+    }
+
+    /**
+     * Registers a listener that is told about every checkpoint
+     *
+     * @param listener listener to add
+     */
+    public void addListener(ICheckpointListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts checking whether a checkpoint is due in the background
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::checkpointIfDue, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of entities that have changed since the last capture, across all stores
+     *
+     * @return number of dirty entities
+     */
+    public int getDirtyCount() {
+        int dirtyCount = 0;
+
+        for (ICheckpointable store : stores.values()) {
+            dirtyCount += store.getDirtyCount();
+        }
+
+        return dirtyCount;
+    }
+
+    /**
+     * Schedules a capture if the interval is up or there are too many changed entities
+     */
+    private void checkpointIfDue() {
+        if (captureScheduled) {
+            return;
+        }
+
+        boolean intervalElapsed = System.currentTimeMillis() - lastCheckpointMillis >= intervalMillis;
+        int dirtyCount = getDirtyCount();
+
+        if (dirtyCount > 0 && (intervalElapsed || dirtyCount >= maxDirty)) {
+            captureScheduled = true;
+            captureExecutor.execute(this::checkpoint);
+        }
+    }
+
+    /**
+     * Captures all changed stores and queues the snapshot to be written. Must be run on the capture thread.
+     *
+     * @return future that completes once the snapshot has been written
+     */
+    public Future<?> checkpoint() {
+        captureScheduled = false;
+
+        if (writer.isShutdown()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        lastCheckpointMillis = System.currentTimeMillis();
+
+        long captureStart = System.nanoTime();
+        Map<String, ISnapshot> snapshots = new LinkedHashMap<>();
+
+        for (Map.Entry<String, ICheckpointable> entry : stores.entrySet()) {
+            ISnapshot snapshot = entry.getValue().capture();
+
+            if (snapshot != null) {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+
+        long captureMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - captureStart);
+        long checkpoint = captureCount.incrementAndGet();
+
+        for (ICheckpointListener listener : listeners) {
+            listener.checkpointCaptured(checkpoint);
+        }
+
+        if (snapshots.isEmpty()) {
+            // Still goes through the writer, so it is only reported after the checkpoints before it
+            return writer.submit(() -> notifyWritten(checkpoint));
+        }
+
+        return writer.submit(() -> write(snapshots, captureMillis, checkpoint));
+    }
+
+    /**
+     * Writes the captured snapshots and records the metrics of the checkpoint
+     *
+     * @param snapshots     snapshots to write, by store name
+     * @param captureMillis time it took to capture the snapshots
+     * @param checkpoint    number of the checkpoint
+     */
+    private void write(Map<String, ISnapshot> snapshots, long captureMillis, long checkpoint) {
+        long writeStart = System.nanoTime();
+        Map<String, CompletableFuture<long[]>> storeWrites = new LinkedHashMap<>();
+
+        for (Map.Entry<String, ISnapshot> entry : snapshots.entrySet()) {
+            storeWrites.put(entry.getKey(), CompletableFuture.supplyAsync(() -> {
+                long storeStart = System.nanoTime();
+                long storeBytes = entry.getValue().write();
+
+                return new long[]{storeBytes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - storeStart)};
+            }, storeWriters));
+        }
+
+        long bytesWritten = 0;
+        List<String> storeReports = new ArrayList<>();
+        List<String> failedStores = new ArrayList<>();
+
+        for (Map.Entry<String, CompletableFuture<long[]>> entry : storeWrites.entrySet()) {
+            // [bytes written, duration]
+            long[] result = entry.getValue().join();
+
+            if (result[0] < 0) {
+                failedStores.add(entry.getKey());
+            } else {
+                bytesWritten += result[0];
+                storeReports.add(String.format("%s %d bytes in %d ms", entry.getKey(), result[0], result[1]));
+            }
+        }
+
+        lastCaptureMillis = captureMillis;
+        lastWriteMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+        lastBytesWritten = bytesWritten;
+        totalBytesWritten += bytesWritten;
+        checkpointCount++;
+
+        LOGGER.log(Level.INFO, String.format("Checkpointed %d bytes, %d ms capture, %d ms write %s", bytesWritten, lastCaptureMillis, lastWriteMillis, storeReports));
+
+        if (!failedStores.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "Checkpoint failed for " + failedStores);
+
+            // The failed stores marked what they captured as dirty again, so only captures after now include it
+            failedCaptureCount = captureCount.get();
+        } else {
+            notifyWritten(checkpoint);
+        }
+    }
+
+    /**
+     * Tells the listeners that a checkpoint has been written, unless a store failed to write since it was captured
+     *
+     * @param checkpoint number of the checkpoint
+     */
+    private void notifyWritten(long checkpoint) {
+        if (checkpoint > failedCaptureCount) {
+            for (ICheckpointListener listener : listeners) {
+                listener.checkpointWritten(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Takes a final checkpoint and waits for every queued snapshot to be written. Must be run on the capture thread.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+
+        checkpoint();
+        writer.shutdown();
+
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        storeWriters.shutdown();
+    }
+
+    /**
+     * Gets the number of checkpoints that have been written
+     *
+     * @return number of checkpoints
+     */
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets how long the capture thread was held up by the last checkpoint
+     *
+     * @return capture duration in milliseconds
+     */
+    public long getLastCaptureMillis() {
+        return lastCaptureMillis;
+    }
+
+    /**
+     * Gets how long the last checkpoint took to write to disk
+     *
+     * @return write duration in milliseconds
+     */
+    public long getLastWriteMillis() {
+        return lastWriteMillis;
+    }
+
+    /**
+     * Gets the number of bytes written by the last checkpoint
+     *
+     * @return bytes written
+     */
+    public long getLastBytesWritten() {
+        return lastBytesWritten;
+    }
+
+    /**
+     * Gets the number of bytes written by all checkpoints so far
+     *
+     * @return bytes written
+     */
+    public long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+}
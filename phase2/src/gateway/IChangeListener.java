@@ -0,0 +1,22 @@
+package gateway;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Interface for listening to changes of the entities held by an entity store
+ */
+public interface IChangeListener {
+    void onChange(UUID uuid);
+
+    /**
+     * Called instead of onChange when the store can describe the change as a delta, which applyDelta on the store
+     * replays. Listeners that only need to know that the entity changed don't need to override this.
+     *
+     * @param uuid  UUID of the entity that changed
+     * @param delta the change
+     */
+    default void onDelta(UUID uuid, Serializable delta) {
+        onChange(uuid);
+    }
+}
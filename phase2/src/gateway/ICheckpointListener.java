@@ -0,0 +1,23 @@
+package gateway;
+
+/**
+ * Interface for listening to the checkpoints taken by the Checkpointer (i.e. to discard journal records once the
+ * snapshots include them)
+ */
+public interface ICheckpointListener {
+    /**
+     * Called on the capture thread once the stores have been captured, before any further change is made
+     *
+     * @param checkpoint number of the checkpoint, increasing with every capture
+     */
+    void checkpointCaptured(long checkpoint);
+
+    /**
+     * Called once a checkpoint has been written, if every checkpoint before it was written too (or what a failed one
+     * captured has been captured again since), so the snapshots on disk include every change made before it was
+     * captured
+     *
+     * @param checkpoint number of the checkpoint
+     */
+    void checkpointWritten(long checkpoint);
+}
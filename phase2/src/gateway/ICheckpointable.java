@@ -0,0 +1,21 @@
+package gateway;
+
+/**
+ * Interface for stores that can be written out incrementally by the Checkpointer
+ */
+public interface ICheckpointable {
+    /**
+     * Gets the number of entities that have changed since the last capture
+     *
+     * @return number of dirty entities
+     */
+    int getDirtyCount();
+
+    /**
+     * Encodes everything that changed since the last capture in memory and clears the dirty state. Must be called on
+     * the thread that mutates the managers, so that the captured state is consistent.
+     *
+     * @return snapshot to write, or null if nothing changed
+     */
+    ISnapshot capture();
+}
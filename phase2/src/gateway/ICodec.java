@@ -0,0 +1,28 @@
+package gateway;
+
+import java.io.IOException;
+
+/**
+ * Interface for encoding an object to, and decoding it from, the binary storage format
+ *
+ * @param <T> type of object being encoded
+ */
+public interface ICodec<T> {
+    int getVersion();
+
+    void write(T object, BinaryWriter out) throws IOException;
+
+    T read(BinaryReader in) throws IOException;
+
+    /**
+     * Decodes an object written with a given version of this codec. Codecs that can read what older versions wrote
+     * override this, the others only read their current version.
+     *
+     * @param in      reader positioned after the version
+     * @param version version of the codec the object was written with
+     * @return the decoded object, or null if that version can't be read
+     */
+    default T read(BinaryReader in, int version) throws IOException {
+        return version == getVersion() ? read(in) : null;
+    }
+}
@@ -0,0 +1,49 @@
+package gateway;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Codec for entity stores laid out as [int entity count][entities...], where each entity is encoded on its own by
+ * writeEntity. Checkpoints of these stores only encode the entities that changed, and copy the others from the
+ * previous file.
+ *
+ * @param <T> type of store being encoded
+ */
+public interface IEntityCodec<T extends AbstractEntityStore> extends ICodec<T> {
+    /**
+     * Gets the UUIDs of the entities that write writes
+     *
+     * @param store the store
+     * @return set of entity UUIDs
+     */
+    Set<UUID> getEntityUUIDs(T store);
+
+    /**
+     * Encodes one entity, exactly as write encodes it after the entity count
+     *
+     * @param uuid   UUID of the entity
+     * @param entity the entity, as returned by exportEntity
+     * @param out    writer to encode the entity to
+     */
+    void writeEntity(UUID uuid, Serializable entity, BinaryWriter out) throws IOException;
+
+    /**
+     * Encodes a store as its entity count followed by each of its entities
+     *
+     * @param store the store
+     * @param out   writer to encode the store to
+     */
+    @Override
+    default void write(T store, BinaryWriter out) throws IOException {
+        Set<UUID> uuids = getEntityUUIDs(store);
+
+        out.writeInt(uuids.size());
+
+        for (UUID uuid : uuids) {
+            writeEntity(uuid, store.exportEntity(uuid), out);
+        }
+    }
+}
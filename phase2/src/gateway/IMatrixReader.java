@@ -2,10 +2,20 @@ package gateway;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Class to read a document that parses into a matrix of strings
  */
 public interface IMatrixReader {
     List<String[]> read() throws IOException;
+
+    /**
+     * Reads the rows one at a time, without loading the whole document. Read errors are thrown as
+     * UncheckedIOException while the stream is consumed. The stream must be closed to release the document.
+     *
+     * @return ordered stream of rows
+     * @throws IOException if the document can't be opened
+     */
+    Stream<String[]> stream() throws IOException;
 }
@@ -0,0 +1,9 @@
+package gateway;
+
+/**
+ * Interface for captured state that is waiting to be written to disk. If the write fails, the implementation should
+ * mark the captured entities as dirty again so that they are retried by the next checkpoint.
+ */
+public interface ISnapshot {
+    long write();
+}
@@ -0,0 +1,690 @@
+package gateway;
+
+import gateway.exceptions.JournalException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal for the entity stores.
+ * <p>
+ * Every time an entity changes, its UUID is marked as pending. Pending entities are captured (serialized) on the
+ * capture executor, which should be the thread that mutates the managers, and handed to a background writer thread.
+ * The writer appends every record that is waiting and then runs a single fsync for the whole group, so bursts of
+ * changes only pay for one disk flush.
+ * <p>
+ * Records are after-images of whole entities, so replaying the journal on top of any snapshot taken after the records
+ * were discarded always ends with the latest state of every entity. Stores can also report small changes to big
+ * entities as deltas (i.e. a message appended to a conversation), which are written as they happen instead of the whole
+ * entity. Deltas must replay to the same state when the snapshot already includes them.
+ * <p>
+ * Record layout: [int payload length][int CRC32 of payload][payload], where the payload is
+ * [UTF store name][long UUID msb][long UUID lsb][byte record type][serialized entity or delta, unless deleted]
+ * <p>
+ * The journal is split into numbered segment files (the file name, then the file name followed by ".1", ".2", ...).
+ * When the checkpointer captures the stores, the writer moves on to a new segment, and once that checkpoint has been
+ * written every older segment is deleted, so the journal only holds the changes that aren't in the snapshots yet.
+ */
+public class Journal implements ICheckpointListener {
+    private static final long WRITE_RETRY_MILLIS = 1000;
+
+    // Record types. Deleted and entity are the values of the boolean written before deltas were added.
+    private static final byte DELETED_RECORD = 0;
+    private static final byte ENTITY_RECORD = 1;
+    private static final byte DELTA_RECORD = 2;
+
+    // Queued in place of a record to make the writer move on to the next segment
+    private static final byte[] ROTATE = new byte[0];
+
+    private final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    private final String fileName;
+    private final Executor captureExecutor;
+
+    private final Map<String, AbstractEntityStore> stores = new LinkedHashMap<>();
+
+    // Entities that have changed but haven't been captured yet, grouped by store
+    private final Map<String, Set<UUID>> pending = new LinkedHashMap<>();
+
+    // Entities that were restored by the last replay, grouped by store
+    private final Map<String, Set<UUID>> replayed = new HashMap<>();
+    private int replayedRecords = 0;
+    private boolean captureScheduled = false;
+
+    private final BlockingQueue<byte[]> writeQueue = new LinkedBlockingQueue<>();
+    private long enqueuedRecords = 0;
+    private long durableRecords = 0;
+
+    // Why the last write failed, or null if it succeeded. The writer keeps retrying the failed batch.
+    private IOException writeFailure;
+
+    private FileChannel channel;
+    private Thread writerThread;
+
+    // Generations of the segment files on disk, the segment new records go to, and the segment the writer is appending
+    // to (which lags behind while a rotation is queued)
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private long generation = -1;
+    private long writerGeneration = -1;
+
+    // Segments up to this generation are in the snapshots and can be deleted
+    private long discardedGeneration = -1;
+
+    // Checkpoints that have been captured but not written, to the last generation they include
+    private final TreeMap<Long, Long> checkpointGenerations = new TreeMap<>();
+
+    /**
+     * Creates a journal that appends to a file
+     *
+     * @param fileName        name of the journal file
+     * @param captureExecutor executor used to capture pending entities (i.e. the thread that mutates the managers)
+     */
+    public Journal(String fileName, Executor captureExecutor) {
+        this.fileName = fileName;
+        this.captureExecutor = captureExecutor;
+    }
+
+    /**
+     * Registers an entity store. Changes to the store will be written to the journal once it is started.
+     *
+     * @param storeName unique name of the store, used to route records during replay
+     * @param store     store to journal
+     */
+    public void register(String storeName, AbstractEntityStore store) {
+        stores.put(storeName, store);
+        store.addChangeListener(new IChangeListener() {
+            @Override
+            public void onChange(UUID uuid) {
+                markPending(storeName, uuid);
+            }
+
+            @Override
+            public void onDelta(UUID uuid, Serializable delta) {
+                appendDelta(storeName, uuid, delta);
+            }
+        });
+    }
+
+    /**
+     * Replays the journal on top of the registered stores, one segment at a time. A torn or corrupt record at the end of
+     * a segment (from a crash mid-write) ends the segment and is cut off.
+     * <p>
+     * A record that passes its checksum but can't be applied (e.g. an entity class that changed incompatibly) ends the
+     * replay. Its segment and the segments after it are left as they are and moved aside for recovery.
+     *
+     * @return number of records replayed
+     */
+    public int replay() {
+        replayedRecords = 0;
+
+        synchronized (this) {
+            segments.addAll(findSegments());
+        }
+
+        for (long segment : new ArrayList<>(segments)) {
+            if (!replaySegment(segmentPath(segment).toFile())) {
+                moveAsideFrom(segment);
+                break;
+            }
+        }
+
+        return replayedRecords;
+    }
+
+    /**
+     * Replays one segment file
+     *
+     * @param file segment file
+     * @return false if a record couldn't be applied
+     */
+    private boolean replaySegment(File file) {
+        int segmentRecords = 0;
+        long validLength = 0;
+        long fileLength = file.length();
+        boolean tornTail = false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+
+                if (length < 0 || validLength + 8 + length > fileLength) {
+                    tornTail = true;
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                if (checksum(payload) != checksum) {
+                    tornTail = true;
+                    break;
+                }
+
+                try {
+                    applyRecord(payload);
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, String.format("Unable to apply record %d of journal %s", segmentRecords, file), e);
+                    break;
+                }
+
+                validLength += 8 + length;
+                segmentRecords++;
+                replayedRecords++;
+            }
+        } catch (EOFException e) {
+            // Reached the end of the segment, or a record that was only partially written
+            tornTail = true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to replay journal " + file, e);
+        }
+
+        if (!tornTail) {
+            return false;
+        }
+
+        if (validLength < fileLength) {
+            try (FileChannel truncateChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                truncateChannel.truncate(validLength);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Unable to truncate journal " + file, e);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves a segment that couldn't be replayed, and every segment after it, aside. The entities that were replayed
+     * aren't in the snapshots yet, so they go in the new segment.
+     *
+     * @param firstSegment generation of the segment that couldn't be replayed
+     */
+    private void moveAsideFrom(long firstSegment) {
+        synchronized (this) {
+            for (long segment : new ArrayList<>(segments.tailSet(firstSegment))) {
+                BinarySerializer.moveAside(segmentPath(segment).toString());
+                segments.remove(segment);
+            }
+        }
+
+        for (Map.Entry<String, Set<UUID>> entry : replayed.entrySet()) {
+            for (UUID uuid : entry.getValue()) {
+                markPending(entry.getKey(), uuid);
+            }
+        }
+    }
+
+    /**
+     * Gets the path of a segment file
+     *
+     * @param segment generation of the segment
+     * @return the file name for the first segment, or the file name followed by the generation
+     */
+    private Path segmentPath(long segment) {
+        return Paths.get(segment == 0 ? fileName : fileName + "." + segment);
+    }
+
+    /**
+     * Lists the segment files on disk
+     *
+     * @return generations of the segments
+     */
+    private Set<Long> findSegments() {
+        Path path = Paths.get(fileName).toAbsolutePath();
+        String baseName = path.getFileName().toString();
+        Set<Long> found = new TreeSet<>();
+        File[] files = path.getParent().toFile().listFiles();
+
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+
+            if (name.equals(baseName)) {
+                found.add(0L);
+            } else if (name.startsWith(baseName + ".") && name.substring(baseName.length() + 1).matches("[0-9]{1,18}")) {
+                found.add(Long.parseLong(name.substring(baseName.length() + 1)));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Gets the UUIDs of the entities of a store that were restored by the last replay
+     *
+     * @param storeName name of the store
+     * @return set of entity UUIDs
+     */
+    public Set<UUID> getReplayedUUIDs(String storeName) {
+        return new HashSet<>(replayed.getOrDefault(storeName, Collections.emptySet()));
+    }
+
+    /**
+     * Opens the journal for appending and starts the background writer
+     *
+     * @throws IOException if the journal file can't be opened
+     */
+    public void start() throws IOException {
+        synchronized (this) {
+            segments.addAll(findSegments());
+
+            // Appends to the last segment, which replay has cut back to its last good record
+            generation = segments.isEmpty() ? 0 : segments.last();
+            writerGeneration = generation;
+            segments.add(generation);
+        }
+
+        channel = openSegment(generation);
+
+        writerThread = new Thread(this::writeLoop, "journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        // Changes made before the journal was started still need to be captured
+        boolean scheduleCapture;
+        synchronized (this) {
+            scheduleCapture = !pending.isEmpty() && !captureScheduled;
+            captureScheduled = captureScheduled || scheduleCapture;
+        }
+
+        if (scheduleCapture) {
+            captureExecutor.execute(this::commit);
+        }
+    }
+
+    /**
+     * Captures all pending entities and queues them for writing. Must be run on the thread that mutates the managers so
+     * that the captured state is consistent.
+     */
+    public void commit() {
+        Map<String, Set<UUID>> toCapture;
+
+        synchronized (this) {
+            captureScheduled = false;
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            toCapture = new LinkedHashMap<>(pending);
+            pending.clear();
+        }
+
+        for (Map.Entry<String, Set<UUID>> entry : toCapture.entrySet()) {
+            AbstractEntityStore store = stores.get(entry.getKey());
+
+            for (UUID uuid : entry.getValue()) {
+                try {
+                    Serializable entity = store.exportEntity(uuid);
+                    byte[] record = encodeRecord(entry.getKey(), uuid, entity == null ? DELETED_RECORD : ENTITY_RECORD, entity);
+
+                    synchronized (this) {
+                        writeQueue.add(record);
+                        enqueuedRecords++;
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, String.format("Unable to journal %s %s", entry.getKey(), uuid), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits all pending changes and blocks until they have been flushed to disk
+     *
+     * @throws JournalException if the changes couldn't be written
+     */
+    public void sync() {
+        IOException failure = flush();
+
+        if (failure != null) {
+            throw new JournalException(fileName, failure);
+        }
+    }
+
+    /**
+     * Commits all pending changes and blocks until they have been flushed to disk, or until a write fails
+     *
+     * @return why the write failed, or null if every change was flushed
+     */
+    private IOException flush() {
+        commit();
+
+        synchronized (this) {
+            while (writerThread != null && durableRecords < enqueuedRecords) {
+                if (writeFailure != null) {
+                    return writeFailure;
+                }
+
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Moves new records on to the next segment, so the segments up to the current one only hold changes made before
+     * now. Must be run on the thread that mutates the managers.
+     *
+     * @return generation of the last segment before the rotation, or -1 if the journal isn't started
+     */
+    public synchronized long rotate() {
+        if (writerThread == null) {
+            return -1;
+        }
+
+        writeQueue.add(ROTATE);
+
+        return generation++;
+    }
+
+    /**
+     * Deletes the segments up to a generation, once everything in them has been written to the snapshots
+     *
+     * @param lastSegment generation of the last segment to delete
+     */
+    public synchronized void discardThrough(long lastSegment) {
+        discardedGeneration = Math.max(discardedGeneration, lastSegment);
+        deleteDiscardedSegments();
+    }
+
+    /**
+     * Deletes the discarded segments the writer has moved on from
+     */
+    private synchronized void deleteDiscardedSegments() {
+        while (!segments.isEmpty() && segments.first() <= discardedGeneration && segments.first() < writerGeneration) {
+            long segment = segments.pollFirst();
+
+            try {
+                Files.deleteIfExists(segmentPath(segment));
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Unable to delete journal " + segmentPath(segment), e);
+            }
+        }
+    }
+
+    /**
+     * Rotates the journal, so the captured checkpoint includes every record before the new segment
+     *
+     * @param checkpoint number of the checkpoint
+     */
+    @Override
+    public void checkpointCaptured(long checkpoint) {
+        long lastSegment = rotate();
+
+        if (lastSegment >= 0) {
+            synchronized (this) {
+                checkpointGenerations.put(checkpoint, lastSegment);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments the written checkpoint includes
+     *
+     * @param checkpoint number of the checkpoint
+     */
+    @Override
+    public synchronized void checkpointWritten(long checkpoint) {
+        Map<Long, Long> written = checkpointGenerations.headMap(checkpoint, true);
+
+        if (!written.isEmpty()) {
+            discardThrough(Collections.max(written.values()));
+            written.clear();
+        }
+    }
+
+    /**
+     * Flushes any pending changes and stops the background writer. The current segment is deleted if it is empty.
+     */
+    public void close() {
+        IOException failure = flush();
+
+        if (failure != null) {
+            LOGGER.log(Level.SEVERE, "Closing journal " + fileName + " with unwritten records", failure);
+        }
+
+        Thread stoppedThread;
+
+        synchronized (this) {
+            stoppedThread = writerThread;
+            writerThread = null;
+        }
+
+        if (stoppedThread == null) {
+            return;
+        }
+
+        stoppedThread.interrupt();
+
+        try {
+            stoppedThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            channel.close();
+
+            synchronized (this) {
+                Path path = segmentPath(writerGeneration);
+
+                if (Files.isRegularFile(path) && Files.size(path) == 0) {
+                    segments.remove(writerGeneration);
+                    Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to close journal " + fileName, e);
+        }
+    }
+
+    /**
+     * Marks an entity as changed, and schedules a capture if one isn't already scheduled
+     *
+     * @param storeName name of the store the entity belongs to
+     * @param uuid      UUID of the entity
+     */
+    private void markPending(String storeName, UUID uuid) {
+        boolean scheduleCapture;
+
+        synchronized (this) {
+            pending.computeIfAbsent(storeName, k -> new LinkedHashSet<>()).add(uuid);
+
+            scheduleCapture = !captureScheduled && writerThread != null;
+            captureScheduled = captureScheduled || scheduleCapture;
+        }
+
+        if (scheduleCapture) {
+            captureExecutor.execute(this::commit);
+        }
+    }
+
+    /**
+     * Queues a delta for writing straight away. If the whole entity is waiting to be captured anyway (or the journal
+     * hasn't started), the entity is captured instead, since it already includes the delta.
+     *
+     * @param storeName name of the store the entity belongs to
+     * @param uuid      UUID of the entity
+     * @param delta     the change
+     */
+    private void appendDelta(String storeName, UUID uuid, Serializable delta) {
+        synchronized (this) {
+            if (writerThread != null && !pending.getOrDefault(storeName, Collections.emptySet()).contains(uuid)) {
+                try {
+                    writeQueue.add(encodeRecord(storeName, uuid, DELTA_RECORD, delta));
+                    enqueuedRecords++;
+                    return;
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, String.format("Unable to journal delta of %s %s", storeName, uuid), e);
+                }
+            }
+        }
+
+        markPending(storeName, uuid);
+    }
+
+    /**
+     * Opens a segment for appending
+     *
+     * @param segment generation of the segment
+     * @return channel that appends to the segment
+     */
+    private FileChannel openSegment(long segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Background loop that appends queued records. All records that are waiting are written before a single fsync.
+     * <p>
+     * If a batch can't be written, the part of it that was written is cut off and the whole batch is retried (along
+     * with any records queued since), so the batch is only counted as durable once it has been flushed. A batch never
+     * spans a rotation: the records queued before it are flushed to the old segment first.
+     */
+    private void writeLoop() {
+        Deque<byte[]> waiting = new ArrayDeque<>();
+        List<byte[]> batch = new ArrayList<>();
+        long batchStart = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (batch.isEmpty() && waiting.isEmpty()) {
+                    waiting.add(writeQueue.take());
+                }
+
+                writeQueue.drainTo(waiting);
+
+                try {
+                    if (batch.isEmpty()) {
+                        if (waiting.peek() == ROTATE) {
+                            FileChannel nextChannel = openSegment(writerGeneration + 1);
+                            channel.close();
+                            channel = nextChannel;
+                            waiting.poll();
+
+                            synchronized (this) {
+                                writerGeneration++;
+                                segments.add(writerGeneration);
+                                deleteDiscardedSegments();
+                            }
+
+                            continue;
+                        }
+
+                        batchStart = channel.size();
+                    } else if (channel.size() > batchStart) {
+                        channel.truncate(batchStart);
+                    }
+
+                    while (!waiting.isEmpty() && waiting.peek() != ROTATE) {
+                        batch.add(waiting.poll());
+                    }
+
+                    for (byte[] record : batch) {
+                        ByteBuffer buffer = ByteBuffer.wrap(record);
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    }
+
+                    channel.force(false);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Unable to write to journal " + fileName, e);
+
+                    synchronized (this) {
+                        writeFailure = e;
+                        notifyAll();
+                    }
+
+                    Thread.sleep(WRITE_RETRY_MILLIS);
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            synchronized (this) {
+                durableRecords += batch.size();
+                writeFailure = null;
+                notifyAll();
+            }
+
+            batch.clear();
+        }
+    }
+
+    private byte[] encodeRecord(String storeName, UUID uuid, byte type, Serializable entity) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+        payload.writeUTF(storeName);
+        payload.writeLong(uuid.getMostSignificantBits());
+        payload.writeLong(uuid.getLeastSignificantBits());
+        payload.writeByte(type);
+
+        if (type != DELETED_RECORD) {
+            ObjectOutputStream objectOutputStream = new ObjectOutputStream(payload);
+            objectOutputStream.writeObject(entity);
+            objectOutputStream.flush();
+        }
+
+        byte[] payloadArray = payloadBytes.toByteArray();
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payloadArray.length + 8);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(payloadArray.length);
+        record.writeInt(checksum(payloadArray));
+        record.write(payloadArray);
+
+        return recordBytes.toByteArray();
+    }
+
+    private void applyRecord(byte[] payloadArray) throws IOException, ClassNotFoundException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(payloadArray));
+
+        String storeName = payload.readUTF();
+        UUID uuid = new UUID(payload.readLong(), payload.readLong());
+        byte type = payload.readByte();
+        Serializable entity = null;
+
+        if (type != DELETED_RECORD) {
+            entity = (Serializable) new ObjectInputStream(payload).readObject();
+        }
+
+        AbstractEntityStore store = stores.get(storeName);
+        if (store != null) {
+            if (type == DELTA_RECORD) {
+                store.applyDelta(uuid, entity);
+            } else {
+                store.importEntity(uuid, entity);
+            }
+
+            replayed.computeIfAbsent(storeName, k -> new HashSet<>()).add(uuid);
+        }
+    }
+
+    private int checksum(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+
+        return (int) crc32.getValue();
+    }
+}
@@ -1,6 +1,11 @@
 package gateway;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Serializes an object and writes it to a file. Loads the file into memory if possible, or initialize new object.
@@ -8,6 +13,8 @@ import java.io.*;
  * @param <T> type of object being serialized
  */
 public class Serializer<T> {
+    private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
     private String fileName;
 
     /**
@@ -20,35 +27,48 @@ public class Serializer<T> {
     }
 
     /**
-     * Loads a serialized object from file. If that fails, then return the fall back object (which should be a new instance)
+     * Loads a serialized object from file. If there is no file, then return the fall back object (which should be a new
+     * instance). If the file can't be read, it is moved aside before returning the fall back object.
      *
      * @param fallback object to return if unable to read from file
      * @return object deserialized from file, or fallback if applicable
      */
+    @SuppressWarnings("unchecked")
     public T load(T fallback) {
-        try {
-            InputStream fileInputStream = new FileInputStream(fileName);
-            ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
+        if (!new File(fileName).exists()) {
+            return fallback;
+        }
 
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
             return (T) objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            return fallback;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to read " + fileName, e);
         }
+
+        BinarySerializer.moveAside(fileName);
+
+        return fallback;
     }
 
     /**
-     * Write the object to file
+     * Write the object to file. The object is written to a temporary file first and then moved over the old file, so a
+     * crash during the write never leaves a half-written file behind.
      *
      * @param object object to serialize
      */
     public void save(T object) {
+        String tempFileName = fileName + ".tmp";
+
         try {
-            OutputStream fileOutputStream = new FileOutputStream(fileName);
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
+            FileOutputStream fileOutputStream = new FileOutputStream(tempFileName);
 
-            objectOutputStream.writeObject(object);
-            fileOutputStream.close();
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(fileOutputStream))) {
+                objectOutputStream.writeObject(object);
+                objectOutputStream.flush();
+                fileOutputStream.getFD().sync();
+            }
 
+            Files.move(Paths.get(tempFileName), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,10 @@
+package gateway.exceptions;
+
+/**
+ * raises an error when changes couldn't be made durable in the journal
+ */
+public class JournalException extends RuntimeException {
+    public JournalException(String fileName, Throwable cause) {
+        super(String.format("Unable to write to journal %s.", fileName), cause);
+    }
+}
@@ -1,5 +1,6 @@
 package gui;
 
+import gui.util.enums.DialogFactoryOptions;
 import gui.util.enums.PanelFactoryOptions;
 import gui.util.factories.DialogFactory;
 import gui.util.factories.PanelFactory;
@@ -11,8 +12,11 @@ import util.ControllerBundle;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.HashMap;
 
 /**
  * Stores the primary JFrame and the necessary tools to navigate between pages
@@ -26,6 +30,8 @@ public class MainFrame implements IFrame {
     private IPanelFactory panelFactory;
     private IDialogFactory dialogFactory;
 
+    private String sessionToken;
+
     private final int initialWidth = 1100;
     private final int initialHeight = 700;
 
@@ -87,6 +93,26 @@ public class MainFrame implements IFrame {
         return frame;
     }
 
+    /**
+     * Gets the token of the session of the user logged in to this frame
+     *
+     * @return the session token, or null if nobody is logged in
+     */
+    @Override
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * Sets the token of the session of the user logged in to this frame
+     *
+     * @param sessionToken the session token, or null when logging out
+     */
+    @Override
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
     private void setLookAndFeel() {
         String osName = System.getProperty("os.name").toLowerCase();
 
@@ -105,6 +131,39 @@ public class MainFrame implements IFrame {
         }
     }
 
+    /**
+     * Checks the session before every click or key press, since each of them can lead to a controller action. Looking
+     * the session up keeps it from going idle, and if it has already ended the user is sent back to the login page
+     * instead of the event reaching a presenter that still holds the UUID of the old session.
+     */
+    private class SessionEventQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            int id = event.getID();
+
+            if (sessionToken != null && (id == MouseEvent.MOUSE_PRESSED || id == KeyEvent.KEY_PRESSED) &&
+                    controllerBundle.getUserController().getSessionUser(sessionToken) == null) {
+                endSession();
+                return;
+            }
+
+            super.dispatchEvent(event);
+        }
+    }
+
+    private void endSession() {
+        sessionToken = null;
+        setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.LOGIN));
+
+        dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+            {
+                put("message", "Your session has ended. Please log in again.");
+                put("title", "Session Ended");
+                put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
+            }
+        }).run();
+    }
+
     /**
      * Runs the main UI loop
      * <p>
@@ -129,11 +188,8 @@ public class MainFrame implements IFrame {
 
         frame.setMinimumSize(initialDimension);
 
-        // Open panel depending on login state
-        if (controllerBundle.getUserController().getCurrentUser() != null) {
-            setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
-        } else {
-            setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.LOGIN));
-        }
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new SessionEventQueue());
+
+        setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.LOGIN));
     }
 }
@@ -1,6 +1,7 @@
 package gui.conference.events.details;
 
 import convention.exception.FullEventException;
+import convention.exception.FullWaitlistException;
 import gui.conference.tabs.ConferenceTabsConstants;
 import gui.conference.util.AbstractConferencePresenter;
 import gui.util.enums.DialogFactoryOptions;
@@ -60,6 +61,8 @@ class EventsDetailsPresenter extends AbstractConferencePresenter {
 
         if (isRegistered) {
             eventsGeneralView.setRegisterButtonText("Unregister");
+        } else if (eventController.getWaitlistPosition(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID) > 0) {
+            eventsGeneralView.setRegisterButtonText("Leave Waitlist");
         }
 
         if (!isOrganizer) {
@@ -92,6 +95,20 @@ class EventsDetailsPresenter extends AbstractConferencePresenter {
                 eventController.unregisterForEvent(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
                 reloadEventsPage(eventUUID);
             }
+        } else if (eventController.getWaitlistPosition(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID) > 0) {
+            IDialog confirmLeaveWaitlistDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.CONFIRM_BOOLEAN, new HashMap<String, Object>() {
+                {
+                    put("message", String.format("Are you sure you want to leave the waitlist for this event? (%s)", eventController.getEventTitle(conferenceUUID, signedInUserUUID, eventUUID)));
+                    put("title", "Confirm leave waitlist");
+                    put("messageType", DialogFactoryOptions.dialogType.QUESTION);
+                    put("confirmationType", DialogFactoryOptions.optionType.YES_NO_OPTION);
+                }
+            });
+
+            if ((boolean) confirmLeaveWaitlistDialog.run()) {
+                eventController.leaveWaitlist(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
+                reloadEventsPage(eventUUID);
+            }
         } else {
             try {
                 eventController.registerForEvent(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
@@ -108,16 +125,55 @@ class EventsDetailsPresenter extends AbstractConferencePresenter {
 
                 reloadEventsPage(eventUUID);
             } catch (FullEventException e) {
-                IDialog fullCapacityDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
-                    {
-                        put("message", "Sorry, that event is already at full capacity.");
-                        put("title", "Error");
-                        put("messageType", DialogFactoryOptions.dialogType.ERROR);
-                    }
-                });
+                joinWaitlist();
+            }
+        }
+    }
+
+    private void joinWaitlist() {
+        int waitlistSize = eventController.getWaitlistSize(conferenceUUID, signedInUserUUID, eventUUID);
 
-                fullCapacityDialog.run();
+        IDialog confirmWaitlistDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.CONFIRM_BOOLEAN, new HashMap<String, Object>() {
+            {
+                put("message", String.format("Sorry, that event is already at full capacity. Do you want to join the waitlist? (%d waiting)", waitlistSize));
+                put("title", "Event full");
+                put("messageType", DialogFactoryOptions.dialogType.QUESTION);
+                put("confirmationType", DialogFactoryOptions.optionType.YES_NO_OPTION);
             }
+        });
+
+        if (!(boolean) confirmWaitlistDialog.run()) {
+            return;
+        }
+
+        try {
+            int position = eventController.joinWaitlist(conferenceUUID, signedInUserUUID, signedInUserUUID, eventUUID);
+
+            IDialog waitlistDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    if (position == 0) {
+                        put("message", "A seat freed up, you have successfully registered for this event.");
+                    } else {
+                        put("message", String.format("You are number %d on the waitlist. You will be registered automatically when a seat frees up.", position));
+                    }
+                    put("title", "Waitlist");
+                    put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
+                }
+            });
+
+            waitlistDialog.run();
+
+            reloadEventsPage(eventUUID);
+        } catch (FullWaitlistException e) {
+            IDialog fullWaitlistDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    put("message", "Sorry, the waitlist for that event is full too.");
+                    put("title", "Error");
+                    put("messageType", DialogFactoryOptions.dialogType.ERROR);
+                }
+            });
+
+            fullWaitlistDialog.run();
         }
     }
 
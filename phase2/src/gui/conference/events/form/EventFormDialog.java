@@ -21,6 +21,7 @@ public class EventFormDialog extends JDialog implements IDialog, IEventFormDialo
     private JButton buttonOk;
     private JButton speakerButton;
     private JButton roomButton;
+    private JButton suggestButton;
 
     private UUID eventUUID;
     private UUID conferenceUUID;
@@ -50,6 +51,7 @@ public class EventFormDialog extends JDialog implements IDialog, IEventFormDialo
         // Adding listeners
         roomButton.addActionListener((e) -> eventFormPresenter.selectRoom());
         speakerButton.addActionListener((e) -> eventFormPresenter.selectSpeakers());
+        suggestButton.addActionListener((e) -> eventFormPresenter.suggestTimes());
         buttonOk.addActionListener((e) -> eventFormPresenter.submit());
         cancelButton.addActionListener((e) -> close());
 
@@ -8,17 +8,17 @@ import gui.util.enums.DialogFactoryOptions;
 import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Manages EventFormDialog
  */
 class EventFormPresenter extends AbstractConferencePresenter {
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final Duration DEFAULT_DURATION = Duration.ofHours(1);
 
     private boolean isExistingEvent;
     private UUID eventUUID;
@@ -202,8 +202,100 @@ class EventFormPresenter extends AbstractConferencePresenter {
     }
 
 
+    /**
+     * Offers the earliest free slots of the selected room, starting from the entered start time. The length of the
+     * entered time range is kept, or an hour if no valid time range was entered.
+     */
+    void suggestTimes() {
+        if (selectedRoomUUID == null) {
+            IDialog noRoomDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    put("title", "Suggest Times");
+                    put("message", "Select a room to get time suggestions for.");
+                    put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
+                }
+            });
+
+            noRoomDialog.run();
+            return;
+        }
+
+        TimeRange window = conferenceController.getConferenceTimeRange(conferenceUUID);
+        Duration duration = DEFAULT_DURATION;
+        TimeRange enteredTimeRange = getEnteredTimeRange();
+
+        if (enteredTimeRange != null) {
+            duration = Duration.ofSeconds(enteredTimeRange.getEndEpochSecond() - enteredTimeRange.getStartEpochSecond());
+
+            if (enteredTimeRange.getStartEpochSecond() < window.getEndEpochSecond()) {
+                window = new TimeRange(Math.max(enteredTimeRange.getStartEpochSecond(), window.getStartEpochSecond()), window.getEndEpochSecond());
+            }
+        }
+
+        List<TimeRange> slots = roomController.findFreeSlots(conferenceUUID, signedInUserUUID, selectedRoomUUID, duration, window);
+
+        if (slots.isEmpty()) {
+            IDialog noSlotsDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
+                {
+                    put("title", "Suggest Times");
+                    put("message", "The selected room has no free time slots of this length during the conference.");
+                    put("messageType", DialogFactoryOptions.dialogType.INFORMATION);
+                }
+            });
+
+            noSlotsDialog.run();
+            return;
+        }
+
+        List<String> options = new ArrayList<>();
+        for (TimeRange slot : slots.subList(0, Math.min(MAX_SUGGESTIONS, slots.size()))) {
+            options.add(String.format("%s - %s", dateParser.dateTimeToString(slot.getStart()), dateParser.dateTimeToString(slot.getEnd())));
+        }
+
+        IDialog chooseSlotDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.OPTION_PICKER, new HashMap<String, Object>() {
+            {
+                put("title", "Suggest Times");
+                put("message", "Free time slots in the selected room");
+                put("options", options);
+            }
+        });
+
+        Integer selectedIndex = (Integer) chooseSlotDialog.run();
+
+        if (selectedIndex != null) {
+            eventFormDialog.setStart(dateParser.dateTimeToString(slots.get(selectedIndex).getStart()));
+            eventFormDialog.setEnd(dateParser.dateTimeToString(slots.get(selectedIndex).getEnd()));
+        }
+    }
+
+    /**
+     * Gets the time range entered in the form
+     *
+     * @return the entered time range, or null if it isn't valid
+     */
+    private TimeRange getEnteredTimeRange() {
+        try {
+            return new TimeRange(dateParser.stringToDateTime(eventFormDialog.getStart()), dateParser.stringToDateTime(eventFormDialog.getEnd()));
+        } catch (DateTimeParseException | InvalidTimeRangeException e) {
+            return null;
+        }
+    }
+
     void selectRoom() {
-        Set<UUID> availableRoomUUIDS = roomController.getRooms(conferenceUUID, signedInUserUUID);
+        TimeRange enteredTimeRange = getEnteredTimeRange();
+        Set<UUID> availableRoomUUIDS;
+
+        // Only offer rooms that are free at the entered time, if there is one. The current room of an existing event
+        // is booked by the event itself, so it is always offered.
+        if (enteredTimeRange != null) {
+            availableRoomUUIDS = new HashSet<>(roomController.findRoomsFreeDuring(conferenceUUID, signedInUserUUID, enteredTimeRange, 1));
+
+            if (selectedRoomUUID != null) {
+                availableRoomUUIDS.add(selectedRoomUUID);
+            }
+        } else {
+            availableRoomUUIDS = roomController.getRooms(conferenceUUID, signedInUserUUID);
+        }
 
         IDialog chooseRoomDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.ROOM_PICKER, new HashMap<String, Object>() {
             {
@@ -27,7 +27,7 @@ public class RoomPickerDialog extends UUIDPickerDialog implements IDialog {
             RoomController roomController = controllerBundle.getRoomController();
             UserController userController = controllerBundle.getUserController();
 
-            UUID signedInUserUUID = userController.getCurrentUser();
+            UUID signedInUserUUID = userController.getSessionUser(mainFrame.getSessionToken());
 
             return String.format("%s [Capacity: %s]", roomController.getRoomLocation(conferenceUUID, signedInUserUUID, roomUUID), roomController.getRoomCapacity(conferenceUUID, signedInUserUUID, roomUUID));
         });
@@ -48,7 +48,10 @@ class LoginPresenter extends AbstractPresenter {
      * Login as an already registered user
      */
     void login() {
-        if (userController.login(loginView.getUsername(), loginView.getPassword()) != null) {
+        String sessionToken = userController.login(loginView.getUsername(), loginView.getPassword());
+
+        if (sessionToken != null) {
+            mainFrame.setSessionToken(sessionToken);
             mainFrame.setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
         } else {
             IDialog invalidLoginDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
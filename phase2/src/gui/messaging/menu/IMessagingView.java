@@ -24,6 +24,8 @@ public interface IMessagingView {
 
     void scrollToLastMessage();
 
+    void scrollToMessage(int index);
+
     void setUsersList(String[] users);
 
     void setEnableArchiveButton(boolean instruction);
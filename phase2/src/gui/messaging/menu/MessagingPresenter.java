@@ -5,10 +5,14 @@ import gui.util.enums.DialogFactoryOptions;
 import gui.util.enums.PanelFactoryOptions;
 import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
+import messaging.ConversationController;
+import messaging.MessageView;
 
 import java.util.*;
 
 class MessagingPresenter extends AbstractPresenter {
+    private static final int MESSAGE_PAGE_SIZE = 50;
+
     private IMessagingView messagingView;
 
     private List<UUID> conversationUUIDs;
@@ -16,6 +20,9 @@ class MessagingPresenter extends AbstractPresenter {
     private int currentConversationIndex = -1;
     private UUID currentConversationUUID;
 
+    // Messages of the current conversation loaded so far, oldest first
+    private List<MessageView> loadedMessages = new ArrayList<>();
+    private boolean hasOlderMessages;
     private String[] messageArray;
 
     /**
@@ -92,8 +99,10 @@ class MessagingPresenter extends AbstractPresenter {
      * @param index index of message to be deleted
      */
     void deleteMessage(int index) {
-        if (index != -1 && currentConversationUUID != null) {
-            if (conversationController.checkIfSender(currentConversationUUID, signedInUserUUID, index)) {
+        if (index != -1 && index < loadedMessages.size() && currentConversationUUID != null) {
+            long sequenceNumber = loadedMessages.get(index).getSequenceNumber();
+
+            if (conversationController.checkIfSender(currentConversationUUID, signedInUserUUID, sequenceNumber)) {
                 IDialog deleteMessageConfirmation = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.CONFIRM_BOOLEAN, new HashMap<String, Object>() {
                     {
                         put("message", String.format("Delete this message?\n\n%s", messageArray[index]));
@@ -105,7 +114,7 @@ class MessagingPresenter extends AbstractPresenter {
                 });
 
                 if ((boolean) deleteMessageConfirmation.run()) {
-                    conversationController.deleteMessage(currentConversationUUID, signedInUserUUID, index);
+                    conversationController.deleteMessage(currentConversationUUID, signedInUserUUID, sequenceNumber);
                     reloadMessagePage(currentConversationUUID);
                 }
             } else {
@@ -229,10 +238,12 @@ class MessagingPresenter extends AbstractPresenter {
         for (int i = 0; i < conversationUUIDs.size(); i++) {
             UUID conversationUUID = conversationUUIDs.get(i);
 
-            if (conversationController.getUserHasRead(signedInUserUUID, conversationUUID)) {
+            int unreadCount = conversationController.getUnreadCount(signedInUserUUID, conversationUUID);
+
+            if (unreadCount == 0) {
                 conversationNames[i] = conversationController.getConversationName(conversationUUID);
             } else {
-                conversationNames[i] = "(Unread) " + conversationController.getConversationName(conversationUUID);
+                conversationNames[i] = String.format("(%d Unread) %s", unreadCount, conversationController.getConversationName(conversationUUID));
             }
         }
 
@@ -267,18 +278,49 @@ class MessagingPresenter extends AbstractPresenter {
         }
     }
 
+    /**
+     * Loads the page of messages before the oldest loaded message, if there is one
+     */
+    void loadOlderMessages() {
+        if (currentConversationUUID == null || !hasOlderMessages || loadedMessages.isEmpty()) {
+            return;
+        }
+
+        List<MessageView> page = conversationController.getMessages(signedInUserUUID, currentConversationUUID, loadedMessages.get(0).getSequenceNumber(), MESSAGE_PAGE_SIZE);
+        hasOlderMessages = page.size() == MESSAGE_PAGE_SIZE;
+
+        if (!page.isEmpty()) {
+            List<MessageView> olderMessages = new ArrayList<>(page);
+            Collections.reverse(olderMessages);
+            olderMessages.addAll(loadedMessages);
+            loadedMessages = olderMessages;
+
+            renderMessages();
+
+            // Keep the message that was at the top in view
+            messagingView.scrollToMessage(page.size());
+        }
+    }
+
     private void updateMessages() {
-        List<Map<String, String>> messagesListMap = conversationController.getMessages(signedInUserUUID, currentConversationUUID);
+        List<MessageView> page = conversationController.getMessages(signedInUserUUID, currentConversationUUID, ConversationController.NEWEST_MESSAGES, MESSAGE_PAGE_SIZE);
+        hasOlderMessages = page.size() == MESSAGE_PAGE_SIZE;
+
+        loadedMessages = new ArrayList<>(page);
+        Collections.reverse(loadedMessages);
+
+        renderMessages();
+    }
+
+    private void renderMessages() {
+        Map<UUID, String> senderNames = new HashMap<>();
 
-        messageArray = new String[messagesListMap.size()];
+        messageArray = new String[loadedMessages.size()];
         int index = 0;
 
-        for (Map<String, String> messageMap : messagesListMap) {
-            UUID senderId = UUID.fromString(messageMap.get("sender"));
-            String senderName = userController.getUserFullName(senderId);
-            String timestamp = messageMap.get("timestamp");
-            String content = messageMap.get("content");
-            String messageString = String.format("[%s @ %s] %s\n", senderName, timestamp, content);
+        for (MessageView message : loadedMessages) {
+            String senderName = senderNames.computeIfAbsent(message.getSenderUUID(), userController::getUserFullName);
+            String messageString = String.format("[%s @ %s] %s\n", senderName, message.getTimestamp(), message.getContent());
 
             messageArray[index] = messageString;
             index++;
@@ -286,4 +328,4 @@ class MessagingPresenter extends AbstractPresenter {
 
         messagingView.setMessages(messageArray);
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,8 @@ import gui.util.interfaces.IFrame;
 import gui.util.interfaces.IPanel;
 
 import javax.swing.*;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -54,6 +56,27 @@ public class MessagingView implements IPanel, IMessagingView {
             }
         });
 
+        JScrollPane messagesScrollPane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, messages);
+        if (messagesScrollPane != null) {
+            messagesScrollPane.getVerticalScrollBar().addAdjustmentListener(new AdjustmentListener() {
+                private int lastValue;
+
+                /**
+                 * loads older messages when the user scrolls to the top of the message list
+                 */
+                @Override
+                public void adjustmentValueChanged(AdjustmentEvent e) {
+                    JScrollBar scrollBar = (JScrollBar) e.getAdjustable();
+
+                    // Only react to scrolling up to the top, not to the list being refilled while already at the top
+                    if (e.getValue() == scrollBar.getMinimum() && lastValue > scrollBar.getMinimum()) {
+                        messagingPresenter.loadOlderMessages();
+                    }
+
+                    lastValue = e.getValue();
+                }
+            });
+        }
     }
 
     /**
@@ -186,6 +209,18 @@ public class MessagingView implements IPanel, IMessagingView {
         }
     }
 
+    /**
+     * scrolls so that a specific message is visible
+     *
+     * @param index the index of the message
+     */
+    @Override
+    public void scrollToMessage(int index) {
+        if (index >= 0 && index < messages.getModel().getSize()) {
+            messages.ensureIndexIsVisible(index);
+        }
+    }
+
     /**
      * sets the list of users
      *
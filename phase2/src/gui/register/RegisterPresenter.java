@@ -46,6 +46,7 @@ class RegisterPresenter extends AbstractPresenter {
             invalidRegistrationDialog.run();
         } else {
             if (userController.registerUser(registerView.getFirstName(), registerView.getLastName(), registerView.getUsername(), registerView.getPassword()) != null) {
+                mainFrame.setSessionToken(userController.login(registerView.getUsername(), registerView.getPassword()));
                 mainFrame.setPanel(panelFactory.createPanel(PanelFactoryOptions.panelNames.MAIN_MENU));
             } else {
                 IDialog invalidRegistrationDialog = dialogFactory.createDialog(DialogFactoryOptions.dialogNames.MESSAGE, new HashMap<String, Object>() {
@@ -38,11 +38,7 @@ class MultiUserPickerPresenter extends AbstractPresenter {
 
         // Disable buttons if they're not relevant
         multiUserPickerDialog.setRemoveButtonDisabled(selectedUserUUIDs.size() == 0);
-        multiUserPickerDialog.setAddButtonDisabled(new HashSet<UUID>(availableUserUUIDs) {
-            {
-                removeAll(selectedUserUUIDs);
-            }
-        }.size() == 0);
+        multiUserPickerDialog.setAddButtonDisabled(selectedUserUUIDs.containsAll(availableUserUUIDs));
     }
 
     void addUser() {
@@ -0,0 +1,14 @@
+package gui.user.picker;
+
+import java.util.UUID;
+
+/**
+ * interface for the user picker dialog screen in the GUI
+ */
+public interface IUserPickerDialog {
+    void close();
+
+    void setResults(String[] results);
+
+    void setSelectedUserUUID(UUID selectedUserUUID);
+}
@@ -1,24 +1,168 @@
 package gui.user.picker;
 
-import gui.util.dialogs.UUIDPickerDialog;
 import gui.util.interfaces.IDialog;
 import gui.util.interfaces.IFrame;
-import user.UserController;
-import util.ControllerBundle;
 
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.Set;
 import java.util.UUID;
 
 /**
- * Dialog to pick a user UUID
+ * Dialog to pick a user UUID. Users are found by typing the start of their names, instead of listing every user.
  */
-public class UserPickerDialog extends UUIDPickerDialog implements IDialog {
+public class UserPickerDialog extends JDialog implements IDialog, IUserPickerDialog {
+    // Wait for the user to stop typing for this long before searching
+    private static final int SEARCH_DELAY_MILLISECONDS = 200;
+
+    private JPanel contentPane = new JPanel(new BorderLayout(0, 8));
+    private JTextField searchField = new JTextField(30);
+    private JList<String> resultList = new JList<>();
+    private JButton buttonOK = new JButton("OK");
+    private JButton buttonCancel = new JButton("Cancel");
+
+    private UUID selectedUserUUID;
+
+    /**
+     * @param mainFrame          main GUI frame
+     * @param availableUserUUIDs set of UUIDs of users to make available to select, or null for every user
+     * @param instructions       instructions to display to the user
+     */
     public UserPickerDialog(IFrame mainFrame, Set<UUID> availableUserUUIDs, String instructions) {
-        super(mainFrame, availableUserUUIDs, instructions, "Select user", (uuid) -> {
-            ControllerBundle controllerBundle = mainFrame.getControllerBundle();
-            UserController userController = controllerBundle.getUserController();
+        /* Setup formatting */
+
+        // Set the parent frame so that this dialog is centered
+        super(mainFrame.getFrame(), "Select user");
+
+        JPanel searchPanel = new JPanel(new BorderLayout(0, 4));
+        searchPanel.add(new JLabel(instructions), BorderLayout.NORTH);
+        searchPanel.add(searchField, BorderLayout.SOUTH);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(buttonOK);
+        buttonPanel.add(buttonCancel);
+
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setVisibleRowCount(12);
+
+        contentPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        contentPane.add(searchPanel, BorderLayout.NORTH);
+        contentPane.add(new JScrollPane(resultList), BorderLayout.CENTER);
+        contentPane.add(buttonPanel, BorderLayout.SOUTH);
 
-            return userController.getUserFullName(uuid);
+        setContentPane(contentPane);
+        setModal(true);
+        getRootPane().setDefaultButton(buttonOK);
+
+        /* Initiate presenter */
+
+        UserPickerPresenter userPickerPresenter = new UserPickerPresenter(mainFrame, this, availableUserUUIDs);
+
+        /* Initiate listeners */
+
+        Timer searchTimer = new Timer(SEARCH_DELAY_MILLISECONDS, (e) -> userPickerPresenter.search(searchField.getText()));
+        searchTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            /**
+             * restarts the search delay when text is typed
+             */
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            /**
+             * restarts the search delay when text is deleted
+             */
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
         });
+
+        resultList.addMouseListener(new MouseAdapter() {
+            /**
+             * picks a user when they are double clicked
+             */
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    userPickerPresenter.select(resultList.getSelectedIndex());
+                }
+            }
+        });
+
+        buttonOK.addActionListener((e) -> userPickerPresenter.select(resultList.getSelectedIndex()));
+        buttonCancel.addActionListener((e) -> close());
+
+        // The search timer must not fire once the dialog is gone
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                searchTimer.stop();
+            }
+        });
+
+        // close on ESCAPE
+        contentPane.registerKeyboardAction((e) -> close(), KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
+    }
+
+    /**
+     * sets the users listed as search results
+     *
+     * @param results display names of the users
+     */
+    @Override
+    public void setResults(String[] results) {
+        resultList.setListData(results);
+
+        if (results.length > 0) {
+            resultList.setSelectedIndex(0);
+        }
+    }
+
+    /**
+     * sets the selected user UUID
+     *
+     * @param selectedUserUUID the selected user UUID
+     */
+    @Override
+    public void setSelectedUserUUID(UUID selectedUserUUID) {
+        this.selectedUserUUID = selectedUserUUID;
+    }
+
+    /**
+     * closes and disposes of the dialogue
+     */
+    @Override
+    public void close() {
+        dispose();
+    }
+
+    /**
+     * Displays the dialog
+     *
+     * @return UUID of the user selected, or null if the dialog was cancelled
+     */
+    @Override
+    public UUID run() {
+        this.pack();
+        this.setLocationRelativeTo(getOwner());
+        this.setVisible(true);
+
+        return selectedUserUUID;
     }
 }
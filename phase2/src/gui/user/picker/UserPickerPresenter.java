@@ -0,0 +1,60 @@
+package gui.user.picker;
+
+import gui.util.AbstractPresenter;
+import gui.util.interfaces.IFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class UserPickerPresenter extends AbstractPresenter {
+    private static final int RESULT_LIMIT = 50;
+
+    private IUserPickerDialog userPickerDialog;
+    private Set<UUID> availableUserUUIDs;
+    private List<UUID> resultUserUUIDs = new ArrayList<>();
+
+    /**
+     * @param mainFrame          main GUI frame
+     * @param userPickerDialog   user picker dialog interface
+     * @param availableUserUUIDs set of UUIDs of the users that can be picked, or null for every user
+     */
+    UserPickerPresenter(IFrame mainFrame, IUserPickerDialog userPickerDialog, Set<UUID> availableUserUUIDs) {
+        super(mainFrame);
+
+        this.userPickerDialog = userPickerDialog;
+        this.availableUserUUIDs = availableUserUUIDs;
+
+        search("");
+    }
+
+    /**
+     * Lists the first few users matching a query
+     *
+     * @param query start of the names of the users to find
+     */
+    void search(String query) {
+        resultUserUUIDs = userController.searchUsers(query, RESULT_LIMIT, availableUserUUIDs);
+        String[] results = new String[resultUserUUIDs.size()];
+
+        for (int i = 0; i < resultUserUUIDs.size(); i++) {
+            UUID userUUID = resultUserUUIDs.get(i);
+            results[i] = String.format("%s (%s)", userController.getUserFullName(userUUID), userController.getUserUsername(userUUID));
+        }
+
+        userPickerDialog.setResults(results);
+    }
+
+    /**
+     * Picks one of the listed users and closes the dialog
+     *
+     * @param index index of the user in the results
+     */
+    void select(int index) {
+        if (index >= 0 && index < resultUserUUIDs.size()) {
+            userPickerDialog.setSelectedUserUUID(resultUserUUIDs.get(index));
+            userPickerDialog.close();
+        }
+    }
+}
@@ -31,6 +31,8 @@ public abstract class AbstractPresenter {
     protected ConversationController conversationController;
     protected ScheduleController scheduleController;
 
+    // Resolved once per presenter; MainFrame checks the session before each user action and leaves for the login page
+    // when it has ended, so this is never used after the session is gone
     protected UUID signedInUserUUID;
 
     /**
@@ -51,6 +53,6 @@ public abstract class AbstractPresenter {
         dialogFactory = mainFrame.getDialogFactory();
         panelFactory = mainFrame.getPanelFactory();
 
-        signedInUserUUID = userController.getCurrentUser();
+        signedInUserUUID = userController.getSessionUser(mainFrame.getSessionToken());
     }
 }
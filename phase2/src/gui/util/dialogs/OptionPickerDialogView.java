@@ -0,0 +1,47 @@
+package gui.util.dialogs;
+
+import gui.util.interfaces.IDialog;
+import gui.util.interfaces.IFrame;
+
+import javax.swing.*;
+import java.util.List;
+
+/**
+ * Dialog to pick one of a list of options
+ */
+public class OptionPickerDialogView implements IDialog {
+    private IFrame mainFrame;
+    private String message;
+    private String title;
+    private List<String> options;
+
+    /**
+     * @param mainFrame main GUI frame
+     * @param message   message to display
+     * @param title     title of the dialog
+     * @param options   options to pick from
+     */
+    public OptionPickerDialogView(IFrame mainFrame, String message, String title, List<String> options) {
+        this.mainFrame = mainFrame;
+        this.message = message;
+        this.title = title;
+        this.options = options;
+    }
+
+    /**
+     * Runs the dialog
+     *
+     * @return index of the selected option, or null if the dialog was cancelled or there are no options
+     */
+    @Override
+    public Integer run() {
+        if (options.isEmpty()) {
+            return null;
+        }
+
+        Object[] values = options.toArray();
+        Object selected = JOptionPane.showInputDialog(mainFrame.getFrame(), message, title, JOptionPane.QUESTION_MESSAGE, null, values, values[0]);
+
+        return selected == null ? null : options.indexOf(selected);
+    }
+}
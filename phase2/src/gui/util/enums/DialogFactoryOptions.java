@@ -12,6 +12,7 @@ public class DialogFactoryOptions {
         CONFERENCE_FORM,
         MESSAGE,
         CONFIRM_BOOLEAN,
+        OPTION_PICKER,
         CONVERSATION_FORM,
         ROOM_FORM,
         EVENT_FORM
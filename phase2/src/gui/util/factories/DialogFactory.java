@@ -10,6 +10,7 @@ import gui.user.multipicker.MultiUserPickerDialog;
 import gui.user.picker.UserPickerDialog;
 import gui.util.dialogs.ConfirmBooleanDialogView;
 import gui.util.dialogs.MessageDialogView;
+import gui.util.dialogs.OptionPickerDialogView;
 import gui.util.enums.DialogFactoryOptions;
 import gui.util.exception.NullDialogException;
 import gui.util.interfaces.IDialog;
@@ -17,9 +18,11 @@ import gui.util.interfaces.IDialogFactory;
 import gui.util.interfaces.IFrame;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * factory to make dialogue panels for the GUI
@@ -74,10 +77,22 @@ public class DialogFactory implements IDialogFactory {
                 return new RoomFormDialog(mainFrame, (UUID) arguments.get("conferenceUUID"), (UUID) arguments.get("roomUUID"));
             case CONFIRM_BOOLEAN:
                 return new ConfirmBooleanDialogView(mainFrame, (String) arguments.get("message"), (String) arguments.getOrDefault("title", "Confirm"), (DialogFactoryOptions.dialogType) arguments.get("messageType"), (DialogFactoryOptions.optionType) arguments.get("confirmationType"));
+            case OPTION_PICKER:
+                return new OptionPickerDialogView(mainFrame, (String) arguments.get("message"), (String) arguments.getOrDefault("title", "Select"), toStrings((List<?>) arguments.get("options")));
             case EVENT_FORM:
                 return new EventFormDialog(mainFrame, (UUID) arguments.get("conferenceUUID"), (UUID) arguments.get("eventUUID"));
             default:
                 throw new NullDialogException(name);
         }
     }
+
+    /**
+     * Converts a list argument to a list of strings, without an unchecked cast
+     *
+     * @param values list of values
+     * @return the string value of each element
+     */
+    private List<String> toStrings(List<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.toList());
+    }
 }
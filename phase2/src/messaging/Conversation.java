@@ -1,22 +1,36 @@
 package messaging;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Conversation object. Contains messages and metadata such as conversation name, users who have read and write access, etc.
  */
 public class Conversation implements Serializable {
+    private static final long serialVersionUID = 5775743741307259450L;
+
     private String conversationName; // either group chat or 2 person chat
     private final List<Message> conversationMessages;
     private final Set<UUID> writeAccessUsers;
     private final Set<UUID> readAccessUsers;
     private final UUID conversationUUID;
-    private Set<UUID> usersHaveRead = new HashSet<>();
-    private Set<UUID> userArchivedUUIDs = new HashSet<>();
+
+    // Sequence number of the next message. Messages are kept in sequence number order, so they can be found by
+    // binary search.
+    private long nextSequenceNumber;
+
+    // Per user markers, compared against the sequence numbers so sending a message doesn't need to touch them. A user
+    // has read every message before their read marker, and the conversation stays archived for them until a message
+    // is sent after their archive marker.
+    private Map<UUID, Long> lastReadSequenceNumbers = new HashMap<>();
+    private Map<UUID, Long> archivedSequenceNumbers = new HashMap<>();
+
+    // Who had read and archived the conversation, as serialized before the markers. Only set while reading a legacy
+    // conversation, readObject turns them into markers.
+    private Set<UUID> usersHaveRead;
+    private Set<UUID> userArchivedUUIDs;
 
     /**
      * Constructor for Conversation
@@ -28,11 +42,28 @@ public class Conversation implements Serializable {
      */
     public Conversation(String name, Set<UUID> usersWriteUUIDs, Set<UUID>
             usersReadUUIDs, List<Message> messages) {
-        conversationName = name;
-        conversationMessages = messages;
-        writeAccessUsers = usersWriteUUIDs;
-        readAccessUsers = usersReadUUIDs;
-        conversationUUID = UUID.randomUUID();
+        this(UUID.randomUUID(), name, usersWriteUUIDs, usersReadUUIDs, messages);
+    }
+
+    /**
+     * Constructor for Conversation with an existing UUID (i.e. when loading a conversation from disk)
+     *
+     * @param conversationUUID UUID of the Conversation
+     * @param name             name of the Conversation
+     * @param usersWriteUUIDs  The set of users that have write access to the chat/conversation
+     * @param usersReadUUIDs   The set of users that have read access to the chat/conversation
+     * @param messages         A list of all the messages in the Chat/conversation, in sequence number order
+     */
+    Conversation(UUID conversationUUID, String name, Set<UUID> usersWriteUUIDs, Set<UUID> usersReadUUIDs, List<Message> messages) {
+        this.conversationName = name;
+        this.conversationMessages = messages;
+        this.writeAccessUsers = usersWriteUUIDs;
+        this.readAccessUsers = usersReadUUIDs;
+        this.conversationUUID = conversationUUID;
+
+        if (!messages.isEmpty()) {
+            nextSequenceNumber = messages.get(messages.size() - 1).getSequenceNumber() + 1;
+        }
     }
 
     /**
@@ -125,85 +156,170 @@ public class Conversation implements Serializable {
     }
 
 
+    /**
+     * Gets the sequence number the next message of this conversation should have
+     *
+     * @return the next sequence number
+     */
+    public long getNextSequenceNumber() {
+        return nextSequenceNumber;
+    }
+
+    /**
+     * Sets the sequence number of the next message (i.e. when loading a conversation whose last messages were deleted)
+     *
+     * @param nextSequenceNumber the next sequence number
+     */
+    void setNextSequenceNumber(long nextSequenceNumber) {
+        this.nextSequenceNumber = Math.max(this.nextSequenceNumber, nextSequenceNumber);
+    }
+
     /**
      * Adds message to the list of messages in this Conversation
      *
      * @param message Message to be added in the conversation
      */
     public void addMessage(Message message) {
-        if (conversationMessages.contains(message)) {
+        if (message.getSequenceNumber() < nextSequenceNumber) {
             System.out.println("Message has already been added");
         } else {
             conversationMessages.add(message);
+            nextSequenceNumber = message.getSequenceNumber() + 1;
+        }
+    }
+
+    /**
+     * Finds the position in the list of messages of the first message with at least a given sequence number
+     *
+     * @param sequenceNumber the sequence number to look for
+     * @return index of that message, or the number of messages if every message is older
+     */
+    private int indexOfSequenceNumber(long sequenceNumber) {
+        int low = 0;
+        int high = conversationMessages.size();
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (conversationMessages.get(mid).getSequenceNumber() < sequenceNumber) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+
+        return low;
+    }
+
+    /**
+     * Gets a message by its sequence number
+     *
+     * @param sequenceNumber the sequence number of the message
+     * @return the message, or null if there is no message with that sequence number
+     */
+    public Message getMessage(long sequenceNumber) {
+        int index = indexOfSequenceNumber(sequenceNumber);
+
+        if (index < conversationMessages.size() && conversationMessages.get(index).getSequenceNumber() == sequenceNumber) {
+            return conversationMessages.get(index);
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a page of the messages older than a cursor, newest first
+     *
+     * @param cursor sequence number to page back from, messages with this sequence number or later are skipped
+     * @param limit  maximum number of messages to return
+     * @return list of at most limit messages, newest first
+     */
+    public List<Message> getMessagesBefore(long cursor, int limit) {
+        int end = indexOfSequenceNumber(cursor);
+        int start = Math.max(0, end - Math.max(0, limit));
+
+        List<Message> page = new ArrayList<>(conversationMessages.subList(start, end));
+        Collections.reverse(page);
+
+        return page;
     }
 
     /**
      * deletes a message
      *
-     * @param index the index of the message being deleted
+     * @param sequenceNumber the sequence number of the message being deleted
+     * @return true iff there was a message with that sequence number
      */
-    public void deleteMessage(int index) {
-        conversationMessages.remove(index);
+    public boolean deleteMessage(long sequenceNumber) {
+        int index = indexOfSequenceNumber(sequenceNumber);
+
+        if (index < conversationMessages.size() && conversationMessages.get(index).getSequenceNumber() == sequenceNumber) {
+            conversationMessages.remove(index);
+            return true;
+        }
+
+        return false;
     }
 
     /**
-     * archives a conversation for a specific user
+     * archives a conversation for a specific user. The conversation stays archived until another message is sent.
      *
      * @param userUUID the user archiving the conversation
      */
     public void archiveConversation(UUID userUUID) {
-        userArchivedUUIDs.add(userUUID);
+        archivedSequenceNumbers.put(userUUID, nextSequenceNumber);
     }
 
     /**
-     * resets the list of people who have archived this conversation
+     * gets whether a specific user has archived this conversation since the last message was sent
+     *
+     * @param userUUID the user in question
+     * @return true if the user in question has archived this conversation
      */
-    public void resetUserArchivedUUIDs() {
-        userArchivedUUIDs = new HashSet<>();
+    public boolean getUserHasArchived(UUID userUUID) {
+        Long archivedSequenceNumber = archivedSequenceNumbers.get(userUUID);
+        return archivedSequenceNumber != null && archivedSequenceNumber >= nextSequenceNumber;
     }
 
     /**
-     * gets the list of people who have archived this conversation
+     * gets the sequence number of the next message at the time each user archived this conversation
      *
-     * @return the list of people who have archived this conversation
+     * @return map from user UUID to archive marker
      */
-    public Set<UUID> getUserArchivedUUIDs() {
-        return userArchivedUUIDs;
+    public Map<UUID, Long> getArchivedSequenceNumbers() {
+        return archivedSequenceNumbers;
     }
 
     /**
-     * Marks a conversation for a specific user
+     * Marks a conversation as read up to the last message for a specific user
      *
      * @param userUUID the user having read this conversation
      */
     public void readConversation(UUID userUUID) {
-        usersHaveRead.add(userUUID);
+        lastReadSequenceNumbers.put(userUUID, nextSequenceNumber);
     }
 
     /**
-     * removes a user form the list of users who have read this conversation
+     * Marks the last message of a conversation as unread for a specific user
      *
      * @param userUUID the user in question
      */
     public void unreadConversation(UUID userUUID) {
-        usersHaveRead.remove(userUUID);
-    }
+        Long lastReadSequenceNumber = lastReadSequenceNumbers.get(userUUID);
 
-    /**
-     * resets the set of users who have read this conversation
-     */
-    public void resetUsersHaveRead() {
-        usersHaveRead = new HashSet<>();
+        if (lastReadSequenceNumber != null && !conversationMessages.isEmpty()) {
+            long lastSequenceNumber = conversationMessages.get(conversationMessages.size() - 1).getSequenceNumber();
+            lastReadSequenceNumbers.put(userUUID, Math.min(lastReadSequenceNumber, lastSequenceNumber));
+        }
     }
 
     /**
-     * gets the list of users who have read this conversation
+     * gets the sequence number of the first message each user hasn't read
      *
-     * @return the list of users who have read this conversation
+     * @return map from user UUID to read marker
      */
-    public Set<UUID> getUsersHaveRead() {
-        return usersHaveRead;
+    public Map<UUID, Long> getLastReadSequenceNumbers() {
+        return lastReadSequenceNumbers;
     }
 
     /**
@@ -213,6 +329,53 @@ public class Conversation implements Serializable {
      * @return true if the user in question has read this conversation
      */
     public boolean getUserHasRead(UUID userUUID) {
-        return usersHaveRead.contains(userUUID);
+        return getUnreadCount(userUUID) == 0;
+    }
+
+    /**
+     * gets the number of messages of this conversation a specific user hasn't read
+     *
+     * @param userUUID the user in question
+     * @return number of unread messages
+     */
+    public int getUnreadCount(UUID userUUID) {
+        long lastReadSequenceNumber = lastReadSequenceNumbers.getOrDefault(userUUID, 0L);
+        return conversationMessages.size() - indexOfSequenceNumber(lastReadSequenceNumber);
+    }
+
+    /**
+     * Fills in what conversations serialized before sequence numbers are missing. Their messages all have sequence
+     * number 0, so they are numbered in order, and the users who had read or archived them get markers after the last
+     * message.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        if (lastReadSequenceNumbers == null) {
+            lastReadSequenceNumbers = new HashMap<>();
+            archivedSequenceNumbers = new HashMap<>();
+
+            for (int i = 0; i < conversationMessages.size(); i++) {
+                Message message = conversationMessages.get(i);
+                conversationMessages.set(i, new Message(i, message.getSenderUUID(), message.getContent(), message.getTimestamp()));
+            }
+
+            nextSequenceNumber = conversationMessages.size();
+
+            if (usersHaveRead != null) {
+                for (UUID userUUID : usersHaveRead) {
+                    lastReadSequenceNumbers.put(userUUID, nextSequenceNumber);
+                }
+            }
+
+            if (userArchivedUUIDs != null) {
+                for (UUID userUUID : userArchivedUUIDs) {
+                    archivedSequenceNumbers.put(userUUID, nextSequenceNumber);
+                }
+            }
+        }
+
+        usersHaveRead = null;
+        userArchivedUUIDs = null;
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,11 @@ import java.util.*;
  * Operations on Conversations
  */
 public class ConversationController {
+    /**
+     * Cursor for getting the newest page of messages of a conversation
+     */
+    public static final long NEWEST_MESSAGES = Long.MAX_VALUE;
+
     private final ConversationManager conversationManager;
     private final ContactManager contactManager;
     private final UserManager userManager;
@@ -88,6 +93,23 @@ public class ConversationController {
         return conversationManager.getMessages(executorUUID, conversationUUID, userManager.getUserIsGod(executorUUID));
     }
 
+    /**
+     * Gets a page of messages for a conversation a user has read access to, newest first. Throws NoReadAccessException
+     * if the user has no read access.
+     * <p>
+     * Start from NEWEST_MESSAGES, and pass the sequence number of the last message of a page to get the page before
+     * it. Cursors stay valid when messages are sent or deleted. God users can bypass read-restrictions.
+     *
+     * @param executorUUID     The ID of the User
+     * @param conversationUUID The UUID of the Conversation for which the messages need to be seen
+     * @param cursor           sequence number to page back from, only messages sent before it are returned
+     * @param limit            maximum number of messages to return
+     * @return unmodifiable list of at most limit messages, newest first
+     */
+    public List<MessageView> getMessages(UUID executorUUID, UUID conversationUUID, long cursor, int limit) {
+        return conversationManager.getMessages(executorUUID, conversationUUID, cursor, limit, userManager.getUserIsGod(executorUUID));
+    }
+
     /**
      * Get the conversation name
      *
@@ -112,7 +134,7 @@ public class ConversationController {
             //return conversationManager.getConversationList(userUUID);
             Set<UUID> conversationList = new HashSet<>();
             for (UUID conversationUUID : conversationManager.getConversationList(userUUID)) {
-                if (!conversationManager.getUserArchiveConversation(conversationUUID).contains(userUUID)) {
+                if (!conversationManager.getUserHasArchived(userUUID, conversationUUID)) {
                     conversationList.add(conversationUUID);
                 }
             }
@@ -181,17 +203,28 @@ public class ConversationController {
         return conversationManager.getUserHasRead(userUUID, conversationUUID);
     }
 
+    /**
+     * gets the number of messages of a specific conversation a specific user hasn't read
+     *
+     * @param userUUID         user in question
+     * @param conversationUUID conversation
+     * @return number of unread messages
+     */
+    public int getUnreadCount(UUID userUUID, UUID conversationUUID) {
+        return conversationManager.getUnreadCount(userUUID, conversationUUID);
+    }
+
 
     /**
      * Deletes a specific message if the message was sent by that person or is being deleted by a god user
      *
      * @param conversationUUID conversation in question
      * @param userUUID         user in question
-     * @param index            index of the message in question
+     * @param sequenceNumber   sequence number of the message in question
      */
-    public void deleteMessage(UUID conversationUUID, UUID userUUID, int index) {
-        if (checkIfSender(conversationUUID, userUUID, index)) {
-            conversationManager.userDeleteMessage(conversationUUID, index);
+    public void deleteMessage(UUID conversationUUID, UUID userUUID, long sequenceNumber) {
+        if (checkIfSender(conversationUUID, userUUID, sequenceNumber)) {
+            conversationManager.userDeleteMessage(conversationUUID, sequenceNumber);
         }
     }
 
@@ -200,12 +233,13 @@ public class ConversationController {
      *
      * @param conversationUUID conversation in question
      * @param userUUID         user in question
-     * @param index            index of the message in question in the list of messages
+     * @param sequenceNumber   sequence number of the message in question
      * @return true if that user is a god user or the sender of the message
      */
-    public boolean checkIfSender(UUID conversationUUID, UUID userUUID, int index) {
-        return conversationManager.getConversation(conversationUUID).getConversationMessages().get(index).getSenderUUID() == userUUID
-                || userManager.getUserIsGod(userUUID);
+    public boolean checkIfSender(UUID conversationUUID, UUID userUUID, long sequenceNumber) {
+        Message message = conversationManager.getConversation(conversationUUID).getMessage(sequenceNumber);
+
+        return (message != null && message.getSenderUUID().equals(userUUID)) || userManager.getUserIsGod(userUUID);
     }
 
 //    /**
@@ -1,21 +1,31 @@
 package messaging;
 
+import gateway.AbstractEntityStore;
 import messaging.exception.NoReadAccessException;
 import messaging.exception.NoWriteAccessException;
 import messaging.exception.NullConversationException;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
 /**
  * Manages Conversation entities
  */
-public class ConversationManager implements Serializable {
+public class ConversationManager extends AbstractEntityStore {
+    private static final long serialVersionUID = -3201268868022236467L;
+
 
     // Note that the userUUIDtoConversationUUIDs HashMap is only there for efficiency reasons
     // the permissions are decided based on the read/write access to each conversation
     // (looping thru all the conversations is O(n), but accessing the HashMap is O(1) time)
     private final Map<UUID, Set<UUID>> userUUIDtoConversationUUIDs = new HashMap<>();
+
+    // The other direction of the same lists, so the members of a conversation can be listed without going through
+    // every user. Both are only changed through addConversationToUserList and removeConversationFromUserList. It isn't
+    // serialized, readObject rebuilds it.
+    private transient Map<UUID, Set<UUID>> conversationUUIDtoUserUUIDs = new HashMap<>();
     private final Map<UUID, Conversation> conversationUUIDsToEntity = new HashMap<>();
 
     /**
@@ -30,7 +40,7 @@ public class ConversationManager implements Serializable {
      */
     public UUID createConversation(String conversationName, Set<UUID> usersWrite, Set<UUID> usersRead, UUID senderUUID, String messageContent) {
         // Create an initial message that initiates a conversation
-        Message initialMessage = new Message(senderUUID, messageContent);
+        Message initialMessage = new Message(0, senderUUID, messageContent);
         // Adds the initial messages
         List<Message> messages = new ArrayList<>();
         messages.add(initialMessage);
@@ -50,6 +60,8 @@ public class ConversationManager implements Serializable {
             addConversationToUserList(user, conversationUUID);
         }
 
+        notifyChange(conversationUUID);
+
         return conversationUUID;
     }
 
@@ -71,12 +83,19 @@ public class ConversationManager implements Serializable {
         userUUIDtoConversationUUIDs.computeIfAbsent(userUUID, k -> new HashSet<>());
 
         userUUIDtoConversationUUIDs.get(userUUID).add(conversationUUID);
+        conversationUUIDtoUserUUIDs.computeIfAbsent(conversationUUID, k -> new HashSet<>()).add(userUUID);
     }
 
     private void removeConversationFromUserList(UUID userUUID, UUID conversationUUID) {
         if (userUUIDtoConversationUUIDs.get(userUUID) != null) {
             userUUIDtoConversationUUIDs.get(userUUID).remove(conversationUUID);
         }
+
+        Set<UUID> userUUIDs = conversationUUIDtoUserUUIDs.get(conversationUUID);
+
+        if (userUUIDs != null && userUUIDs.remove(userUUID) && userUUIDs.isEmpty()) {
+            conversationUUIDtoUserUUIDs.remove(conversationUUID);
+        }
     }
 
     /**
@@ -98,6 +117,7 @@ public class ConversationManager implements Serializable {
         }
 
         conversationUUIDsToEntity.remove(conversationUUID);
+        notifyChange(conversationUUID);
     }
 
     /**
@@ -115,6 +135,71 @@ public class ConversationManager implements Serializable {
 
         // Add conversation to user's list
         addConversationToUserList(userUUID, conversationUUID);
+
+        notifyChange(conversationUUID);
+    }
+
+    /**
+     * Adds users to a specific chat, notifying the listeners once for all of them
+     *
+     * @param userUUIDs        UUIDs of the users to be added to the Chat
+     * @param conversationUUID The UUID of the conversation/chat to which the users need to be added
+     */
+    public void addUsers(Collection<UUID> userUUIDs, UUID conversationUUID) {
+        Conversation conversation = getConversation(conversationUUID);
+        boolean changed = false;
+
+        for (UUID userUUID : userUUIDs) {
+            if (!isMember(conversation, userUUID)) {
+                conversation.grantWriteAccess(userUUID);
+                conversation.grantReadAccess(userUUID);
+                addConversationToUserList(userUUID, conversationUUID);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            notifyChange(conversationUUID);
+        }
+    }
+
+    /**
+     * Removes users from a specific chat, notifying the listeners once for all of them
+     *
+     * @param userUUIDs        UUIDs of the users to be removed from the Chat
+     * @param conversationUUID The UUID of the conversation/chat from which the users need to be removed
+     */
+    public void removeUsers(Collection<UUID> userUUIDs, UUID conversationUUID) {
+        Conversation conversation = getConversation(conversationUUID);
+        boolean changed = false;
+
+        for (UUID userUUID : userUUIDs) {
+            if (isMember(conversation, userUUID)) {
+                conversation.removeUserFromWrite(userUUID);
+                conversation.removeUserFromRead(userUUID);
+                removeConversationFromUserList(userUUID, conversationUUID);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            notifyChange(conversationUUID);
+        }
+    }
+
+    /**
+     * Tests if a user is part of a Conversation, from the conversation's own access lists
+     *
+     * @param userUUID         The UUID of the user
+     * @param conversationUUID The UUID of a Conversation/Chat Group
+     * @return true iff the user has read or write access to the conversation
+     */
+    public boolean isMember(UUID userUUID, UUID conversationUUID) {
+        return isMember(getConversation(conversationUUID), userUUID);
+    }
+
+    private boolean isMember(Conversation conversation, UUID userUUID) {
+        return conversation.getReadAccessUsers().contains(userUUID) || conversation.getWriteAccessUsers().contains(userUUID);
     }
 
     /**
@@ -124,15 +209,9 @@ public class ConversationManager implements Serializable {
      * @return set of users in the conversation
      */
     public Set<UUID> getUsers(UUID conversationUUID) {
-        Set<UUID> usersInConversation = new HashSet<>();
-        Set<UUID> allUsersUUID = userUUIDtoConversationUUIDs.keySet();
-        for (UUID userUUID : allUsersUUID) {
-            if (userUUIDtoConversationUUIDs.get(userUUID).contains(conversationUUID)) {
-                usersInConversation.add(userUUID);
-            }
+        Set<UUID> usersInConversation = conversationUUIDtoUserUUIDs.get(conversationUUID);
 
-        }
-        return usersInConversation;
+        return usersInConversation == null ? new HashSet<>() : new HashSet<>(usersInConversation);
     }
 
     /**
@@ -150,6 +229,8 @@ public class ConversationManager implements Serializable {
 
         // Add conversation to user's list
         removeConversationFromUserList(userUUID, conversationUUID);
+
+        notifyChange(conversationUUID);
     }
 
     /**
@@ -192,15 +273,15 @@ public class ConversationManager implements Serializable {
      * @param bypassRestriction whether to bypass write access restrictions
      */
     void sendMessage(UUID senderUUID, String messageContent, UUID conversationUUID, boolean bypassRestriction) {
-        Message message = new Message(senderUUID, messageContent);
         Conversation conversation = getConversation(conversationUUID);
+        Message message = new Message(conversation.getNextSequenceNumber(), senderUUID, messageContent);
 
         UUID userUUID = message.getSenderUUID();
 
         if (conversation.getWriteAccessUsers().contains(userUUID) || bypassRestriction) {
+            // Read and archive markers are compared against the new sequence number, so they don't need to be reset
             conversation.addMessage(message);
-            conversation.resetUserArchivedUUIDs();
-            conversation.resetUsersHaveRead();
+            notifyDelta(conversationUUID, message);
         } else {
             throw new NoWriteAccessException();
         }
@@ -218,12 +299,13 @@ public class ConversationManager implements Serializable {
     List<Map<String, String>> getMessages(UUID userUUID, UUID conversationUUID, boolean bypassRestriction) {
         Conversation conversation = getConversation(conversationUUID);
 
-        conversation.getUsersHaveRead().add(userUUID);
         if (conversation.getReadAccessUsers().contains(userUUID) || bypassRestriction) {
             List<Map<String, String>> newList = new ArrayList<>();
 
             // Mark this conversation as read
-            conversation.readConversation(userUUID);
+            if (!conversation.getUserHasRead(userUUID)) {
+                readConversation(conversationUUID, conversation, userUUID);
+            }
 
             for (Message message : conversation.getConversationMessages()) {
                 Map<String, String> messageMap = new HashMap<>();
@@ -238,6 +320,37 @@ public class ConversationManager implements Serializable {
         }
     }
 
+    /**
+     * Gets a page of messages for a conversation a user has read access to, newest first. Throws NoReadAccessException
+     * if the user has no read access. Getting the newest page marks the conversation as read.
+     *
+     * @param userUUID          The ID of the User
+     * @param conversationUUID  The UUID of the Conversation for which the messages need to be seen
+     * @param cursor            sequence number to page back from, only messages sent before it are returned
+     * @param limit             maximum number of messages to return
+     * @param bypassRestriction whether to bypass read access restrictions
+     * @return unmodifiable list of at most limit messages, newest first
+     */
+    List<MessageView> getMessages(UUID userUUID, UUID conversationUUID, long cursor, int limit, boolean bypassRestriction) {
+        Conversation conversation = getConversation(conversationUUID);
+
+        if (!conversation.getReadAccessUsers().contains(userUUID) && !bypassRestriction) {
+            throw new NoReadAccessException();
+        }
+
+        if (cursor >= conversation.getNextSequenceNumber() && !conversation.getUserHasRead(userUUID)) {
+            readConversation(conversationUUID, conversation, userUUID);
+        }
+
+        List<MessageView> page = new ArrayList<>();
+
+        for (Message message : conversation.getMessagesBefore(cursor, limit)) {
+            page.add(new MessageView(message));
+        }
+
+        return Collections.unmodifiableList(page);
+    }
+
     /**
      * Marks a conversation as unread for a specific user
      *
@@ -247,6 +360,7 @@ public class ConversationManager implements Serializable {
     public void userUnreadConversation(UUID userUUID, UUID conversationUUID) {
         Conversation conversation = getConversation(conversationUUID);
         conversation.unreadConversation(userUUID);
+        notifyMarker(conversationUUID, conversation, userUUID, false);
     }
 
     /**
@@ -256,17 +370,50 @@ public class ConversationManager implements Serializable {
      * @param conversationUUID conversation in question
      */
     public void userArchiveConversation(UUID userUUID, UUID conversationUUID) {
-        getConversation(conversationUUID).archiveConversation(userUUID);
+        Conversation conversation = getConversation(conversationUUID);
+        conversation.archiveConversation(userUUID);
+        notifyMarker(conversationUUID, conversation, userUUID, true);
     }
 
     /**
-     * gets the set of users that have archived this conversation
+     * Marks a conversation as read for a user
      *
+     * @param conversationUUID UUID of the conversation
+     * @param conversation     the conversation
+     * @param userUUID         the user who read it
+     */
+    private void readConversation(UUID conversationUUID, Conversation conversation, UUID userUUID) {
+        conversation.readConversation(userUUID);
+        notifyMarker(conversationUUID, conversation, userUUID, false);
+    }
+
+    /**
+     * Notifies the listeners that a marker of a user moved, with a delta holding its new value
+     *
+     * @param conversationUUID UUID of the conversation
+     * @param conversation     the conversation
+     * @param userUUID         the user whose marker moved
+     * @param archive          true for the archive marker, false for the read marker
+     */
+    private void notifyMarker(UUID conversationUUID, Conversation conversation, UUID userUUID, boolean archive) {
+        Long sequenceNumber = (archive ? conversation.getArchivedSequenceNumbers() : conversation.getLastReadSequenceNumbers()).get(userUUID);
+
+        if (sequenceNumber == null) {
+            notifyChange(conversationUUID);
+        } else {
+            notifyDelta(conversationUUID, new ConversationMarker(userUUID, archive, sequenceNumber));
+        }
+    }
+
+    /**
+     * gets whether a specific user has archived this conversation since its last message
+     *
+     * @param userUUID         user in question
      * @param conversationUUID conversation in question
-     * @return the set of user UUIDs of users that have archived this conversation
+     * @return true if the user has archived the conversation, false if not
      */
-    public Set<UUID> getUserArchiveConversation(UUID conversationUUID) {
-        return getConversation(conversationUUID).getUserArchivedUUIDs();
+    public boolean getUserHasArchived(UUID userUUID, UUID conversationUUID) {
+        return getConversation(conversationUUID).getUserHasArchived(userUUID);
     }
 
     /**
@@ -280,16 +427,110 @@ public class ConversationManager implements Serializable {
         return getConversation(conversationUUID).getUserHasRead(userUUID);
     }
 
+    /**
+     * gets the number of messages of a conversation a specific user hasn't read
+     *
+     * @param userUUID         user in question
+     * @param conversationUUID conversation in question
+     * @return number of unread messages
+     */
+    public int getUnreadCount(UUID userUUID, UUID conversationUUID) {
+        return getConversation(conversationUUID).getUnreadCount(userUUID);
+    }
+
     /**
      * deletes a message
      *
      * @param conversationUUID conversation in question
-     * @param index            index on a message in the list of messages
+     * @param sequenceNumber   sequence number of the message
+     */
+    public void userDeleteMessage(UUID conversationUUID, long sequenceNumber) {
+        if (getConversation(conversationUUID).deleteMessage(sequenceNumber)) {
+            notifyChange(conversationUUID);
+        }
+    }
+
+    /**
+     * Gets a copy of a conversation for persistence
+     *
+     * @param conversationUUID UUID of the conversation
+     * @return the Conversation object, or null if it doesn't exist
+     */
+    @Override
+    public Serializable exportEntity(UUID conversationUUID) {
+        return conversationUUIDsToEntity.get(conversationUUID);
+    }
+
+    /**
+     * Replaces a conversation with a persisted copy, keeping the user to conversation lists in sync
+     *
+     * @param conversationUUID UUID of the conversation
+     * @param entity           Conversation object, or null to remove the conversation
      */
-    public void userDeleteMessage(UUID conversationUUID, int index) {
-        getConversation(conversationUUID).deleteMessage(index);
+    @Override
+    public void importEntity(UUID conversationUUID, Serializable entity) {
+        Conversation oldConversation = conversationUUIDsToEntity.remove(conversationUUID);
+
+        if (oldConversation != null) {
+            for (UUID userUUID : oldConversation.getReadAccessUsers()) {
+                removeConversationFromUserList(userUUID, conversationUUID);
+            }
+            for (UUID userUUID : oldConversation.getWriteAccessUsers()) {
+                removeConversationFromUserList(userUUID, conversationUUID);
+            }
+        }
+
+        if (entity != null) {
+            Conversation conversation = (Conversation) entity;
+            conversationUUIDsToEntity.put(conversationUUID, conversation);
 
+            for (UUID userUUID : conversation.getReadAccessUsers()) {
+                addConversationToUserList(userUUID, conversationUUID);
+            }
+            for (UUID userUUID : conversation.getWriteAccessUsers()) {
+                addConversationToUserList(userUUID, conversationUUID);
+            }
+        }
     }
 
+    /**
+     * Replays a delta passed to notifyDelta: a message sent to a conversation, or a marker that moved. Messages the
+     * conversation already has are skipped, and deltas of conversations that no longer exist are ignored.
+     *
+     * @param conversationUUID UUID of the conversation
+     * @param delta            a Message or a ConversationMarker
+     */
+    @Override
+    public void applyDelta(UUID conversationUUID, Serializable delta) {
+        Conversation conversation = conversationUUIDsToEntity.get(conversationUUID);
 
-}
\ No newline at end of file
+        if (conversation == null) {
+            return;
+        }
+
+        if (delta instanceof Message) {
+            Message message = (Message) delta;
+
+            if (message.getSequenceNumber() >= conversation.getNextSequenceNumber()) {
+                conversation.addMessage(message);
+            }
+        } else {
+            ((ConversationMarker) delta).applyTo(conversation);
+        }
+    }
+
+    /**
+     * Rebuilds the conversation to users lists after loading this manager with Java serialization
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        conversationUUIDtoUserUUIDs = new HashMap<>();
+
+        for (Map.Entry<UUID, Set<UUID>> entry : userUUIDtoConversationUUIDs.entrySet()) {
+            for (UUID conversationUUID : entry.getValue()) {
+                conversationUUIDtoUserUUIDs.computeIfAbsent(conversationUUID, k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package messaging;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.IEntityCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Encodes a ConversationManager in the binary storage format
+ * <p>
+ * Layout: [int conversation count][conversations...], where each conversation is
+ * [UUID][name][write access][read access][read markers][archive markers][long next sequence number][int message count][messages...],
+ * where markers are [int count][UUID user, long sequence number...], and each message is
+ * [long sequence number][UUID sender][long epoch seconds][content]
+ * <p>
+ * Version 1 had no sequence numbers, and its messages are numbered in the order they are stored. Versions 1 and 2
+ * stored the sets of users that had read and archived each conversation instead of markers, which are read as
+ * markers at the last message.
+ * <p>
+ * The user to conversation lists are not stored, they are rebuilt from the read/write access sets.
+ */
+public class ConversationManagerCodec implements IEntityCodec<ConversationManager> {
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public Set<UUID> getEntityUUIDs(ConversationManager conversationManager) {
+        return conversationManager.getConversationList();
+    }
+
+    @Override
+    public void writeEntity(UUID conversationUUID, Serializable entity, BinaryWriter out) throws IOException {
+        Conversation conversation = (Conversation) entity;
+
+        out.writeUUID(conversationUUID);
+        out.writeString(conversation.getConversationName());
+        out.writeUUIDSet(conversation.getWriteAccessUsers());
+        out.writeUUIDSet(conversation.getReadAccessUsers());
+        writeMarkers(conversation.getLastReadSequenceNumbers(), out);
+        writeMarkers(conversation.getArchivedSequenceNumbers(), out);
+
+        out.writeLong(conversation.getNextSequenceNumber());
+
+        List<Message> messages = conversation.getConversationMessages();
+        out.writeInt(messages.size());
+
+        for (Message message : messages) {
+            out.writeLong(message.getSequenceNumber());
+            out.writeUUID(message.getSenderUUID());
+            out.writeTimestamp(message.getTimestamp());
+            out.writeString(message.getContent());
+        }
+    }
+
+    @Override
+    public ConversationManager read(BinaryReader in) throws IOException {
+        return read(in, getVersion());
+    }
+
+    @Override
+    public ConversationManager read(BinaryReader in, int version) throws IOException {
+        if (version < 1 || version > getVersion()) {
+            return null;
+        }
+
+        ConversationManager conversationManager = new ConversationManager();
+        int conversationCount = in.readInt();
+
+        for (int i = 0; i < conversationCount; i++) {
+            UUID conversationUUID = in.readUUID();
+            String conversationName = in.readString();
+            Set<UUID> writeAccessUsers = in.readUUIDSet();
+            Set<UUID> readAccessUsers = in.readUUIDSet();
+            Map<UUID, Long> lastReadSequenceNumbers = Collections.emptyMap();
+            Map<UUID, Long> archivedSequenceNumbers = Collections.emptyMap();
+            Set<UUID> usersHaveRead = Collections.emptySet();
+            Set<UUID> userArchivedUUIDs = Collections.emptySet();
+
+            if (version >= 3) {
+                lastReadSequenceNumbers = readMarkers(in);
+                archivedSequenceNumbers = readMarkers(in);
+            } else {
+                usersHaveRead = in.readUUIDSet();
+                userArchivedUUIDs = in.readUUIDSet();
+            }
+
+            long nextSequenceNumber = version >= 2 ? in.readLong() : 0;
+            int messageCount = in.readInt();
+            List<Message> messages = new ArrayList<>(messageCount);
+
+            for (int j = 0; j < messageCount; j++) {
+                long sequenceNumber = version >= 2 ? in.readLong() : j;
+                UUID senderUUID = in.readUUID();
+                LocalDateTime timestamp = in.readTimestamp();
+
+                messages.add(new Message(sequenceNumber, senderUUID, in.readString(), timestamp));
+            }
+
+            Conversation conversation = new Conversation(conversationUUID, conversationName, writeAccessUsers, readAccessUsers, messages);
+            conversation.setNextSequenceNumber(nextSequenceNumber);
+
+            conversation.getLastReadSequenceNumbers().putAll(lastReadSequenceNumbers);
+            conversation.getArchivedSequenceNumbers().putAll(archivedSequenceNumbers);
+
+            // Older versions only stored who was up to date, i.e. had read or archived the last message
+            for (UUID userUUID : usersHaveRead) {
+                conversation.readConversation(userUUID);
+            }
+            for (UUID userUUID : userArchivedUUIDs) {
+                conversation.archiveConversation(userUUID);
+            }
+
+            conversationManager.importEntity(conversationUUID, conversation);
+        }
+
+        return conversationManager;
+    }
+
+    private void writeMarkers(Map<UUID, Long> markers, BinaryWriter out) throws IOException {
+        out.writeInt(markers.size());
+
+        for (Map.Entry<UUID, Long> entry : markers.entrySet()) {
+            out.writeUUID(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private Map<UUID, Long> readMarkers(BinaryReader in) throws IOException {
+        int markerCount = in.readInt();
+        Map<UUID, Long> markers = new HashMap<>();
+
+        for (int i = 0; i < markerCount; i++) {
+            UUID userUUID = in.readUUID();
+            markers.put(userUUID, in.readLong());
+        }
+
+        return markers;
+    }
+}
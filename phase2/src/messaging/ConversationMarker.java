@@ -0,0 +1,42 @@
+package messaging;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Delta that moves the read or archive marker of a user in a conversation, so marking a conversation as read doesn't
+ * journal the whole conversation
+ */
+class ConversationMarker implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final UUID userUUID;
+    private final boolean archive;
+    private final long sequenceNumber;
+
+    /**
+     * Constructor for ConversationMarker
+     *
+     * @param userUUID       the user whose marker moved
+     * @param archive        true for the archive marker, false for the read marker
+     * @param sequenceNumber the new value of the marker
+     */
+    ConversationMarker(UUID userUUID, boolean archive, long sequenceNumber) {
+        this.userUUID = userUUID;
+        this.archive = archive;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Sets the marker on a conversation
+     *
+     * @param conversation the conversation
+     */
+    void applyTo(Conversation conversation) {
+        if (archive) {
+            conversation.getArchivedSequenceNumbers().put(userUUID, sequenceNumber);
+        } else {
+            conversation.getLastReadSequenceNumbers().put(userUUID, sequenceNumber);
+        }
+    }
+}
@@ -8,6 +8,9 @@ import java.util.UUID;
  * Contains information about individual messages, such as the sender, timestamp, etc.
  */
 class Message implements Serializable {
+    private static final long serialVersionUID = -7453064121014083970L;
+
+    private final long sequenceNumber;
     private final String content;
     private final LocalDateTime timestamp;
     private final UUID senderUUID;
@@ -15,15 +18,39 @@ class Message implements Serializable {
     /**
      * Constructor for Message.
      *
+     * @param sequenceNumber The position of the message in its conversation
      * @param senderUUID     The UUID of the sender of the message
      * @param messageContent The content of the message to be sent.
      */
-    Message(UUID senderUUID, String messageContent) {
-        content = messageContent;
-        timestamp = LocalDateTime.now();
+    Message(long sequenceNumber, UUID senderUUID, String messageContent) {
+        this(sequenceNumber, senderUUID, messageContent, LocalDateTime.now());
+    }
+
+    /**
+     * Constructor for Message with an existing timestamp (i.e. when loading a message from disk)
+     *
+     * @param sequenceNumber The position of the message in its conversation
+     * @param senderUUID     The UUID of the sender of the message
+     * @param messageContent The content of the message
+     * @param timestamp      The date and time the message was sent
+     */
+    Message(long sequenceNumber, UUID senderUUID, String messageContent, LocalDateTime timestamp) {
+        this.sequenceNumber = sequenceNumber;
+        this.content = messageContent;
+        this.timestamp = timestamp;
         this.senderUUID = senderUUID;
     }
 
+    /**
+     * Getter for the sequence number of the message. Sequence numbers increase with every message sent to a
+     * conversation and are never reused, even when messages are deleted.
+     *
+     * @return the sequence number of the message
+     */
+    long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
     /**
      * returns the UUID of the sender of the message
      *
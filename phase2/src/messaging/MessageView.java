@@ -0,0 +1,62 @@
+package messaging;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only copy of a message, returned when paging through a conversation
+ */
+public class MessageView {
+    private final long sequenceNumber;
+    private final UUID senderUUID;
+    private final LocalDateTime timestamp;
+    private final String content;
+
+    /**
+     * Constructor for MessageView
+     *
+     * @param message the message to copy
+     */
+    MessageView(Message message) {
+        this.sequenceNumber = message.getSequenceNumber();
+        this.senderUUID = message.getSenderUUID();
+        this.timestamp = message.getTimestamp();
+        this.content = message.getContent();
+    }
+
+    /**
+     * Gets the sequence number of the message, which can be used as a cursor to get the messages sent before it
+     *
+     * @return the sequence number of the message
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Gets the UUID of the sender of the message
+     *
+     * @return UUID of the message sender
+     */
+    public UUID getSenderUUID() {
+        return senderUUID;
+    }
+
+    /**
+     * Gets the date and time the message was sent
+     *
+     * @return the date and time that the message was sent
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the content of the message
+     *
+     * @return the content of the message
+     */
+    public String getContent() {
+        return content;
+    }
+}
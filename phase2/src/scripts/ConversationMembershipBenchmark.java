@@ -0,0 +1,125 @@
+package scripts;
+
+import messaging.ConversationManager;
+
+import java.util.*;
+
+/**
+ * Compares listing the members of a conversation through the conversation to users index of ConversationManager against
+ * the previous implementation, which went through the conversation list of every user.
+ * <p>
+ * Usage: ConversationMembershipBenchmark [number of users] [number of conversations] [number of rounds]
+ * (defaults to 100000, 50000 and 10)
+ * <p>
+ * Each round lists the members of a sample of conversations, and adds and removes a member of each of them as an event
+ * registration does. The first half of the rounds are warmup and are not reported.
+ */
+public class ConversationMembershipBenchmark {
+    private static final int USERS_PER_CONVERSATION = 10;
+    private static final int SAMPLE_SIZE = 200;
+
+    public static void main(String[] args) {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int conversationCount = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Random random = new Random(207);
+
+        System.out.printf("Generating %d conversations between %d users...\n", conversationCount, userCount);
+
+        List<UUID> userUUIDs = new ArrayList<>();
+
+        for (int i = 0; i < userCount; i++) {
+            userUUIDs.add(UUID.randomUUID());
+        }
+
+        ConversationManager conversationManager = new ConversationManager();
+        List<UUID> conversationUUIDs = new ArrayList<>();
+
+        // The user to conversations lists, as the legacy lookup saw them
+        Map<UUID, Set<UUID>> userToConversationUUIDs = new HashMap<>();
+
+        for (int i = 0; i < conversationCount; i++) {
+            Set<UUID> members = new HashSet<>();
+
+            for (int j = 0; j < USERS_PER_CONVERSATION; j++) {
+                members.add(userUUIDs.get(random.nextInt(userCount)));
+            }
+
+            UUID senderUUID = members.iterator().next();
+            UUID conversationUUID = conversationManager.createConversation("Conversation " + i, members, members, senderUUID, "Hello!");
+            conversationUUIDs.add(conversationUUID);
+
+            for (UUID userUUID : members) {
+                userToConversationUUIDs.computeIfAbsent(userUUID, k -> new HashSet<>()).add(conversationUUID);
+            }
+        }
+
+        long indexNanos = 0, legacyNanos = 0, updateNanos = 0;
+        long checksum = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            boolean measured = round >= rounds / 2;
+            List<UUID> sample = new ArrayList<>();
+
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                sample.add(conversationUUIDs.get(random.nextInt(conversationCount)));
+            }
+
+            long start = System.nanoTime();
+            for (UUID conversationUUID : sample) {
+                checksum += conversationManager.getUsers(conversationUUID).size();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (measured) indexNanos += elapsed;
+
+            start = System.nanoTime();
+            for (UUID conversationUUID : sample) {
+                checksum -= legacyGetUsers(userToConversationUUIDs, conversationUUID).size();
+            }
+            elapsed = System.nanoTime() - start;
+            if (measured) legacyNanos += elapsed;
+
+            start = System.nanoTime();
+            for (UUID conversationUUID : sample) {
+                UUID userUUID = userUUIDs.get(random.nextInt(userCount));
+
+                if (!conversationManager.isMember(userUUID, conversationUUID)) {
+                    conversationManager.addUser(userUUID, conversationUUID);
+                    conversationManager.removeUser(userUUID, conversationUUID);
+                }
+            }
+            elapsed = System.nanoTime() - start;
+            if (measured) updateNanos += elapsed;
+        }
+
+        if (checksum != 0) {
+            throw new IllegalStateException("Index and legacy lookup disagree");
+        }
+
+        long ops = (long) SAMPLE_SIZE * (rounds - rounds / 2);
+
+        System.out.printf("%-20s %-8s %12s\n", "Operation", "Impl", "ns/op");
+        printRow("getUsers", "legacy", legacyNanos, ops);
+        printRow("getUsers", "index", indexNanos, ops);
+        printRow("addUser+removeUser", "index", updateNanos, ops);
+    }
+
+    /**
+     * getUsers as it was before the conversation to users index, going through the conversations of every user
+     */
+    private static Set<UUID> legacyGetUsers(Map<UUID, Set<UUID>> userToConversationUUIDs, UUID conversationUUID) {
+        Set<UUID> usersInConversation = new HashSet<>();
+
+        for (UUID userUUID : userToConversationUUIDs.keySet()) {
+            if (userToConversationUUIDs.get(userUUID).contains(conversationUUID)) {
+                usersInConversation.add(userUUID);
+            }
+        }
+
+        return usersInConversation;
+    }
+
+    private static void printRow(String operation, String implementation, long nanos, long ops) {
+        System.out.printf("%-20s %-8s %12.2f\n", operation, implementation, (double) nanos / ops);
+    }
+}
@@ -1,14 +1,18 @@
 package scripts;
 
 import contact.ContactManager;
+import contact.ContactManagerCodec;
 import convention.EventController;
 import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
+import convention.conference.ConferenceSegmentStore;
 import convention.event.EventManager;
 import convention.room.RoomManager;
-import gateway.Serializer;
+import gateway.BinarySerializer;
 import messaging.ConversationManager;
+import messaging.ConversationManagerCodec;
 import user.UserManager;
+import user.UserManagerCodec;
 
 import java.time.LocalDateTime;
 import java.time.Month;
@@ -25,15 +29,15 @@ import java.util.UUID;
  */
 public class CreateBunchOfConferences {
     public static void main(String[] args) {
-        Serializer<ConversationManager> conversationManagerSerializer = new Serializer<>("conversationManager.ser");
-        Serializer<UserManager> userManagerSerializer = new Serializer<>("userManager.ser");
-        Serializer<ContactManager> contactManagerSerializer = new Serializer<>("contactManager.ser");
-        Serializer<ConferenceManager> conferenceManagerSerializer = new Serializer<>("conferenceManager.ser");
+        BinarySerializer<ConversationManager> conversationManagerSerializer = new BinarySerializer<>("conversationManager.bin", new ConversationManagerCodec());
+        BinarySerializer<UserManager> userManagerSerializer = new BinarySerializer<>("userManager.bin", new UserManagerCodec());
+        BinarySerializer<ContactManager> contactManagerSerializer = new BinarySerializer<>("contactManager.bin", new ContactManagerCodec());
+        ConferenceSegmentStore conferenceSegmentStore = new ConferenceSegmentStore("conferences");
 
         UserManager userManager = userManagerSerializer.load(new UserManager());
         ContactManager contactManager = contactManagerSerializer.load(new ContactManager());
         ConversationManager conversationManager = conversationManagerSerializer.load(new ConversationManager());
-        ConferenceManager conferenceManager = conferenceManagerSerializer.load(new ConferenceManager());
+        ConferenceManager conferenceManager = conferenceSegmentStore.load(new ConferenceManager());
 
         EventController eventController = new EventController(conferenceManager, conversationManager, userManager);
 
@@ -41,9 +45,9 @@ public class CreateBunchOfConferences {
 
         // Create test users
         for (int i = 0; i < 3; i++) {
-            userManager.registerUser("User " + i, "Userson", "user" + i, "password", false, false);
+            userManager.registerUser("User " + i, "Userson", "user" + i, "password", false);
 
-            // Login in case the user already exists
+            // Look the user up in case they already exist
             UUID newUserUUID = userManager.login("user" + i, "password");
 
             // Create test conferences
@@ -71,7 +75,7 @@ public class CreateBunchOfConferences {
                     Set<UUID> speakerUserUUIDs = new HashSet<UUID>();
 
                     for (int z = 0; z < 3; z++) {
-                        UUID newUUID = userManager.registerUser("Speaker " + i + "!" + p + "!" + z, "Speaker", "speaker" + i + "!" + p + "!" + z, "password", false, false);
+                        UUID newUUID = userManager.registerUser("Speaker " + i + "!" + p + "!" + z, "Speaker", "speaker" + i + "!" + p + "!" + z, "password", false);
 
                         if (newUUID != null) {
                             speakerUserUUIDs.add(newUUID);
@@ -98,11 +102,9 @@ public class CreateBunchOfConferences {
             }
         }
 
-        userManager.clearCurrentUser();
-
         userManagerSerializer.save(userManager);
         contactManagerSerializer.save(contactManager);
         conversationManagerSerializer.save(conversationManager);
-        conferenceManagerSerializer.save(conferenceManager);
+        conferenceSegmentStore.save();
     }
 }
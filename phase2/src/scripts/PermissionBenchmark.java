@@ -0,0 +1,146 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.permission.PermissionManager;
+import user.UserManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Compares the permission checks of PermissionManager, which read the role flags of the user, against the previous
+ * implementation, which tested each role of the conference and god mode in turn.
+ * <p>
+ * Usage: PermissionBenchmark [number of users] [number of conferences] [number of rounds]
+ * (defaults to 10000, 100 and 10)
+ * <p>
+ * Each round runs the checks made while rendering event lists for a sample of members: an attendee check for
+ * attendees, and attendee, speaker and organizer checks for organizers. The first half of the rounds are warmup and are
+ * not reported.
+ */
+public class PermissionBenchmark {
+    private static final int ATTENDEES_PER_CONFERENCE = 500;
+    private static final int ORGANIZERS_PER_CONFERENCE = 20;
+    private static final int SAMPLE_SIZE = 100000;
+
+    public static void main(String[] args) {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int conferenceCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Random random = new Random(207);
+
+        System.out.printf("Generating %d conferences from %d users...\n", conferenceCount, userCount);
+
+        UserManager userManager = new UserManager();
+        ConferenceManager conferenceManager = new ConferenceManager();
+        PermissionManager permissionManager = new PermissionManager(conferenceManager, userManager);
+
+        List<UUID> userUUIDs = new ArrayList<>();
+
+        for (int i = 0; i < userCount; i++) {
+            userUUIDs.add(userManager.registerUser("First", "Last " + i, "user" + i, "password", false));
+        }
+
+        TimeRange timeRange = new TimeRange(LocalDateTime.of(2020, 1, 1, 9, 0), LocalDateTime.of(2020, 1, 3, 17, 0));
+        List<UUID[]> attendees = new ArrayList<>();
+        List<UUID[]> organizers = new ArrayList<>();
+
+        for (int i = 0; i < conferenceCount; i++) {
+            UUID organizerUUID = userUUIDs.get(random.nextInt(userCount));
+            UUID conferenceUUID = conferenceManager.createConference("Conference " + i, timeRange, organizerUUID);
+            organizers.add(new UUID[]{conferenceUUID, organizerUUID});
+
+            for (int j = 1; j < ORGANIZERS_PER_CONFERENCE; j++) {
+                organizerUUID = userUUIDs.get(random.nextInt(userCount));
+
+                if (!conferenceManager.isListedOrganizer(conferenceUUID, organizerUUID)) {
+                    conferenceManager.addOrganizer(conferenceUUID, organizerUUID);
+                    organizers.add(new UUID[]{conferenceUUID, organizerUUID});
+                }
+            }
+
+            Set<UUID> attendeeUUIDs = new HashSet<>();
+
+            while (attendeeUUIDs.size() < Math.min(ATTENDEES_PER_CONFERENCE, userCount)) {
+                attendeeUUIDs.add(userUUIDs.get(random.nextInt(userCount)));
+            }
+
+            conferenceManager.addAttendees(conferenceUUID, attendeeUUIDs);
+
+            for (UUID attendeeUUID : attendeeUUIDs) {
+                attendees.add(new UUID[]{conferenceUUID, attendeeUUID});
+            }
+        }
+
+        long rolesNanos = 0, legacyNanos = 0;
+        long checksum = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            boolean measured = round >= rounds / 2;
+            List<UUID[]> attendeeSample = new ArrayList<>();
+            List<UUID[]> organizerSample = new ArrayList<>();
+
+            for (int i = 0; i < SAMPLE_SIZE; i++) {
+                attendeeSample.add(attendees.get(random.nextInt(attendees.size())));
+                organizerSample.add(organizers.get(random.nextInt(organizers.size())));
+            }
+
+            long start = System.nanoTime();
+            for (UUID[] member : attendeeSample) {
+                permissionManager.testIsAttendee(member[0], member[1]);
+            }
+            for (UUID[] member : organizerSample) {
+                permissionManager.testIsAttendee(member[0], member[1]);
+                permissionManager.testIsSpeaker(member[0], member[1]);
+                permissionManager.testIsOrganizer(member[0], member[1]);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (measured) rolesNanos += elapsed;
+
+            start = System.nanoTime();
+            for (UUID[] member : attendeeSample) {
+                if (legacyIsAttendee(conferenceManager, userManager, member[0], member[1])) checksum++;
+            }
+            for (UUID[] member : organizerSample) {
+                if (legacyIsAttendee(conferenceManager, userManager, member[0], member[1])) checksum++;
+                if (legacyIsSpeaker(conferenceManager, userManager, member[0], member[1])) checksum++;
+                if (conferenceManager.isOrganizer(member[0], member[1], userManager)) checksum++;
+            }
+            elapsed = System.nanoTime() - start;
+            if (measured) legacyNanos += elapsed;
+        }
+
+        long checks = 4L * SAMPLE_SIZE * (rounds - rounds / 2);
+
+        System.out.printf("Role flags:     %.1f ns per check\n", rolesNanos / (double) checks);
+        System.out.printf("Legacy checks:  %.1f ns per check\n", legacyNanos / (double) checks);
+        System.out.printf("(checksum %d)\n", checksum);
+    }
+
+    /**
+     * The attendee check as PermissionManager did it before role flags
+     *
+     * @param conferenceManager conference manager
+     * @param userManager       user manager
+     * @param conferenceUUID    UUID of the conference
+     * @param userUUID          UUID of the user
+     * @return true iff the user can execute attendee actions
+     */
+    private static boolean legacyIsAttendee(ConferenceManager conferenceManager, UserManager userManager, UUID conferenceUUID, UUID userUUID) {
+        return conferenceManager.isAttendee(conferenceUUID, userUUID) || legacyIsSpeaker(conferenceManager, userManager, conferenceUUID, userUUID);
+    }
+
+    /**
+     * The speaker check as PermissionManager did it before role flags
+     *
+     * @param conferenceManager conference manager
+     * @param userManager       user manager
+     * @param conferenceUUID    UUID of the conference
+     * @param userUUID          UUID of the user
+     * @return true iff the user can execute speaker actions
+     */
+    private static boolean legacyIsSpeaker(ConferenceManager conferenceManager, UserManager userManager, UUID conferenceUUID, UUID userUUID) {
+        return conferenceManager.isSpeaker(conferenceUUID, userUUID) || conferenceManager.isOrganizer(conferenceUUID, userUUID, userManager);
+    }
+}
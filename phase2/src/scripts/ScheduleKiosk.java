@@ -0,0 +1,74 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+import convention.snapshot.MappedConferenceManager;
+import convention.snapshot.MappedEventManager;
+import convention.snapshot.MappedRoomManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only schedule display that maps the conference snapshot instead of loading the stores. The snapshot is written
+ * by the main system with every checkpoint that changes a conference when it is run with
+ * -Dconvention.snapshot=conferences.snap
+ * <p>
+ * The main system replaces the snapshot by moving a new file over it, so a mapped snapshot never changes under the
+ * kiosk, it just gets out of date. With a refresh interval, the kiosk checks the modification time of the file and
+ * opens it again when it has been replaced, and the old mapping is released once it is garbage collected.
+ * <p>
+ * Usage: ScheduleKiosk [snapshot file] [refresh seconds] (defaults to conferences.snap, printed once)
+ */
+public class ScheduleKiosk {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String fileName = args.length > 0 ? args[0] : "conferences.snap";
+        long refreshMillis = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 0;
+        Path path = Paths.get(fileName);
+
+        FileTime mappedTime = Files.getLastModifiedTime(path);
+        printSchedule(fileName);
+
+        while (refreshMillis > 0) {
+            Thread.sleep(refreshMillis);
+
+            FileTime modifiedTime = Files.getLastModifiedTime(path);
+
+            if (!modifiedTime.equals(mappedTime)) {
+                mappedTime = modifiedTime;
+                printSchedule(fileName);
+            }
+        }
+    }
+
+    private static void printSchedule(String fileName) throws IOException {
+        long start = System.nanoTime();
+        MappedConferenceManager conferenceManager = MappedConferenceManager.open(fileName);
+        System.out.printf("Mapped %s in %d us\n\n", fileName, (System.nanoTime() - start) / 1000);
+
+        for (UUID conferenceUUID : conferenceManager.getConferences()) {
+            System.out.printf("%s (%s)\n", conferenceManager.getConferenceName(conferenceUUID), conferenceManager.getTimeRange(conferenceUUID));
+
+            MappedEventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+            MappedRoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+
+            List<UUID> eventUUIDs = new ArrayList<>(eventManager.getEvents());
+            eventUUIDs.sort((a, b) -> eventManager.getEventTimeRange(a).getStart().compareTo(eventManager.getEventTimeRange(b).getStart()));
+
+            for (UUID eventUUID : eventUUIDs) {
+                TimeRange timeRange = eventManager.getEventTimeRange(eventUUID);
+                UUID roomUUID = eventManager.getEventRoom(eventUUID);
+
+                System.out.printf("  %s  %-30s %-20s %d/%d\n", timeRange, eventManager.getEventTitle(eventUUID),
+                        roomManager.getRoomLocation(roomUUID), eventManager.getEventAttendeeCount(eventUUID), roomManager.getRoomCapacity(roomUUID));
+            }
+
+            System.out.println();
+        }
+    }
+}
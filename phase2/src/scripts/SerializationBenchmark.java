@@ -0,0 +1,169 @@
+package scripts;
+
+import contact.ContactManager;
+import contact.ContactManagerCodec;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.conference.ConferenceManagerCodec;
+import convention.event.EventManager;
+import convention.room.RoomManager;
+import gateway.BinarySerializer;
+import gateway.ICodec;
+import gateway.Serializer;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import messaging.ConversationManagerCodec;
+import user.UserManager;
+import user.UserManagerCodec;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Compares the load/save time and file size of java serialization against the binary codecs on a generated dataset.
+ * <p>
+ * Usage: SerializationBenchmark [number of users] (defaults to 100000)
+ * <p>
+ * Files are written to the temporary directory so the real data files are never touched.
+ */
+public class SerializationBenchmark {
+    private static final int CONTACTS_PER_USER = 5;
+    private static final int USERS_PER_CONVERSATION = 10;
+    private static final int MESSAGES_PER_CONVERSATION = 10;
+    private static final int USERS_PER_CONFERENCE = 1000;
+    private static final int ROOMS_PER_CONFERENCE = 20;
+    private static final int EVENTS_PER_ROOM = 10;
+
+    public static void main(String[] args) {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Random random = new Random(207);
+
+        System.out.printf("Generating dataset with %d users...\n", userCount);
+
+        // Users
+        UserManager userManager = new UserManager();
+        List<UUID> userUUIDs = new ArrayList<>();
+
+        for (int i = 0; i < userCount; i++) {
+            userUUIDs.add(userManager.registerUser("First" + i, "Last" + i, "user" + i, "password" + i, false));
+        }
+
+        // Contacts
+        ContactManager contactManager = new ContactManager();
+
+        for (UUID userUUID : userUUIDs) {
+            Set<UUID> contacts = new HashSet<>();
+
+            for (int i = 0; i < CONTACTS_PER_USER; i++) {
+                contacts.add(userUUIDs.get(random.nextInt(userCount)));
+            }
+
+            contactManager.setContacts(userUUID, contacts);
+        }
+
+        // Conversations
+        ConversationManager conversationManager = new ConversationManager();
+        ConversationController conversationController = new ConversationController(contactManager, conversationManager, userManager);
+
+        for (int i = 0; i < userCount / 2; i++) {
+            Set<UUID> members = new HashSet<>();
+
+            for (int j = 0; j < USERS_PER_CONVERSATION; j++) {
+                members.add(userUUIDs.get(random.nextInt(userCount)));
+            }
+
+            UUID senderUUID = members.iterator().next();
+            UUID conversationUUID = conversationManager.createConversation("Conversation " + i, members, members, senderUUID, "Hello!");
+
+            for (int j = 1; j < MESSAGES_PER_CONVERSATION; j++) {
+                conversationController.sendMessage(senderUUID, "Message " + j, conversationUUID);
+            }
+        }
+
+        // Conferences
+        ConferenceManager conferenceManager = new ConferenceManager();
+        LocalDateTime conferenceStart = LocalDateTime.of(2021, 1, 1, 8, 0);
+
+        for (int i = 0; i < userCount / USERS_PER_CONFERENCE; i++) {
+            TimeRange conferenceTimeRange = new TimeRange(conferenceStart, conferenceStart.plusDays(7));
+            UUID conferenceUUID = conferenceManager.createConference("Conference " + i, conferenceTimeRange, userUUIDs.get(i));
+
+            RoomManager roomManager = conferenceManager.getRoomManager(conferenceUUID);
+            EventManager eventManager = conferenceManager.getEventManager(conferenceUUID);
+
+            for (int j = 0; j < USERS_PER_CONFERENCE; j++) {
+                conferenceManager.addAttendee(conferenceUUID, userUUIDs.get(i * USERS_PER_CONFERENCE + j));
+            }
+
+            for (int j = 0; j < ROOMS_PER_CONFERENCE; j++) {
+                UUID roomUUID = roomManager.createRoom("Room " + j, 100);
+
+                for (int k = 0; k < EVENTS_PER_ROOM; k++) {
+                    LocalDateTime eventStart = conferenceStart.plusHours(k * 2);
+                    TimeRange eventTimeRange = new TimeRange(eventStart, eventStart.plusHours(1));
+
+                    Set<UUID> speakers = new HashSet<>(Collections.singleton(userUUIDs.get(random.nextInt(userCount))));
+                    UUID eventUUID = eventManager.createEvent("Event " + k, eventTimeRange, roomUUID, speakers);
+
+                    roomManager.getCalendarManager(roomUUID).addTimeBlock(eventUUID, eventTimeRange);
+
+                    for (int a = 0; a < 50; a++) {
+                        eventManager.registerAttendee(eventUUID, userUUIDs.get(i * USERS_PER_CONFERENCE + random.nextInt(USERS_PER_CONFERENCE)));
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%-20s %-8s %10s %10s %12s\n", "Store", "Format", "Save (ms)", "Load (ms)", "Size (KB)");
+
+        compare("UserManager", userManager, new UserManager(), new UserManagerCodec());
+        compare("ContactManager", contactManager, new ContactManager(), new ContactManagerCodec());
+        compare("ConversationManager", conversationManager, new ConversationManager(), new ConversationManagerCodec());
+        compare("ConferenceManager", conferenceManager, new ConferenceManager(), new ConferenceManagerCodec());
+    }
+
+    /**
+     * Saves and loads a manager with both formats and prints the results
+     *
+     * @param name     name of the store
+     * @param manager  manager to save
+     * @param fallback fallback object for loading
+     * @param codec    binary codec of the manager
+     * @param <T>      type of the manager
+     */
+    private static <T> void compare(String name, T manager, T fallback, ICodec<T> codec) {
+        File serializedFile = new File(System.getProperty("java.io.tmpdir"), name + "-benchmark.ser");
+        File binaryFile = new File(System.getProperty("java.io.tmpdir"), name + "-benchmark.bin");
+
+        Serializer<T> serializer = new Serializer<>(serializedFile.getPath());
+        BinarySerializer<T> binarySerializer = new BinarySerializer<>(binaryFile.getPath(), codec);
+
+        long start = System.nanoTime();
+        serializer.save(manager);
+        long saveTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        serializer.load(fallback);
+        long loadTime = System.nanoTime() - start;
+
+        printRow(name, "java.io", saveTime, loadTime, serializedFile.length());
+
+        start = System.nanoTime();
+        binarySerializer.save(manager);
+        saveTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        binarySerializer.load(fallback);
+        loadTime = System.nanoTime() - start;
+
+        printRow(name, "binary", saveTime, loadTime, binaryFile.length());
+
+        serializedFile.delete();
+        binaryFile.delete();
+    }
+
+    private static void printRow(String name, String format, long saveNanos, long loadNanos, long bytes) {
+        System.out.printf("%-20s %-8s %10d %10d %12d\n", name, format, saveNanos / 1000000, loadNanos / 1000000, bytes / 1024);
+    }
+}
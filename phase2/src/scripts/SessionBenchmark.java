@@ -0,0 +1,114 @@
+package scripts;
+
+import user.SessionManager;
+import user.UserController;
+import user.UserManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Measures the session store with many users logged in at once.
+ * <p>
+ * Usage: SessionBenchmark [number of sessions] [number of threads] [seconds]
+ * (defaults to 10000, the number of processors and 5)
+ * <p>
+ * Every session belongs to a different user. Each thread looks up random sessions as the presenters do, and one lookup
+ * in 100 logs the user out and back in. Afterwards, every session is left idle and the time taken to expire them all is
+ * reported.
+ */
+public class SessionBenchmark {
+    private static final int RELOGIN_EVERY = 100;
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        System.out.printf("Logging in %d users...\n", sessionCount);
+
+        UserManager userManager = new UserManager();
+
+        // The clock only moves forward when sessions are left idle at the end
+        long[] offsetMillis = {0};
+        SessionManager sessionManager = new SessionManager(UserController.SESSION_IDLE_TIMEOUT_MILLIS, 1000, () -> System.currentTimeMillis() + offsetMillis[0]);
+        UserController userController = new UserController(userManager, sessionManager);
+
+        List<String[]> entries = new ArrayList<>();
+
+        for (int i = 0; i < sessionCount; i++) {
+            entries.add(new String[]{"First", "Last " + i, "user" + i, "password"});
+        }
+
+        userManager.registerUsers(entries, false);
+
+        AtomicReferenceArray<String> tokens = new AtomicReferenceArray<>(sessionCount);
+
+        for (int i = 0; i < sessionCount; i++) {
+            tokens.set(i, userController.login("user" + i, "password"));
+        }
+
+        System.out.printf("Running %d threads for %d seconds...\n", threadCount, seconds);
+
+        long[] lookups = new long[threadCount];
+        long[] misses = new long[threadCount];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+
+                while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+                    int i = random.nextInt(sessionCount);
+                    String token = tokens.get(i);
+                    UUID userUUID = userController.getSessionUser(token);
+
+                    // Another thread logged this user out and back in since the token was read
+                    if (userUUID == null) {
+                        misses[thread]++;
+                    }
+
+                    if (token != null && random.nextInt(RELOGIN_EVERY) == 0 && tokens.compareAndSet(i, token, null)) {
+                        userController.logout(token);
+                        tokens.set(i, userController.login("user" + i, "password"));
+                    }
+
+                    count++;
+                }
+
+                lookups[thread] = count;
+            }));
+        }
+
+        threads.forEach(Thread::start);
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long totalLookups = 0, totalMisses = 0;
+
+        for (int t = 0; t < threadCount; t++) {
+            totalLookups += lookups[t];
+            totalMisses += misses[t];
+        }
+
+        System.out.printf("%d lookups (%.0f per second), %d during a relogin\n", totalLookups, totalLookups / (double) seconds, totalMisses);
+        System.out.printf("%d sessions\n", sessionManager.getSessionCount());
+
+        offsetMillis[0] = UserController.SESSION_IDLE_TIMEOUT_MILLIS + 2000;
+
+        long start = System.nanoTime();
+        int expired = sessionManager.expireIdleSessions();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Expired %d idle sessions in %.2f ms, %d left\n", expired, elapsed / 1e6, sessionManager.getSessionCount());
+    }
+}
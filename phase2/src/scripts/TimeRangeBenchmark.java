@@ -0,0 +1,173 @@
+package scripts;
+
+import convention.calendar.TimeRange;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Compares the overlap and day tests of TimeRange against the previous LocalDateTime-based implementation, which is
+ * kept below as LegacyTimeRange.
+ * <p>
+ * Usage: TimeRangeBenchmark [number of time ranges] [number of rounds] (defaults to 10000 and 20)
+ * <p>
+ * Each round tests every pair of a sample of ranges for overlap and every range against a window of days, one day at a
+ * time as getDayEvents does. The first half of the rounds are warmup and are not reported.
+ */
+public class TimeRangeBenchmark {
+    private static final int PAIRS_PER_RANGE = 100;
+    private static final int DAYS = 30;
+
+    public static void main(String[] args) {
+        int rangeCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random random = new Random(207);
+
+        LocalDateTime origin = LocalDateTime.of(2021, 1, 1, 0, 0);
+        TimeRange[] timeRanges = new TimeRange[rangeCount];
+        LegacyTimeRange[] legacyTimeRanges = new LegacyTimeRange[rangeCount];
+
+        for (int i = 0; i < rangeCount; i++) {
+            LocalDateTime start = origin.plusMinutes(random.nextInt(DAYS * 24 * 60));
+            LocalDateTime end = start.plusMinutes(30 + random.nextInt(6 * 60));
+
+            timeRanges[i] = new TimeRange(start, end);
+            legacyTimeRanges[i] = new LegacyTimeRange(start, end);
+        }
+
+        LocalDate[] days = new LocalDate[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            days[i] = origin.toLocalDate().plusDays(i);
+        }
+
+        long overlapNanos = 0, legacyOverlapNanos = 0, dayNanos = 0, legacyDayNanos = 0;
+        long checksum = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            boolean measured = round >= rounds / 2;
+
+            long start = System.nanoTime();
+            checksum += countOverlaps(timeRanges);
+            long elapsed = System.nanoTime() - start;
+            if (measured) overlapNanos += elapsed;
+
+            start = System.nanoTime();
+            checksum -= countLegacyOverlaps(legacyTimeRanges);
+            elapsed = System.nanoTime() - start;
+            if (measured) legacyOverlapNanos += elapsed;
+
+            start = System.nanoTime();
+            checksum += countInDay(timeRanges, days);
+            elapsed = System.nanoTime() - start;
+            if (measured) dayNanos += elapsed;
+
+            start = System.nanoTime();
+            checksum -= countLegacyInDay(legacyTimeRanges, days);
+            elapsed = System.nanoTime() - start;
+            if (measured) legacyDayNanos += elapsed;
+        }
+
+        if (checksum != 0) {
+            throw new IllegalStateException("TimeRange and LegacyTimeRange disagree");
+        }
+
+        int measuredRounds = rounds - rounds / 2;
+        long overlapOps = (long) rangeCount * PAIRS_PER_RANGE * measuredRounds;
+        long dayOps = (long) rangeCount * DAYS * measuredRounds;
+
+        System.out.printf("%-12s %-8s %12s\n", "Operation", "Impl", "ns/op");
+        printRow("hasOverlap", "legacy", legacyOverlapNanos, overlapOps);
+        printRow("hasOverlap", "epoch", overlapNanos, overlapOps);
+        printRow("isInDay", "legacy", legacyDayNanos, dayOps);
+        printRow("isInDay", "epoch", dayNanos, dayOps);
+    }
+
+    private static int countOverlaps(TimeRange[] timeRanges) {
+        int count = 0;
+
+        for (int i = 0; i < timeRanges.length; i++) {
+            for (int j = 1; j <= PAIRS_PER_RANGE; j++) {
+                if (timeRanges[i].hasOverlap(timeRanges[(i + j) % timeRanges.length])) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int countLegacyOverlaps(LegacyTimeRange[] timeRanges) {
+        int count = 0;
+
+        for (int i = 0; i < timeRanges.length; i++) {
+            for (int j = 1; j <= PAIRS_PER_RANGE; j++) {
+                if (timeRanges[i].hasOverlap(timeRanges[(i + j) % timeRanges.length])) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int countInDay(TimeRange[] timeRanges, LocalDate[] days) {
+        int count = 0;
+
+        for (LocalDate day : days) {
+            long epochDay = day.toEpochDay();
+
+            for (TimeRange timeRange : timeRanges) {
+                if (timeRange.isInDay(epochDay)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int countLegacyInDay(LegacyTimeRange[] timeRanges, LocalDate[] days) {
+        int count = 0;
+
+        for (LocalDate day : days) {
+            for (LegacyTimeRange timeRange : timeRanges) {
+                if (timeRange.isInDay(day)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static void printRow(String operation, String implementation, long nanos, long ops) {
+        System.out.printf("%-12s %-8s %12.2f\n", operation, implementation, (double) nanos / ops);
+    }
+
+    /**
+     * The LocalDateTime-based TimeRange tests, as they were before TimeRange stored epoch seconds
+     */
+    private static class LegacyTimeRange {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        LegacyTimeRange(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean hasOverlap(LegacyTimeRange otherTimeRange) {
+            boolean otherIsBefore = otherTimeRange.start.isBefore(start) && otherTimeRange.end.isBefore(start);
+            boolean otherIsAfter = otherTimeRange.start.isAfter(end) && otherTimeRange.end.isAfter(end);
+
+            return !otherIsBefore && !otherIsAfter;
+        }
+
+        boolean isInDay(LocalDate date) {
+            return end.toLocalDate().equals(date)
+                    || start.toLocalDate().equals(date)
+                    || (start.toLocalDate().isBefore(date) & end.toLocalDate().isAfter(date));
+        }
+    }
+}
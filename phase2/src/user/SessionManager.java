@@ -0,0 +1,236 @@
+package user;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread safe store of login sessions, so one backend can serve many signed in users at once. Each session is
+ * identified by a random token and ends after it has been idle for the idle timeout.
+ * <p>
+ * Looking up a session only reads a concurrent map and writes the session's last access time, without locking. Idle
+ * sessions are found with a timing wheel: each session is filed under the tick it would expire at if it wasn't used
+ * again, and sweeping only looks at the slots of the ticks that have passed. Sessions that were used since they were
+ * filed are filed again under their new expiry tick instead of being ended. Creating or looking up a session sweeps
+ * the slots that have passed since the last sweep, which costs a clock read and a comparison when no tick has passed,
+ * so idle sessions are ended while the system is in use even if nobody logs in.
+ */
+public class SessionManager {
+    private static final int TOKEN_BYTES = 24;
+
+    private final SecureRandom random = new SecureRandom();
+    private final LongSupplier clock;
+    private final long idleTimeoutMillis;
+    private final long tickMillis;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // Slot i holds the tokens of sessions expiring at a tick t with t % wheel.size() == i. The wheel spans more than the
+    // idle timeout, so a session that is still active is never filed again under the slot being swept.
+    private final List<Set<String>> wheel;
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweptTick;
+
+    /**
+     * A signed in user, and when they last used their session
+     */
+    private static class Session {
+        private final UUID userUUID;
+        private volatile long lastAccessMillis;
+
+        private Session(UUID userUUID, long lastAccessMillis) {
+            this.userUUID = userUUID;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    /**
+     * Creates a session store using the system clock
+     *
+     * @param idleTimeoutMillis how long a session can go unused before it ends, in milliseconds
+     */
+    public SessionManager(long idleTimeoutMillis) {
+        this(idleTimeoutMillis, Math.max(1, idleTimeoutMillis / 64), System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a session store
+     *
+     * @param idleTimeoutMillis how long a session can go unused before it ends, in milliseconds
+     * @param tickMillis        resolution of the timing wheel, in milliseconds
+     * @param clock             source of the current time, in milliseconds
+     */
+    public SessionManager(long idleTimeoutMillis, long tickMillis, LongSupplier clock) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+
+        int slotCount = (int) (idleTimeoutMillis / tickMillis) + 3;
+        wheel = new ArrayList<>(slotCount);
+
+        for (int i = 0; i < slotCount; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+
+        lastSweptTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Starts a session for a user that has already been authenticated
+     *
+     * @param userUUID UUID of the user
+     * @return token of the new session
+     */
+    public String createSession(UUID userUUID) {
+        expireIdleSessions();
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        long now = clock.getAsLong();
+        sessions.put(token, new Session(userUUID, now));
+        schedule(token, now);
+
+        return token;
+    }
+
+    /**
+     * Gets the user of a session, and marks the session as used
+     *
+     * @param token token of the session
+     * @return UUID of the signed in user, or null if there is no such session or it has expired
+     */
+    public UUID getUser(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        expireIdleSessions();
+
+        Session session = sessions.get(token);
+
+        if (session == null) {
+            return null;
+        }
+
+        long now = clock.getAsLong();
+
+        // Sweeping can lag behind, so expiry is also checked here
+        if (now - session.lastAccessMillis > idleTimeoutMillis) {
+            sessions.remove(token, session);
+            return null;
+        }
+
+        session.lastAccessMillis = now;
+        return session.userUUID;
+    }
+
+    /**
+     * Ends a session (i.e. when the user logs out)
+     *
+     * @param token token of the session
+     * @return true iff the session existed
+     */
+    public boolean endSession(String token) {
+        // The token stays in its wheel slot until that slot is swept
+        return token != null && sessions.remove(token) != null;
+    }
+
+    /**
+     * Ends every session of a user (i.e. when their password changes)
+     *
+     * @param userUUID UUID of the user
+     */
+    public void endSessions(UUID userUUID) {
+        sessions.values().removeIf(session -> session.userUUID.equals(userUUID));
+    }
+
+    /**
+     * Gets the number of sessions, including idle sessions that haven't been swept yet
+     *
+     * @return number of sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Ends the sessions that have been idle for longer than the idle timeout. Only one thread sweeps at a time, other
+     * threads return straight away.
+     *
+     * @return number of sessions ended
+     */
+    public int expireIdleSessions() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+
+        if (currentTick <= lastSweptTick || !sweeping.compareAndSet(false, true)) {
+            return 0;
+        }
+
+        int expired = 0;
+
+        try {
+            // Going around the wheel once covers every slot
+            long firstTick = Math.max(lastSweptTick + 1, currentTick - wheel.size() + 1);
+
+            for (long tick = firstTick; tick <= currentTick; tick++) {
+                int slotIndex = (int) (tick % wheel.size());
+                Set<String> slot = wheel.get(slotIndex);
+
+                for (String token : slot) {
+                    Session session = sessions.get(token);
+
+                    if (session == null) {
+                        slot.remove(token);
+                    } else if (now - session.lastAccessMillis > idleTimeoutMillis) {
+                        slot.remove(token);
+
+                        if (sessions.remove(token, session)) {
+                            expired++;
+                        }
+                    } else if (slotOf(session.lastAccessMillis) != slotIndex) {
+                        slot.remove(token);
+                        wheel.get(slotOf(session.lastAccessMillis)).add(token);
+                    }
+                }
+            }
+
+            lastSweptTick = currentTick;
+        } finally {
+            sweeping.set(false);
+        }
+
+        return expired;
+    }
+
+    /**
+     * Files a session under the tick it expires at if it isn't used again
+     *
+     * @param token            token of the session
+     * @param lastAccessMillis when the session was last used
+     */
+    private void schedule(String token, long lastAccessMillis) {
+        wheel.get(slotOf(lastAccessMillis)).add(token);
+    }
+
+    /**
+     * Gets the wheel slot of the tick a session expires at if it isn't used again
+     *
+     * @param lastAccessMillis when the session was last used
+     * @return index of the slot in the wheel
+     */
+    private int slotOf(long lastAccessMillis) {
+        // The first tick that ends strictly after the expiry time
+        long expiryTick = (lastAccessMillis + idleTimeoutMillis) / tickMillis + 1;
+        return (int) (expiryTick % wheel.size());
+    }
+}
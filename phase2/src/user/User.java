@@ -7,6 +7,8 @@ import java.util.UUID;
  * Stores name, username, password, UUID of a user
  */
 class User implements Serializable {
+    private static final long serialVersionUID = 8168763426448050140L;
+
 
     private String firstName;
     private String lastName;
@@ -27,11 +29,25 @@ class User implements Serializable {
      * @param isGod     whether a user is a god
      */
     User(String firstName, String lastName, String username, String password, boolean isGod) {
+        this(UUID.randomUUID(), firstName, lastName, username, password, isGod);
+    }
+
+    /**
+     * Constructor for User with an existing UUID (i.e. when loading a user from disk)
+     *
+     * @param uuid      UUID of the user
+     * @param firstName first name of the user
+     * @param lastName  last name of the user
+     * @param username  username the user wants to keep
+     * @param password  password of the user
+     * @param isGod     whether a user is a god
+     */
+    User(UUID uuid, String firstName, String lastName, String username, String password, boolean isGod) {
         this.firstName = firstName;
         this.lastName = lastName;
         this.username = username;
         this.password = password;
-        this.uuid = UUID.randomUUID();
+        this.uuid = uuid;
         this.isGod = isGod;
     }
 
@@ -1,5 +1,6 @@
 package user;
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -9,16 +10,20 @@ public class UserController {
      * Responsibilities:
      * <p>
      * - Stores an instance of UserManager
-     * - Handles login (i.e. tags in a username + password pair and returns whether or not the login was successful
-     * - Saves a copy of the logged in user's UUID in UserController
+     * - Handles login (i.e. tags in a username + password pair and returns a session token if the login was successful)
+     * - Keeps a session for every logged in user, so several users can be logged in at once
      * <p>
-     * - Getter for the logged in user's UUID
+     * - Getter for the UUID of the user of a session
      * <p>
-     * - Handles logout (i.e. erases the UUID of the logged in user)
+     * - Handles logout (i.e. ends the session of the logged in user)
      * - Handles account registration (i.e. given a username + password pair, create a user)
      */
 
+    // Sessions end after 30 minutes without being used
+    public static final long SESSION_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
     UserManager userManager;
+    SessionManager sessionManager;
 
     /**
      * Creating an instance of the UserManager class
@@ -26,7 +31,18 @@ public class UserController {
      * @param userManager instance of the class
      */
     public UserController(UserManager userManager) {
+        this(userManager, new SessionManager(SESSION_IDLE_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Creating an instance of the UserManager class with its own session store
+     *
+     * @param userManager    instance of the class
+     * @param sessionManager store of the sessions of logged in users
+     */
+    public UserController(UserManager userManager, SessionManager sessionManager) {
         this.userManager = userManager;
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -120,13 +136,14 @@ public class UserController {
     }
 
     /**
-     * Setter for password
+     * Setter for password. Ends every session of the user, so they have to log in again with the new password.
      *
      * @param userUUID unique user id
      * @param password user's password
      */
     public void setUserPassword(UUID userUUID, String password) {
         userManager.setUserPassword(userUUID, password);
+        sessionManager.endSessions(userUUID);
     }
 
     /**
@@ -147,26 +164,35 @@ public class UserController {
      *
      * @param username user's username
      * @param password user's password
-     * @return the user id of the logged in User
+     * @return token of the new session, or null if the credentials don't match
      */
-    public UUID login(String username, String password) {
-        return userManager.login(username, password);
+    public String login(String username, String password) {
+        UUID userUUID = userManager.login(username, password);
+
+        if (userUUID == null) {
+            return null;
+        }
+
+        return sessionManager.createSession(userUUID);
     }
 
     /**
-     * Logout the user
+     * Logout the user of a session
+     *
+     * @param sessionToken token of the session
      */
-    public void logout() {
-        userManager.clearCurrentUser();
+    public void logout(String sessionToken) {
+        sessionManager.endSession(sessionToken);
     }
 
     /**
-     * Returns the UUID
+     * Returns the UUID of the user of a session
      *
-     * @return UUID of the logged in user
+     * @param sessionToken token of the session
+     * @return UUID of the logged in user, or null if the session has ended
      */
-    public UUID getCurrentUser() {
-        return userManager.getSignedInUserUUID();
+    public UUID getSessionUser(String sessionToken) {
+        return sessionManager.getUser(sessionToken);
     }
 
     /**
@@ -178,5 +204,17 @@ public class UserController {
         return userManager.getAllUsers();
     }
 
+    /**
+     * Finds users whose first name, last name or username has a word starting with each word of a query
+     *
+     * @param query      words to search for, in any case
+     * @param limit      maximum number of users to return
+     * @param restrictTo UUIDs of the users that can be returned, or null to search every user
+     * @return list of at most limit matching user UUIDs
+     */
+    public List<UUID> searchUsers(String query, int limit, Set<UUID> restrictTo) {
+        return userManager.searchUsers(query, limit, restrictTo);
+    }
+
 }
 
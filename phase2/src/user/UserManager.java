@@ -1,26 +1,41 @@
 package user;
 
+import gateway.AbstractEntityStore;
 import user.exception.NullUserException;
+import user.exception.UsernameTakenException;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
 /**
  * manages the user entity
  */
-public class UserManager implements Serializable {
+public class UserManager extends AbstractEntityStore {
+    private static final long serialVersionUID = -110200571554682946L;
+
 
     /**
      * Responsibilities:
      * - Stores a map of UUID -> User objects (i.e. instances of User)
      * - Method to create a user + add it to the map
-     * - Method to test a username/password combination + loop through the users to see if there's a match
-     * - Method to logout the user
+     * - Method to test a username/password combination + look up the user with that username
      */
 
-    private UUID signedInUserUUID;
     private Map<UUID, User> userMap = new HashMap<>();
 
+    // Index from normalized username to user UUID, so login and registration don't need to go through every user. It
+    // isn't persisted, importEntity and readObject rebuild it as users are loaded.
+    private transient Map<String, UUID> usernameToUUID = new HashMap<>();
+
+    // Users whose normalized username is held by another user in the username index (i.e. data saved before usernames
+    // were compared ignoring case), so one of them can take it over when that user is removed or renamed
+    private transient Map<String, Set<UUID>> shadowedUsernames = new HashMap<>();
+
+    // Index of the words in the names of users for searchUsers, rebuilt the same way
+    private transient UserSearchIndex searchIndex = new UserSearchIndex();
+
     /**
      * Returns the full name
      *
@@ -38,7 +53,10 @@ public class UserManager implements Serializable {
      * @param firstName user's first name
      */
     public void setUserFirstName(UUID userUUID, String firstName) {
-        getUser(userUUID).setFirstName(firstName);
+        User user = getUser(userUUID);
+        user.setFirstName(firstName);
+        indexNames(user);
+        notifyChange(userUUID);
     }
 
     /**
@@ -58,7 +76,10 @@ public class UserManager implements Serializable {
      * @param lastName user's last name
      */
     public void setUserLastName(UUID userUUID, String lastName) {
-        getUser(userUUID).setLastName(lastName);
+        User user = getUser(userUUID);
+        user.setLastName(lastName);
+        indexNames(user);
+        notifyChange(userUUID);
     }
 
     /**
@@ -72,13 +93,34 @@ public class UserManager implements Serializable {
     }
 
     /**
-     * Setter for user's username
+     * Setter for user's username. Throws UsernameTakenException if another user has that username, ignoring case.
      *
      * @param userUUID unique user id
      * @param username user's username
      */
     public void setUserUsername(UUID userUUID, String username) {
-        getUser(userUUID).setUsername(username);
+        User user = getUser(userUUID);
+        UUID ownerUUID = usernameToUUID.get(normalizeUsername(username));
+
+        if (ownerUUID != null && !ownerUUID.equals(userUUID)) {
+            throw new UsernameTakenException(username);
+        }
+
+        // Changing the case of a username keeps its place in the username index
+        boolean keyChanged = !normalizeUsername(user.getUsername()).equals(normalizeUsername(username));
+
+        if (keyChanged) {
+            unindexUsername(user);
+        }
+
+        user.setUsername(username);
+
+        if (keyChanged) {
+            indexUsername(user);
+        }
+
+        indexNames(user);
+        notifyChange(userUUID);
     }
 
     /**
@@ -109,6 +151,7 @@ public class UserManager implements Serializable {
      */
     public void setUserPassword(UUID userUUID, String password) {
         getUser(userUUID).setPassword(password);
+        notifyChange(userUUID);
     }
 
     /**
@@ -137,17 +180,88 @@ public class UserManager implements Serializable {
     /**
      * Returns a user
      *
-     * @param username of the user
+     * @param username of the user, in any case
      * @return the user given their username
      */
     private User getUserByUsername(String username) {
-        for (User user : userMap.values()) {
-            if (user.getUsername().equals(username)) {
-                return user;
+        UUID userUUID = usernameToUUID.get(normalizeUsername(username));
+        return userUUID == null ? null : userMap.get(userUUID);
+    }
+
+    /**
+     * Normalizes a username for the username index, so usernames that only differ in case are the same
+     *
+     * @param username username to normalize
+     * @return the key of the username in the username index
+     */
+    private static String normalizeUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a user to the username index. If another user already has the username (i.e. data saved before usernames
+     * were compared ignoring case), the first user keeps it and this one is shadowed until it is freed.
+     *
+     * @param user user to index
+     */
+    private void indexUsername(User user) {
+        String key = normalizeUsername(user.getUsername());
+        UUID ownerUUID = usernameToUUID.putIfAbsent(key, user.getUuid());
+
+        if (ownerUUID != null && !ownerUUID.equals(user.getUuid())) {
+            shadowedUsernames.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(user.getUuid());
+        }
+    }
+
+    /**
+     * Adds or updates a user in the search index
+     *
+     * @param user user to index
+     */
+    private void indexNames(User user) {
+        searchIndex.addUser(user.getUuid(), user.getFirstName(), user.getLastName(), user.getUsername());
+    }
+
+    /**
+     * Finds users whose first name, last name or username has a word starting with each word of a query, i.e. "ja
+     * sm" finds Jane Smith.
+     *
+     * @param query      words to search for, in any case
+     * @param limit      maximum number of users to return
+     * @param restrictTo UUIDs of the users that can be returned, or null to search every user
+     * @return list of at most limit matching user UUIDs
+     */
+    public List<UUID> searchUsers(String query, int limit, Set<UUID> restrictTo) {
+        return searchIndex.search(query, limit, restrictTo);
+    }
+
+    /**
+     * Removes a user from the username index. If the user held a username that other users also have, the first of
+     * them takes it over.
+     *
+     * @param user user to remove
+     */
+    private void unindexUsername(User user) {
+        String key = normalizeUsername(user.getUsername());
+        Set<UUID> shadowedUUIDs = shadowedUsernames.get(key);
+
+        if (!usernameToUUID.remove(key, user.getUuid())) {
+            if (shadowedUUIDs != null && shadowedUUIDs.remove(user.getUuid()) && shadowedUUIDs.isEmpty()) {
+                shadowedUsernames.remove(key);
             }
+
+            return;
         }
 
-        return null;
+        if (shadowedUUIDs != null) {
+            Iterator<UUID> iterator = shadowedUUIDs.iterator();
+            usernameToUUID.put(key, iterator.next());
+            iterator.remove();
+
+            if (shadowedUUIDs.isEmpty()) {
+                shadowedUsernames.remove(key);
+            }
+        }
     }
 
     /**
@@ -158,19 +272,17 @@ public class UserManager implements Serializable {
      * @param username  user name of the user
      * @param password  password of the user
      * @param isGod     whether this user has god mode
-     * @param autoLogin whether to automatically login as this new user
-     * @return the unique user id of the registered user
+     * @return the unique user id of the registered user, or null if the username is taken (ignoring case)
      */
-    public UUID registerUser(String firstName, String lastName, String username, String password, boolean isGod, boolean autoLogin) {
+    public UUID registerUser(String firstName, String lastName, String username, String password, boolean isGod) {
         if (getUserByUsername(username) == null) {
             User newUser = new User(firstName, lastName, username, password, isGod);
             UUID newUserUUID = newUser.getUuid();
 
             userMap.put(newUserUUID, newUser);
-
-            if (autoLogin) {
-                signedInUserUUID = newUserUUID;
-            }
+            indexUsername(newUser);
+            indexNames(newUser);
+            notifyChange(newUserUUID);
 
             return newUserUUID;
         }
@@ -188,7 +300,25 @@ public class UserManager implements Serializable {
      * @return the unique user id of the registered user
      */
     public UUID registerUser(String firstName, String lastName, String username, String password) {
-        return registerUser(firstName, lastName, username, password, false, true);
+        return registerUser(firstName, lastName, username, password, false);
+    }
+
+    /**
+     * Registers a batch of users. Only user names which are not already registered are added.
+     *
+     * @param entries list of string arrays containing the user details, in the order first name, last name, username,
+     *                password
+     * @param isGod   whether the users have god mode
+     * @return the UUID of each new user in the order of the entries, or null where the username was taken
+     */
+    public List<UUID> registerUsers(List<String[]> entries, boolean isGod) {
+        List<UUID> newUserUUIDs = new ArrayList<>(entries.size());
+
+        for (String[] entry : entries) {
+            newUserUUIDs.add(registerUser(entry[0], entry[1], entry[2], entry[3], isGod));
+        }
+
+        return newUserUUIDs;
     }
 
     /**
@@ -199,33 +329,25 @@ public class UserManager implements Serializable {
      * @return set of the UUIDs of the new god users
      */
     public Set<UUID> loadGodUsers(List<String[]> entries) {
-        Set<UUID> newGodUserUUIDs = new HashSet<>();
+        Set<UUID> newGodUserUUIDs = new HashSet<>(registerUsers(entries, true));
 
-        // Columns are in this order: First Name, Last Name, Username, Password
-        for (String[] entry : entries) {
-
-            // Test if the god user was created successfully
-            UUID newUUID;
-            if ((newUUID = registerUser(entry[0], entry[1], entry[2], entry[3], true, false)) != null) {
-                newGodUserUUIDs.add(newUUID);
-            }
-        }
+        // Usernames that were already registered
+        newGodUserUUIDs.remove(null);
 
         return newGodUserUUIDs;
     }
 
     /**
-     * Method for login of already registered users
+     * Checks the credentials of a user. Signed in users are tracked by the sessions of the SessionManager, not here.
      *
      * @param username user name of the user
      * @param password password of the user
-     * @return the user id of the user of the credentials match
+     * @return the user id of the user if the credentials match, or null otherwise
      */
     public UUID login(String username, String password) {
         User user = getUserByUsername(username);
 
         if (user != null && user.getPassword().equals(password)) {
-            signedInUserUUID = user.getUuid();
             return user.getUuid();
         }
 
@@ -233,29 +355,69 @@ public class UserManager implements Serializable {
     }
 
     /**
-     * Sets the current user to null when logged out
+     * Returns a set of UUID's of all users
+     *
+     * @return a set of all users registered
      */
-    public void clearCurrentUser() {
-        signedInUserUUID = null;
+    public Set<UUID> getAllUsers() {
+        return new HashSet<>(userMap.keySet());
     }
 
     /**
-     * Returns the id of a user
+     * Gets a copy of the user for persistence
      *
-     * @return the UUID of a user
+     * @param userUUID UUID of the user
+     * @return the User object, or null if it doesn't exist
      */
-    public UUID getSignedInUserUUID() {
-        return signedInUserUUID;
+    @Override
+    public Serializable exportEntity(UUID userUUID) {
+        return userMap.get(userUUID);
     }
 
     /**
-     * Returns a set of UUID's of all users
+     * Replaces a user with a persisted copy
      *
-     * @return a set of all users registered
+     * @param userUUID UUID of the user
+     * @param entity   User object, or null to remove the user
      */
-    public Set<UUID> getAllUsers() {
-        return new HashSet<>(userMap.keySet());
+    @Override
+    public void importEntity(UUID userUUID, Serializable entity) {
+        User newUser = (User) entity;
+        User oldUser = newUser == null ? userMap.remove(userUUID) : userMap.put(userUUID, newUser);
+
+        // A user that keeps its username (ignoring case) keeps its place in the username index
+        boolean keyChanged = oldUser == null || newUser == null || !normalizeUsername(oldUser.getUsername()).equals(normalizeUsername(newUser.getUsername()));
+
+        if (oldUser != null) {
+            if (keyChanged) {
+                unindexUsername(oldUser);
+            }
+
+            searchIndex.removeUser(userUUID);
+        }
+
+        if (newUser != null) {
+            if (keyChanged) {
+                indexUsername(newUser);
+            }
+
+            indexNames(newUser);
+        }
     }
 
-}
+    /**
+     * Rebuilds the username and search indexes after loading this manager with Java serialization
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
 
+        usernameToUUID = new HashMap<>();
+        shadowedUsernames = new HashMap<>();
+        searchIndex = new UserSearchIndex();
+
+        for (User user : userMap.values()) {
+            indexUsername(user);
+            indexNames(user);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package user;
+
+import gateway.BinaryReader;
+import gateway.BinaryWriter;
+import gateway.IEntityCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes a UserManager in the binary storage format
+ * <p>
+ * Layout: [int user count][users...], where each user is [UUID][first name][last name][username][password][boolean god].
+ * Version 1 started with the UUID of the signed in user, which is skipped when reading it.
+ */
+public class UserManagerCodec implements IEntityCodec<UserManager> {
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public Set<UUID> getEntityUUIDs(UserManager userManager) {
+        return userManager.getAllUsers();
+    }
+
+    @Override
+    public void writeEntity(UUID userUUID, Serializable entity, BinaryWriter out) throws IOException {
+        User user = (User) entity;
+
+        out.writeUUID(user.getUuid());
+        out.writeString(user.getFirstName());
+        out.writeString(user.getLastName());
+        out.writeString(user.getUsername());
+        out.writeString(user.getPassword());
+        out.writeBoolean(user.getIsGod());
+    }
+
+    @Override
+    public UserManager read(BinaryReader in) throws IOException {
+        return read(in, getVersion());
+    }
+
+    @Override
+    public UserManager read(BinaryReader in, int version) throws IOException {
+        if (version < 1 || version > getVersion()) {
+            return null;
+        }
+
+        UserManager userManager = new UserManager();
+
+        if (version == 1) {
+            // Signed in user
+            in.readUUID();
+        }
+
+        int userCount = in.readInt();
+
+        for (int i = 0; i < userCount; i++) {
+            User user = new User(in.readUUID(), in.readString(), in.readString(), in.readString(), in.readString(), in.readBoolean());
+            userManager.importEntity(user.getUuid(), user);
+        }
+
+        return userManager;
+    }
+}
@@ -0,0 +1,166 @@
+package user;
+
+import java.util.*;
+
+/**
+ * Index of the words in the names and usernames of users, so users can be found by typing the start of any of their
+ * names instead of going through every user.
+ * <p>
+ * Words are kept in sorted order, so all the words starting with a prefix are one range of the map.
+ */
+class UserSearchIndex {
+    // Searches restricted to at most this many users test each of them instead of using the index
+    private static final int SCAN_THRESHOLD = 1024;
+
+    private final TreeMap<String, Set<UUID>> wordToUserUUIDs = new TreeMap<>();
+    private final Map<UUID, Set<String>> userToWords = new HashMap<>();
+
+    /**
+     * Splits text into lower case words
+     *
+     * @param text text to split
+     * @return the words of the text
+     */
+    private static List<String> toWords(String text) {
+        List<String> words = new ArrayList<>();
+
+        for (String word : text.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Adds a user to the index, replacing what was indexed for them before
+     *
+     * @param userUUID UUID of the user
+     * @param names    names of the user to index (i.e. first name, last name and username)
+     */
+    void addUser(UUID userUUID, String... names) {
+        removeUser(userUUID);
+
+        Set<String> words = new HashSet<>();
+
+        for (String name : names) {
+            words.addAll(toWords(name));
+        }
+
+        for (String word : words) {
+            wordToUserUUIDs.computeIfAbsent(word, k -> new HashSet<>()).add(userUUID);
+        }
+
+        userToWords.put(userUUID, words);
+    }
+
+    /**
+     * Removes a user from the index
+     *
+     * @param userUUID UUID of the user
+     */
+    void removeUser(UUID userUUID) {
+        Set<String> words = userToWords.remove(userUUID);
+
+        if (words == null) {
+            return;
+        }
+
+        for (String word : words) {
+            Set<UUID> userUUIDs = wordToUserUUIDs.get(word);
+            userUUIDs.remove(userUUID);
+
+            if (userUUIDs.isEmpty()) {
+                wordToUserUUIDs.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Tests if every word of a query is the start of one of the words of a user
+     *
+     * @param userUUID   UUID of the user
+     * @param queryWords words of the query
+     * @return true iff the user matches the query
+     */
+    private boolean matches(UUID userUUID, List<String> queryWords) {
+        Set<String> words = userToWords.get(userUUID);
+
+        if (words == null) {
+            return false;
+        }
+
+        for (String queryWord : queryWords) {
+            boolean found = false;
+
+            for (String word : words) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the users that have a word starting with each word of a query
+     *
+     * @param query      words to search for, in any case
+     * @param limit      maximum number of users to return
+     * @param restrictTo UUIDs of the users that can be returned, or null to search every user
+     * @return list of at most limit matching user UUIDs
+     */
+    List<UUID> search(String query, int limit, Set<UUID> restrictTo) {
+        List<String> queryWords = toWords(query);
+        Set<UUID> results = new LinkedHashSet<>();
+
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        if (restrictTo != null && (queryWords.isEmpty() || restrictTo.size() <= SCAN_THRESHOLD)) {
+            for (UUID userUUID : restrictTo) {
+                if (matches(userUUID, queryWords)) {
+                    results.add(userUUID);
+
+                    if (results.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        } else if (queryWords.isEmpty()) {
+            for (UUID userUUID : userToWords.keySet()) {
+                results.add(userUUID);
+
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+        } else {
+            // The longest word usually has the fewest users starting with it
+            String prefix = Collections.max(queryWords, Comparator.comparingInt(String::length));
+
+            search:
+            for (Set<UUID> userUUIDs : wordToUserUUIDs.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (UUID userUUID : userUUIDs) {
+                    if ((restrictTo == null || restrictTo.contains(userUUID)) && matches(userUUID, queryWords)) {
+                        results.add(userUUID);
+
+                        if (results.size() >= limit) {
+                            break search;
+                        }
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<>(results);
+    }
+}
@@ -5,17 +5,35 @@ import convention.RoomController;
 import convention.calendar.TimeRange;
 import convention.conference.ConferenceManager;
 import convention.exception.*;
+import convention.importer.IUserImportListener;
+import convention.importer.UserImporter;
+import gateway.CSVReader;
 import messaging.ConversationController;
 import messaging.ConversationManager;
+import messaging.MessageView;
 import org.junit.Before;
 import org.junit.Test;
+import user.SessionManager;
+import user.UserController;
 import user.UserManager;
-
+import user.exception.UsernameTakenException;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -40,6 +58,7 @@ public class ConferenceTest {
     String eventNameA = "Event A";
     String eventNameB = "Event B";
     String roomA = "Room A";
+    String roomB = "Room B";
 
     LocalDateTime dateG = LocalDateTime.of(2015,
             Month.JULY, 29, 19, 30, 40);
@@ -83,8 +102,8 @@ public class ConferenceTest {
 
         // Convention controllers
         conversationController = new ConversationController(contactManager, conversationManager, userManager);
-        roomController = new RoomController(conferenceManager, userManager);
         eventController = new EventController(conferenceManager, conversationManager, userManager);
+        roomController = new RoomController(eventController, conferenceManager, userManager);
         conferenceController = new ConferenceController(conversationManager, eventController, conferenceManager, userManager);
 
         someAttendee = userManager.registerUser("A", "A", "A", "A");
@@ -481,6 +500,83 @@ public class ConferenceTest {
         eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
     }
 
+    @Test(timeout = 500)
+    public void testEventWaitlistPromotion() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 1);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeB);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeC);
+
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+
+        try {
+            eventController.registerForEvent(conferenceUUID, someAttendeeB, someAttendeeB, eventUUID);
+            fail();
+        } catch (FullEventException e) {
+            // Expected
+        }
+
+        assertEquals(1, eventController.joinWaitlist(conferenceUUID, someAttendeeB, someAttendeeB, eventUUID));
+        assertEquals(2, eventController.joinWaitlist(conferenceUUID, someAttendeeC, someAttendeeC, eventUUID));
+        assertEquals(2, eventController.getWaitlistSize(conferenceUUID, someAttendee, eventUUID));
+
+        // The freed seat goes to the front of the waitlist
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        assertTrue(eventController.isRegistered(conferenceUUID, someAttendeeB, eventUUID));
+        assertEquals(1, eventController.getWaitlistPosition(conferenceUUID, someAttendeeC, someAttendeeC, eventUUID));
+
+        // So do new seats
+        roomController.setRoomCapacity(conferenceUUID, myUser, roomUUID, 2);
+        assertTrue(eventController.isRegistered(conferenceUUID, someAttendeeC, eventUUID));
+        assertEquals(0, eventController.getWaitlistSize(conferenceUUID, someAttendee, eventUUID));
+    }
+
+    @Test(timeout = 10000)
+    public void testControllerRegistrationCapacity() {
+        int capacity = 100;
+        int registrations = 10000;
+
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, capacity);
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<>());
+        UUID conversationUUID = eventController.createEventConversation(conferenceUUID, myUser, eventUUID);
+
+        List<UUID> attendeeUUIDs = new ArrayList<>();
+
+        for (int i = 0; i < registrations; i++) {
+            UUID attendeeUUID = UUID.randomUUID();
+            conferenceController.addAttendee(conferenceUUID, attendeeUUID);
+            attendeeUUIDs.add(attendeeUUID);
+        }
+
+        int full = 0;
+
+        // Controllers are confined to the thread that mutates the managers, so registrations are made one at a time
+        for (UUID attendeeUUID : attendeeUUIDs) {
+            try {
+                eventController.registerForEvent(conferenceUUID, attendeeUUID, attendeeUUID, eventUUID);
+            } catch (FullEventException e) {
+                full++;
+            }
+        }
+
+        Set<UUID> registeredUUIDs = eventController.getEventAttendees(conferenceUUID, myUser, eventUUID);
+        assertEquals(capacity, registeredUUIDs.size());
+        assertEquals(registrations - capacity, full);
+
+        // The event conversation has the registered attendees and the organizer
+        Set<UUID> conversationUUIDs = new HashSet<>(registeredUUIDs);
+        conversationUUIDs.add(myUser);
+        assertEquals(conversationUUIDs, conversationController.getUsersInConversation(conversationUUID));
+
+        for (UUID attendeeUUID : registeredUUIDs) {
+            assertEquals(Collections.singleton(eventUUID), eventController.getAttendeeEvents(conferenceUUID, attendeeUUID));
+        }
+    }
+
     @Test(timeout = 500, expected = PermissionException.class)
     public void testJoinConferenceRandomUser() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
@@ -757,6 +853,90 @@ public class ConferenceTest {
         });
     }
 
+    @Test(timeout = 500)
+    public void testRoomCalendarConflicts() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        // Hour long events with an hour gap between them
+        for (int i = 0; i < 100; i++) {
+            LocalDateTime start = dateC.plusHours(i * 2);
+            eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(start, start.plusHours(1)), roomUUID, new HashSet<>());
+        }
+
+        LocalDateTime gapStart = dateC.plusHours(51);
+
+        // Events overlapping (or touching) a booking are rejected, events in a gap are not
+        TimeRange[] conflictingTimeRanges = {
+                new TimeRange(gapStart.minusMinutes(30), gapStart.plusMinutes(30)),
+                new TimeRange(gapStart, gapStart.plusMinutes(30)),
+                new TimeRange(dateC.minusHours(1), dateC.plusHours(300))
+        };
+
+        for (TimeRange timeRange : conflictingTimeRanges) {
+            try {
+                eventController.createEvent(conferenceUUID, myUser, eventNameB, timeRange, roomUUID, new HashSet<>());
+                fail();
+            } catch (CalendarDoubleBookingException e) {
+                // Expected
+            }
+        }
+
+        eventController.createEvent(conferenceUUID, myUser, eventNameB, new TimeRange(gapStart.plusMinutes(10), gapStart.plusMinutes(50)), roomUUID, new HashSet<>());
+        assertEquals(101, eventController.getEvents(conferenceUUID, myUser).size());
+    }
+
+    @Test(timeout = 500)
+    public void testFindFreeSlots() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID bigRoomUUID = roomController.createRoom(conferenceUUID, myUser, roomB, 10);
+
+        for (int i = 0; i < 3; i++) {
+            LocalDateTime start = dateC.plusHours(i * 2);
+            eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(start, start.plusHours(1)), roomUUID, new HashSet<>());
+        }
+
+        // One slot in each of the two gaps, and one after the last event
+        List<TimeRange> slots = roomController.findFreeSlots(conferenceUUID, myUser, roomUUID, Duration.ofMinutes(30), new TimeRange(dateC, dateC.plusHours(6)));
+        assertEquals(3, slots.size());
+
+        for (TimeRange slot : slots) {
+            eventController.createEvent(conferenceUUID, myUser, eventNameB, slot, roomUUID, new HashSet<>());
+        }
+
+        assertEquals(0, roomController.findFreeSlots(conferenceUUID, myUser, roomUUID, Duration.ofHours(2), new TimeRange(dateC, dateC.plusHours(6))).size());
+
+        TimeRange firstEvent = new TimeRange(dateC, dateC.plusHours(1));
+        assertEquals(Collections.singletonList(bigRoomUUID), roomController.findRoomsFreeDuring(conferenceUUID, myUser, firstEvent, 1));
+        assertEquals(2, roomController.findRoomsFreeDuring(conferenceUUID, myUser, new TimeRange(dateC.minusHours(2), dateC.minusHours(1)), 1).size());
+        assertEquals(0, roomController.findRoomsFreeDuring(conferenceUUID, myUser, new TimeRange(dateC.minusHours(2), dateC.minusHours(1)), 20).size());
+        assertEquals(0, roomController.findRoomsFreeDuring(conferenceUUID, myUser, new TimeRange(dateH, dateH.plusHours(1)), 1).size());
+    }
+
+    @Test(timeout = 500)
+    public void testGetDayEvents() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+        UUID otherRoomUUID = roomController.createRoom(conferenceUUID, myUser, roomB, 2);
+        LocalDate day = dateC.toLocalDate();
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, new TimeRange(dateC, dateC.plusHours(1)), roomUUID, new HashSet<>());
+        UUID multiDayEventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameB, new TimeRange(dateC.plusDays(1), dateC.plusDays(3)), otherRoomUUID, new HashSet<>());
+
+        assertEquals(Collections.singleton(eventUUID), eventController.getDayEvents(conferenceUUID, day));
+        assertEquals(Collections.singleton(multiDayEventUUID), eventController.getDayEvents(conferenceUUID, day.plusDays(2)));
+        assertEquals(Collections.singleton(multiDayEventUUID), eventController.getDayEvents(conferenceUUID, day.plusDays(3)));
+
+        eventController.setEventTimeRange(conferenceUUID, myUser, eventUUID, new TimeRange(dateC.plusDays(2), dateC.plusDays(2).plusHours(1)));
+        assertEquals(0, eventController.getDayEvents(conferenceUUID, day).size());
+        assertEquals(2, eventController.getDayEvents(conferenceUUID, day.plusDays(2)).size());
+
+        eventController.deleteEvent(conferenceUUID, myUser, multiDayEventUUID);
+        assertEquals(Collections.singleton(eventUUID), eventController.getDayEvents(conferenceUUID, day.plusDays(2)));
+        assertEquals(0, eventController.getDayEvents(conferenceUUID, day.plusDays(3)).size());
+    }
+
     @Test(timeout = 500)
     public void testGetSpeakerEvents() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeD, myUser);
@@ -871,6 +1051,121 @@ public class ConferenceTest {
         assertEquals(conversationController.getMessages(someAttendee, eventConversationUUID).size(), 1);
     }
 
+    @Test(timeout = 500)
+    public void testEventConversationMembershipChanges() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        conferenceController.addAttendee(conferenceUUID, someAttendee);
+        conferenceController.addAttendee(conferenceUUID, someAttendeeB);
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<UUID>() {
+            {
+                add(someSpeaker);
+            }
+        });
+
+        UUID eventConversationUUID = eventController.createEventConversation(conferenceUUID, someSpeaker, eventUUID);
+
+        eventController.registerForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        eventController.registerForEvent(conferenceUUID, someAttendeeB, someAttendeeB, eventUUID);
+        assertTrue(conversationController.getUsersInConversation(eventConversationUUID).contains(someAttendee));
+
+        eventController.unregisterForEvent(conferenceUUID, someAttendee, someAttendee, eventUUID);
+        assertFalse(conversationController.getUsersInConversation(eventConversationUUID).contains(someAttendee));
+
+        // Organizers stay in the conversation when they stop attending
+        conferenceController.addOrganizer(conferenceUUID, myUser, someAttendeeB);
+        eventController.unregisterForEvent(conferenceUUID, someAttendeeB, someAttendeeB, eventUUID);
+        assertTrue(conversationController.getUsersInConversation(eventConversationUUID).contains(someAttendeeB));
+
+        conferenceController.removeOrganizer(conferenceUUID, myUser, someAttendeeB);
+        assertFalse(conversationController.getUsersInConversation(eventConversationUUID).contains(someAttendeeB));
+
+        eventController.removeEventSpeaker(conferenceUUID, myUser, eventUUID, someSpeaker);
+        assertFalse(conversationController.getUsersInConversation(eventConversationUUID).contains(someSpeaker));
+    }
+
+    @Test(timeout = 500)
+    public void testMessagePaging() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<UUID>() {
+            {
+                add(someAttendee);
+            }
+        });
+
+        UUID eventConversationUUID = eventController.createEventConversation(conferenceUUID, someAttendee, eventUUID);
+        int initialMessages = conversationController.getMessages(someAttendee, eventConversationUUID).size();
+
+        for (int i = 0; i < 120; i++) {
+            conversationController.sendMessage(someAttendee, "Message " + i, eventConversationUUID);
+        }
+
+        List<MessageView> newestPage = conversationController.getMessages(someAttendee, eventConversationUUID, ConversationController.NEWEST_MESSAGES, 50);
+        assertEquals(50, newestPage.size());
+        assertEquals("Message 119", newestPage.get(0).getContent());
+
+        // Deleting and sending messages doesn't move the cursor
+        long cursor = newestPage.get(49).getSequenceNumber();
+        conversationController.deleteMessage(eventConversationUUID, someAttendee, newestPage.get(10).getSequenceNumber());
+        conversationController.sendMessage(someAttendee, "Message 120", eventConversationUUID);
+
+        int total = newestPage.size();
+        long previousSequenceNumber = cursor;
+
+        while (true) {
+            List<MessageView> page = conversationController.getMessages(someAttendee, eventConversationUUID, cursor, 50);
+
+            for (MessageView message : page) {
+                assertTrue(message.getSequenceNumber() < previousSequenceNumber);
+                previousSequenceNumber = message.getSequenceNumber();
+            }
+
+            if (page.isEmpty()) {
+                break;
+            }
+
+            total += page.size();
+            cursor = page.get(page.size() - 1).getSequenceNumber();
+        }
+
+        assertEquals(120 + initialMessages, total);
+        assertEquals(120 + initialMessages, conversationController.getMessages(someAttendee, eventConversationUUID).size());
+    }
+
+    @Test(timeout = 500)
+    public void testUnreadCountAndArchive() {
+        UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
+        UUID roomUUID = roomController.createRoom(conferenceUUID, myUser, roomA, 2);
+
+        UUID eventUUID = eventController.createEvent(conferenceUUID, myUser, eventNameA, timeRangeA, roomUUID, new HashSet<UUID>() {
+            {
+                add(someAttendee);
+            }
+        });
+
+        UUID eventConversationUUID = eventController.createEventConversation(conferenceUUID, someAttendee, eventUUID);
+        conversationController.getMessages(someAttendee, eventConversationUUID, ConversationController.NEWEST_MESSAGES, 10);
+        assertTrue(conversationController.getUserHasRead(someAttendee, eventConversationUUID));
+
+        conversationController.userArchiveConversation(someAttendee, eventConversationUUID);
+        assertFalse(conversationController.getConversationList(someAttendee).contains(eventConversationUUID));
+
+        conversationController.sendMessage(someAttendee, "First", eventConversationUUID);
+        conversationController.sendMessage(someAttendee, "Second", eventConversationUUID);
+        assertEquals(2, conversationController.getUnreadCount(someAttendee, eventConversationUUID));
+        assertTrue(conversationController.getConversationList(someAttendee).contains(eventConversationUUID));
+
+        conversationController.getMessages(someAttendee, eventConversationUUID, ConversationController.NEWEST_MESSAGES, 10);
+        assertEquals(0, conversationController.getUnreadCount(someAttendee, eventConversationUUID));
+
+        conversationController.userUnreadConversation(someAttendee, eventConversationUUID);
+        assertEquals(1, conversationController.getUnreadCount(someAttendee, eventConversationUUID));
+    }
+
     @Test(timeout = 500, expected = PermissionException.class)
     public void testListEventConversationInsufficientPermission() {
         UUID conferenceUUID = conferenceController.createConference(conferenceNameA, timeRangeA, myUser);
@@ -887,4 +1182,194 @@ public class ConferenceTest {
 
         UUID eventConversationUUID = eventController.createEventConversation(conferenceUUID, randomUser, eventUUID);
     }
+
+    @Test(timeout = 5000)
+    public void testBulkUserImport() throws IOException {
+        File file = File.createTempFile("users", ".csv");
+        file.deleteOnExit();
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            for (int i = 0; i < 2500; i++) {
+                writer.printf("First,\"Last, %d\",user%d,password\r\n", i, i);
+            }
+
+            writer.println("Missing,Columns");
+            writer.println("Duplicate,User,USER7,password");
+        }
+
+        UserManager userManager = new UserManager();
+        ConferenceManager conferenceManager = new ConferenceManager();
+        UUID conferenceUUID = conferenceManager.createConference(conferenceNameA, timeRangeA, myUser);
+
+        List<Integer> failedRows = new ArrayList<>();
+        AtomicInteger lastProgress = new AtomicInteger();
+
+        Set<UUID> newUserUUIDs = new UserImporter(userManager, conferenceManager).importUsers(new CSVReader(file.getPath()), conferenceUUID, new IUserImportListener() {
+            @Override
+            public void progress(int rowsRead, int usersImported) {
+                lastProgress.set(rowsRead);
+            }
+
+            @Override
+            public void rowFailed(int rowNumber, String message) {
+                failedRows.add(rowNumber);
+            }
+        });
+
+        assertEquals(2500, newUserUUIDs.size());
+        assertEquals(Arrays.asList(2501, 2502), failedRows);
+        assertEquals(2502, lastProgress.get());
+        assertEquals(newUserUUIDs, conferenceManager.getAttendees(conferenceUUID));
+        assertEquals("Last, 7", userManager.getUserLastName(userManager.login("user7", "password")));
+    }
+
+    @Test(timeout = 500)
+    public void testSearchUsers() {
+        UserManager userManager = new UserManager();
+        UUID jane = userManager.registerUser("Jane", "Smith", "jsmith", "password");
+        UUID john = userManager.registerUser("John", "Smithers", "jsmithers", "password");
+        userManager.registerUser("Alice", "Jones", "ajones", "password");
+
+        assertEquals(new HashSet<>(Arrays.asList(jane, john)), new HashSet<>(userManager.searchUsers("SMI", 10, null)));
+        assertEquals(Collections.singletonList(jane), userManager.searchUsers("ja sm", 10, null));
+        assertEquals(Collections.singletonList(john), userManager.searchUsers("smith", 10, Collections.singleton(john)));
+        assertEquals(1, userManager.searchUsers("j", 1, null).size());
+
+        userManager.setUserLastName(jane, "Doe");
+        assertEquals(Collections.singletonList(john), userManager.searchUsers("smith", 10, null));
+        assertEquals(Collections.singletonList(jane), userManager.searchUsers("doe", 10, null));
+    }
+
+    @Test(timeout = 500)
+    public void testUsernamesIgnoreCase() {
+        UserManager userManager = new UserManager();
+        UUID jane = userManager.registerUser("Jane", "Smith", "jsmith", "password");
+        UUID john = userManager.registerUser("John", "Smithers", "jsmithers", "password");
+
+        assertEquals(jane, userManager.login("JSmith", "password"));
+        assertNull(userManager.registerUser("Jane", "Smith", "JSMITH", "password"));
+
+        // Changing the case of a username keeps it
+        userManager.setUserUsername(jane, "JSmith");
+        assertEquals("JSmith", userManager.getUserUsername(jane));
+        assertEquals(jane, userManager.login("jsmith", "password"));
+
+        // Renaming frees the old username
+        userManager.setUserUsername(jane, "jdoe");
+        assertNull(userManager.login("jsmith", "password"));
+        assertEquals(jane, userManager.login("JDOE", "password"));
+        userManager.setUserUsername(john, "JSMITH");
+        assertEquals(john, userManager.login("jsmith", "password"));
+    }
+
+    @Test(timeout = 500, expected = UsernameTakenException.class)
+    public void testRenameToTakenUsername() {
+        UserManager userManager = new UserManager();
+        userManager.registerUser("Jane", "Smith", "jsmith", "password");
+        UUID john = userManager.registerUser("John", "Smithers", "jsmithers", "password");
+
+        userManager.setUserUsername(john, "JSmith");
+    }
+
+    @Test(timeout = 500)
+    public void testImportedUsernamesThatOnlyDifferInCase() {
+        // Users saved before usernames were compared ignoring case
+        UserManager upperManager = new UserManager();
+        UUID upper = upperManager.registerUser("Alice", "Upper", "Alice", "upper");
+        UserManager lowerManager = new UserManager();
+        UUID lower = lowerManager.registerUser("Alice", "Lower", "alice", "lower");
+
+        UserManager userManager = new UserManager();
+        userManager.importEntity(upper, upperManager.exportEntity(upper));
+        userManager.importEntity(lower, lowerManager.exportEntity(lower));
+        assertEquals(upper, userManager.login("ALICE", "upper"));
+        assertNull(userManager.login("alice", "lower"));
+
+        // Importing a new version of the user holding the username keeps it there
+        upperManager.setUserLastName(upper, "Changed");
+        userManager.importEntity(upper, upperManager.exportEntity(upper));
+        assertEquals(upper, userManager.login("alice", "upper"));
+
+        // Removing the holder hands the username to the other user, which keeps it when the first comes back
+        userManager.importEntity(upper, null);
+        assertEquals(lower, userManager.login("alice", "lower"));
+        userManager.importEntity(upper, upperManager.exportEntity(upper));
+        assertEquals(lower, userManager.login("alice", "lower"));
+
+        // So does renaming it
+        userManager.setUserUsername(lower, "bob");
+        assertEquals(upper, userManager.login("alice", "upper"));
+        assertEquals(lower, userManager.login("BOB", "lower"));
+    }
+
+    @Test(timeout = 500)
+    public void testSessions() {
+        long[] now = {0};
+        UserManager userManager = new UserManager();
+        SessionManager sessionManager = new SessionManager(1000, 100, () -> now[0]);
+        UserController userController = new UserController(userManager, sessionManager);
+        UUID jane = userManager.registerUser("Jane", "Smith", "jsmith", "password");
+        UUID john = userManager.registerUser("John", "Smithers", "jsmithers", "password");
+
+        String janeSession = userController.login("jsmith", "password");
+        String johnSession = userController.login("jsmithers", "password");
+
+        assertNull(userController.login("jsmith", "wrong"));
+        assertEquals(jane, userController.getSessionUser(janeSession));
+        assertEquals(john, userController.getSessionUser(johnSession));
+
+        // Jane keeps her session alive, John's goes idle
+        now[0] = 800;
+        userController.getSessionUser(janeSession);
+        now[0] = 1500;
+        assertEquals(jane, userController.getSessionUser(janeSession));
+        assertNull(userController.getSessionUser(johnSession));
+
+        // Looking up a session also sweeps idle ones without anybody logging in
+        String idleSession = userController.login("jsmithers", "password");
+        now[0] = 2400;
+        assertEquals(jane, userController.getSessionUser(janeSession));
+        now[0] = 2700;
+        assertEquals(jane, userController.getSessionUser(janeSession));
+        assertEquals(1, sessionManager.getSessionCount());
+        assertNull(userController.getSessionUser(idleSession));
+
+        userController.logout(janeSession);
+        assertNull(userController.getSessionUser(janeSession));
+
+        // Changing the password ends every session of the user
+        String firstSession = userController.login("jsmith", "password");
+        String secondSession = userController.login("jsmith", "password");
+        johnSession = userController.login("jsmithers", "password");
+
+        userController.setUserPassword(jane, "new password");
+        assertNull(userController.getSessionUser(firstSession));
+        assertNull(userController.getSessionUser(secondSession));
+        assertEquals(john, userController.getSessionUser(johnSession));
+        assertEquals(jane, userController.getSessionUser(userController.login("jsmith", "new password")));
+    }
+
+    @Test(timeout = 500)
+    public void testRolesFollowMembershipChanges() {
+        ConferenceManager conferenceManager = new ConferenceManager();
+        UUID conferenceUUID = conferenceManager.createConference(conferenceNameA, timeRangeA, myUser);
+        conferenceManager.addAttendee(conferenceUUID, someAttendee);
+
+        assertEquals(ConferenceManager.ORGANIZER_ROLE, conferenceManager.getRoles(conferenceUUID, myUser));
+        assertEquals(ConferenceManager.ATTENDEE_ROLE, conferenceManager.getRoles(conferenceUUID, someAttendee));
+        assertEquals(0, conferenceManager.getRoles(conferenceUUID, randomUser));
+
+        conferenceManager.addOrganizer(conferenceUUID, someAttendee);
+        assertEquals(ConferenceManager.ATTENDEE_ROLE | ConferenceManager.ORGANIZER_ROLE, conferenceManager.getRoles(conferenceUUID, someAttendee));
+
+        conferenceManager.removeAttendee(conferenceUUID, someAttendee);
+        conferenceManager.removeOrganizer(conferenceUUID, myUser);
+        assertEquals(ConferenceManager.ORGANIZER_ROLE, conferenceManager.getRoles(conferenceUUID, someAttendee));
+        assertEquals(0, conferenceManager.getRoles(conferenceUUID, myUser));
+    }
+
+    @Test(timeout = 500, expected = NullConferenceException.class)
+    public void testRolesOfMissingConference() {
+        new ConferenceManager().getRoles(randomConference, myUser);
+    }
 }
@@ -0,0 +1,992 @@
+import contact.ContactManager;
+import contact.ContactManagerCodec;
+import convention.calendar.TimeRange;
+import convention.conference.ConferenceManager;
+import convention.conference.ConferenceManagerCodec;
+import convention.conference.ConferenceSegmentStore;
+import convention.event.EventManager;
+import convention.exception.NullConferenceException;
+import convention.room.RoomManager;
+import convention.snapshot.MappedConferenceManager;
+import convention.snapshot.MappedEventManager;
+import convention.snapshot.MappedRoomManager;
+import gateway.BinaryReader;
+import gateway.BinarySerializer;
+import gateway.BinaryWriter;
+import gateway.CheckpointedStore;
+import gateway.Checkpointer;
+import gateway.ICodec;
+import gateway.ICheckpointable;
+import gateway.ISnapshot;
+import gateway.Journal;
+import gateway.Serializer;
+import gateway.exceptions.JournalException;
+import messaging.ConversationController;
+import messaging.ConversationManager;
+import messaging.ConversationManagerCodec;
+import org.junit.Test;
+import user.UserManager;
+import user.UserManagerCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class PersistenceTest {
+
+    /* Baseline fixtures */
+
+    // Managers saved with Java serialization by the version before the binary stores, see test/fixtures/baseline
+    UUID alice = UUID.fromString("28461dc3-5c17-48b7-9a19-06669cb1284b");
+    UUID bob = UUID.fromString("3b5dfa0a-bb70-4295-a920-35b39de634c7");
+    UUID carol = UUID.fromString("dc578d64-120c-43ec-b4b6-29996c034f47");
+    UUID baselineConference = UUID.fromString("275414a1-c3f6-49e2-a55c-d82a3776e8f5");
+    UUID baselineRoom = UUID.fromString("8f15745e-69ec-407b-ae0e-75ed48f52776");
+    UUID baselineEvent = UUID.fromString("88cb527c-cdac-45d6-9dc9-dee1dba8fc75");
+    UUID baselineConversation = UUID.fromString("eb363e87-e499-4f34-9f00-04bf99815f7d");
+
+    /**
+     * Finds a fixture whether the tests run from phase2 or from the repository root
+     *
+     * @param name path of the fixture under test/fixtures
+     * @return the fixture file
+     */
+    File fixture(String name) {
+        File file = new File("test/fixtures", name);
+        return file.exists() ? file : new File("phase2/test/fixtures", name);
+    }
+
+    <T> T loadBaseline(String name) {
+        File file = fixture("baseline/" + name);
+        assertTrue(file.exists());
+
+        T loaded = new Serializer<T>(file.getPath()).load(null);
+        assertNotNull(loaded);
+
+        return loaded;
+    }
+
+    @Test(timeout = 1000)
+    public void testLoadBaselineUserManager() {
+        assertBaselineUsers(loadBaseline("userManager.ser"));
+    }
+
+    void assertBaselineUsers(UserManager userManager) {
+        assertEquals(new HashSet<>(Arrays.asList(alice, bob, carol)), userManager.getAllUsers());
+        assertEquals(alice, userManager.login("ALICE", "pw1"));
+        assertNull(userManager.login("bob", "pw1"));
+        assertTrue(userManager.getUserIsGod(alice));
+        assertFalse(userManager.getUserIsGod(bob));
+        assertEquals("Carol Clark", userManager.getUserFullName(carol));
+        assertEquals(Collections.singletonList(bob), userManager.searchUsers("bro", 10, null));
+    }
+
+    @Test(timeout = 1000)
+    public void testLoadBaselineContactManager() {
+        assertBaselineContacts(loadBaseline("contactManager.ser"));
+    }
+
+    void assertBaselineContacts(ContactManager contactManager) {
+        assertEquals(Collections.singleton(bob), contactManager.getContacts(alice));
+        assertEquals(Collections.singleton(alice), contactManager.getContacts(bob));
+        assertEquals(Collections.singleton(alice), contactManager.getRequests(carol));
+        assertEquals(Collections.singleton(carol), contactManager.getSentRequests(alice));
+    }
+
+    @Test(timeout = 1000)
+    public void testLoadBaselineConversationManager() {
+        assertBaselineConversations(loadBaseline("conversationManager.ser"));
+    }
+
+    void assertBaselineConversations(ConversationManager conversationManager) {
+        UserManager userManager = loadBaseline("userManager.ser");
+        ConversationController conversationController = new ConversationController(new ContactManager(), conversationManager, userManager);
+
+        assertEquals(new HashSet<>(Arrays.asList(alice, bob)), conversationManager.getUsers(baselineConversation));
+        assertEquals(3, conversationManager.getConversation(baselineConversation).getConversationMessages().size());
+        assertEquals(3, conversationManager.getConversation(baselineConversation).getNextSequenceNumber());
+
+        // Alice read the conversation and Bob archived it before it was saved
+        assertTrue(conversationManager.getUserHasRead(alice, baselineConversation));
+        assertEquals(3, conversationManager.getUnreadCount(bob, baselineConversation));
+        assertTrue(conversationManager.getUserHasArchived(bob, baselineConversation));
+        assertFalse(conversationManager.getUserHasArchived(alice, baselineConversation));
+
+        // A new message unarchives it
+        conversationController.sendMessage(alice, "Still there?", baselineConversation);
+        assertFalse(conversationManager.getUserHasArchived(bob, baselineConversation));
+        assertEquals(1, conversationManager.getUnreadCount(alice, baselineConversation));
+    }
+
+    @Test(timeout = 1000)
+    public void testLoadBaselineConferenceManager() {
+        assertBaselineConferences(loadBaseline("conferenceManager.ser"));
+    }
+
+    void assertBaselineConferences(ConferenceManager conferenceManager) {
+        TimeRange conferenceTimeRange = new TimeRange(LocalDateTime.of(2021, 3, 1, 9, 0), LocalDateTime.of(2021, 3, 3, 17, 0));
+        TimeRange eventTimeRange = new TimeRange(LocalDateTime.of(2021, 3, 1, 10, 0), LocalDateTime.of(2021, 3, 1, 11, 30));
+
+        assertEquals(Collections.singleton(baselineConference), conferenceManager.getConferences());
+        assertEquals("Baseline Conference", conferenceManager.getConferenceName(baselineConference));
+        assertEquals(conferenceTimeRange, conferenceManager.getTimeRange(baselineConference));
+        assertTrue(conferenceManager.isListedOrganizer(baselineConference, alice));
+        assertTrue(conferenceManager.isAttendee(baselineConference, bob));
+        assertTrue(conferenceManager.isSpeaker(baselineConference, carol));
+        assertEquals(Collections.singleton(baselineConference), conferenceManager.getConferencesWithEventsOn(LocalDate.of(2021, 3, 1)));
+
+        RoomManager roomManager = conferenceManager.getRoomManager(baselineConference);
+        assertEquals("Hall A", roomManager.getRoomLocation(baselineRoom));
+        assertTrue(roomManager.getCalendarManager(baselineRoom).timeRangeOccupied(eventTimeRange));
+
+        EventManager eventManager = conferenceManager.getEventManager(baselineConference);
+        assertEquals("Opening Talk", eventManager.getEventTitle(baselineEvent));
+        assertEquals(eventTimeRange, eventManager.getEventTimeRange(baselineEvent));
+        assertEquals(LocalDateTime.of(2021, 3, 1, 11, 30), eventManager.getEventTimeRange(baselineEvent).getEnd());
+        assertEquals(Collections.singleton(carol), eventManager.getEventSpeakers(baselineEvent));
+        assertEquals(Collections.singleton(bob), eventManager.getEventAttendees(baselineEvent));
+        assertTrue(eventManager.getEventWaitlist(baselineEvent).isEmpty());
+        assertEquals(Collections.singleton(baselineEvent), eventManager.getDayEvents(LocalDate.of(2021, 3, 1)));
+    }
+
+    @Test(timeout = 1000)
+    public void testResaveBaselineConferenceManager() throws IOException {
+        ConferenceManager conferenceManager = loadBaseline("conferenceManager.ser");
+
+        File file = File.createTempFile("conferenceManager", ".ser");
+        file.deleteOnExit();
+
+        new Serializer<ConferenceManager>(file.getPath()).save(conferenceManager);
+        ConferenceManager reloaded = new Serializer<ConferenceManager>(file.getPath()).load(null);
+
+        assertNotNull(reloaded);
+        assertEquals(conferenceManager.getTimeRange(baselineConference), reloaded.getTimeRange(baselineConference));
+        assertEquals(conferenceManager.getEventManager(baselineConference).getEventTimeRange(baselineEvent), reloaded.getEventManager(baselineConference).getEventTimeRange(baselineEvent));
+    }
+
+    /* Codecs */
+
+    /**
+     * Encodes an object with a codec and decodes it again
+     */
+    <T> T roundTrip(T object, ICodec<T> codec) throws IOException {
+        BinarySerializer<T> serializer = new BinarySerializer<>("roundTrip.bin", codec);
+        byte[] encoded = serializer.encode(object);
+        assertNotNull(encoded);
+
+        return serializer.decode(encoded);
+    }
+
+    @Test(timeout = 1000)
+    public void testUserManagerCodecRoundTrip() throws IOException {
+        assertBaselineUsers(roundTrip(loadBaseline("userManager.ser"), new UserManagerCodec()));
+    }
+
+    @Test(timeout = 1000)
+    public void testContactManagerCodecRoundTrip() throws IOException {
+        assertBaselineContacts(roundTrip(loadBaseline("contactManager.ser"), new ContactManagerCodec()));
+    }
+
+    @Test(timeout = 1000)
+    public void testConversationManagerCodecRoundTrip() throws IOException {
+        assertBaselineConversations(roundTrip(loadBaseline("conversationManager.ser"), new ConversationManagerCodec()));
+    }
+
+    @Test(timeout = 1000)
+    public void testConferenceManagerCodecRoundTrip() throws IOException {
+        assertBaselineConferences(roundTrip(loadBaseline("conferenceManager.ser"), new ConferenceManagerCodec()));
+    }
+
+    /* Conference segments */
+
+    @Test(timeout = 5000)
+    public void testSegmentStoreSavesAndLazyLoads() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        Path segment = directory.resolve(baselineConference + ".bin");
+
+        // Without an index, the manager passed in is used and all of its conferences are written
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        store.load(loadBaseline("conferenceManager.ser"));
+        assertTrue(store.save() > 0);
+        assertTrue(Files.exists(directory.resolve("index.bin")));
+        assertTrue(Files.exists(segment));
+        assertEquals(0, store.save());
+
+        ConferenceSegmentStore loadedStore = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager loadedManager = loadedStore.load(new ConferenceManager());
+        assertBaselineConferences(loadedManager);
+
+        // Changed and new conferences are written on the next save
+        loadedManager.setConferenceName(baselineConference, "Renamed Conference");
+        UUID newConference = loadedManager.createConference("New Conference", loadedManager.getTimeRange(baselineConference), alice);
+        assertTrue(loadedStore.save() > 0);
+        assertTrue(Files.exists(directory.resolve(newConference + ".bin")));
+
+        // Conferences are only read from their segment when they are used
+        ConferenceSegmentStore lazyStore = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager lazyManager = lazyStore.load(new ConferenceManager());
+        Files.write(directory.resolve(newConference + ".bin"), "not a segment".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(new HashSet<>(Arrays.asList(baselineConference, newConference)), lazyManager.getConferences());
+        assertEquals("Renamed Conference", lazyManager.getConferenceName(baselineConference));
+
+        try {
+            lazyManager.getConferenceName(newConference);
+            fail();
+        } catch (NullConferenceException e) {
+            // The segment was overwritten after the index was loaded
+        }
+
+        // Deleting a conference deletes its segment once the index no longer lists it
+        lazyManager.deleteConference(baselineConference);
+        assertTrue(lazyStore.save() > 0);
+        assertFalse(Files.exists(segment));
+        assertEquals(Collections.singleton(newConference), new ConferenceSegmentStore(directory.toString()).load(new ConferenceManager()).getConferences());
+    }
+
+    @Test(timeout = 5000)
+    public void testSegmentStoreWritesMappedSnapshot() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        String snapshotFileName = directory.resolve("conferences.snap").toString();
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager conferenceManager = store.load(new ConferenceManager());
+        store.setSnapshotFile(snapshotFileName);
+
+        UUID conferenceUUID = createIndexedConference(conferenceManager);
+        UUID otherConferenceUUID = createIndexedConference(conferenceManager);
+        assertTrue(store.save() > 0);
+        assertMappedConference(MappedConferenceManager.open(snapshotFileName), conferenceUUID, "Conference");
+
+        // Renaming the first conference of the snapshot moves the one after it, which is copied from the old snapshot
+        UUID firstUUID = conferenceUUID.compareTo(otherConferenceUUID) < 0 ? conferenceUUID : otherConferenceUUID;
+        UUID secondUUID = firstUUID == conferenceUUID ? otherConferenceUUID : conferenceUUID;
+        conferenceManager.setConferenceName(firstUUID, "Renamed Conference");
+        assertTrue(store.save() > 0);
+
+        MappedConferenceManager mappedManager = MappedConferenceManager.open(snapshotFileName);
+        assertMappedConference(mappedManager, firstUUID, "Renamed Conference");
+        assertMappedConference(mappedManager, secondUUID, "Conference");
+
+        // The next run writes the snapshot from the segment files, since the old snapshot may be older than them
+        Files.delete(Paths.get(snapshotFileName));
+        ConferenceSegmentStore loadedStore = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager loadedManager = loadedStore.load(new ConferenceManager());
+        loadedStore.setSnapshotFile(snapshotFileName);
+        assertTrue(loadedStore.save() > 0);
+        assertEquals(0, loadedStore.save());
+
+        mappedManager = MappedConferenceManager.open(snapshotFileName);
+        assertMappedConference(mappedManager, firstUUID, "Renamed Conference");
+        assertMappedConference(mappedManager, secondUUID, "Conference");
+
+        loadedManager.deleteConference(firstUUID);
+        assertTrue(loadedStore.save() > 0);
+        mappedManager = MappedConferenceManager.open(snapshotFileName);
+        assertEquals(Collections.singleton(secondUUID), mappedManager.getConferences());
+        assertMappedConference(mappedManager, secondUUID, "Conference");
+    }
+
+    /**
+     * Tests the snapshot of a conference made by createIndexedConference
+     */
+    void assertMappedConference(MappedConferenceManager mappedManager, UUID conferenceUUID, String conferenceName) {
+        assertEquals(conferenceName, mappedManager.getConferenceName(conferenceUUID));
+        assertEquals(Collections.singleton(organizer), mappedManager.getOrganizers(conferenceUUID));
+        assertEquals(Collections.singleton(attendee), mappedManager.getAttendees(conferenceUUID));
+        assertEquals(Collections.singleton(speaker), mappedManager.getSpeakers(conferenceUUID));
+
+        MappedEventManager eventManager = mappedManager.getEventManager(conferenceUUID);
+        MappedRoomManager roomManager = mappedManager.getRoomManager(conferenceUUID);
+        UUID eventUUID = eventManager.getEvents().iterator().next();
+
+        assertEquals("Talk", eventManager.getEventTitle(eventUUID));
+        assertEquals(Collections.singleton(speaker), eventManager.getEventSpeakers(eventUUID));
+        assertEquals("Room", roomManager.getRoomLocation(eventManager.getEventRoom(eventUUID)));
+    }
+
+    /* Unreadable stores */
+
+    /**
+     * Writes a file that neither serializer can read
+     *
+     * @param directory directory to write the file in
+     * @param name      name of the file
+     * @return path of the file
+     */
+    Path writeGarbage(Path directory, String name) throws IOException {
+        return Files.write(directory.resolve(name), "not a store".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the files a store file was moved to
+     *
+     * @param file store file
+     * @return files next to it whose name starts with its name followed by ".unreadable-"
+     */
+    File[] movedAside(Path file) {
+        String prefix = file.getFileName() + ".unreadable-";
+        return file.getParent().toFile().listFiles((directory, name) -> name.startsWith(prefix));
+    }
+
+    @Test(timeout = 1000)
+    public void testMissingStoreLoadsFallback() throws IOException {
+        Path directory = Files.createTempDirectory("stores");
+        UserManager fallback = new UserManager();
+
+        assertSame(fallback, new BinarySerializer<>(directory.resolve("userManager.bin").toString(), new UserManagerCodec()).load(fallback));
+        assertSame(fallback, new Serializer<UserManager>(directory.resolve("userManager.ser").toString()).load(fallback));
+        assertEquals(0, directory.toFile().list().length);
+    }
+
+    @Test(timeout = 1000)
+    public void testUnreadableBinaryStoreIsMovedAside() throws IOException {
+        Path directory = Files.createTempDirectory("stores");
+        Path file = writeGarbage(directory, "userManager.bin");
+        UserManager fallback = new UserManager();
+        BinarySerializer<UserManager> serializer = new BinarySerializer<>(file.toString(), new UserManagerCodec());
+
+        assertSame(fallback, serializer.load(fallback));
+        assertFalse(Files.exists(file));
+        assertEquals(1, movedAside(file).length);
+        assertEquals("not a store", new String(Files.readAllBytes(movedAside(file)[0].toPath()), StandardCharsets.UTF_8));
+
+        // Saving the fallback doesn't touch the unreadable file
+        serializer.save(fallback);
+        assertTrue(Files.exists(file));
+        assertEquals(1, movedAside(file).length);
+    }
+
+    @Test(timeout = 1000)
+    public void testUnreadableLegacyStoreIsMovedAside() throws IOException {
+        Path directory = Files.createTempDirectory("stores");
+        Path file = writeGarbage(directory, "userManager.ser");
+        UserManager fallback = new UserManager();
+
+        assertSame(fallback, new Serializer<UserManager>(file.toString()).load(fallback));
+        assertFalse(Files.exists(file));
+        assertEquals(1, movedAside(file).length);
+    }
+
+    /* Journal */
+
+    /**
+     * Creates a journal that captures changes straight away, on the calling thread
+     *
+     * @param file        journal file
+     * @param userManager store to journal
+     * @return the journal, not started yet
+     */
+    Journal userJournal(Path file, UserManager userManager) {
+        Journal journal = new Journal(file.toString(), Runnable::run);
+        journal.register("user", userManager);
+
+        return journal;
+    }
+
+    /**
+     * Encodes a journal record whose checksum matches its payload
+     *
+     * @param payload payload of the record
+     * @return the record
+     */
+    byte[] journalRecord(byte[] payload) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc32.getValue());
+        out.write(payload);
+
+        return bytes.toByteArray();
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalReplay() throws IOException {
+        Path file = Files.createTempDirectory("journal").resolve("journal.log");
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(file, userManager);
+
+        assertEquals(0, journal.replay());
+        journal.start();
+
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        UUID userB = userManager.registerUser("First", "Last", "userB", "password");
+        userManager.setUserLastName(userB, "Changed");
+        journal.close();
+
+        UserManager replayedManager = new UserManager();
+        Journal replayedJournal = userJournal(file, replayedManager);
+
+        assertTrue(replayedJournal.replay() >= 2);
+        assertEquals(new HashSet<>(Arrays.asList(userA, userB)), replayedManager.getAllUsers());
+        assertEquals("Changed", replayedManager.getUserLastName(userB));
+        assertEquals(userA, replayedManager.login("usera", "password"));
+        assertEquals(new HashSet<>(Arrays.asList(userA, userB)), replayedJournal.getReplayedUUIDs("user"));
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalTruncatesTornTail() throws IOException {
+        Path file = Files.createTempDirectory("journal").resolve("journal.log");
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(file, userManager);
+
+        journal.start();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        journal.close();
+
+        long validLength = Files.size(file);
+
+        // A record header promising more bytes than were written, as left by a crash mid-write
+        byte[] torn = Arrays.copyOf(journalRecord(new byte[100]), 50);
+        Files.write(file, torn, StandardOpenOption.APPEND);
+
+        UserManager replayedManager = new UserManager();
+        assertEquals(1, userJournal(file, replayedManager).replay());
+        assertEquals(Collections.singleton(userA), replayedManager.getAllUsers());
+        assertEquals(validLength, Files.size(file));
+
+        // A complete record whose checksum doesn't match is cut off as well
+        byte[] corrupt = journalRecord(new byte[100]);
+        corrupt[20] ^= 1;
+        Files.write(file, corrupt, StandardOpenOption.APPEND);
+
+        assertEquals(1, userJournal(file, new UserManager()).replay());
+        assertEquals(validLength, Files.size(file));
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalKeepsUndecodableRecord() throws IOException {
+        Path file = Files.createTempDirectory("journal").resolve("journal.log");
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(file, userManager);
+
+        journal.start();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        journal.close();
+
+        // A record that passes its checksum but can't be decoded, followed by more records
+        Files.write(file, journalRecord(new byte[]{1, 2, 3}), StandardOpenOption.APPEND);
+        journal = userJournal(file, userManager);
+        journal.start();
+        userManager.registerUser("First", "Last", "userB", "password");
+        journal.close();
+
+        byte[] contents = Files.readAllBytes(file);
+
+        UserManager replayedManager = new UserManager();
+        Journal replayedJournal = userJournal(file, replayedManager);
+
+        assertEquals(1, replayedJournal.replay());
+        assertEquals(Collections.singleton(userA), replayedManager.getAllUsers());
+
+        // The journal is kept as it was for recovery, and the replayed user is written to the new journal
+        assertFalse(Files.exists(file));
+        assertEquals(1, movedAside(file).length);
+        assertArrayEquals(contents, Files.readAllBytes(movedAside(file)[0].toPath()));
+
+        replayedJournal.start();
+        replayedJournal.close();
+
+        UserManager recoveredManager = new UserManager();
+        assertEquals(1, userJournal(file, recoveredManager).replay());
+        assertEquals(Collections.singleton(userA), recoveredManager.getAllUsers());
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalSyncFailsWhenWritesFail() throws IOException {
+        // Every write to /dev/full fails with "no space left on device"
+        if (!new File("/dev/full").canWrite()) {
+            return;
+        }
+
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(Paths.get("/dev/full"), userManager);
+
+        journal.start();
+        userManager.registerUser("First", "Last", "userA", "password");
+
+        try {
+            journal.sync();
+            fail();
+        } catch (JournalException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        journal.close();
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalConversationDeltas() throws IOException {
+        Path file = Files.createTempDirectory("journal").resolve("journal.log");
+        UserManager userManager = new UserManager();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        UUID userB = userManager.registerUser("First", "Last", "userB", "password");
+
+        ConversationManager conversationManager = new ConversationManager();
+        ConversationController conversationController = new ConversationController(new ContactManager(), conversationManager, userManager);
+        Journal journal = new Journal(file.toString(), Runnable::run);
+        journal.register("conversation", conversationManager);
+        journal.start();
+
+        UUID conversation = conversationManager.createConversation("Chat", new HashSet<>(Arrays.asList(userA, userB)), new HashSet<>(Arrays.asList(userA, userB)), userA, "First");
+        journal.sync();
+        long createdLength = Files.size(file);
+
+        for (int i = 0; i < 200; i++) {
+            conversationController.sendMessage(i % 2 == 0 ? userA : userB, "Message " + i, conversation);
+        }
+
+        conversationController.getMessages(userA, conversation, ConversationController.NEWEST_MESSAGES, 10);
+        conversationController.userArchiveConversation(userB, conversation);
+        journal.close();
+
+        // Each message is journaled on its own, instead of the whole conversation each time
+        assertTrue(Files.size(file) - createdLength < 200 * createdLength);
+
+        ConversationManager replayedManager = new ConversationManager();
+        Journal replayedJournal = new Journal(file.toString(), Runnable::run);
+        replayedJournal.register("conversation", replayedManager);
+        assertEquals(203, replayedJournal.replay());
+
+        assertEquals(201, replayedManager.getConversation(conversation).getConversationMessages().size());
+        assertEquals(201, replayedManager.getConversation(conversation).getNextSequenceNumber());
+        assertTrue(replayedManager.getUserHasRead(userA, conversation));
+        assertEquals(201, replayedManager.getUnreadCount(userB, conversation));
+        assertTrue(replayedManager.getUserHasArchived(userB, conversation));
+
+        // Replaying on top of a state that already has the changes leaves it as it is
+        Journal againJournal = new Journal(file.toString(), Runnable::run);
+        againJournal.register("conversation", replayedManager);
+        assertEquals(203, againJournal.replay());
+        assertEquals(201, replayedManager.getConversation(conversation).getConversationMessages().size());
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalConferenceDeltas() throws IOException {
+        Path file = Files.createTempDirectory("journal").resolve("journal.log");
+        ConferenceManager conferenceManager = new ConferenceManager();
+        Journal journal = new Journal(file.toString(), Runnable::run);
+        journal.register("conference", conferenceManager);
+        journal.start();
+
+        UUID organizer = UUID.randomUUID();
+        UUID conference = conferenceManager.createConference("Conference", new TimeRange(LocalDateTime.of(2030, 1, 1, 9, 0), LocalDateTime.of(2030, 1, 3, 9, 0)), organizer);
+        UUID event = conferenceManager.getEventManager(conference).createEvent("Talk", new TimeRange(LocalDateTime.of(2030, 1, 2, 9, 0), LocalDateTime.of(2030, 1, 2, 10, 0)), UUID.randomUUID(), new HashSet<>());
+        journal.sync();
+        long createdLength = Files.size(file);
+
+        UUID[] attendees = new UUID[200];
+
+        for (int i = 0; i < attendees.length; i++) {
+            attendees[i] = UUID.randomUUID();
+            conferenceManager.addAttendee(conference, attendees[i]);
+        }
+
+        EventManager eventManager = conferenceManager.getEventManager(conference);
+
+        for (int i = 0; i < 100; i++) {
+            eventManager.joinWaitlist(event, attendees[i], 50);
+        }
+
+        eventManager.unregisterAttendee(event, attendees[0], 50);
+        eventManager.leaveWaitlist(event, attendees[99]);
+        eventManager.addEventSpeaker(event, attendees[199]);
+        conferenceManager.removeAttendee(conference, attendees[198]);
+        conferenceManager.addOrganizer(conference, attendees[197]);
+        journal.close();
+
+        ConferenceManager replayedManager = new ConferenceManager();
+        Journal replayedJournal = new Journal(file.toString(), Runnable::run);
+        replayedJournal.register("conference", replayedManager);
+        int records = replayedJournal.replay();
+        assertConferenceDeltas(replayedManager, conference, event, attendees);
+
+        // Each change is journaled on its own, and is much smaller than the two records of the new conference
+        assertTrue(Files.size(file) - createdLength < (records - 2) * createdLength / 2);
+
+        // Replaying on top of a state that already has the changes leaves it as it is
+        Journal againJournal = new Journal(file.toString(), Runnable::run);
+        againJournal.register("conference", replayedManager);
+        assertEquals(records, againJournal.replay());
+        assertConferenceDeltas(replayedManager, conference, event, attendees);
+    }
+
+    /**
+     * Tests the conference made by testJournalConferenceDeltas
+     */
+    void assertConferenceDeltas(ConferenceManager conferenceManager, UUID conference, UUID event, UUID[] attendees) {
+        EventManager eventManager = conferenceManager.getEventManager(conference);
+
+        assertEquals(199, conferenceManager.getAttendees(conference).size());
+        assertFalse(conferenceManager.isAttendee(conference, attendees[198]));
+        assertTrue(conferenceManager.isListedOrganizer(conference, attendees[197]));
+        assertTrue(conferenceManager.isSpeaker(conference, attendees[199]));
+        assertEquals(Collections.singleton(attendees[199]), eventManager.getEventSpeakers(event));
+
+        // The freed seat went to the front of the waitlist
+        assertEquals(50, eventManager.getEventAttendeeCount(event));
+        assertFalse(eventManager.isEventAttendee(event, attendees[0]));
+        assertTrue(eventManager.isEventAttendee(event, attendees[50]));
+        assertEquals(Collections.singleton(event), eventManager.getAttendeeEvents(attendees[50]));
+        assertEquals(48, eventManager.getWaitlistSize(event));
+        assertEquals(1, eventManager.getWaitlistPosition(event, attendees[51]));
+        assertEquals(0, eventManager.getWaitlistPosition(event, attendees[99]));
+    }
+
+    /**
+     * Checkpoints the users in a directory and journals them to the journal.log file in it
+     */
+    Checkpointer userCheckpointer(Path directory, UserManager userManager, Journal journal) {
+        BinarySerializer<UserManager> serializer = new BinarySerializer<>(directory.resolve("userManager.bin").toString(), new UserManagerCodec());
+        Checkpointer checkpointer = new Checkpointer(Runnable::run, Long.MAX_VALUE, Integer.MAX_VALUE);
+        checkpointer.register("user", new CheckpointedStore<>(serializer, userManager));
+        checkpointer.addListener(journal);
+
+        return checkpointer;
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalDiscardsCheckpointedSegments() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        Path file = directory.resolve("journal.log");
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(file, userManager);
+        Checkpointer checkpointer = userCheckpointer(directory, userManager, journal);
+
+        journal.start();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        checkpointer.checkpoint().get();
+
+        // The record after the checkpoint goes to a new segment, and the checkpointed one is deleted
+        UUID userB = userManager.registerUser("First", "Last", "userB", "password");
+        journal.sync();
+
+        assertFalse(Files.exists(file));
+        assertTrue(Files.exists(directory.resolve("journal.log.1")));
+        journal.close();
+
+        UserManager restoredManager = new BinarySerializer<>(directory.resolve("userManager.bin").toString(), new UserManagerCodec()).load(new UserManager());
+        assertEquals(Collections.singleton(userA), restoredManager.getAllUsers());
+
+        assertEquals(1, userJournal(file, restoredManager).replay());
+        assertEquals(new HashSet<>(Arrays.asList(userA, userB)), restoredManager.getAllUsers());
+    }
+
+    @Test(timeout = 5000)
+    public void testJournalKeepsSegmentsWhenCheckpointFails() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        Path file = directory.resolve("journal.log");
+        UserManager userManager = new UserManager();
+        Journal journal = userJournal(file, userManager);
+        Checkpointer checkpointer = userCheckpointer(directory, userManager, journal);
+
+        // A store that captured a change but couldn't write it
+        checkpointer.register("failing", new ICheckpointable() {
+            @Override
+            public int getDirtyCount() {
+                return 1;
+            }
+
+            @Override
+            public ISnapshot capture() {
+                return () -> -1;
+            }
+        });
+
+        journal.start();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        checkpointer.checkpoint().get();
+        checkpointer.checkpoint().get();
+        userManager.registerUser("First", "Last", "userB", "password");
+        journal.sync();
+
+        assertTrue(Files.exists(file));
+        journal.close();
+
+        UserManager replayedManager = new UserManager();
+        assertEquals(2, userJournal(file, replayedManager).replay());
+        assertTrue(replayedManager.getAllUsers().contains(userA));
+    }
+
+    @Test(timeout = 5000)
+    public void testCheckpointedStoreWritesChanges() throws Exception {
+        Path directory = Files.createTempDirectory("checkpoint");
+        BinarySerializer<UserManager> serializer = new BinarySerializer<>(directory.resolve("userManager.bin").toString(), new UserManagerCodec());
+        UserManager userManager = new UserManager();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+
+        // Created before the first checkpoint, like a store loaded at startup
+        Checkpointer checkpointer = new Checkpointer(Runnable::run, Long.MAX_VALUE, Integer.MAX_VALUE);
+        checkpointer.register("user", new CheckpointedStore<>(serializer, userManager));
+        checkpointer.checkpoint().get();
+
+        UUID userB = userManager.registerUser("First", "Last", "userB", "password");
+        userManager.setUserUsername(userA, "renamedA");
+        Future<?> written = checkpointer.checkpoint();
+
+        // Changes after the capture aren't part of the checkpoint
+        userManager.setUserFirstName(userB, "Changed");
+        written.get();
+
+        UserManager loadedManager = serializer.load(new UserManager());
+        assertEquals(new HashSet<>(Arrays.asList(userA, userB)), loadedManager.getAllUsers());
+        assertEquals("renamedA", loadedManager.getUserUsername(userA));
+        assertEquals("First", loadedManager.getUserFirstName(userB));
+        assertEquals(userB, loadedManager.login("userB", "password"));
+
+        checkpointer.checkpoint().get();
+        assertEquals("Changed", serializer.load(new UserManager()).getUserFirstName(userB));
+    }
+
+    @Test(timeout = 5000)
+    public void testCheckpointedStoreCopiesUnchangedRecords() throws Exception {
+        Path directory = Files.createTempDirectory("checkpoint");
+        Path file = directory.resolve("userManager.bin");
+        BinarySerializer<UserManager> serializer = new BinarySerializer<>(file.toString(), new UserManagerCodec());
+        UserManager userManager = new UserManager();
+        UUID userA = userManager.registerUser("First", "Last", "userA", "password");
+        UUID userB = userManager.registerUser("First", "Last", "userB", "password");
+        UUID userC = userManager.registerUser("First", "Last", "userC", "password");
+
+        CheckpointedStore<UserManager> checkpointedStore = new CheckpointedStore<>(serializer, userManager);
+        Checkpointer checkpointer = new Checkpointer(Runnable::run, Long.MAX_VALUE, Integer.MAX_VALUE);
+        checkpointer.register("user", checkpointedStore);
+        checkpointer.checkpoint().get();
+
+        // userC is copied from the previous file, around a changed and a deleted user
+        userManager.setUserLastName(userB, "Changed");
+        userManager.importEntity(userA, null);
+        checkpointedStore.markDirty(userA);
+        checkpointer.checkpoint().get();
+
+        UUID userD = userManager.registerUser("First", "Last", "userD", "password");
+        checkpointer.checkpoint().get();
+
+        UserManager loadedManager = serializer.load(new UserManager());
+        assertEquals(new HashSet<>(Arrays.asList(userB, userC, userD)), loadedManager.getAllUsers());
+        assertEquals("Changed", loadedManager.getUserLastName(userB));
+        assertEquals("userC", loadedManager.getUserUsername(userC));
+        assertEquals(userD, loadedManager.login("userD", "password"));
+        assertEquals(serializer.encode(userManager).length, Files.size(file));
+    }
+
+    /* Conference segment index */
+
+    UUID organizer = UUID.randomUUID();
+    UUID attendee = UUID.randomUUID();
+    UUID speaker = UUID.randomUUID();
+    LocalDateTime conferenceStart = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    /**
+     * Creates a conference with an organizer, an attendee and an event on its second day with a speaker
+     */
+    UUID createIndexedConference(ConferenceManager conferenceManager) {
+        UUID conferenceUUID = conferenceManager.createConference("Conference", new TimeRange(conferenceStart, conferenceStart.plusDays(3)), organizer);
+        conferenceManager.addAttendee(conferenceUUID, attendee);
+
+        UUID roomUUID = conferenceManager.getRoomManager(conferenceUUID).createRoom("Room", 10);
+        TimeRange eventTimeRange = new TimeRange(conferenceStart.plusDays(1), conferenceStart.plusDays(1).plusHours(1));
+        conferenceManager.getEventManager(conferenceUUID).createEvent("Talk", eventTimeRange, roomUUID, Collections.singleton(speaker));
+
+        return conferenceUUID;
+    }
+
+    /**
+     * Tests membership and date queries against the conference made by createIndexedConference
+     */
+    void assertIndexedConference(ConferenceManager conferenceManager, UUID conferenceUUID) {
+        for (UUID userUUID : Arrays.asList(organizer, attendee, speaker)) {
+            assertEquals(Collections.singleton(conferenceUUID), conferenceManager.getMemberConferences(userUUID));
+        }
+
+        assertEquals(ConferenceManager.ORGANIZER_ROLE, conferenceManager.getRoles(conferenceUUID, organizer));
+        assertEquals(ConferenceManager.ATTENDEE_ROLE, conferenceManager.getRoles(conferenceUUID, attendee));
+        assertEquals(ConferenceManager.SPEAKER_ROLE, conferenceManager.getRoles(conferenceUUID, speaker));
+        assertEquals(0, conferenceManager.getRoles(conferenceUUID, UUID.randomUUID()));
+
+        assertEquals(Collections.singleton(conferenceUUID), conferenceManager.getConferencesWithEventsOn(conferenceStart.plusDays(1).toLocalDate()));
+        assertTrue(conferenceManager.getConferencesWithEventsOn(conferenceStart.toLocalDate()).isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void testSegmentIndexAnswersQueriesWithoutSegments() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager conferenceManager = store.load(new ConferenceManager());
+        UUID conferenceUUID = createIndexedConference(conferenceManager);
+        assertTrue(store.save() > 0);
+
+        // The queries are answered from the index alone, so they don't need the segment
+        Files.delete(directory.resolve(conferenceUUID + ".bin"));
+        assertIndexedConference(new ConferenceSegmentStore(directory.toString()).load(new ConferenceManager()), conferenceUUID);
+    }
+
+    @Test(timeout = 5000)
+    public void testSegmentIndexOnlyWritesChangedConferences() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        ConferenceManager conferenceManager = store.load(new ConferenceManager());
+        UUID conferenceUUID = createIndexedConference(conferenceManager);
+        UUID otherConferenceUUID = conferenceManager.createConference("Other", new TimeRange(conferenceStart, conferenceStart.plusDays(1)), organizer);
+        store.save();
+
+        // A change only rewrites the segment and entry file of its conference, not the index or the other conferences
+        Path index = directory.resolve("index.bin");
+        Path otherEntry = directory.resolve(otherConferenceUUID + ".idx");
+        long otherModified = Files.getLastModifiedTime(otherEntry).toMillis() - 10000;
+        Files.setLastModifiedTime(otherEntry, FileTime.fromMillis(otherModified));
+        long indexModified = Files.getLastModifiedTime(index).toMillis() - 10000;
+        Files.setLastModifiedTime(index, FileTime.fromMillis(indexModified));
+
+        conferenceManager.addAttendee(conferenceUUID, UUID.randomUUID());
+        long bytesWritten = store.save();
+        assertEquals(Files.size(directory.resolve(conferenceUUID + ".bin")) + Files.size(directory.resolve(conferenceUUID + ".idx")), bytesWritten);
+        assertEquals(indexModified, Files.getLastModifiedTime(index).toMillis());
+        assertEquals(otherModified, Files.getLastModifiedTime(otherEntry).toMillis());
+
+        // Deleting a conference rewrites the index and deletes both of its files
+        conferenceManager.deleteConference(otherConferenceUUID);
+        assertTrue(store.save() > 0);
+        assertFalse(Files.exists(otherEntry));
+        assertFalse(Files.exists(directory.resolve(otherConferenceUUID + ".bin")));
+
+        Files.delete(directory.resolve(conferenceUUID + ".bin"));
+        ConferenceManager loadedManager = new ConferenceSegmentStore(directory.toString()).load(new ConferenceManager());
+        assertEquals(Collections.singleton(conferenceUUID), loadedManager.getConferences());
+        assertIndexedConference(loadedManager, conferenceUUID);
+    }
+
+    @Test(timeout = 5000)
+    public void testSegmentIndexUpgradesVersion1Index() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        UUID conferenceUUID = createIndexedConference(store.load(new ConferenceManager()));
+        store.save();
+
+        // Version 1 indexes only listed the conference UUIDs
+        new BinarySerializer<Set<UUID>>(directory.resolve("index.bin").toString(), new ICodec<Set<UUID>>() {
+            @Override
+            public int getVersion() {
+                return 1;
+            }
+
+            @Override
+            public void write(Set<UUID> conferenceUUIDs, BinaryWriter out) throws IOException {
+                out.writeUUIDSet(conferenceUUIDs);
+            }
+
+            @Override
+            public Set<UUID> read(BinaryReader in) throws IOException {
+                return in.readUUIDSet();
+            }
+        }).save(Collections.singleton(conferenceUUID));
+        Files.delete(directory.resolve(conferenceUUID + ".idx"));
+
+        ConferenceSegmentStore upgradedStore = new ConferenceSegmentStore(directory.toString());
+        assertIndexedConference(upgradedStore.load(new ConferenceManager()), conferenceUUID);
+        assertTrue(upgradedStore.save() > 0);
+
+        Files.delete(directory.resolve(conferenceUUID + ".bin"));
+        assertIndexedConference(new ConferenceSegmentStore(directory.toString()).load(new ConferenceManager()), conferenceUUID);
+    }
+
+    @Test(timeout = 5000)
+    public void testSegmentIndexUpgradesVersion2Index() throws IOException {
+        Path directory = Files.createTempDirectory("conferences");
+        ConferenceSegmentStore store = new ConferenceSegmentStore(directory.toString());
+        UUID conferenceUUID = createIndexedConference(store.load(new ConferenceManager()));
+        store.save();
+
+        // Version 2 indexes held the roles and days of every conference, which are now in the entry files
+        new BinarySerializer<UUID>(directory.resolve("index.bin").toString(), new ICodec<UUID>() {
+            @Override
+            public int getVersion() {
+                return 2;
+            }
+
+            @Override
+            public void write(UUID conferenceUUID, BinaryWriter out) throws IOException {
+                out.writeInt(1);
+                out.writeUUID(conferenceUUID);
+                out.writeInt(3);
+                out.writeUUID(organizer);
+                out.writeInt(ConferenceManager.ORGANIZER_ROLE);
+                out.writeUUID(attendee);
+                out.writeInt(ConferenceManager.ATTENDEE_ROLE);
+                out.writeUUID(speaker);
+                out.writeInt(ConferenceManager.SPEAKER_ROLE);
+                out.writeInt(1);
+                out.writeLong(conferenceStart.plusDays(1).toLocalDate().toEpochDay());
+            }
+
+            @Override
+            public UUID read(BinaryReader in) throws IOException {
+                return null;
+            }
+        }).save(conferenceUUID);
+        Files.delete(directory.resolve(conferenceUUID + ".idx"));
+
+        // The entries are written to entry files without reading the segments
+        Files.move(directory.resolve(conferenceUUID + ".bin"), directory.resolve("segment"));
+        ConferenceSegmentStore upgradedStore = new ConferenceSegmentStore(directory.toString());
+        assertIndexedConference(upgradedStore.load(new ConferenceManager()), conferenceUUID);
+        assertTrue(upgradedStore.save() > 0);
+        assertTrue(Files.exists(directory.resolve(conferenceUUID + ".idx")));
+
+        assertIndexedConference(new ConferenceSegmentStore(directory.toString()).load(new ConferenceManager()), conferenceUUID);
+    }
+
+    @Test(timeout = 5000)
+    public void testUserManagerCodecReadsVersion1() throws IOException {
+        Path file = Files.createTempDirectory("users").resolve("userManager.bin");
+
+        // Version 1 started with the signed in user
+        new BinarySerializer<UUID>(file.toString(), new ICodec<UUID>() {
+            @Override
+            public int getVersion() {
+                return 1;
+            }
+
+            @Override
+            public void write(UUID userUUID, BinaryWriter out) throws IOException {
+                out.writeUUID(userUUID);
+                out.writeInt(1);
+                out.writeUUID(userUUID);
+                out.writeString("Alice");
+                out.writeString("Anderson");
+                out.writeString("alice");
+                out.writeString("pw1");
+                out.writeBoolean(false);
+            }
+
+            @Override
+            public UUID read(BinaryReader in) {
+                return null;
+            }
+        }).save(alice);
+
+        UserManager userManager = new BinarySerializer<>(file.toString(), new UserManagerCodec()).load(null);
+        assertEquals(Collections.singleton(alice), userManager.getAllUsers());
+        assertEquals(alice, userManager.login("alice", "pw1"));
+    }
+}